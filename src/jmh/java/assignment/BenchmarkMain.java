@@ -0,0 +1,34 @@
+package jmh.java.assignment;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Runs the benchmarks with the GC profiler attached, so every result comes
+ * with its allocation rate. Compile src/main/java and src/jmh/java with
+ * jmh-core and jmh-generator-annprocess on the classpath (annotation
+ * processing enabled) and run this class from the project root, so the
+ * corpora in test_books/ are found.
+ */
+public class BenchmarkMain {
+    /**
+     * Runs the benchmarks.
+     * @param args - Ordinary JMH options, e.g. "GenerationBenchmark" to run
+     * one class or "-p level=0,5" to run only some levels.
+     */
+    public static void main(String[] args) throws RunnerException,
+            CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
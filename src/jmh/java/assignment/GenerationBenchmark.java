@@ -0,0 +1,137 @@
+package jmh.java.assignment;
+
+import main.java.assignment.BackoffRandomWriter;
+import main.java.assignment.ByteRandomWriter;
+import main.java.assignment.DiskRandomWriter;
+import main.java.assignment.MappedCorpus;
+import main.java.assignment.PrimitiveRandomWordWriter;
+import main.java.assignment.PrimitiveRandomWriter;
+import main.java.assignment.RandomWordWriter;
+import main.java.assignment.RandomWriter;
+import main.java.assignment.SuffixArrayWriter;
+import main.java.assignment.TrieRandomWordWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Measures generation from writers trained once per trial: producing
+ * (length) characters or words with each engine, and picking a single
+ * random seed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenerationBenchmark {
+    @Param({"test_books/OneFishTwoFish.txt", "test_books/CatInTheHat.txt",
+            "test_books/MuchAdo.txt"})
+    public String book;
+
+    @Param({"0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10"})
+    public int level;
+
+    @Param({"10000"})
+    public int length; // Characters or words generated per invocation.
+
+    private RandomWriter randomWriter;
+    private RandomWordWriter randomWordWriter;
+    private PrimitiveRandomWriter primitiveRandomWriter;
+    private PrimitiveRandomWordWriter primitiveRandomWordWriter;
+    private SuffixArrayWriter suffixArrayWriter;
+    private BackoffRandomWriter backoffRandomWriter;
+    private ByteRandomWriter byteRandomWriter;
+    private TrieRandomWordWriter trieRandomWordWriter;
+    private DiskRandomWriter diskRandomWriter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        MappedCorpus corpus = MappedCorpus.load(book);
+        randomWriter = (RandomWriter) RandomWriter.createProcessor(level);
+        randomWriter.readText(corpus);
+        randomWordWriter = (RandomWordWriter)
+                RandomWordWriter.createProcessor(level);
+        randomWordWriter.readText(corpus);
+        primitiveRandomWriter = (PrimitiveRandomWriter)
+                PrimitiveRandomWriter.createProcessor(level);
+        primitiveRandomWriter.readText(corpus);
+        primitiveRandomWordWriter = (PrimitiveRandomWordWriter)
+                PrimitiveRandomWordWriter.createProcessor(level);
+        primitiveRandomWordWriter.readText(corpus);
+        suffixArrayWriter = (SuffixArrayWriter)
+                SuffixArrayWriter.createProcessor(level);
+        suffixArrayWriter.readText(corpus);
+        backoffRandomWriter = (BackoffRandomWriter)
+                BackoffRandomWriter.createProcessor(level);
+        backoffRandomWriter.readText(corpus);
+        byteRandomWriter = (ByteRandomWriter)
+                ByteRandomWriter.createProcessor(level);
+        byteRandomWriter.readText(corpus);
+        trieRandomWordWriter = (TrieRandomWordWriter)
+                TrieRandomWordWriter.createProcessor(level);
+        trieRandomWordWriter.readText(corpus);
+        diskRandomWriter = (DiskRandomWriter)
+                DiskRandomWriter.createProcessor(level);
+        diskRandomWriter.buildModel(book);
+    }
+
+    @Benchmark
+    public String randomWriterGenerateText() {
+        return randomWriter.generateText(length);
+    }
+
+    @Benchmark
+    public String randomWordWriterGenerateText() {
+        return randomWordWriter.generateText(length);
+    }
+
+    @Benchmark
+    public String primitiveRandomWriterGenerateText() {
+        return primitiveRandomWriter.generateText(length);
+    }
+
+    @Benchmark
+    public String primitiveRandomWordWriterGenerateText() {
+        return primitiveRandomWordWriter.generateText(length);
+    }
+
+    @Benchmark
+    public String suffixArrayWriterGenerateText() {
+        return suffixArrayWriter.generateText(length);
+    }
+
+    @Benchmark
+    public String backoffRandomWriterGenerateText() {
+        return backoffRandomWriter.generateText(length);
+    }
+
+    @Benchmark
+    public String byteRandomWriterGenerateText() {
+        return byteRandomWriter.generateText(length);
+    }
+
+    @Benchmark
+    public String trieRandomWordWriterGenerateText() {
+        return trieRandomWordWriter.generateText(length);
+    }
+
+    @Benchmark
+    public String diskRandomWriterGenerateText() {
+        return diskRandomWriter.generateText(length);
+    }
+
+    @Benchmark
+    public String pickRandomSeed() {
+        return randomWriter.pickRandomSeed();
+    }
+
+    @Benchmark
+    public String getRandomSeed() {
+        return randomWordWriter.getRandomSeed();
+    }
+}
@@ -0,0 +1,153 @@
+package jmh.java.assignment;
+
+import main.java.assignment.BackoffRandomWriter;
+import main.java.assignment.ByteRandomWriter;
+import main.java.assignment.ExternalModelBuilder;
+import main.java.assignment.LazyRandomWriter;
+import main.java.assignment.MappedCorpus;
+import main.java.assignment.PrimitiveRandomWordWriter;
+import main.java.assignment.PrimitiveRandomWriter;
+import main.java.assignment.RandomWordWriter;
+import main.java.assignment.RandomWriter;
+import main.java.assignment.SuffixArrayWriter;
+import main.java.assignment.TextProcessor;
+import main.java.assignment.TrieRandomWordWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Measures training: reading a corpus from disk, rebuilding the seed maps of
+ * RandomWriter and RandomWordWriter from text already in memory, and
+ * building the tables of the other engines from the same text. The lazy
+ * writer builds nothing, so it is timed to its first generated character.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrainingBenchmark {
+    @Param({"test_books/OneFishTwoFish.txt", "test_books/CatInTheHat.txt",
+            "test_books/MuchAdo.txt"})
+    public String book;
+
+    @Param({"0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10"})
+    public int level;
+
+    private MappedCorpus corpus; // The book, read once per trial.
+    private RandomWriter randomWriter;
+    private RandomWordWriter randomWordWriter;
+    private File diskModel; // Rewritten by every external build.
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = MappedCorpus.load(book);
+        randomWriter = (RandomWriter) RandomWriter.createProcessor(level);
+        randomWriter.readText(corpus);
+        randomWordWriter = (RandomWordWriter)
+                RandomWordWriter.createProcessor(level);
+        randomWordWriter.readText(corpus);
+        diskModel = File.createTempFile("model", ".bin");
+        diskModel.deleteOnExit();
+    }
+
+    @Benchmark
+    public TextProcessor randomWriterReadText() throws IOException {
+        TextProcessor processor = RandomWriter.createProcessor(level);
+        processor.readText(book);
+        return processor;
+    }
+
+    @Benchmark
+    public TextProcessor randomWordWriterReadText() throws IOException {
+        TextProcessor processor = RandomWordWriter.createProcessor(level);
+        processor.readText(book);
+        return processor;
+    }
+
+    @Benchmark
+    public RandomWriter populateNextLetterMap() {
+        randomWriter.populateNextLetterMap();
+        return randomWriter;
+    }
+
+    @Benchmark
+    public RandomWordWriter populateNextWordMap() {
+        randomWordWriter.populateNextWordMap();
+        return randomWordWriter;
+    }
+
+    @Benchmark
+    public TextProcessor primitiveRandomWriterTrain() {
+        TextProcessor processor = PrimitiveRandomWriter.createProcessor(level);
+        processor.readText(corpus);
+        return processor;
+    }
+
+    @Benchmark
+    public TextProcessor primitiveRandomWordWriterTrain() {
+        TextProcessor processor =
+                PrimitiveRandomWordWriter.createProcessor(level);
+        processor.readText(corpus);
+        return processor;
+    }
+
+    @Benchmark
+    public TextProcessor primitiveRandomWriterReadFiles() throws IOException {
+        PrimitiveRandomWriter processor = (PrimitiveRandomWriter)
+                PrimitiveRandomWriter.createProcessor(level);
+        processor.readFiles(List.of(book, book, book, book));
+        return processor;
+    }
+
+    @Benchmark
+    public TextProcessor suffixArrayWriterTrain() {
+        TextProcessor processor = SuffixArrayWriter.createProcessor(level);
+        processor.readText(corpus);
+        return processor;
+    }
+
+    @Benchmark
+    public TextProcessor backoffRandomWriterTrain() {
+        TextProcessor processor = BackoffRandomWriter.createProcessor(level);
+        processor.readText(corpus);
+        return processor;
+    }
+
+    @Benchmark
+    public TextProcessor byteRandomWriterTrain() {
+        TextProcessor processor = ByteRandomWriter.createProcessor(level);
+        processor.readText(corpus);
+        return processor;
+    }
+
+    @Benchmark
+    public TextProcessor trieRandomWordWriterTrain() {
+        TextProcessor processor = TrieRandomWordWriter.createProcessor(level);
+        processor.readText(corpus);
+        return processor;
+    }
+
+    @Benchmark
+    public File externalModelBuild() throws IOException {
+        ExternalModelBuilder builder = new ExternalModelBuilder(level, null,
+                ExternalModelBuilder.DEFAULT_CHUNK_CHARS);
+        builder.addFile(book);
+        builder.finish(diskModel.getPath());
+        return diskModel;
+    }
+
+    @Benchmark
+    public String lazyRandomWriterFirstCharacter() {
+        LazyRandomWriter processor = (LazyRandomWriter)
+                LazyRandomWriter.createProcessor(level);
+        processor.readText(corpus);
+        return processor.generateText(1);
+    }
+}
@@ -0,0 +1,119 @@
+package main.java.assignment;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Walker/Vose alias tables over integer counts. All arithmetic is done in
+ * integers scaled by the total count, so sampling reproduces the counts'
+ * distribution exactly rather than up to floating point error.
+ */
+public final class AliasTable {
+    private final int[] alias;
+    private final int[] threshold;
+    private final int total;
+
+    /**
+     * Builds an alias table for a list of counts.
+     * @param counts - Positive occurrence counts, one per outcome.
+     * @param size - Number of counts to use from the start of the array.
+     */
+    public AliasTable(int[] counts, int size) {
+        this.alias = new int[size];
+        this.threshold = new int[size];
+        this.total = fill(counts, 0, size, alias, threshold);
+    }
+
+    /**
+     * Picks an outcome in O(1).
+     * @param column - Uniform random integer in [0, size).
+     * @param value - Uniform random integer in [0, total()).
+     * @return int - Index of the chosen outcome.
+     */
+    public int sample(int column, int value) {
+        return value < threshold[column] ? column : alias[column];
+    }
+
+    /**
+     * Returns the number of outcomes.
+     * @return int - The table size.
+     */
+    public int size() {
+        return alias.length;
+    }
+
+    /**
+     * Returns the sum of the counts the table was built from.
+     * @return int - The total count.
+     */
+    public int total() {
+        return total;
+    }
+
+    /**
+     * Fills alias and threshold entries for counts[from, to). Column i keeps
+     * outcome i when a value drawn from [0, total) is below threshold[i],
+     * and otherwise yields outcome alias[i]. Alias entries are relative to
+     * from, so slices of shared arrays can be filled independently.
+     * @param counts - Positive occurrence counts.
+     * @param from - First index of the slice.
+     * @param to - One past the last index of the slice.
+     * @param alias - Receives the alias outcome for each column.
+     * @param threshold - Receives the keep threshold for each column.
+     * @return int - The total of the counts in the slice.
+     */
+    public static int fill(int[] counts, int from, int to, int[] alias,
+                           int[] threshold) {
+        int size = to - from;
+        long total = 0;
+        for (int i = from; i < to; i++) {
+            total += counts[i];
+        }
+        if (size == 0) {
+            return 0;
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Successor counts exceed 2^31.");
+        }
+
+        // Scale every count by size so the average column weight is total.
+        long[] scaled = new long[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < size; i++) {
+            scaled[i] = (long) counts[from + i] * size;
+            if (scaled[i] < total) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        // Pair each light column with a heavy outcome that tops it up.
+        while (smallCount > 0 && largeCount > 0) {
+            int light = small[--smallCount];
+            int heavy = large[--largeCount];
+            threshold[from + light] = (int) scaled[light];
+            alias[from + light] = heavy;
+            scaled[heavy] -= total - scaled[light];
+            if (scaled[heavy] < total) {
+                small[smallCount++] = heavy;
+            } else {
+                large[largeCount++] = heavy;
+            }
+        }
+        // Whatever is left is exactly full.
+        while (largeCount > 0) {
+            int full = large[--largeCount];
+            threshold[from + full] = (int) total;
+            alias[from + full] = full;
+        }
+        while (smallCount > 0) {
+            int full = small[--smallCount];
+            threshold[from + full] = (int) total;
+            alias[from + full] = full;
+        }
+        return (int) total;
+    }
+}
@@ -0,0 +1,361 @@
+package main.java.assignment;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.SplittableRandom;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * RandomWriter engine backed by a ContextTrie of every level up to k. When
+ * the last k characters never occur in the text, generation backs off to
+ * the longest shorter context that does, instead of restarting at a random
+ * seed. One trained model also generates at any level below k. A writer
+ * with a memory budget prunes rare contexts to stay within it; generation
+ * backs off past them the same way.
+ */
+public class BackoffRandomWriter implements TextProcessor {
+    // The longest level of analysis (K).
+    private final int level;
+    // Most memory building the trie may take, or Long.MAX_VALUE for none.
+    private final long memoryBudget;
+    // The trained model, replaced as a whole and never modified.
+    private volatile Model model;
+
+    /**
+     * Randomly writes based on text from the specified input file.
+     * @param args - Command line arguments
+     * args[0] is the input filename, a text or a model from saveModel
+     * args[1] is the output filename
+     * args[2] is the level of analysis (k)
+     * args[3] is the length (number of characters) of output
+     */
+    public static void main(String[] args) throws IOException {
+        try {
+            MappedCorpus corpus = RandomWriter.validateInput(args);
+            // Get input arguments
+            String result = args[1];
+            int k = Integer.parseInt(args[2]);
+            long length = Long.parseLong(args[3]);
+            // Write random text based on input
+            TextProcessor processor = createProcessor(k);
+            if (ModelFile.isModelFile(args[0])) {
+                processor.loadModel(args[0]);
+            } else {
+                processor.readText(corpus);
+            }
+            try (FileChannel output = ChunkedTextWriter.openOutput(result)) {
+                processor.writeText(output, length);
+            }
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Static factory method for BackoffRandomWriter.
+     * @param level - The longest level of text analysis to perform.
+     * @return The newly instantiated TextProcessor.
+     */
+    public static TextProcessor createProcessor(int level) {
+        return new BackoffRandomWriter(level, Long.MAX_VALUE);
+    }
+
+    /**
+     * Static factory method for a BackoffRandomWriter that builds its trie
+     * within a memory budget, pruning contexts too rare to fit. The budget
+     * covers the peak of building: the counting maps and the successor
+     * lists laid out from them while the maps are still held. The text
+     * itself is not counted against it.
+     * @param level - The longest level of text analysis to perform.
+     * @param memoryBudget - Most bytes building the trie may take.
+     * @return The newly instantiated TextProcessor.
+     */
+    public static TextProcessor createBoundedProcessor(int level,
+                                                       long memoryBudget) {
+        return new BackoffRandomWriter(level, memoryBudget);
+    }
+
+    /**
+     * Private constructor for the BackoffRandomWriter class.
+     * @param level - The longest level of analysis used to generate output.
+     * @param memoryBudget - Most bytes building the trie may take.
+     */
+    private BackoffRandomWriter(int level, long memoryBudget) {
+        // Get around an edge case
+        this.level = Math.max(level, 0);
+        this.memoryBudget = memoryBudget;
+        this.model = new Model(new char[0], ContextTrie.build(
+                Tokens.of(new char[0]), this.level), null);
+    }
+
+    /**
+     * Immutable result of analysis at every level up to K: the input text
+     * and its context trie. A Model is never modified once built, so any
+     * number of threads can generate from one at the same time.
+     */
+    public static final class Model {
+        private final char[] inputText; // The text used to generate output.
+        private final ContextTrie trie;
+        private final PrunedTrie pruning; // Null if built without a budget.
+
+        private Model(char[] inputText, ContextTrie trie, PrunedTrie pruning) {
+            this.inputText = inputText;
+            this.trie = trie;
+            this.pruning = pruning;
+        }
+
+        /**
+         * Returns the context trie of the model.
+         * @return ContextTrie - The trie.
+         */
+        public ContextTrie trie() {
+            return trie;
+        }
+
+        /**
+         * Probabilistically generates (length) characters into an output
+         * at the model's maximum level.
+         * @param length - Number of characters to generate
+         * @param output - Where the generated characters are appended.
+         * @param random - Source of randomness, used by this call only.
+         * @throws IOException - If the output cannot be appended to.
+         */
+        public void generateText(long length, Appendable output,
+                                 SplittableRandom random) throws IOException {
+            generateText(length, trie.maxLevel(), output, random);
+        }
+
+        /**
+         * Probabilistically generates (length) characters into an output.
+         * Each character follows the longest context of at most (level)
+         * characters that occurs in the text.
+         * @param length - Number of characters to generate
+         * @param level - The level of analysis, at most the maximum level.
+         * @param output - Where the generated characters are appended.
+         * @param random - Source of randomness, used by this call only.
+         * @throws IOException - If the output cannot be appended to.
+         * @throws IllegalArgumentException - If level is negative or above
+         * the maximum level.
+         */
+        public void generateText(long length, int level, Appendable output,
+                                 SplittableRandom random) throws IOException {
+            if (level < 0 || level > trie.maxLevel()) {
+                throw new IllegalArgumentException("The level of analysis "
+                        + "must be between 0 and " + trie.maxLevel()
+                        + ". You set k = " + level);
+            }
+            // Edge case - no successors at all (caused by empty input)
+            if (inputText.length == 0) {
+                return;
+            }
+
+            // The history holds the last (level) characters and is shifted
+            // back to the start of the buffer only when it fills up.
+            int[] history = new int[Math.max(2 * level, 1)];
+            int end = pickRandomSeed(history, level, random);
+
+            // Generate (length) random characters.
+            for (long i = 0; i < length; i++) {
+                // Pick a character through the longest known context.
+                int node = trie.longestContext(history, end, level);
+                int column = random.nextInt(trie.distinctCount(node));
+                int value = random.nextInt(trie.total(node));
+                char randomChar = (char) trie.sample(node, column, value);
+                output.append(randomChar);
+
+                // Update the history
+                if (level != 0) {
+                    if (end == history.length) {
+                        System.arraycopy(history, end - (level - 1), history,
+                                0, level - 1);
+                        end = level - 1;
+                    }
+                    history[end++] = randomChar;
+                }
+            }
+        }
+
+        /**
+         * Copies a random seed of (level) characters that has a successor
+         * from the text into the history. A text no longer than the level
+         * gives a shorter seed.
+         * @return int - The number of characters copied.
+         */
+        private int pickRandomSeed(int[] history, int level,
+                                   SplittableRandom random) {
+            int seedLength = Math.min(level, inputText.length - 1);
+            int seedStartIndex = random.nextInt(
+                    inputText.length - seedLength);
+            for (int i = 0; i < seedLength; i++) {
+                history[i] = inputText[seedStartIndex + i];
+            }
+            return seedLength;
+        }
+    }
+
+    /**
+     * Reads the text from a file for analysis at every level up to K.
+     * @param inputFilename - Name of the source text file.
+     */
+    public void readText(String inputFilename) {
+        try {
+            readText(MappedCorpus.load(inputFilename));
+        } catch (IOException e) {
+            System.err.println("File " + inputFilename + " was not found or ");
+            System.err.println("could not be read.");
+        }
+    }
+
+    /**
+     * Uses already-read text for analysis at every level up to K, in one
+     * pass, or within the memory budget if this writer has one. The new
+     * model replaces the old one only once it is complete.
+     * @param corpus - The source text.
+     */
+    public void readText(MappedCorpus corpus) {
+        char[] inputText = corpus.chars();
+        Tokens tokens = Tokens.of(inputText);
+        if (memoryBudget == Long.MAX_VALUE) {
+            this.model = new Model(inputText, ContextTrie.build(tokens,
+                    level), null);
+        } else {
+            PrunedTrie pruning = PrunedTrie.build(tokens, level,
+                    memoryBudget);
+            this.model = new Model(inputText, pruning.trie(), pruning);
+        }
+    }
+
+    /**
+     * Saves the text and context trie as a backoff model.
+     * @param modelFilename - Name of the model file to write.
+     * @throws IOException - If the model file cannot be written.
+     */
+    public void saveModel(String modelFilename) throws IOException {
+        try (DataOutputStream out = ModelFile.create(modelFilename,
+                ModelFile.BACKOFF_MODEL, level)) {
+            Model current = model;
+            ModelFile.writeText(out, current.inputText);
+            current.trie.write(out);
+        }
+    }
+
+    /**
+     * Loads a backoff model saved at this writer's maximum level.
+     * @param modelFilename - Name of the model file to read.
+     * @throws IOException - If the file cannot be read or does not hold a
+     * backoff model of this level.
+     */
+    public void loadModel(String modelFilename) throws IOException {
+        ModelFile modelFile = ModelFile.open(modelFilename,
+                ModelFile.BACKOFF_MODEL);
+        modelFile.requireLevel(level);
+        char[] text = modelFile.readText();
+        this.model = new Model(text, modelFile.readTrie(), null);
+    }
+
+    /**
+     * Writes text generated using input text to the output file.
+     * @param outputFilename - Name of the file to write to.
+     * @param length - Number of characters to write (non-negative).
+     */
+    public void writeText(String outputFilename, int length) {
+        try (FileChannel output = ChunkedTextWriter.openOutput(
+                outputFilename)) {
+            writeText(output, length);
+        } catch (IOException e) {
+            System.err.println("Could not write to output file " +
+                    outputFilename);
+        }
+    }
+
+    /**
+     * Streams text generated using input text to a channel.
+     * @param channel - Destination of the text. Not closed.
+     * @param length - Number of characters to write (non-negative).
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void writeText(WritableByteChannel channel, long length)
+            throws IOException {
+        writeText(channel, length, RandomStreams.forCurrentThread());
+    }
+
+    /**
+     * Streams text generated from one random stream to a channel.
+     * @param channel - Destination of the text. Not closed.
+     * @param length - Number of characters to write (non-negative).
+     * @param random - Source of randomness, used by this call only.
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void writeText(WritableByteChannel channel, long length,
+                          SplittableRandom random) throws IOException {
+        ChunkedTextWriter output = new ChunkedTextWriter(channel);
+        model.generateText(length, output, random);
+        output.finish();
+    }
+
+    /**
+     * Probabilistically generates text of (length) characters using input text.
+     * @param length - Number of characters to generate
+     * @return String - the generated text.
+     */
+    public String generateText(int length) {
+        return generateText(length, RandomStreams.forCurrentThread());
+    }
+
+    /**
+     * Probabilistically generates text of (length) characters using input text.
+     * The same random stream always produces the same text.
+     * @param length - Number of characters to generate
+     * @param random - Source of randomness, used by this call only.
+     * @return String - the generated text.
+     */
+    public String generateText(int length, SplittableRandom random) {
+        return generateText(length, level, random);
+    }
+
+    /**
+     * Probabilistically generates text at a level below the one the model
+     * was trained for, without retraining.
+     * @param length - Number of characters to generate
+     * @param level - The level of analysis, between 0 and k.
+     * @param random - Source of randomness, used by this call only.
+     * @return String - the generated text.
+     */
+    public String generateText(int length, int level, SplittableRandom random) {
+        StringBuilder generatedTextBuffer = new StringBuilder(
+                Math.max(length, 0));
+        try {
+            model.generateText(length, level, generatedTextBuffer, random);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws.
+        }
+        return generatedTextBuffer.toString();
+    }
+
+    /**
+     * Returns the current model, which can be shared with other threads.
+     * @return Model - The model built by the last readText or loadModel.
+     */
+    public Model getModel() {
+        return model;
+    }
+
+    /**
+     * Returns what the memory budget cost the last model built from text:
+     * the contexts it kept and the probability mass they retain.
+     * @return PrunedTrie - The report, or null if the writer has no budget
+     * or the model was loaded.
+     */
+    public PrunedTrie getPruning() {
+        return model.pruning;
+    }
+
+    /**
+     * Accessor for the context trie for white-box testing.
+     * @return ContextTrie - The trie built by the last readText.
+     */
+    public ContextTrie getTrie() {
+        return model.trie;
+    }
+}
@@ -0,0 +1,167 @@
+package main.java.assignment;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Generates many documents from one trained writer in parallel. Document i
+ * draws all of its randomness from a stream seeded by mixing the batch seed
+ * with i, so its text depends only on the model, the batch seed and i, not
+ * on which thread wrote it or in what order, and any one document can be
+ * regenerated in O(1).
+ */
+public final class BatchGenerator {
+    private final TextProcessor processor; // Trained writer to generate from.
+    private final long batchSeed; // Root of every document's random stream.
+
+    /**
+     * Trains once and writes a batch of documents into a directory.
+     * @param args - Command line arguments
+     * args[0] is the kind of model: char, word, suffix, backoff, byte,
+     * wordtrie or disk
+     * args[1] is the input filename, a text or a model from saveModel
+     * args[2] is the output directory
+     * args[3] is the level of analysis (k)
+     * args[4] is the length (characters or words) of each document
+     * args[5] is the number of documents
+     * args[6] is the batch seed
+     */
+    public static void main(String[] args) {
+        try {
+            if (args.length != 7) {
+                throw new IllegalArgumentException(
+                        "Exactly 7 arguments must be provided.");
+            }
+            int k = Integer.parseInt(args[3]);
+            long length = Long.parseLong(args[4]);
+            int count = Integer.parseInt(args[5]);
+            long batchSeed = Long.parseLong(args[6]);
+            if (k < 0 || length < 0 || count < 0) {
+                throw new IllegalArgumentException("k, length and the number "
+                        + "of documents must be non-negative.");
+            }
+
+            TextProcessor processor = ModelFile.createProcessor(args[0], k);
+            if (ModelFile.isModelFile(args[1])) {
+                processor.loadModel(args[1]);
+            } else {
+                processor.readText(MappedCorpus.load(args[1]));
+            }
+            new BatchGenerator(processor, batchSeed).generate(
+                    Paths.get(args[2]), count, length,
+                    Runtime.getRuntime().availableProcessors());
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Creates a batch generator.
+     * @param processor - A trained writer. It is only generated from.
+     * @param batchSeed - Seed from which every document's stream is split.
+     */
+    public BatchGenerator(TextProcessor processor, long batchSeed) {
+        this.processor = processor;
+        this.batchSeed = batchSeed;
+    }
+
+    /**
+     * Returns the random stream of one document of a batch. The stream is
+     * derived from the batch seed and the index alone, so it takes the same
+     * time for any index.
+     * @param batchSeed - The seed of the batch.
+     * @param index - Index of the document (non-negative).
+     * @return SplittableRandom - The document's stream.
+     */
+    public static SplittableRandom streamFor(long batchSeed, int index) {
+        // Mixing both halves keeps neighbouring seeds from giving streams
+        // that are shifted copies of each other.
+        return new SplittableRandom(mix(mix(batchSeed) + index));
+    }
+
+    /**
+     * Spreads the bits of a seed (the finalizer of SplittableRandom).
+     */
+    private static long mix(long seed) {
+        seed = (seed ^ (seed >>> 30)) * 0xbf58476d1ce4e5b9L;
+        seed = (seed ^ (seed >>> 27)) * 0x94d049bb133111ebL;
+        return seed ^ (seed >>> 31);
+    }
+
+    /**
+     * Returns the file a document of a batch is written to.
+     * @param directory - The output directory of the batch.
+     * @param index - Index of the document.
+     * @return Path - directory/doc-NNNNNN.txt, with the index zero-padded.
+     */
+    public static Path documentPath(Path directory, int index) {
+        return directory.resolve(String.format("doc-%06d.txt", index));
+    }
+
+    /**
+     * Writes (count) documents of (length) characters or words each.
+     * @param directory - Output directory; created if it does not exist.
+     * @param count - Number of documents (non-negative).
+     * @param length - Length of each document (non-negative).
+     * @param threads - Number of documents written at once (positive).
+     * @throws IOException - If the directory or a document cannot be
+     * written.
+     * @throws InterruptedException - If interrupted while waiting for the
+     * documents.
+     */
+    public void generate(Path directory, int count, long length, int threads)
+            throws IOException, InterruptedException {
+        Files.createDirectories(directory);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> documents = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                SplittableRandom random = streamFor(batchSeed, i);
+                Path path = documentPath(directory, i);
+                documents.add(pool.submit(() -> {
+                    try (FileChannel output = ChunkedTextWriter.openOutput(
+                            path.toString())) {
+                        processor.writeText(output, length, random);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> document : documents) {
+                try {
+                    document.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Regenerates a single document of the batch.
+     * @param channel - Destination of the text. Not closed.
+     * @param index - Index of the document.
+     * @param length - Length of the document (non-negative).
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void generateOne(WritableByteChannel channel, int index,
+                            long length) throws IOException {
+        processor.writeText(channel, length, streamFor(batchSeed, index));
+    }
+}
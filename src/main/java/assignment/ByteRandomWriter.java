@@ -0,0 +1,250 @@
+package main.java.assignment;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.SplittableRandom;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * RandomWriter engine that keeps single-byte text as bytes. A text whose
+ * characters all fit in one byte (ASCII or Latin-1) is held in a byte[],
+ * half the size of a char[], and a pure ASCII file is read straight from
+ * its mapped bytes without decoding. Any other text is held as Unicode code
+ * points, so seeds never split a supplementary character's surrogate pair.
+ * Either way the tokens feed the same NGramModel engine.
+ */
+public class ByteRandomWriter implements TextProcessor {
+    // The level of the analysis being done.
+    private final int level;
+    // The trained model, replaced as a whole and never modified.
+    private volatile Model model;
+
+    /**
+     * Randomly writes based on text from the specified input file.
+     * @param args - Command line arguments
+     * args[0] is the input filename, a text or a model from saveModel
+     * args[1] is the output filename
+     * args[2] is the level of analysis (k)
+     * args[3] is the length (number of characters) of output
+     */
+    public static void main(String[] args) throws IOException {
+        try {
+            MappedCorpus corpus = RandomWriter.validateInput(args);
+            // Get input arguments
+            String result = args[1];
+            int k = Integer.parseInt(args[2]);
+            long length = Long.parseLong(args[3]);
+            // Write random text based on input
+            TextProcessor processor = createProcessor(k);
+            if (ModelFile.isModelFile(args[0])) {
+                processor.loadModel(args[0]);
+            } else {
+                processor.readText(corpus);
+            }
+            try (FileChannel output = ChunkedTextWriter.openOutput(result)) {
+                processor.writeText(output, length);
+            }
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Static factory method for ByteRandomWriter.
+     * @param level - The level of text analysis to perform.
+     * @return The newly instantiated TextProcessor.
+     */
+    public static TextProcessor createProcessor(int level) {
+        return new ByteRandomWriter(level);
+    }
+
+    /**
+     * Private constructor for the ByteRandomWriter class.
+     * @param level - The level of analysis used to generate random output.
+     */
+    private ByteRandomWriter(int level) {
+        // Get around an edge case
+        this.level = Math.max(level, 0);
+        this.model = new Model(NGramModel.train(Tokenizer.BYTES, "",
+                this.level));
+    }
+
+    /**
+     * Immutable result of level-k analysis of a text, as bytes or as code
+     * points. The analysis itself is an NGramModel over whichever tokens
+     * the BYTES tokenizer chose. A Model is never modified once built, so
+     * any number of threads can generate from one at the same time.
+     */
+    public static final class Model {
+        private final NGramModel ngrams; // The counts of every seed.
+
+        private Model(NGramModel ngrams) {
+            this.ngrams = ngrams;
+        }
+
+        /**
+         * Returns whether the text is held one byte per character.
+         * @return boolean - True for bytes, false for code points.
+         */
+        public boolean isSingleByte() {
+            return ngrams.tokens().isSingleByte();
+        }
+
+        /**
+         * Returns the transition table of the model.
+         * @return ContextTable - The table, over bytes or code points.
+         */
+        public ContextTable table() {
+            return ngrams.table();
+        }
+
+        /**
+         * Probabilistically generates (length) characters into an output.
+         * A supplementary character counts as one character and is appended
+         * as its whole surrogate pair.
+         * @param length - Number of characters to generate
+         * @param output - Where the generated characters are appended.
+         * @param random - Source of randomness, used by this call only.
+         * @throws IOException - If the output cannot be appended to.
+         */
+        public void generateText(long length, Appendable output,
+                                 SplittableRandom random) throws IOException {
+            ngrams.generate(length, output, random);
+        }
+    }
+
+    /**
+     * Reads the text from a file for level-k analysis. A pure ASCII file
+     * is read as bytes without being decoded.
+     * @param inputFilename - Name of the source text file.
+     */
+    public void readText(String inputFilename) {
+        try {
+            byte[] ascii = MappedCorpus.loadAscii(inputFilename);
+            if (ascii != null) {
+                this.model = new Model(NGramModel.train(Tokenizer.BYTES,
+                        Tokens.of(ascii), level));
+            } else {
+                readText(MappedCorpus.load(inputFilename));
+            }
+        } catch (IOException e) {
+            System.err.println("File " + inputFilename + " was not found or ");
+            System.err.println("could not be read.");
+        }
+    }
+
+    /**
+     * Uses already-read text for level-k analysis. The text is packed into
+     * bytes if every character fits in one, and split into code points
+     * otherwise. The new model replaces the old one only once it is complete.
+     * @param corpus - The source text.
+     */
+    public void readText(MappedCorpus corpus) {
+        this.model = new Model(NGramModel.train(Tokenizer.BYTES,
+                Tokenizer.BYTES.tokenize(corpus), level));
+    }
+
+    /**
+     * Saves the text and transition table as a byte model.
+     * @param modelFilename - Name of the model file to write.
+     * @throws IOException - If the model file cannot be written.
+     */
+    public void saveModel(String modelFilename) throws IOException {
+        model.ngrams.save(modelFilename);
+    }
+
+    /**
+     * Loads a byte model saved at this writer's level.
+     * @param modelFilename - Name of the model file to read.
+     * @throws IOException - If the file cannot be read or does not hold a
+     * byte model of this level.
+     */
+    public void loadModel(String modelFilename) throws IOException {
+        this.model = new Model(NGramModel.load(modelFilename,
+                Tokenizer.BYTES, level));
+    }
+
+    /**
+     * Writes text generated using input text to the output file.
+     * @param outputFilename - Name of the file to write to.
+     * @param length - Number of characters to write (non-negative).
+     */
+    public void writeText(String outputFilename, int length) {
+        try (FileChannel output = ChunkedTextWriter.openOutput(
+                outputFilename)) {
+            writeText(output, length);
+        } catch (IOException e) {
+            System.err.println("Could not write to output file " +
+                    outputFilename);
+        }
+    }
+
+    /**
+     * Streams text generated using input text to a channel.
+     * @param channel - Destination of the text. Not closed.
+     * @param length - Number of characters to write (non-negative).
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void writeText(WritableByteChannel channel, long length)
+            throws IOException {
+        writeText(channel, length, RandomStreams.forCurrentThread());
+    }
+
+    /**
+     * Streams text generated from one random stream to a channel.
+     * @param channel - Destination of the text. Not closed.
+     * @param length - Number of characters to write (non-negative).
+     * @param random - Source of randomness, used by this call only.
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void writeText(WritableByteChannel channel, long length,
+                          SplittableRandom random) throws IOException {
+        ChunkedTextWriter output = new ChunkedTextWriter(channel);
+        model.generateText(length, output, random);
+        output.finish();
+    }
+
+    /**
+     * Probabilistically generates text of (length) characters using input text.
+     * @param length - Number of characters to generate
+     * @return String - the generated text.
+     */
+    public String generateText(int length) {
+        return generateText(length, RandomStreams.forCurrentThread());
+    }
+
+    /**
+     * Probabilistically generates text of (length) characters using input text.
+     * The same random stream always produces the same text.
+     * @param length - Number of characters to generate
+     * @param random - Source of randomness, used by this call only.
+     * @return String - the generated text.
+     */
+    public String generateText(int length, SplittableRandom random) {
+        StringBuilder generatedTextBuffer = new StringBuilder(
+                Math.max(length, 0));
+        try {
+            model.generateText(length, generatedTextBuffer, random);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws.
+        }
+        return generatedTextBuffer.toString();
+    }
+
+    /**
+     * Returns the current model, which can be shared with other threads.
+     * @return Model - The model built by the last readText or loadModel.
+     */
+    public Model getModel() {
+        return model;
+    }
+
+    /**
+     * Accessor for the transition table for white-box testing.
+     * @return ContextTable - The table built by the last readText.
+     */
+    public ContextTable getTable() {
+        return model.table();
+    }
+}
@@ -0,0 +1,130 @@
+package main.java.assignment;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Appendable that encodes generated text as UTF-8 into fixed-size chunks and
+ * writes each chunk to a channel as soon as it fills, so memory use does not
+ * depend on how much text is generated. The buffers start small and double
+ * up to the chunk size, so short texts do not pay for a whole chunk.
+ */
+public final class ChunkedTextWriter implements Appendable, Flushable {
+    // Number of chars buffered before a chunk is encoded and written.
+    public static final int CHUNK_SIZE = 1 << 16;
+    // Number of chars the buffer holds before it first grows.
+    private static final int INITIAL_SIZE = 1 << 8;
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    private CharBuffer chars = CharBuffer.allocate(INITIAL_SIZE);
+    private ByteBuffer bytes; // Empty between drains.
+
+    /**
+     * Creates a writer that sends its output to a channel.
+     * @param channel - Destination of the encoded text. Not closed by finish().
+     */
+    public ChunkedTextWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        // Replace unpaired surrogates the same way FileWriter does.
+        this.encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = ByteBuffer.allocate(encodedSize(INITIAL_SIZE));
+    }
+
+    private int encodedSize(int chars) {
+        return (int) (chars * encoder.maxBytesPerChar());
+    }
+
+    /**
+     * Opens a file for streaming output, replacing any existing contents.
+     * @param outputFilename - Name of the file to write to.
+     * @return FileChannel - Channel positioned at the start of the file.
+     * @throws IOException - If the file cannot be opened for writing.
+     */
+    public static FileChannel openOutput(String outputFilename)
+            throws IOException {
+        return FileChannel.open(Paths.get(outputFilename),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    public ChunkedTextWriter append(char c) throws IOException {
+        if (!chars.hasRemaining()) {
+            if (chars.capacity() < CHUNK_SIZE) {
+                chars.flip();
+                chars = CharBuffer.allocate(chars.capacity() * 2).put(chars);
+            } else {
+                drain(false);
+            }
+        }
+        chars.put(c);
+        return this;
+    }
+
+    public ChunkedTextWriter append(CharSequence text) throws IOException {
+        return append(text, 0, text.length());
+    }
+
+    public ChunkedTextWriter append(CharSequence text, int start, int end)
+            throws IOException {
+        for (int i = start; i < end; i++) {
+            append(text.charAt(i));
+        }
+        return this;
+    }
+
+    /**
+     * Encodes and writes all buffered text. A trailing high surrogate is kept
+     * until its pair arrives.
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void flush() throws IOException {
+        drain(false);
+    }
+
+    /**
+     * Writes all remaining text and resets the encoder. The channel is left
+     * open for the caller to close.
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void finish() throws IOException {
+        drain(true);
+        encoder.flush(bytes);
+        writeBytes();
+        encoder.reset();
+    }
+
+    private void drain(boolean endOfInput) throws IOException {
+        if (bytes.capacity() < encodedSize(chars.capacity())) {
+            bytes = ByteBuffer.allocate(encodedSize(chars.capacity()));
+        }
+        chars.flip();
+        CoderResult result = encoder.encode(chars, bytes, endOfInput);
+        while (result.isOverflow()) {
+            writeBytes();
+            result = encoder.encode(chars, bytes, endOfInput);
+        }
+        chars.compact();
+        writeBytes();
+    }
+
+    private void writeBytes() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
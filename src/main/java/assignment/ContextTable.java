@@ -0,0 +1,665 @@
+package main.java.assignment;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Primitive transition table for level-k analysis of a token sequence
+ * (characters or interned word ids). Contexts are identified by a rolling
+ * hash and stored in an open-addressing table as the position of their first
+ * occurrence, so no seed Strings are created. Each context keeps one
+ * (token, count) entry per distinct successor, plus an alias table over those
+ * entries for O(1) sampling.
+ */
+public final class ContextTable {
+    // Odd multiplier for the rolling hash; arithmetic wraps modulo 2^64.
+    private static final long HASH_BASE = 0x100000001b3L;
+    // Smallest number of positions a parallel build gives one worker.
+    private static final int MIN_PARALLEL_CHUNK = 1 << 16;
+    // Seed positions whose tokens a build loop copies out at once.
+    private static final int BLOCK = 1 << 12;
+
+    private final Tokens tokens; // The tokens contexts point into.
+    private final int level; // The level of the analysis being done.
+    private final long highPower; // HASH_BASE^(level - 1), for rolling.
+
+    // Open-addressing table: slot -> context id + 1, or 0 if empty.
+    private final int[] slots;
+    private final int slotMask;
+    private final int contextCount;
+    private final long[] contextHashes;
+    private final int[] contextPositions; // First occurrence of each context.
+
+    private final SuccessorLists successors; // Indexed by context id.
+
+    private ContextTable(Tokens tokens, int level, int[] slots,
+                         int contextCount, long[] contextHashes,
+                         int[] contextPositions, SuccessorLists successors) {
+        this.tokens = tokens;
+        this.level = level;
+        this.highPower = power(level - 1);
+        this.slots = slots;
+        this.slotMask = slots.length - 1;
+        this.contextCount = contextCount;
+        this.contextHashes = contextHashes;
+        this.contextPositions = contextPositions;
+        this.successors = successors;
+    }
+
+    /**
+     * Builds the transition table for a token sequence in a single pass.
+     * @param tokens - The tokens to analyze. Not copied.
+     * @param level - The level of analysis (k >= 0).
+     * @return ContextTable - The table for tokens.
+     */
+    public static ContextTable build(Tokens tokens, int level) {
+        checkLevel(level);
+        Partial partial = new Partial(tokens, level);
+        partial.count(0, seedCount(tokens, level));
+        return partial.finish();
+    }
+
+    /**
+     * Builds the transition table on a fork-join pool. Each worker hashes
+     * the seeds of one chunk of the text and files every position under a
+     * partition of the hash space, so all occurrences of a context land in
+     * one partition. Each partition then counts its contexts on its own,
+     * with no merging, and the contexts are numbered by first occurrence.
+     * The result is identical to build().
+     * @param tokens - The tokens to analyze. Not copied.
+     * @param level - The level of analysis (k >= 0).
+     * @param pool - The pool that runs the workers.
+     * @return ContextTable - The table for tokens.
+     */
+    public static ContextTable buildParallel(Tokens tokens, int level,
+                                             ForkJoinPool pool) {
+        checkLevel(level);
+        int positions = seedCount(tokens, level);
+        if (positions <= MIN_PARALLEL_CHUNK) {
+            return build(tokens, level);
+        }
+        ParallelBuild build = new ParallelBuild(tokens, level, pool,
+                positions);
+        build.add(0, positions);
+        return build.finish();
+    }
+
+    /**
+     * A table built on a fork-join pool from ranges of seed positions that
+     * are added as they become available. Each range is hashed as soon as
+     * it is added, and each partition of the hash space is counted once
+     * every range is in.
+     */
+    static final class ParallelBuild {
+        private final Tokens tokens;
+        private final int level;
+        private final long highPower;
+        private final ForkJoinPool pool;
+        private final int chunkSize; // Most positions hashed by one task.
+        private final int partitions;
+        private final long[] positionHashes; // Hash of the seed at each.
+        private final List<Chunk> chunks = new ArrayList<>();
+
+        /**
+         * Starts a build.
+         * @param tokens - The tokens to analyze. Not copied.
+         * @param level - The level of analysis (k >= 0).
+         * @param pool - The pool that runs the workers.
+         * @param positions - Bound on the positions of the ranges added.
+         */
+        ParallelBuild(Tokens tokens, int level, ForkJoinPool pool,
+                      int positions) {
+            checkLevel(level);
+            this.tokens = tokens;
+            this.level = level;
+            this.highPower = power(level - 1);
+            this.pool = pool;
+            this.chunkSize = Math.max(MIN_PARALLEL_CHUNK,
+                    positions / (pool.getParallelism() * 4) + 1);
+            this.partitions = pool.getParallelism() * 4;
+            this.positionHashes = new long[positions];
+        }
+
+        /**
+         * Counts the seeds starting at positions [from, to), reading up to
+         * k tokens past to, which must already hold their final values. The
+         * positions are hashed on the pool while the caller goes on.
+         * @param from - First seed position.
+         * @param to - Position after the last seed.
+         */
+        void add(int from, int to) {
+            for (int start = from; start < to; start += chunkSize) {
+                Chunk chunk = new Chunk(start, Math.min(to,
+                        start + chunkSize), partitions);
+                chunk.hashing = pool.submit(() -> hash(chunk));
+                chunks.add(chunk);
+            }
+        }
+
+        /**
+         * Waits for the ranges to be hashed, then counts every partition
+         * and lays the counts out as a table.
+         * @return ContextTable - The table of every added seed.
+         */
+        ContextTable finish() {
+            Partial[] partials = count();
+
+            // Number the contexts of every partition by first occurrence.
+            int[] offsets = new int[partitions + 1];
+            for (int p = 0; p < partitions; p++) {
+                offsets[p + 1] = offsets[p] + partials[p].contextCount;
+            }
+            int contextCount = offsets[partitions];
+            long[] order = new long[contextCount];
+            SuccessorLists.forEach(pool, partitions, p -> {
+                for (int c = 0; c < partials[p].contextCount; c++) {
+                    order[offsets[p] + c] = ((long) partials[p]
+                            .firstPositions[c] << 32) | (offsets[p] + c);
+                }
+            });
+            pool.invoke(ForkJoinTask.adapt(() -> Arrays.parallelSort(order)));
+
+            int[][] ids = new int[partitions][];
+            LongIntHashMap[] pairCounts = new LongIntHashMap[partitions];
+            for (int p = 0; p < partitions; p++) {
+                ids[p] = new int[partials[p].contextCount];
+                pairCounts[p] = partials[p].pairCounts;
+            }
+            long[] hashes = new long[contextCount];
+            int[] firstPositions = new int[contextCount];
+            SuccessorLists.forEach(pool, partitions, share -> {
+                int from = (int) ((long) contextCount * share / partitions);
+                int to = (int) ((long) contextCount * (share + 1)
+                        / partitions);
+                for (int id = from; id < to; id++) {
+                    int concatenated = (int) order[id];
+                    int p = partitionAt(offsets, concatenated);
+                    int local = concatenated - offsets[p];
+                    ids[p][local] = id;
+                    hashes[id] = partials[p].hashes[local];
+                    firstPositions[id] = (int) (order[id] >>> 32);
+                }
+            });
+            return new ContextTable(tokens, level,
+                    index(hashes, contextCount), contextCount, hashes,
+                    firstPositions, SuccessorLists.of(pairCounts, ids,
+                    contextCount, pool));
+        }
+
+        /**
+         * Hashes the seeds of a chunk, counting how many fall in each
+         * partition.
+         */
+        private void hash(Chunk chunk) {
+            int[] window = new int[BLOCK + level];
+            long hash = ContextTable.hash(tokens, chunk.from, level);
+            for (int block = chunk.from; block < chunk.to; block += BLOCK) {
+                int end = Math.min(chunk.to, block + BLOCK);
+                tokens.copyTo(block, end + level, window);
+                for (int i = block; i < end; i++) {
+                    positionHashes[i] = hash;
+                    chunk.sizes[partitionOf(hash)]++;
+                    if (level > 0) {
+                        hash = (hash - window[i - block] * highPower)
+                                * HASH_BASE + window[i - block + level];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Lists the positions of each partition in text order and counts
+         * each partition on its own.
+         */
+        private Partial[] count() {
+            // Each chunk lists its positions after those of earlier chunks.
+            int[] partitionStarts = new int[partitions + 1];
+            int listed = 0;
+            for (Chunk chunk : chunks) {
+                chunk.hashing.join();
+            }
+            for (int p = 0; p < partitions; p++) {
+                partitionStarts[p] = listed;
+                for (Chunk chunk : chunks) {
+                    chunk.next[p] = listed;
+                    listed += chunk.sizes[p];
+                }
+            }
+            partitionStarts[partitions] = listed;
+            int[] listedPositions = new int[listed];
+            SuccessorLists.forEach(pool, chunks.size(), c -> {
+                Chunk chunk = chunks.get(c);
+                for (int i = chunk.from; i < chunk.to; i++) {
+                    listedPositions[chunk.next[partitionOf(
+                            positionHashes[i])]++] = i;
+                }
+            });
+
+            Partial[] partials = new Partial[partitions];
+            SuccessorLists.forEach(pool, partitions, p -> {
+                partials[p] = new Partial(tokens, level);
+                partials[p].count(listedPositions, partitionStarts[p],
+                        partitionStarts[p + 1], positionHashes);
+            });
+            return partials;
+        }
+
+        /**
+         * Picks the partition of a context from the high bits of its mixed
+         * hash, leaving the low bits to spread it within the partition.
+         */
+        private int partitionOf(long hash) {
+            return (int) (((LongIntHashMap.mix(hash) & 0xffffffffL)
+                    * partitions) >>> 32);
+        }
+
+        /**
+         * Finds the partition whose contexts include a concatenated index.
+         */
+        private static int partitionAt(int[] offsets, int concatenated) {
+            int p = Arrays.binarySearch(offsets, concatenated);
+            if (p < 0) {
+                return -p - 2;
+            }
+            // Skip partitions that have no contexts.
+            while (offsets[p + 1] == concatenated) {
+                p++;
+            }
+            return p;
+        }
+
+        /**
+         * A range of seed positions hashed by one task.
+         */
+        private static final class Chunk {
+            private final int from;
+            private final int to;
+            private final int[] sizes; // Positions in each partition.
+            private final int[] next; // Where each partition's next one goes.
+            private ForkJoinTask<?> hashing;
+
+            private Chunk(int from, int to, int partitions) {
+                this.from = from;
+                this.to = to;
+                this.sizes = new int[partitions];
+                this.next = new int[partitions];
+            }
+        }
+    }
+
+    private static void checkLevel(int level) {
+        if (level < 0) {
+            throw new IllegalArgumentException("The level of analysis (k) "
+                    + "must be non-negative. You set k = " + level);
+        }
+    }
+
+    private static int seedCount(Tokens tokens, int level) {
+        return Math.max(tokens.size() - level, 0);
+    }
+
+    /**
+     * Mutable context and pair counts for some positions of a token
+     * sequence. Contexts are numbered in order of first occurrence.
+     */
+    private static final class Partial {
+        private final Tokens tokens;
+        private final int level;
+        private final long highPower;
+        private int[] slots = new int[16]; // Slot -> context id + 1.
+        private long[] hashes = new long[16];
+        private int[] firstPositions = new int[16];
+        private int contextCount;
+        // Key is (context id << 32 | successor token), value is its count.
+        private final LongIntHashMap pairCounts = new LongIntHashMap();
+
+        Partial(Tokens tokens, int level) {
+            this.tokens = tokens;
+            this.level = level;
+            this.highPower = power(level - 1);
+        }
+
+        /**
+         * Counts the contexts starting at positions [from, to), reading up
+         * to k tokens past to.
+         */
+        void count(int from, int to) {
+            int[] window = new int[BLOCK + level];
+            long hash = hash(tokens, from, Math.min(level,
+                    tokens.size() - from));
+            for (int block = from; block < to; block += BLOCK) {
+                int end = Math.min(to, block + BLOCK);
+                tokens.copyTo(block, end + level, window);
+                for (int i = block; i < end; i++) {
+                    int context = intern(hash, i);
+
+                    // Count the token after the context.
+                    int nextToken = window[i - block + level];
+                    pairCounts.increment(pairKey(context, nextToken), 1);
+
+                    // Slide the hash window one token to the right.
+                    if (level > 0) {
+                        hash = (hash - window[i - block] * highPower)
+                                * HASH_BASE + nextToken;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Counts the contexts starting at listed positions, in list order.
+         * @param positions - Positions in text order.
+         * @param from - Index of the first listed position to count.
+         * @param to - Index after the last listed position to count.
+         * @param positionHashes - The hash of the context at every position.
+         */
+        void count(int[] positions, int from, int to,
+                   long[] positionHashes) {
+            int[] nextTokens = new int[Math.min(BLOCK, to - from)];
+            for (int block = from; block < to; block += BLOCK) {
+                int end = Math.min(to, block + BLOCK);
+                tokens.gatherTo(positions, block, end, level, nextTokens);
+                for (int j = block; j < end; j++) {
+                    int i = positions[j];
+                    int context = intern(positionHashes[i], i);
+                    pairCounts.increment(pairKey(context,
+                            nextTokens[j - block]), 1);
+                }
+            }
+        }
+
+        /**
+         * Finds or creates the id of the context starting at a position.
+         */
+        private int intern(long hash, int position) {
+            int slot = LongIntHashMap.mix(hash) & (slots.length - 1);
+            while (slots[slot] != 0) {
+                int candidate = slots[slot] - 1;
+                if (hashes[candidate] == hash && tokens.regionMatches(
+                        firstPositions[candidate], position, level)) {
+                    return candidate;
+                }
+                slot = (slot + 1) & (slots.length - 1);
+            }
+            if (contextCount == hashes.length) {
+                hashes = Arrays.copyOf(hashes, contextCount * 2);
+                firstPositions = Arrays.copyOf(firstPositions,
+                        contextCount * 2);
+            }
+            int context = contextCount++;
+            hashes[context] = hash;
+            firstPositions[context] = position;
+            slots[slot] = context + 1;
+            if (contextCount * 2 > slots.length) {
+                slots = index(hashes, contextCount);
+            }
+            return context;
+        }
+
+        /**
+         * Lays the counts out as an immutable table.
+         */
+        ContextTable finish() {
+            // Re-index at a size that depends only on the context count.
+            return new ContextTable(tokens, level,
+                    index(hashes, contextCount), contextCount,
+                    Arrays.copyOf(hashes, contextCount),
+                    Arrays.copyOf(firstPositions, contextCount),
+                    SuccessorLists.of(pairCounts, contextCount));
+        }
+    }
+
+    /**
+     * Writes the table to a model file. The tokens are saved separately.
+     * @param out - The model being written.
+     * @throws IOException - If the model cannot be written.
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(contextCount);
+        out.writeInt(successors.entryCount());
+        ModelFile.writeLongs(out, contextHashes, contextCount);
+        ModelFile.writeInts(out, contextPositions, contextCount);
+        successors.write(out);
+    }
+
+    /**
+     * Reads a table written by write(). Only the slot index is rebuilt.
+     * @param in - Buffer positioned at the table.
+     * @param tokens - The tokens the table was built over.
+     * @param level - The level of analysis of the table.
+     * @return ContextTable - The table.
+     */
+    static ContextTable read(ByteBuffer in, Tokens tokens, int level) {
+        int contextCount = in.getInt();
+        int pairs = in.getInt();
+        long[] hashes = ModelFile.readLongs(in, contextCount);
+        return new ContextTable(tokens, level, index(hashes, contextCount),
+                contextCount, hashes, ModelFile.readInts(in, contextCount),
+                SuccessorLists.read(in, contextCount, pairs));
+    }
+
+    /**
+     * Computes the rolling hash of a run of tokens.
+     * @param tokens - Array holding the tokens.
+     * @param from - Index of the first token.
+     * @param length - Number of tokens to hash.
+     * @return long - The hash of tokens[from, from + length).
+     */
+    public static long hash(int[] tokens, int from, int length) {
+        long hash = 0;
+        for (int i = from; i < from + length; i++) {
+            hash = hash * HASH_BASE + tokens[i];
+        }
+        return hash;
+    }
+
+    /**
+     * Computes the rolling hash of a run of tokens.
+     * @param tokens - Sequence holding the tokens.
+     * @param from - Index of the first token.
+     * @param length - Number of tokens to hash.
+     * @return long - The hash of tokens[from, from + length).
+     */
+    public static long hash(Tokens tokens, int from, int length) {
+        long hash = 0;
+        for (int i = from; i < from + length; i++) {
+            hash = hash * HASH_BASE + tokens.tokenAt(i);
+        }
+        return hash;
+    }
+
+    /**
+     * Updates a context hash for a window that drops its first token and
+     * appends a new last token.
+     * @param hash - Hash of the current context.
+     * @param dropped - The first token of the current context.
+     * @param added - The token appended to the context.
+     * @return long - Hash of the shifted context.
+     */
+    public long roll(long hash, int dropped, int added) {
+        if (level == 0) {
+            return 0;
+        }
+        return (hash - dropped * highPower) * HASH_BASE + added;
+    }
+
+    /**
+     * Looks up a context.
+     * @param context - Array whose first (level) tokens are the context.
+     * @param hash - Hash of the context, from hash() or roll().
+     * @return int - The context id, or -1 if it never occurs in the text.
+     */
+    public int find(int[] context, long hash) {
+        int slot = LongIntHashMap.mix(hash) & slotMask;
+        while (slots[slot] != 0) {
+            int candidate = slots[slot] - 1;
+            if (contextHashes[candidate] == hash && tokens.matches(
+                    contextPositions[candidate], context, level)) {
+                return candidate;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+        return -1;
+    }
+
+    /**
+     * Picks a successor of a context in O(1) using its alias table.
+     * @param context - A context id from find().
+     * @param column - Uniform random integer in [0, distinctCount(context)).
+     * @param value - Uniform random integer in [0, total(context)).
+     * @return int - The chosen successor token.
+     */
+    public int sample(int context, int column, int value) {
+        return successors.sample(context, column, value);
+    }
+
+    /**
+     * Picks the successor of a context that a list of every occurrence
+     * would hold at a given index.
+     * @param context - A context id from find().
+     * @param index - Occurrence index in [0, total(context)).
+     * @return int - The successor token.
+     */
+    public int successorAt(int context, int index) {
+        return successors.successorAt(context, index);
+    }
+
+    /**
+     * Returns where a context first occurs in the token sequence.
+     * @param context - A context id from find().
+     * @return int - Position of the first token of the context.
+     */
+    public int contextPosition(int context) {
+        return contextPositions[context];
+    }
+
+    /**
+     * Copies the tokens of a context into a buffer.
+     * @param context - A context id from find().
+     * @param seed - Buffer of length at least level().
+     */
+    void copyContext(int context, int[] seed) {
+        for (int i = 0; i < level; i++) {
+            seed[i] = tokens.tokenAt(contextPositions[context] + i);
+        }
+    }
+
+    /**
+     * Returns the hash of a context, as hash() computes it.
+     * @param context - A context id from find().
+     * @return long - The context's hash.
+     */
+    long contextHash(int context) {
+        return contextHashes[context];
+    }
+
+    /**
+     * Returns one of the distinct successors of a context. Successors are
+     * ordered by token.
+     * @param context - A context id from find().
+     * @param column - Index in [0, distinctCount(context)).
+     * @return int - The successor token.
+     */
+    public int successorToken(int context, int column) {
+        return successors.successorToken(context, column);
+    }
+
+    /**
+     * Returns how many times a context is followed by one of its successors.
+     * @param context - A context id from find().
+     * @param column - Index in [0, distinctCount(context)).
+     * @return int - The successor's count.
+     */
+    public int successorCount(int context, int column) {
+        return successors.successorCount(context, column);
+    }
+
+    /**
+     * Returns how many times a context is followed by any token.
+     * @param context - A context id from find().
+     * @return int - The total successor count.
+     */
+    public int total(int context) {
+        return successors.total(context);
+    }
+
+    /**
+     * Returns how many distinct tokens follow a context.
+     * @param context - A context id from find().
+     * @return int - The distinct successor count.
+     */
+    public int distinctCount(int context) {
+        return successors.distinctCount(context);
+    }
+
+    /**
+     * Returns the number of distinct contexts in the text.
+     * @return int - The context count.
+     */
+    public int contextCount() {
+        return contextCount;
+    }
+
+    /**
+     * Returns the number of distinct (context, successor) pairs.
+     * @return int - The number of stored successor entries.
+     */
+    public int successorEntryCount() {
+        return successors.entryCount();
+    }
+
+    /**
+     * Returns the level of analysis the table was built for.
+     * @return int - The level (k).
+     */
+    public int level() {
+        return level;
+    }
+
+    /**
+     * Returns the memory taken by the table's own arrays. The tokens it
+     * points into are not counted, since the text is kept anyway.
+     * @return long - The size in bytes.
+     */
+    public long sizeInBytes() {
+        return ModelStatistics.arrayBytes(slots.length, 4)
+                + ModelStatistics.arrayBytes(contextHashes.length, 8)
+                + ModelStatistics.arrayBytes(contextPositions.length, 4)
+                + successors.sizeInBytes();
+    }
+
+    private static long pairKey(int context, int token) {
+        return SuccessorLists.pairKey(context, token);
+    }
+
+    private static long power(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= HASH_BASE;
+        }
+        return result;
+    }
+
+    /**
+     * Builds an open-addressing index over context hashes, at most half full.
+     */
+    private static int[] index(long[] hashes, int contextCount) {
+        int[] slots = new int[LongIntHashMap.tableSizeFor(contextCount * 2L)];
+        int mask = slots.length - 1;
+        for (int c = 0; c < contextCount; c++) {
+            int slot = LongIntHashMap.mix(hashes[c]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = c + 1;
+        }
+        return slots;
+    }
+}
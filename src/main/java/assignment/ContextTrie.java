@@ -0,0 +1,339 @@
+package main.java.assignment;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Context trie for every level of analysis from 0 up to a maximum K, built
+ * in a single pass over a token sequence. Each node is a context, and its
+ * children extend that context by one token further back in the text, so
+ * the root is the empty (level 0) context and a walk down from it reads a
+ * history backwards. The walk stops at the longest suffix of the history
+ * that occurs in the text, which is where generation backs off to instead
+ * of jumping to a random seed. Each node keeps the successors of its
+ * context, so a query at any level k <= K sees the same counts as a
+ * ContextTable built at level k.
+ */
+public final class ContextTrie {
+    // The empty context, followed by every token of the text.
+    private static final int ROOT = 0;
+    // Odd multiplier for context hashes; arithmetic wraps modulo 2^64.
+    private static final long HASH_BASE = 0x100000001b3L;
+
+    private final int maxLevel; // The longest context in the trie (K).
+    private final int nodeCount;
+    // Key is (node << 32 | token before its context), value is the child.
+    private final LongIntHashMap children;
+    private final int[] depths; // Number of tokens in each node's context.
+    private final SuccessorLists successors; // Indexed by node.
+
+    private ContextTrie(int maxLevel, int nodeCount, LongIntHashMap children,
+                        int[] depths, SuccessorLists successors) {
+        this.maxLevel = maxLevel;
+        this.nodeCount = nodeCount;
+        this.children = children;
+        this.depths = depths;
+        this.successors = successors;
+    }
+
+    /**
+     * Builds the trie for a token sequence in a single pass. Each position
+     * counts its token as a successor of the K contexts that end before it.
+     * @param tokens - The tokens to analyze.
+     * @param maxLevel - The longest context to record (K >= 0).
+     * @return ContextTrie - The trie for tokens.
+     */
+    public static ContextTrie build(Tokens tokens, int maxLevel) {
+        return build(tokens, maxLevel, null, 1, Long.MAX_VALUE);
+    }
+
+    /**
+     * Builds the trie for a token sequence, leaving out the contexts that
+     * occur fewer than minCount times. A context occurs no more often than
+     * its suffixes, so the children of a left-out context are left out too
+     * and lookups back off past them.
+     * @param tokens - The tokens to analyze.
+     * @param maxLevel - The longest context to record (K >= 0).
+     * @param counts - Estimates of every context's count, keyed by
+     * contextHash(), or null to keep every context.
+     * @param minCount - The smallest estimated count a context is kept at.
+     * @param budgetBytes - Most memory the counting maps may take together
+     * with the successor lists laid out from them.
+     * @return ContextTrie - The trie for tokens, or null if the maps and
+     * their layout outgrew the budget.
+     */
+    static ContextTrie build(Tokens tokens, int maxLevel,
+                             CountMinSketch counts, int minCount,
+                             long budgetBytes) {
+        if (maxLevel < 0) {
+            throw new IllegalArgumentException("The level of analysis (k) "
+                    + "must be non-negative. You set k = " + maxLevel);
+        }
+        LongIntHashMap children = new LongIntHashMap();
+        // Key is (node << 32 | successor token), value is its count.
+        LongIntHashMap pairCounts = new LongIntHashMap();
+        int[] depths = new int[16];
+        int nodeCount = 1; // The root.
+
+        for (int i = 0; i < tokens.size(); i++) {
+            int nextToken = tokens.tokenAt(i);
+            int node = ROOT;
+            pairCounts.increment(pairKey(ROOT, nextToken), 1);
+
+            // Walk the contexts ending at i from shortest to longest.
+            int deepest = Math.min(maxLevel, i);
+            long hash = 0;
+            for (int depth = 1; depth <= deepest; depth++) {
+                int token = tokens.tokenAt(i - depth);
+                long key = pairKey(node, token);
+                int child = children.get(key, -1);
+                if (counts != null) {
+                    hash = contextHash(hash, token);
+                }
+                if (child < 0) {
+                    if (counts != null && counts.estimate(hash) < minCount) {
+                        break; // Longer contexts are rarer still.
+                    }
+                    if (nodeCount == depths.length) {
+                        depths = Arrays.copyOf(depths, nodeCount * 2);
+                    }
+                    child = nodeCount++;
+                    depths[child] = depth;
+                    children.put(key, child);
+                }
+                node = child;
+                pairCounts.increment(pairKey(node, nextToken), 1);
+            }
+            // The maps are still held while their successors are laid out.
+            if (children.sizeInBytes() + pairCounts.sizeInBytes()
+                    + ModelStatistics.arrayBytes(depths.length, 4)
+                    + ModelStatistics.arrayBytes(nodeCount, 4)
+                    + SuccessorLists.layoutBytes(pairCounts.size(), nodeCount)
+                    > budgetBytes) {
+                return null;
+            }
+        }
+        return new ContextTrie(maxLevel, nodeCount, children,
+                Arrays.copyOf(depths, nodeCount),
+                SuccessorLists.of(pairCounts, nodeCount));
+    }
+
+    /**
+     * Counts every context of a token sequence into a sketch, keyed the
+     * way build() looks them up.
+     * @param tokens - The tokens to analyze.
+     * @param maxLevel - The longest context to count (K >= 0).
+     * @param counts - The sketch to add to.
+     */
+    static void countContexts(Tokens tokens, int maxLevel,
+                              CountMinSketch counts) {
+        for (int i = 0; i < tokens.size(); i++) {
+            long hash = 0;
+            int deepest = Math.min(maxLevel, i);
+            for (int depth = 1; depth <= deepest; depth++) {
+                hash = contextHash(hash, tokens.tokenAt(i - depth));
+                counts.add(hash);
+            }
+        }
+    }
+
+    /**
+     * Extends the hash of a context by the token before it.
+     */
+    private static long contextHash(long hash, int token) {
+        return hash * HASH_BASE + token + 1;
+    }
+
+    /**
+     * Finds the longest suffix of a history that occurs in the text, up to
+     * a given level. Every node has successors, so the result can always be
+     * sampled unless the text is empty.
+     * @param history - Array holding the tokens generated so far.
+     * @param end - One past the last token of the history.
+     * @param level - Longest context to try, at most maxLevel().
+     * @return int - The node of the longest matching context, or the root
+     * (level 0) if no token of the history matches.
+     */
+    public int longestContext(int[] history, int end, int level) {
+        int node = ROOT;
+        int deepest = Math.min(Math.min(level, maxLevel), end);
+        for (int depth = 1; depth <= deepest; depth++) {
+            int child = children.get(pairKey(node, history[end - depth]), -1);
+            if (child < 0) {
+                break;
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    /**
+     * Looks up a context of exactly one level.
+     * @param context - Array whose first (level) tokens are the context.
+     * @param level - Length of the context, at most maxLevel().
+     * @return int - The node of the context, or -1 if it never occurs in
+     * the text with a successor.
+     */
+    public int find(int[] context, int level) {
+        if (level > maxLevel) {
+            return -1;
+        }
+        int node = longestContext(context, level, level);
+        return depths[node] == level ? node : -1;
+    }
+
+    /**
+     * Picks a successor of a context in O(1) using its alias table.
+     * @param node - A node from longestContext() or find().
+     * @param column - Uniform random integer in [0, distinctCount(node)).
+     * @param value - Uniform random integer in [0, total(node)).
+     * @return int - The chosen successor token.
+     */
+    public int sample(int node, int column, int value) {
+        return successors.sample(node, column, value);
+    }
+
+    /**
+     * Picks the successor of a context that a list of every occurrence
+     * would hold at a given index.
+     * @param node - A node from longestContext() or find().
+     * @param index - Occurrence index in [0, total(node)).
+     * @return int - The successor token.
+     */
+    public int successorAt(int node, int index) {
+        return successors.successorAt(node, index);
+    }
+
+    /**
+     * Returns one of the distinct successors of a context. Successors are
+     * ordered by token.
+     * @param node - A node from longestContext() or find().
+     * @param column - Index in [0, distinctCount(node)).
+     * @return int - The successor token.
+     */
+    public int successorToken(int node, int column) {
+        return successors.successorToken(node, column);
+    }
+
+    /**
+     * Returns how many times a context is followed by one of its successors.
+     * @param node - A node from longestContext() or find().
+     * @param column - Index in [0, distinctCount(node)).
+     * @return int - The successor's count.
+     */
+    public int successorCount(int node, int column) {
+        return successors.successorCount(node, column);
+    }
+
+    /**
+     * Returns how many times a context is followed by any token.
+     * @param node - A node from longestContext() or find().
+     * @return int - The total successor count.
+     */
+    public int total(int node) {
+        return successors.total(node);
+    }
+
+    /**
+     * Returns how many distinct tokens follow a context.
+     * @param node - A node from longestContext() or find().
+     * @return int - The distinct successor count.
+     */
+    public int distinctCount(int node) {
+        return successors.distinctCount(node);
+    }
+
+    /**
+     * Returns the length of a node's context.
+     * @param node - A node from longestContext() or find().
+     * @return int - The level of the context.
+     */
+    public int depth(int node) {
+        return depths[node];
+    }
+
+    /**
+     * Returns the number of contexts of all levels, including the empty one.
+     * @return int - The node count.
+     */
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the number of distinct (context, successor) pairs.
+     * @return int - The number of stored successor entries.
+     */
+    public int successorEntryCount() {
+        return successors.entryCount();
+    }
+
+    /**
+     * Returns the memory taken by the trie's maps and arrays.
+     * @return long - The size in bytes.
+     */
+    public long sizeInBytes() {
+        return children.sizeInBytes()
+                + ModelStatistics.arrayBytes(depths.length, 4)
+                + successors.sizeInBytes();
+    }
+
+    /**
+     * Returns the longest context the trie was built for.
+     * @return int - The maximum level (K).
+     */
+    public int maxLevel() {
+        return maxLevel;
+    }
+
+    /**
+     * Writes the trie to a model file.
+     * @param out - The model being written.
+     * @throws IOException - If the model cannot be written.
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(nodeCount);
+        out.writeInt(successors.entryCount());
+        long[] childKeys = new long[nodeCount];
+        int[] childNodes = new int[nodeCount];
+        int childCount = 0;
+        for (int slot = 0; slot < children.capacity(); slot++) {
+            if (children.isUsed(slot)) {
+                childKeys[childCount] = children.keyAt(slot);
+                childNodes[childCount++] = children.valueAt(slot);
+            }
+        }
+        ModelFile.writeInts(out, depths, nodeCount);
+        ModelFile.writeLongs(out, childKeys, childCount);
+        ModelFile.writeInts(out, childNodes, childCount);
+        successors.write(out);
+    }
+
+    /**
+     * Reads a trie written by write(). Only the child map is rebuilt.
+     * @param in - Buffer positioned at the trie.
+     * @param maxLevel - The maximum level of the trie.
+     * @return ContextTrie - The trie.
+     */
+    static ContextTrie read(ByteBuffer in, int maxLevel) {
+        int nodeCount = in.getInt();
+        int pairs = in.getInt();
+        int[] depths = ModelFile.readInts(in, nodeCount);
+        // Every node but the root is the child of exactly one node.
+        long[] childKeys = ModelFile.readLongs(in, nodeCount - 1);
+        int[] childNodes = ModelFile.readInts(in, nodeCount - 1);
+        LongIntHashMap children = new LongIntHashMap(nodeCount);
+        for (int i = 0; i < childKeys.length; i++) {
+            children.put(childKeys[i], childNodes[i]);
+        }
+        return new ContextTrie(maxLevel, nodeCount, children, depths,
+                SuccessorLists.read(in, nodeCount, pairs));
+    }
+
+    private static long pairKey(int node, int token) {
+        return SuccessorLists.pairKey(node, token);
+    }
+}
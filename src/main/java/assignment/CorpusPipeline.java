@@ -0,0 +1,270 @@
+package main.java.assignment;
+import java.io.*;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Trains one char model on many files. A pool of reader threads maps and
+ * decodes up to 2 * readers files ahead of the consumer, each straight into
+ * its own slot of the combined text, sized by the file's bytes. The consumer
+ * slides each file down against the one before in list order and hands its
+ * range to a fork-join pool for hashing while the next files are still
+ * being read, so the corpus is held only once. Contexts are
+ * counted within each file only, so no context spans the end of one file
+ * and the start of the next. Contexts are numbered by first occurrence in
+ * the combined text, so the result does not depend on which thread
+ * finished first.
+ */
+public final class CorpusPipeline {
+    // Reader threads unless the caller chooses otherwise.
+    public static final int DEFAULT_READERS = Math.min(4,
+            Runtime.getRuntime().availableProcessors());
+
+    private final int readers; // Files decoded at once.
+    private final ForkJoinPool pool; // Pool that counts the contexts.
+
+    /**
+     * Creates a pipeline.
+     * @param readers - Number of reader threads (positive).
+     * @param pool - Pool that counts the contexts of each file.
+     */
+    public CorpusPipeline(int readers, ForkJoinPool pool) {
+        if (readers <= 0) {
+            throw new IllegalArgumentException("The number of readers must "
+                    + "be positive. You set " + readers);
+        }
+        this.readers = readers;
+        this.pool = pool;
+    }
+
+    /**
+     * The combined text of several files and its transition table.
+     */
+    public static final class Documents {
+        private final char[] chars;
+        private final int[] starts; // Start of each file, then the end.
+        private final ContextTable table;
+
+        private Documents(char[] chars, int[] starts, ContextTable table) {
+            this.chars = chars;
+            this.starts = starts;
+            this.table = table;
+        }
+
+        /**
+         * Returns the files' texts, one after another. The array is shared,
+         * not copied, and must not be modified. It is sized by the files'
+         * bytes, so it may run past the text; only its first length() chars
+         * are the text.
+         * @return char[] - The combined text.
+         */
+        public char[] chars() {
+            return chars;
+        }
+
+        /**
+         * Returns the length of the combined text.
+         * @return int - The number of chars of chars() that hold text.
+         */
+        public int length() {
+            return starts[starts.length - 1];
+        }
+
+        /**
+         * Returns where one file's text starts in the combined text.
+         * @param document - Index in [0, documentCount()].
+         * @return int - The start of the file, or the combined length for
+         * documentCount().
+         */
+        public int start(int document) {
+            return starts[document];
+        }
+
+        /**
+         * Returns the number of files read.
+         * @return int - The document count.
+         */
+        public int documentCount() {
+            return starts.length - 1;
+        }
+
+        /**
+         * Returns the transition table of the combined text.
+         * @return ContextTable - The table, without cross-file contexts.
+         */
+        public ContextTable table() {
+            return table;
+        }
+    }
+
+    /**
+     * Expands a source into the files it names, in a stable order. A
+     * directory names its regular files, a path containing *, ?, [ or {
+     * is a glob matched below the directory before its first glob
+     * character, and any other path names itself.
+     * @param source - A directory, a glob or a filename.
+     * @return List - The filenames, sorted.
+     * @throws IOException - If the directory cannot be listed or the glob
+     * matches no file.
+     */
+    public static List<String> listFiles(String source) throws IOException {
+        int glob = indexOfGlob(source);
+        if (glob < 0) {
+            Path path = Paths.get(source);
+            if (!Files.isDirectory(path)) {
+                return List.of(source);
+            }
+            try (Stream<Path> files = Files.list(path)) {
+                return sortedNames(files.filter(Files::isRegularFile));
+            }
+        }
+        int separator = source.lastIndexOf(File.separatorChar, glob);
+        Path directory = Paths.get(separator < 0 ? "."
+                : source.substring(0, separator + 1));
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher(
+                "glob:" + source.substring(separator + 1));
+        List<String> matches;
+        try (Stream<Path> files = Files.walk(directory)) {
+            matches = sortedNames(files.filter(Files::isRegularFile).filter(
+                    file -> matcher.matches(directory.relativize(file))));
+        }
+        if (matches.isEmpty()) {
+            throw new IOException("No file matches " + source + ".");
+        }
+        return matches;
+    }
+
+    /**
+     * Returns whether a source is a directory or a glob rather than a
+     * single file.
+     * @param source - A directory, a glob or a filename.
+     * @return boolean - True if listFiles() may name more than one file.
+     */
+    public static boolean namesManyFiles(String source) {
+        return indexOfGlob(source) >= 0
+                || Files.isDirectory(Paths.get(source));
+    }
+
+    private static int indexOfGlob(String source) {
+        for (int i = 0; i < source.length(); i++) {
+            if ("*?[{".indexOf(source.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<String> sortedNames(Stream<Path> files) {
+        return files.map(Path::toString).sorted()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Reads files and builds the transition table of their texts.
+     * @param filenames - The files, in the order their texts are joined.
+     * @param level - The level of analysis (k >= 0).
+     * @return Documents - The combined text and its table.
+     * @throws IOException - If a file cannot be read, or the texts do not
+     * fit in one array.
+     */
+    public Documents read(List<String> filenames, int level)
+            throws IOException {
+        if (level < 0) {
+            throw new IllegalArgumentException("The level of analysis (k) "
+                    + "must be non-negative. You set k = " + level);
+        }
+        // UTF-8 never decodes to more chars than it has bytes, so each file
+        // fits in a slot as long as its size, and the combined text fits in
+        // their total and never moves.
+        int[] slots = new int[filenames.size() + 1];
+        long totalBytes = 0;
+        for (int i = 0; i < filenames.size(); i++) {
+            totalBytes += Files.size(Paths.get(filenames.get(i)));
+            if (totalBytes > Integer.MAX_VALUE - 8) {
+                throw new IOException("The files are too large to hold in "
+                        + "memory.");
+            }
+            slots[i + 1] = (int) totalBytes;
+        }
+        char[] combined = new char[(int) totalBytes];
+        int[] starts = new int[filenames.size() + 1];
+        ContextTable.ParallelBuild build = new ContextTable.ParallelBuild(
+                Tokens.of(combined), level, pool, combined.length);
+
+        ExecutorService readerPool = Executors.newFixedThreadPool(readers);
+        try {
+            // Keep a bounded window of files read ahead of the consumer.
+            int window = 2 * readers;
+            List<Future<Integer>> decoded = new ArrayList<>(
+                    filenames.size());
+            for (int i = 0; i < Math.min(window, filenames.size()); i++) {
+                decoded.add(submitRead(readerPool, filenames, i, combined,
+                        slots));
+            }
+            for (int i = 0; i < filenames.size(); i++) {
+                int length = await(decoded.get(i));
+                if (i + window < filenames.size()) {
+                    decoded.add(submitRead(readerPool, filenames, i + window,
+                            combined, slots));
+                }
+
+                // Every earlier file is no longer than its slot, so this
+                // only moves the text down into room no reader writes to.
+                int start = starts[i];
+                if (slots[i] != start) {
+                    System.arraycopy(combined, slots[i], combined, start,
+                            length);
+                }
+                starts[i + 1] = start + length;
+                build.add(start, start + Math.max(length - level, 0));
+            }
+        } finally {
+            readerPool.shutdownNow();
+        }
+
+        return new Documents(combined, starts, build.finish());
+    }
+
+    /**
+     * Starts decoding one file into its slot of the combined text.
+     */
+    private static Future<Integer> submitRead(ExecutorService readerPool,
+                                              List<String> filenames,
+                                              int index, char[] combined,
+                                              int[] slots) {
+        return readerPool.submit(() -> MappedCorpus.loadInto(
+                filenames.get(index), combined, slots[index],
+                slots[index + 1] - slots[index]));
+    }
+
+    /**
+     * Waits for a stage of the pipeline, rethrowing what it threw.
+     */
+    private static <T> T await(Future<T> stage) throws IOException {
+        try {
+            return stage.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package main.java.assignment;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Count-min sketch over 64-bit keys: a fixed number of rows of counters,
+ * each row indexed by its own mix of the key. A key's estimate is the
+ * smallest of its counters, so it is never below the true count and only
+ * exceeds it when every row collides. Adds use conservative update, raising
+ * only the counters at the current minimum, which keeps the overestimate
+ * of rare keys much smaller than a plain sketch's.
+ */
+final class CountMinSketch {
+    private static final int ROWS = 4;
+    // Odd constants that give each row an unrelated index for a key.
+    private static final long[] ROW_SEEDS = {
+        0x9e3779b97f4a7c15L, 0xbf58476d1ce4e5b9L,
+        0x94d049bb133111ebL, 0xd6e8feb86659fd93L
+    };
+
+    private final int[] counters; // ROWS rows of width counters each.
+    private final int width;
+    private final int shift; // Keeps the top log2(width) bits of a mix.
+
+    /**
+     * Creates an empty sketch.
+     * @param width - Counters per row; rounded down to a power of two.
+     */
+    CountMinSketch(int width) {
+        this.width = Integer.highestOneBit(Math.max(width, 2));
+        this.shift = 64 - Integer.numberOfTrailingZeros(this.width);
+        this.counters = new int[ROWS * this.width];
+    }
+
+    /**
+     * Returns the width that fills a number of bytes.
+     * @param bytes - The memory to use.
+     * @return int - Counters per row, at most 2^26.
+     */
+    static int widthFor(long bytes) {
+        return (int) Math.min(bytes / (4L * ROWS), 1 << 26);
+    }
+
+    /**
+     * Counts one occurrence of a key.
+     * @param key - The key.
+     */
+    void add(long key) {
+        int min = estimate(key);
+        for (int row = 0; row < ROWS; row++) {
+            int slot = slot(key, row);
+            if (counters[slot] == min && min != Integer.MAX_VALUE) {
+                counters[slot]++;
+            }
+        }
+    }
+
+    /**
+     * Estimates how many times a key was added.
+     * @param key - The key.
+     * @return int - At least the true count.
+     */
+    int estimate(long key) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < ROWS; row++) {
+            min = Math.min(min, counters[slot(key, row)]);
+        }
+        return min;
+    }
+
+    /**
+     * Returns the memory taken by the counters.
+     * @return long - The size in bytes.
+     */
+    long sizeInBytes() {
+        return ModelStatistics.arrayBytes(counters.length, 4);
+    }
+
+    private int slot(long key, int row) {
+        long mixed = (key ^ ROW_SEEDS[row]) * ROW_SEEDS[(row + 1) % ROWS];
+        mixed ^= mixed >>> 29;
+        mixed *= 0xbf58476d1ce4e5b9L;
+        return row * width + (int) (mixed >>> shift);
+    }
+}
@@ -0,0 +1,457 @@
+package main.java.assignment;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Level-k character model that stays on disk and is queried through memory
+ * mapping, so neither the text nor the table has to fit in the heap. The
+ * file holds the ModelFile header, the context and entry counts as longs,
+ * then two regions of fixed-width records sorted by context:
+ *
+ *   contexts: long first occurrence, long first entry, k chars; the last
+ *             record is a sentinel holding the totals
+ *   entries:  long running count within the context, int successor char
+ *
+ * A context is found by binary search over the first region, and a
+ * successor by binary search over its running counts. Each region is mapped
+ * in windows of whole records below 1 GB, so a model may exceed 2 GB.
+ * ExternalModelBuilder writes these files.
+ */
+public final class DiskModel {
+    // The header, context count and entry count.
+    private static final int HEADER_BYTES = 32;
+    private static final int ENTRY_WIDTH = 12;
+    // Most bytes in one mapped window.
+    private static final long WINDOW_BYTES = 1L << 30;
+
+    private final String filename;
+    private final int level; // The level of the analysis (k).
+    private final long contextCount;
+    private final long entryCount;
+    private final Region contexts;
+    private final Region entries;
+
+    private DiskModel(String filename, int level, long contextCount,
+                      long entryCount, Region contexts, Region entries) {
+        this.filename = filename;
+        this.level = level;
+        this.contextCount = contextCount;
+        this.entryCount = entryCount;
+        this.contexts = contexts;
+        this.entries = entries;
+    }
+
+    /**
+     * Maps a disk model and checks its header and size.
+     * @param filename - Name of the model file.
+     * @return DiskModel - The model, backed by the file.
+     * @throws IOException - If the file cannot be read or is not a whole
+     * disk model.
+     */
+    public static DiskModel open(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) != -1) {
+                // Read the whole header unless the file is shorter.
+            }
+            header.flip();
+            int level = ModelFile.readHeader(header, filename,
+                    ModelFile.DISK_MODEL);
+            if (header.remaining() < 16) {
+                throw new IOException("Model file " + filename
+                        + " is truncated or corrupt.");
+            }
+            long contextCount = header.getLong();
+            long entryCount = header.getLong();
+            int width = contextWidth(level);
+            long contextBytes = (contextCount + 1) * width;
+            if (level < 0 || contextCount < 0 || entryCount < 0
+                    || channel.size() != HEADER_BYTES + contextBytes
+                    + entryCount * ENTRY_WIDTH) {
+                throw new IOException("Model file " + filename
+                        + " is truncated or corrupt.");
+            }
+            return new DiskModel(filename, level, contextCount, entryCount,
+                    new Region(channel, HEADER_BYTES, contextCount + 1, width),
+                    new Region(channel, HEADER_BYTES + contextBytes,
+                            entryCount, ENTRY_WIDTH));
+        }
+    }
+
+    /**
+     * Bytes in one context record of a level.
+     */
+    private static int contextWidth(int level) {
+        return 16 + 2 * level;
+    }
+
+    /**
+     * Finds a context by binary search.
+     * @param context - Array whose first k chars are the context.
+     * @return long - The index of the context, or -1 if it never occurs in
+     * the text with a successor.
+     */
+    public long find(char[] context) {
+        long low = 0;
+        long high = contextCount - 1;
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            int order = compare(middle, context);
+            if (order < 0) {
+                low = middle + 1;
+            } else if (order > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private int compare(long index, char[] context) {
+        ByteBuffer window = contexts.window(index);
+        int offset = contexts.offset(index) + 16;
+        for (int i = 0; i < level; i++) {
+            int order = Character.compare(window.getChar(offset + 2 * i),
+                    context[i]);
+            if (order != 0) {
+                return order;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Finds the context at an occurrence, so every occurrence of every
+     * context is equally likely to be picked.
+     * @param occurrence - Index in [0, occurrenceCount()).
+     * @return long - The index of the context.
+     */
+    public long contextAt(long occurrence) {
+        long low = 0;
+        long high = contextCount - 1;
+        while (low < high) {
+            long middle = (low + high + 1) >>> 1;
+            if (occurrenceStart(middle) <= occurrence) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Copies the chars of a context into a buffer.
+     * @param index - A context index.
+     * @param context - Buffer of length at least k.
+     */
+    public void copyContext(long index, char[] context) {
+        ByteBuffer window = contexts.window(index);
+        int offset = contexts.offset(index) + 16;
+        for (int i = 0; i < level; i++) {
+            context[i] = window.getChar(offset + 2 * i);
+        }
+    }
+
+    /**
+     * Picks a successor of a context in O(log n) from its running counts.
+     * @param index - A context index.
+     * @param value - Uniform random integer in [0, total(index)).
+     * @return char - The chosen successor.
+     */
+    public char sample(long index, long value) {
+        long low = entryStart(index);
+        long high = entryStart(index + 1) - 1;
+        // The first entry whose running count exceeds the value.
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (runningCount(middle) <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return token(low);
+    }
+
+    /**
+     * Returns one of the distinct successors of a context. Successors are
+     * ordered by char.
+     * @param index - A context index.
+     * @param column - Index in [0, distinctCount(index)).
+     * @return char - The successor.
+     */
+    public char successorToken(long index, int column) {
+        return token(entryStart(index) + column);
+    }
+
+    /**
+     * Returns how many times a context is followed by one of its successors.
+     * @param index - A context index.
+     * @param column - Index in [0, distinctCount(index)).
+     * @return long - The successor's count.
+     */
+    public long successorCount(long index, int column) {
+        long entry = entryStart(index) + column;
+        return column == 0 ? runningCount(entry)
+                : runningCount(entry) - runningCount(entry - 1);
+    }
+
+    /**
+     * Returns how many times a context is followed by any char.
+     * @param index - A context index.
+     * @return long - The total successor count.
+     */
+    public long total(long index) {
+        return occurrenceStart(index + 1) - occurrenceStart(index);
+    }
+
+    /**
+     * Returns how many distinct chars follow a context.
+     * @param index - A context index.
+     * @return int - The distinct successor count.
+     */
+    public int distinctCount(long index) {
+        return (int) (entryStart(index + 1) - entryStart(index));
+    }
+
+    private long occurrenceStart(long index) {
+        return contexts.window(index).getLong(contexts.offset(index));
+    }
+
+    private long entryStart(long index) {
+        return contexts.window(index).getLong(contexts.offset(index) + 8);
+    }
+
+    private long runningCount(long entry) {
+        return entries.window(entry).getLong(entries.offset(entry));
+    }
+
+    private char token(long entry) {
+        return (char) entries.window(entry).getInt(entries.offset(entry) + 8);
+    }
+
+    /**
+     * Returns the number of distinct contexts.
+     * @return long - The context count.
+     */
+    public long contextCount() {
+        return contextCount;
+    }
+
+    /**
+     * Returns the number of distinct (context, successor) pairs.
+     * @return long - The entry count.
+     */
+    public long entryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Returns the number of positions followed by a successor, which is the
+     * text length minus k, or 0 for a text no longer than k.
+     * @return long - The occurrence count.
+     */
+    public long occurrenceCount() {
+        return occurrenceStart(contextCount);
+    }
+
+    /**
+     * Returns the level of analysis of the model.
+     * @return int - The level (k).
+     */
+    public int level() {
+        return level;
+    }
+
+    /**
+     * Returns the file backing the model.
+     * @return String - The model's filename.
+     */
+    public String filename() {
+        return filename;
+    }
+
+    /**
+     * Probabilistically generates (length) characters into an output.
+     * @param length - Number of characters to generate
+     * @param output - Where the generated characters are appended.
+     * @param random - Source of randomness, used by this call only.
+     * @throws IOException - If the output cannot be appended to.
+     */
+    public void generateText(long length, Appendable output,
+                             SplittableRandom random) throws IOException {
+        // Edge case - no contexts (caused by input no longer than k)
+        if (contextCount == 0) {
+            return;
+        }
+
+        char[] seed = new char[level];
+        long context = contextAt(random.nextLong(occurrenceCount()));
+        copyContext(context, seed);
+
+        // Generate (length) random characters.
+        for (long i = 0; i < length; i++) {
+            // Get random seed if current seed doesn't occur in the text.
+            if (context < 0) {
+                context = contextAt(random.nextLong(occurrenceCount()));
+                copyContext(context, seed);
+            }
+
+            char randomChar = sample(context, random.nextLong(total(context)));
+            output.append(randomChar);
+
+            // Update seed in place
+            if (level != 0) {
+                System.arraycopy(seed, 1, seed, 0, level - 1);
+                seed[level - 1] = randomChar;
+                context = find(seed);
+            }
+        }
+    }
+
+    /**
+     * One region of fixed-width records, mapped in windows that each hold
+     * a whole number of records. Reads use absolute positions only, so a
+     * region can be shared by any number of threads.
+     */
+    private static final class Region {
+        private final ByteBuffer[] windows;
+        private final int width; // Bytes per record.
+        private final long recordsPerWindow;
+
+        private Region(FileChannel channel, long start, long records,
+                       int width) throws IOException {
+            this.width = width;
+            this.recordsPerWindow = WINDOW_BYTES / width;
+            int windowCount = (int) ((records + recordsPerWindow - 1)
+                    / recordsPerWindow);
+            this.windows = new ByteBuffer[windowCount];
+            for (int w = 0; w < windowCount; w++) {
+                long first = w * recordsPerWindow;
+                long count = Math.min(recordsPerWindow, records - first);
+                windows[w] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        start + first * width, count * width);
+            }
+        }
+
+        private ByteBuffer window(long record) {
+            return windows[(int) (record / recordsPerWindow)];
+        }
+
+        private int offset(long record) {
+            return (int) (record % recordsPerWindow) * width;
+        }
+    }
+
+    /**
+     * Writes a disk model from (context, successor) records given in sorted
+     * order. The two regions are written to temporary files side by side
+     * and joined behind the header when the writer is closed.
+     */
+    static final class Writer implements Closeable {
+        private final String filename;
+        private final int level;
+        private final File contextFile;
+        private final File entryFile;
+        private final DataOutputStream contextOut;
+        private final DataOutputStream entryOut;
+        private final char[] context; // The context being written.
+        private long contextCount;
+        private long entryCount;
+        private long occurrences; // Occurrences of every context so far.
+        private long running; // Running count within the context.
+
+        /**
+         * Starts a model with no records.
+         * @param filename - Name of the model file to write.
+         * @param level - The level of analysis (k).
+         * @param tempDirectory - Directory for the regions, or null for the
+         * default temporary directory.
+         * @throws IOException - If the temporary files cannot be created.
+         */
+        Writer(String filename, int level, File tempDirectory)
+                throws IOException {
+            this.filename = filename;
+            this.level = level;
+            this.context = new char[level];
+            this.contextFile = File.createTempFile("contexts", ".bin",
+                    tempDirectory);
+            this.entryFile = File.createTempFile("entries", ".bin",
+                    tempDirectory);
+            this.contextOut = open(contextFile);
+            this.entryOut = open(entryFile);
+        }
+
+        private static DataOutputStream open(File file) throws IOException {
+            return new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(file), 1 << 16));
+        }
+
+        /**
+         * Adds the next record. Records must come in increasing order of
+         * context, then successor, with each pair at most once.
+         * @param record - k context chars followed by the successor.
+         * @param count - How many times the pair occurs.
+         * @throws IOException - If a region cannot be written.
+         */
+        void add(char[] record, long count) throws IOException {
+            if (contextCount == 0 || !Arrays.equals(record, 0,
+                    level, context, 0, level)) {
+                System.arraycopy(record, 0, context, 0, level);
+                writeContext(context);
+                contextCount++;
+                running = 0;
+            }
+            running += count;
+            occurrences += count;
+            entryOut.writeLong(running);
+            entryOut.writeInt(record[level]);
+            entryCount++;
+        }
+
+        private void writeContext(char[] chars) throws IOException {
+            contextOut.writeLong(occurrences);
+            contextOut.writeLong(entryCount);
+            for (int i = 0; i < level; i++) {
+                contextOut.writeChar(chars[i]);
+            }
+        }
+
+        /**
+         * Writes the sentinel, then joins the header and both regions into
+         * the model file and deletes the temporary files.
+         * @throws IOException - If the model file cannot be written.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                writeContext(new char[level]);
+                contextOut.close();
+                entryOut.close();
+                try (DataOutputStream out = ModelFile.create(filename,
+                        ModelFile.DISK_MODEL, level)) {
+                    out.writeLong(contextCount);
+                    out.writeLong(entryCount);
+                    Files.copy(contextFile.toPath(), out);
+                    Files.copy(entryFile.toPath(), out);
+                }
+            } finally {
+                contextOut.close();
+                entryOut.close();
+                Files.deleteIfExists(contextFile.toPath());
+                Files.deleteIfExists(entryFile.toPath());
+            }
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package main.java.assignment;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.SplittableRandom;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * RandomWriter engine for texts larger than the heap. The text is streamed
+ * through an ExternalModelBuilder into a DiskModel file, which generation
+ * then reads through memory mapping, so only one chunk of the text is ever
+ * held in memory. Generation matches PrimitiveRandomWriter's distribution.
+ */
+public class DiskRandomWriter implements TextProcessor {
+    // The level of the analysis being done.
+    private final int level;
+    // Where run files and trained models are kept, or null for the default.
+    private final File tempDirectory;
+    // Characters sorted in memory at once while building.
+    private final int chunkChars;
+    // The trained model, replaced as a whole; null until one is built.
+    private volatile DiskModel model;
+    // The temporary file this writer built the model into, or null if the
+    // model was loaded from a file the caller owns.
+    private File builtFile;
+
+    /**
+     * Randomly writes based on text from the specified input file. Unlike
+     * the other writers, the text is never loaded into memory.
+     * @param args - Command line arguments
+     * args[0] is the input filename, a text or a model from saveModel
+     * args[1] is the output filename
+     * args[2] is the level of analysis (k)
+     * args[3] is the length (number of characters) of output
+     */
+    public static void main(String[] args) throws IOException {
+        try {
+            if (args.length != 4) {
+                throw new IllegalArgumentException("Exactly 4 arguments "
+                        + "must be provided.");
+            }
+            // Get input arguments
+            String result = args[1];
+            int k = Integer.parseInt(args[2]);
+            long length = Long.parseLong(args[3]);
+            if (k < 0 || length < 0) {
+                throw new IllegalArgumentException("k and length must be "
+                        + "non-negative integers.");
+            }
+            // Write random text based on input
+            DiskRandomWriter processor = (DiskRandomWriter)
+                    createProcessor(k);
+            if (ModelFile.isModelFile(args[0])) {
+                processor.loadModel(args[0]);
+            } else {
+                processor.buildModel(args[0]);
+            }
+            try (FileChannel output = ChunkedTextWriter.openOutput(result)) {
+                processor.writeText(output, length);
+            }
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Static factory method for DiskRandomWriter.
+     * @param level - The level of text analysis to perform.
+     * @return The newly instantiated TextProcessor.
+     */
+    public static TextProcessor createProcessor(int level) {
+        return new DiskRandomWriter(level, null,
+                ExternalModelBuilder.DEFAULT_CHUNK_CHARS);
+    }
+
+    /**
+     * Static factory method for a DiskRandomWriter with its own temporary
+     * directory and chunk size. Building takes about 18 bytes of heap per
+     * chunk character.
+     * @param level - The level of text analysis to perform.
+     * @param tempDirectory - Directory for run files and trained models, or
+     * null for the default temporary directory.
+     * @param chunkChars - Characters sorted in memory at once (positive).
+     * @return The newly instantiated TextProcessor.
+     */
+    public static TextProcessor createProcessor(int level, File tempDirectory,
+                                                int chunkChars) {
+        return new DiskRandomWriter(level, tempDirectory, chunkChars);
+    }
+
+    /**
+     * Private constructor for the DiskRandomWriter class.
+     * @param level - The level of analysis used to generate random output.
+     * @param tempDirectory - Directory for temporary files, or null.
+     * @param chunkChars - Characters sorted in memory at once.
+     */
+    private DiskRandomWriter(int level, File tempDirectory, int chunkChars) {
+        if (chunkChars <= 0) {
+            throw new IllegalArgumentException("The chunk size must be "
+                    + "positive. You set " + chunkChars);
+        }
+        // Get around an edge case
+        this.level = Math.max(level, 0);
+        this.tempDirectory = tempDirectory;
+        this.chunkChars = chunkChars;
+    }
+
+    /**
+     * Streams a text file into a new disk model, normalizing line endings
+     * as MappedCorpus does. The new model replaces the old one only once
+     * it is complete.
+     * @param inputFilename - Name of the source text file.
+     * @throws IOException - If the file cannot be read or the model cannot
+     * be written.
+     */
+    public void buildModel(String inputFilename) throws IOException {
+        ExternalModelBuilder builder = new ExternalModelBuilder(level,
+                tempDirectory, chunkChars);
+        try {
+            builder.addFile(inputFilename);
+        } catch (IOException e) {
+            builder.discard();
+            throw e;
+        }
+        finish(builder);
+    }
+
+    /**
+     * Writes a builder's model to a temporary file, maps it and makes it
+     * the current model.
+     */
+    private void finish(ExternalModelBuilder builder) throws IOException {
+        File file = File.createTempFile("model", ".bin", tempDirectory);
+        DiskModel built;
+        try {
+            builder.finish(file.getPath());
+            built = DiskModel.open(file.getPath());
+        } catch (IOException | RuntimeException e) {
+            builder.discard();
+            Files.deleteIfExists(file.toPath());
+            throw e;
+        }
+        file.deleteOnExit();
+        replace(built, file);
+    }
+
+    /**
+     * Makes a model the current one and deletes the temporary file of the
+     * model it replaces, so retraining does not fill the temporary
+     * directory. Snapshots of the old model stay readable through their
+     * mapping; where a mapped file cannot be deleted, it is left to be
+     * deleted at exit.
+     * @param replacement - The new model.
+     * @param file - The temporary file it was built into, or null if the
+     * caller owns its file.
+     */
+    private synchronized void replace(DiskModel replacement, File file) {
+        File replaced = builtFile;
+        this.model = replacement;
+        this.builtFile = file;
+        if (replaced != null) {
+            try {
+                Files.deleteIfExists(replaced.toPath());
+            } catch (IOException e) {
+                // Still mapped on this platform; deleteOnExit covers it.
+            }
+        }
+    }
+
+    /**
+     * Reads the text from a file for level-k analysis.
+     * @param inputFilename - Name of the source text file.
+     */
+    public void readText(String inputFilename) {
+        try {
+            buildModel(inputFilename);
+        } catch (IOException e) {
+            System.err.println("File " + inputFilename + " was not found or ");
+            System.err.println("could not be read.");
+        }
+    }
+
+    /**
+     * Uses already-read text for level-k analysis. The text is still
+     * sorted in chunks and kept on disk.
+     * @param corpus - The source text.
+     * @throws UncheckedIOException - If the model cannot be written.
+     */
+    public void readText(MappedCorpus corpus) {
+        try {
+            ExternalModelBuilder builder = new ExternalModelBuilder(level,
+                    tempDirectory, chunkChars);
+            try {
+                builder.addChars(corpus.chars());
+            } catch (IOException e) {
+                builder.discard();
+                throw e;
+            }
+            finish(builder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Saves the model by copying its file.
+     * @param modelFilename - Name of the model file to write.
+     * @throws IOException - If the model file cannot be written.
+     */
+    public void saveModel(String modelFilename) throws IOException {
+        DiskModel current = model;
+        if (current == null) {
+            new ExternalModelBuilder(level, tempDirectory, 1)
+                    .finish(modelFilename);
+        } else {
+            Files.copy(Paths.get(current.filename()),
+                    Paths.get(modelFilename),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Maps a disk model saved at this writer's level. The file is read in
+     * place, so it must not change while the writer uses it.
+     * @param modelFilename - Name of the model file to read.
+     * @throws IOException - If the file cannot be read or does not hold a
+     * disk model of this level.
+     */
+    public void loadModel(String modelFilename) throws IOException {
+        DiskModel loaded = DiskModel.open(modelFilename);
+        if (loaded.level() != level) {
+            throw new IOException("Model file " + modelFilename + " was "
+                    + "trained at level " + loaded.level() + ", not "
+                    + level + ".");
+        }
+        replace(loaded, null);
+    }
+
+    /**
+     * Writes text generated using input text to the output file.
+     * @param outputFilename - Name of the file to write to.
+     * @param length - Number of characters to write (non-negative).
+     */
+    public void writeText(String outputFilename, int length) {
+        try (FileChannel output = ChunkedTextWriter.openOutput(
+                outputFilename)) {
+            writeText(output, length);
+        } catch (IOException e) {
+            System.err.println("Could not write to output file " +
+                    outputFilename);
+        }
+    }
+
+    /**
+     * Streams text generated using input text to a channel.
+     * @param channel - Destination of the text. Not closed.
+     * @param length - Number of characters to write (non-negative).
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void writeText(WritableByteChannel channel, long length)
+            throws IOException {
+        writeText(channel, length, RandomStreams.forCurrentThread());
+    }
+
+    /**
+     * Streams text generated from one random stream to a channel.
+     * @param channel - Destination of the text. Not closed.
+     * @param length - Number of characters to write (non-negative).
+     * @param random - Source of randomness, used by this call only.
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void writeText(WritableByteChannel channel, long length,
+                          SplittableRandom random) throws IOException {
+        ChunkedTextWriter output = new ChunkedTextWriter(channel);
+        DiskModel current = model;
+        if (current != null) {
+            current.generateText(length, output, random);
+        }
+        output.finish();
+    }
+
+    /**
+     * Probabilistically generates text of (length) characters using input text.
+     * @param length - Number of characters to generate
+     * @return String - the generated text.
+     */
+    public String generateText(int length) {
+        return generateText(length, RandomStreams.forCurrentThread());
+    }
+
+    /**
+     * Probabilistically generates text of (length) characters using input text.
+     * The same random stream always produces the same text.
+     * @param length - Number of characters to generate
+     * @param random - Source of randomness, used by this call only.
+     * @return String - the generated text.
+     */
+    public String generateText(int length, SplittableRandom random) {
+        StringBuilder generatedTextBuffer = new StringBuilder(
+                Math.max(length, 0));
+        DiskModel current = model;
+        if (current != null) {
+            try {
+                current.generateText(length, generatedTextBuffer, random);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // StringBuilder never throws.
+            }
+        }
+        return generatedTextBuffer.toString();
+    }
+
+    /**
+     * Returns the current model, which can be shared with other threads.
+     * @return DiskModel - The model built by the last readText, buildModel
+     * or loadModel, or null if there is none yet.
+     */
+    public DiskModel getModel() {
+        return model;
+    }
+}
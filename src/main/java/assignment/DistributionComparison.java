@@ -0,0 +1,406 @@
+package main.java.assignment;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Compares the conditional successor distributions of two ContextTables of
+ * the same level, usually one trained on a source text and one trained on
+ * text generated from it. Each context of the expected table is looked up
+ * in the observed one and their sorted successor lists are merged, so no
+ * map or boxed value is created. Contexts are compared in fixed-size
+ * chunks on a fork-join pool; the chunks do not depend on the pool, so the
+ * results are the same on any number of threads.
+ *
+ * Per-context measures are averaged with each context weighted by how often
+ * it occurs in the expected text:
+ *
+ *   L1:         sum over successors of |p(t) - q(t)|, between 0 and 2
+ *   KL:         sum of p(t) ln(p(t) / q(t)) in nats, with p and q both
+ *               smoothed by adding 0.5 to every successor of either table
+ *   chi-square: Pearson's goodness-of-fit statistic of the observed counts
+ *               of expected successors against the expected probabilities,
+ *               summed over contexts with one degree of freedom per
+ *               expected successor beyond the first
+ *
+ * The expected table is treated as the true model, so chi-square is about
+ * its degrees of freedom when the observed text was generated from it.
+ * Observed successors the expected context lacks cannot be fitted by it;
+ * they are left out of the chi-square, so the expected counts add up to
+ * the observations that remain, and are reported as unexpectedMass().
+ */
+public final class DistributionComparison {
+    // Contexts compared by one task.
+    private static final int CHUNK_CONTEXTS = 1 << 12;
+    // Pseudo-count added to each successor for the KL divergence.
+    private static final double SMOOTHING = 0.5;
+
+    private final int level;
+    private final Sums expected; // Expected contexts against observed.
+    private final Sums observed; // Observed contexts against expected.
+
+    private DistributionComparison(int level, Sums expected, Sums observed) {
+        this.level = level;
+        this.expected = expected;
+        this.observed = observed;
+    }
+
+    /**
+     * Compares the distributions of a source text and of a generated text.
+     * @param args - Command line arguments
+     * args[0] is the source text filename
+     * args[1] is the generated text filename
+     * args[2] is the level of analysis (k)
+     */
+    public static void main(String[] args) {
+        try {
+            if (args.length != 3) {
+                throw new IllegalArgumentException("Exactly 3 arguments "
+                        + "must be provided.");
+            }
+            int k = Integer.parseInt(args[2]);
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            ContextTable source = ContextTable.buildParallel(Tokens.of(
+                    MappedCorpus.load(args[0]).chars()), k, pool);
+            ContextTable generated = ContextTable.buildParallel(
+                    Tokens.of(MappedCorpus.load(args[1]).chars()), k,
+                    pool);
+            System.out.print(compare(source, generated, pool));
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Compares two tables on the common fork-join pool.
+     * @param expected - The reference table, e.g. of the source text.
+     * @param observed - The table to check, e.g. of generated text.
+     * @return DistributionComparison - The measures.
+     * @throws IllegalArgumentException - If the levels differ.
+     */
+    public static DistributionComparison compare(ContextTable expected,
+                                                 ContextTable observed) {
+        return compare(expected, observed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Compares two tables on a fork-join pool.
+     * @param expected - The reference table, e.g. of the source text.
+     * @param observed - The table to check, e.g. of generated text.
+     * @param pool - The pool that runs the comparison.
+     * @return DistributionComparison - The measures.
+     * @throws IllegalArgumentException - If the levels differ.
+     */
+    public static DistributionComparison compare(ContextTable expected,
+                                                 ContextTable observed,
+                                                 ForkJoinPool pool) {
+        if (expected.level() != observed.level()) {
+            throw new IllegalArgumentException("Only tables of the same "
+                    + "level can be compared, not " + expected.level()
+                    + " and " + observed.level());
+        }
+        Sums forward = pool.invoke(new CompareTask(expected, observed, true,
+                0, expected.contextCount()));
+        Sums backward = pool.invoke(new CompareTask(observed, expected,
+                false, 0, observed.contextCount()));
+        return new DistributionComparison(expected.level(), forward,
+                backward);
+    }
+
+    /**
+     * Compares the contexts of one table in a range against another table,
+     * splitting the range in half until it is one chunk.
+     */
+    private static final class CompareTask extends RecursiveTask<Sums> {
+        private static final long serialVersionUID = 1L;
+
+        private final ContextTable from;
+        private final ContextTable to;
+        private final boolean measure; // Or only find what is missing.
+        private final int start;
+        private final int end;
+
+        CompareTask(ContextTable from, ContextTable to, boolean measure,
+                    int start, int end) {
+            this.from = from;
+            this.to = to;
+            this.measure = measure;
+            this.start = start;
+            this.end = end;
+        }
+
+        protected Sums compute() {
+            if (end - start <= CHUNK_CONTEXTS) {
+                Sums sums = new Sums();
+                sums.compare(from, to, measure, start, end);
+                return sums;
+            }
+            int middle = start + (end - start) / 2;
+            CompareTask right = new CompareTask(from, to, measure, middle,
+                    end);
+            right.fork();
+            Sums left = new CompareTask(from, to, measure, start, middle)
+                    .compute();
+            left.add(right.join());
+            return left;
+        }
+    }
+
+    /**
+     * Totals over a range of contexts of one table.
+     */
+    private static final class Sums {
+        private long occurrences; // Of every context in the range.
+        private long missingOccurrences; // Of contexts the other lacks.
+        // Observed occurrences of successors the expected context lacks.
+        private long strayOccurrences;
+        private int contexts;
+        private int missingContexts;
+        private double weightedL1; // Sum of occurrences * L1.
+        private double maxL1;
+        private double weightedKl; // Sum of occurrences * KL.
+        private double chiSquare;
+        private long degreesOfFreedom;
+
+        /**
+         * Looks up contexts [start, end) of one table in another, and
+         * measures the matched ones if asked to.
+         */
+        void compare(ContextTable from, ContextTable to, boolean measure,
+                     int start, int end) {
+            int[] seed = new int[from.level()];
+            for (int c = start; c < end; c++) {
+                from.copyContext(c, seed);
+                int other = to.find(seed, from.contextHash(c));
+                int total = from.total(c);
+                contexts++;
+                occurrences += total;
+                if (other < 0) {
+                    missingContexts++;
+                    missingOccurrences += total;
+                } else if (measure) {
+                    measure(from, c, to, other);
+                }
+            }
+        }
+
+        /**
+         * Merges the sorted successors of a context in both tables.
+         */
+        private void measure(ContextTable p, int pc, ContextTable q, int qc) {
+            int pCount = p.distinctCount(pc);
+            int qCount = q.distinctCount(qc);
+            // Count the union of successors first, for the smoothing, and
+            // the observed occurrences of expected successors, which the
+            // chi-square's expected counts must add up to.
+            int union = 0;
+            long fitted = 0;
+            for (int i = 0, j = 0; i < pCount || j < qCount; union++) {
+                int order = compareColumns(p, pc, i, pCount, q, qc, j, qCount);
+                if (order == 0) {
+                    fitted += q.successorCount(qc, j);
+                }
+                i += order <= 0 ? 1 : 0;
+                j += order >= 0 ? 1 : 0;
+            }
+            double a = p.total(pc);
+            double b = q.total(qc);
+            double smoothedA = a + SMOOTHING * union;
+            double smoothedB = b + SMOOTHING * union;
+            double l1 = 0;
+            double kl = 0;
+            for (int i = 0, j = 0; i < pCount || j < qCount; ) {
+                int order = compareColumns(p, pc, i, pCount, q, qc, j, qCount);
+                double x = order <= 0 ? p.successorCount(pc, i++) : 0;
+                double y = order >= 0 ? q.successorCount(qc, j++) : 0;
+                l1 += Math.abs(x / a - y / b);
+                double smoothedP = (x + SMOOTHING) / smoothedA;
+                kl += smoothedP * Math.log(smoothedP
+                        / ((y + SMOOTHING) / smoothedB));
+                if (x == 0) {
+                    strayOccurrences += (long) y;
+                } else if (fitted > 0) {
+                    double expectedCount = fitted * x / a;
+                    chiSquare += (y - expectedCount) * (y - expectedCount)
+                            / expectedCount;
+                }
+            }
+            weightedL1 += a * l1;
+            weightedKl += a * kl;
+            maxL1 = Math.max(maxL1, l1);
+            // A context seen only with stray successors gives no test.
+            if (fitted > 0) {
+                degreesOfFreedom += pCount - 1;
+            }
+        }
+
+        /**
+         * Orders the next successors of two merged lists; a finished list
+         * sorts after the other.
+         */
+        private static int compareColumns(ContextTable p, int pc, int i,
+                                          int pCount, ContextTable q, int qc,
+                                          int j, int qCount) {
+            if (i == pCount) {
+                return 1;
+            }
+            if (j == qCount) {
+                return -1;
+            }
+            return Integer.compare(p.successorToken(pc, i),
+                    q.successorToken(qc, j));
+        }
+
+        /**
+         * Adds the totals of another range.
+         */
+        void add(Sums other) {
+            occurrences += other.occurrences;
+            missingOccurrences += other.missingOccurrences;
+            strayOccurrences += other.strayOccurrences;
+            contexts += other.contexts;
+            missingContexts += other.missingContexts;
+            weightedL1 += other.weightedL1;
+            maxL1 = Math.max(maxL1, other.maxL1);
+            weightedKl += other.weightedKl;
+            chiSquare += other.chiSquare;
+            degreesOfFreedom += other.degreesOfFreedom;
+        }
+
+        private long matchedOccurrences() {
+            return occurrences - missingOccurrences;
+        }
+    }
+
+    /**
+     * Returns the L1 distance between the successor distributions, averaged
+     * over the contexts both tables share.
+     * @return double - The mean distance, between 0 and 2.
+     */
+    public double meanL1() {
+        return ratio(expected.weightedL1, expected.matchedOccurrences());
+    }
+
+    /**
+     * Returns the largest L1 distance of any shared context. Rare contexts
+     * are noisy, so this is mostly useful on long generated texts.
+     * @return double - The largest distance, between 0 and 2.
+     */
+    public double maxL1() {
+        return expected.maxL1;
+    }
+
+    /**
+     * Returns the KL divergence of the observed successor distributions
+     * from the expected ones, averaged over the contexts both share.
+     * @return double - The mean divergence in nats.
+     */
+    public double klDivergence() {
+        return ratio(expected.weightedKl, expected.matchedOccurrences());
+    }
+
+    /**
+     * Returns the chi-square statistic of the shared contexts' observed
+     * successors against the expected distributions. Successors the
+     * expected context lacks are left out, both from the observed counts
+     * and from the total the expected counts are scaled to, and counted in
+     * unexpectedMass().
+     * @return double - The statistic, summed over contexts.
+     */
+    public double chiSquare() {
+        return expected.chiSquare;
+    }
+
+    /**
+     * Returns the degrees of freedom of chiSquare().
+     * @return long - One per expected successor beyond the first, over
+     * shared contexts.
+     */
+    public long degreesOfFreedom() {
+        return expected.degreesOfFreedom;
+    }
+
+    /**
+     * Returns the probability of a chi-square statistic at least this large
+     * if the observed text came from the expected model, by the
+     * Wilson-Hilferty normal approximation. Pearson's statistic only
+     * follows the chi-square distribution when expected counts are not
+     * small, so the p-value is unreliable when many contexts are observed
+     * only a few times, as in a short observed text or at a high level.
+     * @return double - The p-value, or 1 with no degrees of freedom.
+     */
+    public double chiSquarePValue() {
+        long df = degreesOfFreedom();
+        if (df == 0) {
+            return 1;
+        }
+        double variance = 2.0 / (9.0 * df);
+        double z = (Math.cbrt(chiSquare() / df) - (1 - variance))
+                / Math.sqrt(variance);
+        return 0.5 * erfc(z / Math.sqrt(2));
+    }
+
+    /**
+     * Complementary error function, to within 1.2e-7 (Numerical Recipes'
+     * erfcc).
+     */
+    private static double erfc(double x) {
+        double t = 1 / (1 + 0.5 * Math.abs(x));
+        double y = t * Math.exp(-x * x - 1.26551223 + t * (1.00002368
+                + t * (0.37409196 + t * (0.09678418 + t * (-0.18628806
+                + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+                + t * (-0.82215223 + t * 0.17087277)))))))));
+        return x >= 0 ? y : 2 - y;
+    }
+
+    /**
+     * Returns the number of expected contexts found in the observed table.
+     * @return int - The shared context count.
+     */
+    public int sharedContexts() {
+        return expected.contexts - expected.missingContexts;
+    }
+
+    /**
+     * Returns the share of expected occurrences whose context never occurs
+     * in the observed table, such as contexts generation never reached.
+     * @return double - The missing mass, between 0 and 1.
+     */
+    public double missingMass() {
+        return ratio(expected.missingOccurrences, expected.occurrences);
+    }
+
+    /**
+     * Returns the share of observed occurrences whose context, or whose
+     * successor in a shared context, never occurs in the expected table.
+     * Generation only makes these around a restart.
+     * @return double - The unexpected mass, between 0 and 1.
+     */
+    public double unexpectedMass() {
+        return ratio(observed.missingOccurrences
+                + expected.strayOccurrences, observed.occurrences);
+    }
+
+    private static double ratio(double part, double whole) {
+        return whole == 0 ? 0 : part / whole;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Level %d: %d of %d expected contexts shared, "
+                        + "%d unexpected%n"
+                        + "%-12s %10.6f%n%-12s %10.6f%n%-12s %10.6f nats%n"
+                        + "%-12s %10.1f (%d degrees of freedom, p = %.4f)%n"
+                        + "%-12s %9.4f%%%n%-12s %9.4f%%%n",
+                level, sharedContexts(), expected.contexts,
+                observed.missingContexts,
+                "mean L1", meanL1(), "max L1", maxL1(),
+                "KL", klDivergence(),
+                "chi-square", chiSquare(), degreesOfFreedom(),
+                chiSquarePValue(),
+                "missing", 100 * missingMass(),
+                "unexpected", 100 * unexpectedMass());
+    }
+}
@@ -0,0 +1,403 @@
+package main.java.assignment;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Context store for level-k analysis as a double-array trie over token ids.
+ * Contexts that share leading tokens share trie states, and each state is
+ * two ints: the child of state s for token t is base[s] + t, which belongs
+ * to s only if check[base[s] + t] == s + 1. A lookup is k array reads with
+ * no hashing and no Strings. Leaves hold -(context id + 1) in base, and
+ * check doubles as a parent pointer, so the tokens of any context can be
+ * read back from the trie alone and the model need not keep its text.
+ * Contexts are numbered by first occurrence, exactly like a ContextTable
+ * over the same tokens, and their successors live in SuccessorLists.
+ */
+public final class DoubleArrayTrie {
+    private static final int ROOT = 0;
+
+    private final int level; // The level of the analysis being done.
+    private final int[] base; // Child offset, or -(context + 1) at a leaf.
+    private final int[] check; // Parent state + 1, or 0 if the slot is free.
+    private final int[] leafStates; // The state of each context.
+    private final SuccessorLists successors; // Indexed by context id.
+    // Occurrences of contexts [0, c) are [0, occurrenceEnds[c]).
+    private final int[] occurrenceEnds;
+
+    private DoubleArrayTrie(int level, int[] base, int[] check,
+                            int[] leafStates, SuccessorLists successors) {
+        this.level = level;
+        this.base = base;
+        this.check = check;
+        this.leafStates = leafStates;
+        this.successors = successors;
+        this.occurrenceEnds = new int[leafStates.length + 1];
+        for (int c = 0; c < leafStates.length; c++) {
+            occurrenceEnds[c + 1] = occurrenceEnds[c] + successors.total(c);
+        }
+    }
+
+    /**
+     * Builds the trie for a token sequence. The contexts are first counted
+     * into a pointer-based trie, which is then packed into the double array
+     * one node at a time in breadth-first order.
+     * @param tokens - The tokens to analyze.
+     * @param level - The level of analysis (k >= 0).
+     * @return DoubleArrayTrie - The trie for tokens.
+     */
+    public static DoubleArrayTrie build(Tokens tokens, int level) {
+        if (level < 0) {
+            throw new IllegalArgumentException("The level of analysis (k) "
+                    + "must be non-negative. You set k = " + level);
+        }
+
+        // Count the contexts into a trie of nodes numbered as created.
+        // Key is (node << 32 | token), value is the child node.
+        LongIntHashMap children = new LongIntHashMap();
+        // Key is (context << 32 | successor token), value is its count.
+        LongIntHashMap pairCounts = new LongIntHashMap();
+        int[] nodeContexts = new int[16]; // Context of each leaf node.
+        int nodeCount = 1; // The root.
+        int seeds = Math.max(tokens.size() - level, 0);
+        // At level 0 the root is the only context.
+        int contextCount = level == 0 && seeds > 0 ? 1 : 0;
+        for (int i = 0; i < seeds; i++) {
+            int node = ROOT;
+            for (int depth = 0; depth < level; depth++) {
+                long key = pairKey(node, tokens.tokenAt(i + depth));
+                int child = children.get(key, -1);
+                if (child < 0) {
+                    child = nodeCount++;
+                    children.put(key, child);
+                    if (depth == level - 1) {
+                        if (child >= nodeContexts.length) {
+                            nodeContexts = Arrays.copyOf(nodeContexts,
+                                    child * 2);
+                        }
+                        nodeContexts[child] = contextCount++;
+                    }
+                }
+                node = child;
+            }
+            pairCounts.increment(pairKey(nodeContexts[node],
+                    tokens.tokenAt(i + level)), 1);
+        }
+
+        // Group each node's children, ordered by token.
+        int[] childStart = new int[nodeCount + 1];
+        long[] edges = new long[children.size()]; // (token << 32 | child)
+        int[] edgeParents = new int[children.size()];
+        int edgeCount = 0;
+        for (int slot = 0; slot < children.capacity(); slot++) {
+            if (children.isUsed(slot)) {
+                long key = children.keyAt(slot);
+                childStart[(int) (key >>> 32) + 1]++;
+                edgeParents[edgeCount] = (int) (key >>> 32);
+                edges[edgeCount++] = ((long) (int) key << 32)
+                        | children.valueAt(slot);
+            }
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            childStart[node + 1] += childStart[node];
+        }
+        long[] sortedEdges = new long[edgeCount];
+        int[] fill = Arrays.copyOf(childStart, nodeCount);
+        for (int e = 0; e < edgeCount; e++) {
+            sortedEdges[fill[edgeParents[e]]++] = edges[e];
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            Arrays.sort(sortedEdges, childStart[node], childStart[node + 1]);
+        }
+
+        Packer packer = new Packer(nodeCount);
+        int[] leafStates = new int[contextCount];
+        int[] states = new int[nodeCount]; // State of each node.
+        int[] queue = new int[nodeCount];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = ROOT;
+        while (head < tail) {
+            int node = queue[head++];
+            int state = states[node];
+            int from = childStart[node];
+            int to = childStart[node + 1];
+            if (from == to) {
+                if (contextCount > 0) { // Not the root of an empty trie.
+                    int context = nodeContexts[node];
+                    packer.base[state] = -(context + 1);
+                    leafStates[context] = state;
+                }
+                continue;
+            }
+            int offset = packer.place(sortedEdges, from, to, state);
+            for (int e = from; e < to; e++) {
+                int child = (int) sortedEdges[e];
+                states[child] = offset + (int) (sortedEdges[e] >>> 32);
+                queue[tail++] = child;
+            }
+        }
+        return new DoubleArrayTrie(level,
+                Arrays.copyOf(packer.base, packer.size),
+                Arrays.copyOf(packer.check, packer.size), leafStates,
+                SuccessorLists.of(pairCounts, contextCount));
+    }
+
+    /**
+     * Lays nodes out in the double array, giving each node the lowest
+     * offset at which all of its children's slots are free.
+     */
+    private static final class Packer {
+        private int[] base;
+        private int[] check;
+        // nextFree[i] leads to the lowest free slot >= i; see firstFree().
+        private int[] nextFree;
+        private int size = 1; // One past the highest used slot.
+
+        Packer(int nodeCount) {
+            int capacity = Math.max(16, nodeCount + nodeCount / 2);
+            base = new int[capacity];
+            check = new int[capacity];
+            nextFree = new int[capacity];
+            for (int i = 0; i < capacity; i++) {
+                nextFree[i] = i;
+            }
+            check[ROOT] = -1; // Used, but the child of no state.
+            nextFree[ROOT] = 1;
+        }
+
+        /**
+         * Claims slots for the children of one state.
+         * @return int - The offset now stored in base[parent].
+         */
+        int place(long[] edges, int from, int to, int parent) {
+            int firstToken = (int) (edges[from] >>> 32);
+            int position = firstFree(firstToken + 1);
+            while (true) {
+                int offset = position - firstToken;
+                int lastSlot = offset + (int) (edges[to - 1] >>> 32);
+                ensureCapacity(lastSlot + 1);
+                boolean fits = true;
+                for (int e = from + 1; e < to && fits; e++) {
+                    fits = check[offset + (int) (edges[e] >>> 32)] == 0;
+                }
+                if (fits) {
+                    base[parent] = offset;
+                    for (int e = from; e < to; e++) {
+                        int slot = offset + (int) (edges[e] >>> 32);
+                        check[slot] = parent + 1;
+                        nextFree[slot] = slot + 1;
+                    }
+                    size = Math.max(size, lastSlot + 1);
+                    return offset;
+                }
+                position = firstFree(position + 1);
+            }
+        }
+
+        /**
+         * Finds the lowest free slot at or after a position, shortening
+         * the chains it follows so later searches skip used slots at once.
+         */
+        private int firstFree(int position) {
+            ensureCapacity(position + 1);
+            int free = position;
+            while (nextFree[free] != free) {
+                free = nextFree[free];
+                ensureCapacity(free + 1);
+            }
+            while (nextFree[position] != position) {
+                int next = nextFree[position];
+                nextFree[position] = free;
+                position = next;
+            }
+            return free;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > base.length) {
+                int oldLength = base.length;
+                int newLength = Math.max(capacity, oldLength * 2);
+                base = Arrays.copyOf(base, newLength);
+                check = Arrays.copyOf(check, newLength);
+                nextFree = Arrays.copyOf(nextFree, newLength);
+                for (int i = oldLength; i < newLength; i++) {
+                    nextFree[i] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks up a context.
+     * @param context - Array whose first (level) tokens are the context.
+     * @return int - The context id, or -1 if it never occurs in the text.
+     */
+    public int find(int[] context) {
+        int state = ROOT;
+        for (int depth = 0; depth < level; depth++) {
+            int next = base[state] + context[depth];
+            if (base[state] <= 0 || next < 0 || next >= check.length
+                    || check[next] != state + 1) {
+                return -1;
+            }
+            state = next;
+        }
+        return base[state] < 0 ? -base[state] - 1 : -1;
+    }
+
+    /**
+     * Reads the tokens of a context back out of the trie.
+     * @param context - A context id.
+     * @param tokens - Array whose first (level) entries receive the context.
+     */
+    public void copyContext(int context, int[] tokens) {
+        int state = leafStates[context];
+        for (int depth = level - 1; depth >= 0; depth--) {
+            int parent = check[state] - 1;
+            tokens[depth] = state - base[parent];
+            state = parent;
+        }
+    }
+
+    /**
+     * Returns the context at an occurrence index. Drawing the index
+     * uniformly picks each context as often as it occurs in the text.
+     * @param occurrence - Index in [0, occurrenceCount()).
+     * @return int - The context id.
+     */
+    public int contextAt(int occurrence) {
+        int found = Arrays.binarySearch(occurrenceEnds, occurrence);
+        // An exact match is the first index of the following context; ends
+        // are strictly increasing, since every context occurs.
+        return found >= 0 ? found : -found - 2;
+    }
+
+    /**
+     * Returns the number of context occurrences, one per seed position.
+     * @return int - The total count of all contexts.
+     */
+    public int occurrenceCount() {
+        return occurrenceEnds[leafStates.length];
+    }
+
+    /**
+     * Picks a successor of a context in O(1) using its alias table.
+     * @param context - A context id from find() or contextAt().
+     * @param column - Uniform random integer in [0, distinctCount(context)).
+     * @param value - Uniform random integer in [0, total(context)).
+     * @return int - The chosen successor token.
+     */
+    public int sample(int context, int column, int value) {
+        return successors.sample(context, column, value);
+    }
+
+    /**
+     * Returns one of the distinct successors of a context. Successors are
+     * ordered by token.
+     * @param context - A context id.
+     * @param column - Index in [0, distinctCount(context)).
+     * @return int - The successor token.
+     */
+    public int successorToken(int context, int column) {
+        return successors.successorToken(context, column);
+    }
+
+    /**
+     * Returns how many times a context is followed by one of its successors.
+     * @param context - A context id.
+     * @param column - Index in [0, distinctCount(context)).
+     * @return int - The successor's count.
+     */
+    public int successorCount(int context, int column) {
+        return successors.successorCount(context, column);
+    }
+
+    /**
+     * Returns how many times a context is followed by any token.
+     * @param context - A context id.
+     * @return int - The total successor count.
+     */
+    public int total(int context) {
+        return successors.total(context);
+    }
+
+    /**
+     * Returns how many distinct tokens follow a context.
+     * @param context - A context id.
+     * @return int - The distinct successor count.
+     */
+    public int distinctCount(int context) {
+        return successors.distinctCount(context);
+    }
+
+    /**
+     * Returns the number of distinct contexts in the text.
+     * @return int - The context count.
+     */
+    public int contextCount() {
+        return leafStates.length;
+    }
+
+    /**
+     * Returns the number of distinct (context, successor) pairs.
+     * @return int - The number of stored successor entries.
+     */
+    public int successorEntryCount() {
+        return successors.entryCount();
+    }
+
+    /**
+     * Returns the length of the double array, used and free slots alike.
+     * @return int - The number of (base, check) pairs.
+     */
+    public int slotCount() {
+        return base.length;
+    }
+
+    /**
+     * Returns the level of analysis the trie was built for.
+     * @return int - The level (k).
+     */
+    public int level() {
+        return level;
+    }
+
+    /**
+     * Writes the trie to a model file.
+     * @param out - The model being written.
+     * @throws IOException - If the model cannot be written.
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(base.length);
+        out.writeInt(leafStates.length);
+        out.writeInt(successors.entryCount());
+        ModelFile.writeInts(out, base, base.length);
+        ModelFile.writeInts(out, check, check.length);
+        ModelFile.writeInts(out, leafStates, leafStates.length);
+        successors.write(out);
+    }
+
+    /**
+     * Reads a trie written by write().
+     * @param in - Buffer positioned at the trie.
+     * @param level - The level of analysis of the trie.
+     * @return DoubleArrayTrie - The trie.
+     */
+    static DoubleArrayTrie read(ByteBuffer in, int level) {
+        int slots = in.getInt();
+        int contextCount = in.getInt();
+        int pairs = in.getInt();
+        return new DoubleArrayTrie(level, ModelFile.readInts(in, slots),
+                ModelFile.readInts(in, slots),
+                ModelFile.readInts(in, contextCount),
+                SuccessorLists.read(in, contextCount, pairs));
+    }
+
+    private static long pairKey(int node, int token) {
+        return SuccessorLists.pairKey(node, token);
+    }
+}
@@ -0,0 +1,314 @@
+package main.java.assignment;
+import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Builds a disk model from a text of any length using a fixed amount of
+ * memory. Characters are gathered into chunks; each full chunk's
+ * (context, successor) records are sorted with a suffix sort limited to
+ * k + 1 characters, counted, and spilled to a temporary run file. The runs
+ * are then k-way merged, at most MAX_FAN_IN at a time, straight into the
+ * sorted records of a DiskModel. A chunk starts with the last k characters
+ * of the previous one, so records that span chunks are counted once.
+ *
+ * Memory use is about 18 bytes per chunk character for the chunk and its
+ * suffix sort, plus one read buffer per merged run.
+ */
+public final class ExternalModelBuilder {
+    // Characters per chunk unless the caller chooses otherwise.
+    public static final int DEFAULT_CHUNK_CHARS = 1 << 24;
+    // Most runs open at once while merging.
+    private static final int MAX_FAN_IN = 64;
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final int level; // The level of the analysis being done.
+    private final File tempDirectory; // Where runs are spilled.
+    private final char[] chunk; // k carried characters, then new ones.
+    private int length; // Characters in the chunk.
+    private List<File> runs = new ArrayList<>();
+
+    /**
+     * Creates a builder with no text.
+     * @param level - The level of analysis (k >= 0).
+     * @param tempDirectory - Directory for run files, or null for the
+     * default temporary directory.
+     * @param chunkChars - Characters sorted in memory at once (positive).
+     */
+    public ExternalModelBuilder(int level, File tempDirectory,
+                                int chunkChars) {
+        if (level < 0) {
+            throw new IllegalArgumentException("The level of analysis (k) "
+                    + "must be non-negative. You set k = " + level);
+        }
+        if (chunkChars <= 0) {
+            throw new IllegalArgumentException("The chunk size must be "
+                    + "positive. You set " + chunkChars);
+        }
+        this.level = level;
+        this.tempDirectory = tempDirectory;
+        this.chunk = new char[level + chunkChars];
+    }
+
+    /**
+     * Streams a UTF-8 text file into the model. Line endings are normalized
+     * and the final line terminator is dropped, as MappedCorpus does.
+     * @param inputFilename - Name of the source text file.
+     * @throws IOException - If the file cannot be read or a run cannot be
+     * written.
+     */
+    public void addFile(String inputFilename) throws IOException {
+        try (Reader in = new InputStreamReader(new FileInputStream(
+                inputFilename), "UTF-8")) {
+            char[] buffer = new char[BUFFER_BYTES];
+            boolean skipLineFeed = false; // Previous char was '\r'.
+            boolean pendingNewline = false; // Held back in case it is last.
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    char c = buffer[i];
+                    if (c == '\n' && skipLineFeed) {
+                        skipLineFeed = false;
+                        continue;
+                    }
+                    skipLineFeed = c == '\r';
+                    if (pendingNewline) {
+                        add('\n');
+                        pendingNewline = false;
+                    }
+                    if (c == '\n' || skipLineFeed) {
+                        pendingNewline = true;
+                    } else {
+                        add(c);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds characters to the model as they are.
+     * @param chars - The characters, in text order.
+     * @throws IOException - If a run cannot be written.
+     */
+    public void addChars(char[] chars) throws IOException {
+        for (char c : chars) {
+            add(c);
+        }
+    }
+
+    /**
+     * Adds one character, spilling the chunk if it is full.
+     */
+    private void add(char c) throws IOException {
+        chunk[length++] = c;
+        if (length == chunk.length) {
+            spill();
+            System.arraycopy(chunk, length - level, chunk, 0, level);
+            length = level;
+        }
+    }
+
+    /**
+     * Sorts and counts the records of the chunk into a new run. Records
+     * are the k + 1 characters at each position, followed by their count.
+     */
+    private void spill() throws IOException {
+        if (length <= level) {
+            return; // Only carried characters; every record is counted.
+        }
+        int[] order = SuffixArrayIndex.sortSuffixes(chunk, length,
+                level + 1);
+        File run = createTempFile();
+        runs.add(run); // Before writing, so discard() deletes a partial run.
+        try (DataOutputStream out = openRun(run)) {
+            int last = -1;
+            long count = 0;
+            for (int suffix : order) {
+                if (suffix + level >= length) {
+                    continue; // Too short to hold a record.
+                }
+                if (last >= 0 && Arrays.equals(chunk, last, last + level + 1,
+                        chunk, suffix, suffix + level + 1)) {
+                    count++;
+                    continue;
+                }
+                if (last >= 0) {
+                    writeRecord(out, chunk, last, count);
+                }
+                last = suffix;
+                count = 1;
+            }
+            if (last >= 0) {
+                writeRecord(out, chunk, last, count);
+            }
+        }
+    }
+
+    /**
+     * Spills the last chunk, merges every run into a disk model and
+     * deletes the runs. The builder cannot be used afterwards.
+     * @param modelFilename - Name of the model file to write.
+     * @throws IOException - If a run cannot be read or the model written.
+     */
+    public void finish(String modelFilename) throws IOException {
+        try {
+            spill();
+            length = 0;
+            // Merge groups of runs into longer runs until one pass is
+            // enough.
+            while (runs.size() > MAX_FAN_IN) {
+                List<File> merged = new ArrayList<>();
+                try {
+                    for (int i = 0; i < runs.size(); i += MAX_FAN_IN) {
+                        List<File> group = runs.subList(i,
+                                Math.min(i + MAX_FAN_IN, runs.size()));
+                        File run = createTempFile();
+                        merged.add(run);
+                        try (DataOutputStream out = openRun(run)) {
+                            merge(group, (record, count) ->
+                                    writeRecord(out, record, 0, count));
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    runs.addAll(merged); // So discard() deletes them too.
+                    throw e;
+                }
+                runs = merged;
+            }
+            try (DiskModel.Writer model = new DiskModel.Writer(
+                    modelFilename, level, tempDirectory)) {
+                merge(runs, model::add);
+            }
+        } finally {
+            discard();
+        }
+    }
+
+    /**
+     * Deletes every run spilled so far without building a model. The
+     * builder cannot be used afterwards.
+     * @throws IOException - If a run cannot be deleted.
+     */
+    public void discard() throws IOException {
+        for (File run : runs) {
+            Files.deleteIfExists(run.toPath());
+        }
+        runs = new ArrayList<>();
+    }
+
+    /**
+     * Receives merged records in sorted order.
+     */
+    private interface RecordSink {
+        void accept(char[] record, long count) throws IOException;
+    }
+
+    /**
+     * Merges sorted runs, adding up the counts of equal records, and
+     * deletes them.
+     */
+    private void merge(List<File> group, RecordSink sink) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(
+                Math.max(group.size(), 1),
+                (a, b) -> Arrays.compare(a.record, b.record));
+        try {
+            for (File run : group) {
+                RunReader reader = new RunReader(run, level);
+                if (reader.advance()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+            char[] record = new char[level + 1];
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                System.arraycopy(reader.record, 0, record, 0, level + 1);
+                long count = 0;
+                while (reader != null
+                        && Arrays.equals(reader.record, record)) {
+                    count += reader.count;
+                    if (reader.advance()) {
+                        queue.add(reader);
+                    } else {
+                        reader.close();
+                    }
+                    reader = queue.poll();
+                }
+                if (reader != null) {
+                    queue.add(reader);
+                }
+                sink.accept(record, count);
+            }
+        } finally {
+            for (RunReader reader : queue) {
+                reader.close();
+            }
+            for (File run : group) {
+                Files.deleteIfExists(run.toPath());
+            }
+        }
+    }
+
+    /**
+     * Sequential reader of one run's records.
+     */
+    private static final class RunReader implements Closeable {
+        private final DataInputStream in;
+        private final char[] record; // The current record's characters.
+        private long count; // The current record's count.
+
+        private RunReader(File run, int level) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(run), BUFFER_BYTES));
+            this.record = new char[level + 1];
+        }
+
+        /**
+         * Reads the next record.
+         * @return boolean - False at the end of the run.
+         */
+        private boolean advance() throws IOException {
+            try {
+                record[0] = in.readChar();
+            } catch (EOFException e) {
+                return false;
+            }
+            for (int i = 1; i < record.length; i++) {
+                record[i] = in.readChar();
+            }
+            count = in.readLong();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private void writeRecord(DataOutputStream out, char[] chars, int from,
+                             long count) throws IOException {
+        for (int i = from; i <= from + level; i++) {
+            out.writeChar(chars[i]);
+        }
+        out.writeLong(count);
+    }
+
+    private File createTempFile() throws IOException {
+        // Not registered for deletion at exit: merge() and discard() delete
+        // every run, and the exit list would grow with each one.
+        return File.createTempFile("run", ".bin", tempDirectory);
+    }
+
+    private static DataOutputStream openRun(File run) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(run), BUFFER_BYTES));
+    }
+}
@@ -0,0 +1,692 @@
+package main.java.assignment;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Long-running generation server. Each model is trained or loaded once per
+ * (model id, level) and stays resident, so a request costs only its own
+ * generation, not JVM startup, validation and training. Clients connect to
+ * a localhost TCP port and send one request per line:
+ *
+ *     <model id> <k> <length> <seed>
+ *
+ * Each request gets back, in the order sent, either "OK <n>" and a newline
+ * followed by n bytes of UTF-8 text, or "ERR <message>" and a newline. The
+ * same seed always gives the same text. A client may pipeline requests:
+ * the requests that have arrived together are generated as one batch on a
+ * bounded worker pool, and their responses are written together. Once the
+ * pool has as many batches as it can queue, connections stop reading until
+ * one finishes, so a client that sends faster than the server generates is
+ * held back by TCP flow control. Models are trained on a separate pool, and
+ * a batch is only handed to a worker once the models it needs are ready, so
+ * training never holds up the workers.
+ *
+ * Memory is bounded by the number of connections rather than by what
+ * clients ask for. At most MAX_CONNECTIONS are open at once; more are
+ * answered with an error and closed. Each connection has at most
+ * PIPELINED_BATCHES batches waiting to be written, and a batch keeps at
+ * most BATCH_BUFFER_BYTES of text in memory. A text that does not fit is
+ * only counted by the worker, for its header, and is generated again from
+ * the same seed straight into the socket as it is written, so a slow
+ * reader holds back its own generation instead of buffered text.
+ */
+public final class GenerationServer implements Closeable {
+    // Most requests generated as one batch.
+    public static final int MAX_BATCH = 64;
+    // Longest text one request may ask for, in characters or words.
+    public static final long MAX_LENGTH = 1 << 24;
+    // Most characters or words one batch may ask for; a longer request is
+    // generated in a batch of its own.
+    public static final long MAX_BATCH_LENGTH = MAX_LENGTH;
+    // Most connections open at once; more are refused with an error.
+    public static final int MAX_CONNECTIONS = 64;
+    // Batches a connection may have generated but not yet written.
+    private static final int PIPELINED_BATCHES = 4;
+    // Most bytes of text one batch keeps in memory; the texts that do not
+    // fit are streamed as they are written.
+    private static final int BATCH_BUFFER_BYTES = 1 << 18;
+    // Marks the end of a connection's batches for its writer.
+    private static final Future<List<Response>> END =
+            CompletableFuture.completedFuture(null);
+
+    private final ServerSocket serverSocket;
+    // Model id -> what to train its models from.
+    private final ConcurrentMap<String, Source> sources =
+            new ConcurrentHashMap<>();
+    // "id k" -> the resident model, or the failure training it gave.
+    private final ConcurrentMap<String, CompletableFuture<TextProcessor>>
+            models = new ConcurrentHashMap<>();
+    private final ExecutorService workers;
+    // Trains models, so workers only generate.
+    private final ExecutorService trainers;
+    // Batches that may be generating or queued for the workers at once.
+    private final Semaphore queuedBatches;
+    // Two threads per connection: one reads requests, one writes responses.
+    private final ExecutorService connections;
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+
+    /**
+     * Serves generation requests until stopped.
+     * @param args - Command line arguments
+     * args[0] is the port to listen on, or 0 for any free port
+     * args[1...] are models, each as id=kind:source, where kind is one of
+     * ModelFile.createProcessor's kinds and source is a text or a model
+     */
+    public static void main(String[] args) {
+        GenerationServer server = null;
+        try {
+            if (args.length < 2) {
+                throw new IllegalArgumentException("A port and at least "
+                        + "one model must be provided.");
+            }
+            for (int i = 1; i < args.length; i++) {
+                int equals = args[i].indexOf('=');
+                if (equals <= 0 || args[i].indexOf(':', equals + 1) < 0) {
+                    throw new IllegalArgumentException("Models must be "
+                            + "given as id=kind:source, not " + args[i]);
+                }
+            }
+            int threads = Runtime.getRuntime().availableProcessors();
+            server = start(Integer.parseInt(args[0]), threads, 4 * threads);
+            for (int i = 1; i < args.length; i++) {
+                int equals = args[i].indexOf('=');
+                int colon = args[i].indexOf(':', equals + 1);
+                server.register(args[i].substring(0, equals),
+                        args[i].substring(equals + 1, colon),
+                        args[i].substring(colon + 1));
+            }
+            System.out.println("Listening on port " + server.port());
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+            // A server that cannot serve every model is not left running.
+            if (server != null) {
+                try {
+                    server.close();
+                } catch (IOException closing) {
+                    System.err.println(closing.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts a server on a localhost port.
+     * @param port - The port to listen on, or 0 for any free port.
+     * @param threads - Number of batches generated at once (positive).
+     * @param queueBatches - Number of batches that may wait for a worker
+     * before connections stop reading (non-negative).
+     * @return GenerationServer - The running server.
+     * @throws IOException - If the port cannot be bound.
+     */
+    public static GenerationServer start(int port, int threads,
+                                         int queueBatches)
+            throws IOException {
+        if (threads <= 0 || queueBatches < 0) {
+            throw new IllegalArgumentException("The server needs at least "
+                    + "one thread and a non-negative queue.");
+        }
+        GenerationServer server = new GenerationServer(new ServerSocket(port,
+                0, InetAddress.getLoopbackAddress()), threads, queueBatches);
+        server.acceptor.start();
+        return server;
+    }
+
+    private GenerationServer(ServerSocket serverSocket, int threads,
+                             int queueBatches) {
+        this.serverSocket = serverSocket;
+        this.workers = Executors.newFixedThreadPool(threads,
+                daemonThreads("GenerationServer worker"));
+        this.trainers = Executors.newCachedThreadPool(
+                daemonThreads("GenerationServer trainer"));
+        this.queuedBatches = new Semaphore(threads + queueBatches);
+        this.connections = Executors.newCachedThreadPool(
+                daemonThreads("GenerationServer connection"));
+        // Not a daemon, so a server started from main keeps running.
+        this.acceptor = new Thread(this::accept, "GenerationServer");
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return task -> {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * A model id's source: a text to train from, or a saved model.
+     */
+    private static final class Source {
+        private final String kind;
+        private final String filename;
+
+        private Source(String kind, String filename) {
+            this.kind = kind;
+            this.filename = filename;
+        }
+
+        private TextProcessor train(int level) throws IOException {
+            TextProcessor processor = ModelFile.createProcessor(kind, level);
+            if (ModelFile.isModelFile(filename)) {
+                processor.loadModel(filename);
+            } else if (processor instanceof DiskRandomWriter) {
+                ((DiskRandomWriter) processor).buildModel(filename);
+            } else {
+                processor.readText(MappedCorpus.load(filename));
+            }
+            return processor;
+        }
+    }
+
+    /**
+     * Registers a model id. Its model at each level is trained, or loaded
+     * if the source is a saved model, on the first request at that level.
+     * A saved model only serves the level it was trained at. Registering
+     * an id again replaces its source and drops every model the id had, so
+     * later requests are served from the new source.
+     * @param id - The model id requests use; it must not contain spaces.
+     * @param kind - One of the kinds of ModelFile.createProcessor.
+     * @param source - A text file, or a model file saved by that kind.
+     */
+    public void register(String id, String kind, String source) {
+        checkId(id);
+        ModelFile.createProcessor(kind, 0); // Rejects unknown kinds now.
+        sources.put(id, new Source(kind, source));
+        models.keySet().removeIf(key -> key.startsWith(id + " "));
+    }
+
+    /**
+     * Registers a writer that is already trained as the model of an id at
+     * one level.
+     * @param id - The model id requests use; it must not contain spaces.
+     * @param level - The level requests for this model give.
+     * @param processor - A trained writer. It is only generated from.
+     */
+    public void register(String id, int level, TextProcessor processor) {
+        checkId(id);
+        models.put(id + " " + level,
+                CompletableFuture.completedFuture(processor));
+    }
+
+    private static void checkId(String id) {
+        if (id.isEmpty() || id.chars().anyMatch(Character::isWhitespace)) {
+            throw new IllegalArgumentException("Model ids must be non-empty "
+                    + "and have no spaces, not \"" + id + "\"");
+        }
+    }
+
+    /**
+     * Returns the port the server listens on.
+     * @return int - The local port.
+     */
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections, closes the open ones and stops the
+     * workers.
+     * @throws IOException - If the server socket cannot be closed.
+     */
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : openSockets) {
+            socket.close();
+        }
+        connections.shutdownNow();
+        workers.shutdownNow();
+        trainers.shutdownNow();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                if (openSockets.size() >= MAX_CONNECTIONS) {
+                    refuse(socket);
+                    continue;
+                }
+                socket.setTcpNoDelay(true);
+                openSockets.add(socket);
+                BlockingQueue<Future<List<Response>>> pending =
+                        new ArrayBlockingQueue<>(PIPELINED_BATCHES);
+                connections.execute(() -> readRequests(socket, pending));
+                connections.execute(() -> writeResponses(socket, pending));
+            } catch (IOException | RejectedExecutionException e) {
+                // The server socket was closed; the loop ends.
+            }
+        }
+    }
+
+    /**
+     * Answers a connection past MAX_CONNECTIONS with an error and closes it.
+     */
+    private static void refuse(Socket socket) {
+        try (socket) {
+            socket.getOutputStream().write(("ERR The server has "
+                    + MAX_CONNECTIONS + " connections open.\n")
+                    .getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // The client is gone already.
+        }
+    }
+
+    /**
+     * Reads a connection's requests and submits them in batches. Blocks,
+     * and so stops reading, while the workers or the connection's writer
+     * have no room for another batch.
+     */
+    private void readRequests(
+            Socket socket,
+            BlockingQueue<Future<List<Response>>> pending) {
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), StandardCharsets.UTF_8));
+            List<Request> batch = new ArrayList<>();
+            long batchLength = 0; // Characters or words the batch asks for.
+            String line;
+            // Lines already buffered are not read once the writer closed.
+            while (!socket.isClosed() && (line = in.readLine()) != null) {
+                Request request = parse(line);
+                if (!batch.isEmpty()
+                        && batchLength + request.length > MAX_BATCH_LENGTH) {
+                    submit(batch, pending);
+                    batch = new ArrayList<>();
+                    batchLength = 0;
+                }
+                batch.add(request);
+                batchLength += request.length;
+                // Batch whatever has already arrived.
+                if (batch.size() == MAX_BATCH || !in.ready()) {
+                    submit(batch, pending);
+                    batch = new ArrayList<>();
+                    batchLength = 0;
+                }
+            }
+        } catch (IOException | InterruptedException
+                 | RejectedExecutionException e) {
+            // The connection or the server was closed.
+        } finally {
+            try {
+                pending.put(END);
+            } catch (InterruptedException e) {
+                close(socket);
+            }
+        }
+    }
+
+    /**
+     * Queues a batch to be generated once the models it needs are trained.
+     * Blocks while the workers or the connection's writer have no room.
+     */
+    private void submit(List<Request> batch,
+                        BlockingQueue<Future<List<Response>>> pending)
+            throws InterruptedException {
+        queuedBatches.acquire();
+        CompletableFuture<?>[] models = batch.stream()
+                .filter(request -> request.model != null)
+                .map(request -> request.model)
+                .toArray(CompletableFuture[]::new);
+        // Whether training succeeds or not, each request is answered.
+        CompletableFuture<List<Response>> responses = CompletableFuture
+                .allOf(models).handle((trained, e) -> batch)
+                .thenApplyAsync(this::respond, workers);
+        responses.whenComplete((bytes, e) -> queuedBatches.release());
+        pending.put(responses);
+    }
+
+    /**
+     * Writes a connection's responses in the order its batches were read.
+     */
+    private void writeResponses(
+            Socket socket,
+            BlockingQueue<Future<List<Response>>> pending) {
+        try {
+            OutputStream out = socket.getOutputStream();
+            Future<List<Response>> responses;
+            while ((responses = pending.take()) != END) {
+                for (Response response : responses.get()) {
+                    response.writeTo(out);
+                }
+                out.flush();
+            }
+        } catch (IOException | InterruptedException | ExecutionException
+                 | RuntimeException e) {
+            // The connection or the server was closed, or a streamed text
+            // could not be generated again after its header was sent.
+        } finally {
+            close(socket);
+            // The reader stops once the socket is closed, and has room for
+            // the batches it may still be submitting and its END.
+            pending.clear();
+        }
+    }
+
+    private void close(Socket socket) {
+        openSockets.remove(socket);
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed.
+        }
+    }
+
+    /**
+     * One line a connection sent: a parsed request and the model it needs,
+     * or why the line is not a request.
+     */
+    private static final class Request {
+        private final int level;
+        private final long length; // Zero if the line is not a request.
+        private final long seed;
+        private final CompletableFuture<TextProcessor> model; // Or null.
+        private final RuntimeException invalid; // Or null.
+
+        private Request(int level, long length, long seed,
+                        CompletableFuture<TextProcessor> model,
+                        RuntimeException invalid) {
+            this.level = level;
+            this.length = length;
+            this.seed = seed;
+            this.model = model;
+            this.invalid = invalid;
+        }
+    }
+
+    /**
+     * Parses one line and starts training the model it needs, if that has
+     * not started yet.
+     */
+    private Request parse(String line) {
+        try {
+            String[] fields = line.trim().split("\\s+");
+            if (fields.length != 4) {
+                throw new IllegalArgumentException("Requests must be \"<model "
+                        + "id> <k> <length> <seed>\", not \"" + line + "\"");
+            }
+            int level = Integer.parseInt(fields[1]);
+            long length = Long.parseLong(fields[2]);
+            long seed = Long.parseLong(fields[3]);
+            if (level < 0 || length < 0 || length > MAX_LENGTH) {
+                throw new IllegalArgumentException("k must be non-negative "
+                        + "and the length between 0 and " + MAX_LENGTH + ".");
+            }
+            return new Request(level, length, seed, model(fields[0], level),
+                    null);
+        } catch (RuntimeException e) {
+            return new Request(0, 0, 0, null, e);
+        }
+    }
+
+    /**
+     * The response to one request: its header, and either its text or the
+     * request to generate the text again from as it is written.
+     */
+    private static final class Response {
+        private final byte[] header;
+        private final byte[] text; // Or null if the text is streamed.
+        private final Request streamed; // Or null if the text is in memory.
+        private final TextProcessor model; // Generates a streamed text.
+        private final long size; // Bytes of the text.
+
+        private Response(String header, byte[] text, Request streamed,
+                         TextProcessor model, long size) {
+            this.header = header.getBytes(StandardCharsets.UTF_8);
+            this.text = text;
+            this.streamed = streamed;
+            this.model = model;
+            this.size = size;
+        }
+
+        private void writeTo(OutputStream out) throws IOException {
+            out.write(header);
+            if (streamed == null) {
+                out.write(text);
+                return;
+            }
+            TextSink sink = new TextSink(Channels.newChannel(out), 0);
+            model.writeText(sink, streamed.length,
+                    new SplittableRandom(streamed.seed));
+            if (sink.count != size) {
+                throw new IOException("The text of seed " + streamed.seed
+                        + " changed length when generated again.");
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes of a text while keeping at most a set number of them
+     * in memory, or while passing all of them to a channel.
+     */
+    private static final class TextSink implements WritableByteChannel {
+        private final WritableByteChannel target; // Or null.
+        private final ByteArrayOutputStream buffer =
+                new ByteArrayOutputStream();
+        private final long room; // Most bytes the buffer may hold.
+        private long count; // Bytes written so far.
+        private boolean overflowed; // Whether the text outgrew the room.
+
+        private TextSink(WritableByteChannel target, long room) {
+            this.target = target;
+            this.room = room;
+        }
+
+        public int write(ByteBuffer src) throws IOException {
+            int n = src.remaining();
+            count += n;
+            if (target != null) {
+                while (src.hasRemaining()) {
+                    target.write(src);
+                }
+                return n;
+            }
+            if (!overflowed && buffer.size() + (long) n <= room) {
+                byte[] bytes = new byte[n];
+                src.get(bytes);
+                buffer.writeBytes(bytes);
+            } else {
+                overflowed = true;
+                buffer.reset();
+                src.position(src.limit());
+            }
+            return n;
+        }
+
+        public boolean isOpen() {
+            return true;
+        }
+
+        public void close() {
+        }
+    }
+
+    /**
+     * Generates the responses of a batch whose models are all trained. A
+     * request that fails gets an error response; the rest of the batch is
+     * unaffected. Texts are kept in memory until the batch has
+     * BATCH_BUFFER_BYTES of them; a longer text is only counted here.
+     */
+    private List<Response> respond(List<Request> requests) {
+        List<Response> responses = new ArrayList<>(requests.size());
+        long room = BATCH_BUFFER_BYTES;
+        for (Request request : requests) {
+            TextSink text = new TextSink(null, room);
+            try {
+                TextProcessor model = model(request);
+                model.writeText(text, request.length,
+                        new SplittableRandom(request.seed));
+                String header = "OK " + text.count + "\n";
+                if (text.overflowed) {
+                    responses.add(new Response(header, null, request, model,
+                            text.count));
+                } else {
+                    responses.add(new Response(header,
+                            text.buffer.toByteArray(), null, null,
+                            text.count));
+                    room -= text.count;
+                }
+            } catch (IOException | RuntimeException e) {
+                responses.add(new Response("ERR " + String.valueOf(
+                        e.getMessage()).replace('\n', ' ') + "\n",
+                        new byte[0], null, null, 0));
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Returns the trained model of a request.
+     */
+    private static TextProcessor model(Request request) throws IOException {
+        if (request.invalid != null) {
+            throw request.invalid;
+        }
+        try {
+            return request.model.join(); // Already done; never waits.
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    /**
+     * Returns the resident model of an id at a level, starting to train it
+     * on the training pool on first use. Requests that arrive during
+     * training share it, and all get its error if it fails. A failed model
+     * is then forgotten, so the next request for it trains it again.
+     */
+    private CompletableFuture<TextProcessor> model(String id, int level) {
+        String key = id + " " + level;
+        CompletableFuture<TextProcessor> model = models.get(key);
+        if (model != null) {
+            return model;
+        }
+        Source source = sources.get(id);
+        if (source == null) {
+            throw new IllegalArgumentException("No model is registered as "
+                    + id);
+        }
+        CompletableFuture<TextProcessor> training = new CompletableFuture<>();
+        model = models.putIfAbsent(key, training);
+        if (model != null) {
+            return model;
+        }
+        try {
+            trainers.execute(() -> {
+                try {
+                    training.complete(source.train(level));
+                } catch (IOException | RuntimeException e) {
+                    models.remove(key, training);
+                    training.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            training.completeExceptionally(e); // The server was closed.
+        }
+        return training;
+    }
+
+    /**
+     * Blocking client for a GenerationServer. Requests may be pipelined:
+     * send any number, then receive their responses in the same order.
+     */
+    public static final class Client implements Closeable {
+        private final Socket socket;
+        private final Writer out;
+        private final InputStream in;
+
+        /**
+         * Connects to a server on this machine.
+         * @param port - The server's port.
+         * @throws IOException - If the server cannot be reached.
+         */
+        public Client(int port) throws IOException {
+            this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setTcpNoDelay(true);
+            this.out = new BufferedWriter(new OutputStreamWriter(
+                    socket.getOutputStream(), StandardCharsets.UTF_8));
+            this.in = new BufferedInputStream(socket.getInputStream());
+        }
+
+        /**
+         * Generates text and waits for it.
+         * @param id - The model id.
+         * @param level - The level of analysis (k).
+         * @param length - Number of characters or words to generate.
+         * @param seed - Seed of the random stream; equal seeds give equal
+         * text.
+         * @return String - The generated text.
+         * @throws IOException - If the server cannot be reached or reports
+         * an error.
+         */
+        public String generate(String id, int level, long length, long seed)
+                throws IOException {
+            send(id, level, length, seed);
+            return receive();
+        }
+
+        /**
+         * Queues a request without waiting for its response.
+         * @param id - The model id.
+         * @param level - The level of analysis (k).
+         * @param length - Number of characters or words to generate.
+         * @param seed - Seed of the random stream.
+         * @throws IOException - If the server cannot be reached.
+         */
+        public void send(String id, int level, long length, long seed)
+                throws IOException {
+            out.write(id + " " + level + " " + length + " " + seed + "\n");
+        }
+
+        /**
+         * Sends the queued requests and waits for the oldest response.
+         * @return String - The text of the oldest unanswered request.
+         * @throws IOException - If the server cannot be reached or reports
+         * an error for that request.
+         */
+        public String receive() throws IOException {
+            out.flush();
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b < 0) {
+                    throw new EOFException("The server closed the "
+                            + "connection.");
+                }
+                header.write(b);
+            }
+            String status = header.toString(StandardCharsets.UTF_8);
+            if (!status.startsWith("OK ")) {
+                throw new IOException(status.startsWith("ERR ")
+                        ? status.substring(4) : status);
+            }
+            byte[] text = in.readNBytes(Integer.parseInt(
+                    status.substring(3)));
+            return new String(text, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Closes the connection.
+         * @throws IOException - If the socket cannot be closed.
+         */
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package main.java.assignment;
+import java.io.*;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Pull-based views of generation. A model's cursor generates one token each
+ * time it is advanced and holds nothing but its current seed, so these views
+ * generate only what their consumer pulls: the first token is available at
+ * once, and memory stays bounded however much is pulled.
+ */
+public final class GenerationStreams {
+    private GenerationStreams() {
+    }
+
+    /**
+     * Appends the text of one token, the way a writer's writeText does.
+     */
+    public interface TokenText {
+        /**
+         * Appends the text of a token.
+         * @param token - A token from a model's cursor.
+         * @param output - Where the text is appended.
+         */
+        void append(int token, StringBuilder output);
+    }
+
+    /**
+     * Returns an empty cursor, for models that cannot generate.
+     * @return PrimitiveIterator.OfInt - A cursor with no tokens.
+     */
+    static PrimitiveIterator.OfInt empty() {
+        return Spliterators.iterator(Spliterators.emptyIntSpliterator());
+    }
+
+    /**
+     * Views a cursor as a sequential stream of at most (length) tokens.
+     * @param tokens - The cursor; it is advanced as the stream is consumed.
+     * @param length - Most tokens in the stream (non-negative).
+     * @return IntStream - The lazily generated tokens.
+     */
+    public static IntStream ints(PrimitiveIterator.OfInt tokens,
+                                 long length) {
+        return StreamSupport.intStream(Spliterators.spliteratorUnknownSize(
+                tokens, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .limit(length);
+    }
+
+    /**
+     * Views a cursor as a Reader of the text of at most (length) tokens.
+     * Each read generates only the tokens it needs, and at most one token's
+     * text is held over for the next read.
+     * @param tokens - The cursor; it is advanced as the text is read.
+     * @param length - Most tokens to read (non-negative).
+     * @param text - Turns each token into its text.
+     * @return Reader - The lazily generated text.
+     */
+    public static Reader reader(PrimitiveIterator.OfInt tokens, long length,
+                                TokenText text) {
+        return new TokenReader(tokens, length, text);
+    }
+
+    private static final class TokenReader extends Reader {
+        private final PrimitiveIterator.OfInt tokens;
+        private final TokenText text;
+        private final StringBuilder pending = new StringBuilder();
+        private int pendingStart; // Chars of pending already read.
+        private long remaining; // Tokens not yet generated.
+        private boolean closed;
+
+        private TokenReader(PrimitiveIterator.OfInt tokens, long length,
+                            TokenText text) {
+            this.tokens = tokens;
+            this.remaining = length;
+            this.text = text;
+        }
+
+        public int read(char[] buffer, int offset, int count)
+                throws IOException {
+            if (closed) {
+                throw new IOException("The reader is closed.");
+            }
+            if (offset < 0 || count < 0 || count > buffer.length - offset) {
+                throw new IndexOutOfBoundsException();
+            }
+            if (count == 0) {
+                return 0;
+            }
+            int read = 0;
+            while (read < count) {
+                if (pendingStart == pending.length()) {
+                    if (remaining == 0 || !tokens.hasNext()) {
+                        break;
+                    }
+                    pending.setLength(0);
+                    pendingStart = 0;
+                    // Generate what this read needs; only the last token's
+                    // text can run past it.
+                    while (remaining > 0 && tokens.hasNext()
+                            && pending.length() < count - read) {
+                        text.append(tokens.nextInt(), pending);
+                        remaining--;
+                    }
+                }
+                int copied = Math.min(count - read,
+                        pending.length() - pendingStart);
+                pending.getChars(pendingStart, pendingStart + copied, buffer,
+                        offset + read);
+                pendingStart += copied;
+                read += copied;
+            }
+            return read == 0 ? -1 : read;
+        }
+
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * Views generation as a publisher of at most (length) tokens. Each
+     * subscriber gets its own cursor, and a token is generated only once a
+     * subscriber has requested it. Tokens are delivered on a thread that
+     * requests them, without recursing when onNext requests more.
+     * @param cursors - Makes the cursor of each subscription.
+     * @param length - Most tokens each subscriber receives (non-negative).
+     * @param item - Turns each token into the item published.
+     * @param <T> - The type of the published items.
+     * @return Flow.Publisher - The publisher.
+     */
+    public static <T> Flow.Publisher<T> publisher(
+            Supplier<PrimitiveIterator.OfInt> cursors, long length,
+            IntFunction<T> item) {
+        return subscriber -> {
+            PrimitiveIterator.OfInt tokens;
+            try {
+                tokens = cursors.get();
+            } catch (RuntimeException e) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    public void request(long n) {
+                    }
+
+                    public void cancel() {
+                    }
+                });
+                subscriber.onError(e);
+                return;
+            }
+            subscriber.onSubscribe(new TokenSubscription<>(subscriber,
+                    tokens, length, item));
+        };
+    }
+
+    private static final class TokenSubscription<T>
+            implements Flow.Subscription {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final PrimitiveIterator.OfInt tokens;
+        private final IntFunction<T> item;
+        // Tokens requested but not yet delivered. Whoever raises it from
+        // zero delivers until it is zero again, so signals never overlap.
+        private final AtomicLong requested = new AtomicLong();
+        private long remaining; // Tokens not yet delivered.
+        private volatile Throwable error; // Signalled by the deliverer.
+        private volatile boolean done; // Cancelled, completed or failed.
+
+        private TokenSubscription(Flow.Subscriber<? super T> subscriber,
+                                  PrimitiveIterator.OfInt tokens, long length,
+                                  IntFunction<T> item) {
+            this.subscriber = subscriber;
+            this.tokens = tokens;
+            this.remaining = length;
+            this.item = item;
+        }
+
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Demand must be "
+                        + "positive, not " + n);
+                n = 1; // Makes sure someone delivers the error.
+            }
+            long current;
+            long next;
+            do {
+                current = requested.get();
+                next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            } while (!requested.compareAndSet(current, next));
+            if (current == 0) {
+                deliver(next);
+            }
+        }
+
+        private void deliver(long demand) {
+            long delivered = 0;
+            while (true) {
+                while (delivered < demand) {
+                    if (!deliverNext()) {
+                        return;
+                    }
+                    delivered++;
+                }
+                // End as soon as the last token is out, without more demand.
+                if (done || error != null || remaining == 0
+                        || !tokens.hasNext()) {
+                    deliverNext();
+                    return;
+                }
+                demand = requested.addAndGet(-delivered);
+                delivered = 0;
+                if (demand == 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Delivers one token, or the signal that ends the subscription.
+         * @return boolean - Whether a token was delivered.
+         */
+        private boolean deliverNext() {
+            if (done) {
+                return false;
+            }
+            if (error != null) {
+                done = true;
+                subscriber.onError(error);
+                return false;
+            }
+            if (remaining == 0 || !tokens.hasNext()) {
+                done = true;
+                subscriber.onComplete();
+                return false;
+            }
+            T next;
+            try {
+                next = item.apply(tokens.nextInt());
+            } catch (RuntimeException e) {
+                done = true;
+                subscriber.onError(e);
+                return false;
+            }
+            remaining--;
+            subscriber.onNext(next);
+            return true;
+        }
+
+        public void cancel() {
+            done = true;
+        }
+    }
+}
@@ -0,0 +1,522 @@
+package main.java.assignment;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * RandomWriter engine that analyzes nothing up front. readText only loads
+ * the text; each context's successors are found on first use by scanning
+ * the text for it, and kept in a bounded LRU cache. Whenever a context is
+ * first used, a background thread resolves in one scan every context that
+ * can follow it, so generation mostly finds the next context cached. Time
+ * to the first character is the cost of reading the file plus one scan,
+ * which suits short outputs from large texts.
+ *
+ * Successors are added to each distribution in char order however they are
+ * found, so the text generated from a random stream does not depend on
+ * what was cached.
+ */
+public class LazyRandomWriter implements TextProcessor {
+    // Contexts a model caches unless the caller chooses otherwise.
+    public static final int DEFAULT_CACHE_CONTEXTS = 1 << 16;
+    // Contexts waiting to be expanded; the oldest are dropped when full.
+    private static final int PREFETCH_QUEUE = 16;
+    // Shared thread that fills caches ahead of generation.
+    private static final ThreadPoolExecutor PREFETCHER =
+            new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(PREFETCH_QUEUE), task -> {
+                        Thread thread = new Thread(task, "LazyRandomWriter");
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.DiscardOldestPolicy());
+
+    // The level of the analysis being done.
+    private final int level;
+    // Most contexts a model keeps resolved at once.
+    private final int cacheContexts;
+    // The loaded model, replaced as a whole.
+    private volatile Model model;
+
+    /**
+     * Randomly writes based on text from the specified input file.
+     * @param args - Command line arguments
+     * args[0] is the input filename, a text or a char model
+     * args[1] is the output filename
+     * args[2] is the level of analysis (k)
+     * args[3] is the length (number of characters) of output
+     */
+    public static void main(String[] args) throws IOException {
+        try {
+            MappedCorpus corpus = RandomWriter.validateInput(args);
+            // Get input arguments
+            String result = args[1];
+            int k = Integer.parseInt(args[2]);
+            long length = Long.parseLong(args[3]);
+            // Write random text based on input
+            TextProcessor processor = createProcessor(k);
+            if (ModelFile.isModelFile(args[0])) {
+                processor.loadModel(args[0]);
+            } else {
+                processor.readText(corpus);
+            }
+            try (FileChannel output = ChunkedTextWriter.openOutput(result)) {
+                processor.writeText(output, length);
+            }
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Static factory method for LazyRandomWriter.
+     * @param level - The level of text analysis to perform.
+     * @return The newly instantiated TextProcessor.
+     */
+    public static TextProcessor createProcessor(int level) {
+        return new LazyRandomWriter(level, DEFAULT_CACHE_CONTEXTS);
+    }
+
+    /**
+     * Static factory method for a LazyRandomWriter with its own cache size.
+     * @param level - The level of text analysis to perform.
+     * @param cacheContexts - Most contexts kept resolved at once (positive).
+     * @return The newly instantiated TextProcessor.
+     */
+    public static TextProcessor createProcessor(int level, int cacheContexts) {
+        return new LazyRandomWriter(level, cacheContexts);
+    }
+
+    /**
+     * Private constructor for the LazyRandomWriter class.
+     * @param level - The level of analysis used to generate random output.
+     * @param cacheContexts - Most contexts kept resolved at once.
+     */
+    private LazyRandomWriter(int level, int cacheContexts) {
+        if (cacheContexts <= 0) {
+            throw new IllegalArgumentException("The cache must hold at "
+                    + "least one context. You set " + cacheContexts);
+        }
+        // Get around an edge case
+        this.level = Math.max(level, 0);
+        this.cacheContexts = cacheContexts;
+        this.model = new Model("", this.level, cacheContexts);
+    }
+
+    /**
+     * The input text and a cache of the contexts resolved from it so far.
+     * The text never changes and the cache is locked on every access, so
+     * any number of threads can generate from one Model at the same time.
+     * Generation looks contexts up through one key over its seed buffer,
+     * so a cached context costs no allocation and a single lock.
+     */
+    public static final class Model {
+        // The text used to generate output, searched with String.indexOf.
+        private final String inputText;
+        private final int level;
+        // Context -> its successors, least recently used first.
+        private final Map<Key, Resolved> cache;
+
+        private Model(String inputText, int level, int cacheContexts) {
+            this.inputText = inputText;
+            this.level = level;
+            this.cache = new LinkedHashMap<Key, Resolved>(16, 0.75f, true) {
+                protected boolean removeEldestEntry(
+                        Map.Entry<Key, Resolved> eldest) {
+                    return size() > cacheContexts;
+                }
+            };
+        }
+
+        /**
+         * A context as a cache key. Generation reuses one key over its seed
+         * buffer and rehashes it as the seed shifts; keys in the cache own
+         * a copy of their chars.
+         */
+        private static final class Key {
+            private final char[] chars;
+            private int hash;
+
+            private Key(char[] chars) {
+                this.chars = chars;
+                rehash();
+            }
+
+            /**
+             * Updates the hash after the chars have changed.
+             */
+            private void rehash() {
+                hash = Arrays.hashCode(chars);
+            }
+
+            public int hashCode() {
+                return hash;
+            }
+
+            public boolean equals(Object other) {
+                return other instanceof Key
+                        && Arrays.equals(chars, ((Key) other).chars);
+            }
+        }
+
+        /**
+         * A resolved context: its distinct successors in char order with
+         * their counts and alias table, and whether its followers were
+         * prefetched.
+         */
+        private static final class Resolved {
+            private final char[] successors;
+            private final int[] counts;
+            private final AliasTable aliasTable; // Null if no successors.
+            private boolean expanded; // Guarded by the cache.
+
+            private Resolved(char[] successors, int[] counts) {
+                this.successors = successors;
+                this.counts = counts;
+                this.aliasTable = successors.length == 0 ? null
+                        : new AliasTable(counts, counts.length);
+            }
+
+            /**
+             * Picks a successor with probability proportional to its count,
+             * drawing what SuccessorDistribution.sample draws.
+             */
+            private char sample(SplittableRandom random) {
+                int column = random.nextInt(successors.length);
+                int value = random.nextInt(aliasTable.total());
+                return successors[aliasTable.sample(column, value)];
+            }
+
+            /**
+             * Marks the followers as prefetched. Called with the cache
+             * locked.
+             * @return boolean - True only for the first caller.
+             */
+            private boolean claimExpansion() {
+                boolean first = !expanded;
+                expanded = true;
+                return first;
+            }
+        }
+
+        /**
+         * Returns the successors of a context, scanning the text for it if
+         * it is not cached.
+         * @param context - A context of (level) characters.
+         * @return SuccessorDistribution - A new distribution of its
+         * successors, or null if it never occurs in the text with a
+         * successor.
+         */
+        public SuccessorDistribution<Character> successors(String context) {
+            Resolved resolved = resolve(new Key(context.toCharArray()));
+            if (resolved.aliasTable == null) {
+                return null;
+            }
+            SuccessorDistribution<Character> successors =
+                    new SuccessorDistribution<>();
+            for (int i = 0; i < resolved.successors.length; i++) {
+                successors.add(resolved.successors[i], resolved.counts[i]);
+            }
+            successors.prepare();
+            return successors;
+        }
+
+        /**
+         * Returns the number of contexts resolved and still cached.
+         * @return int - The cached context count.
+         */
+        public int cachedContexts() {
+            synchronized (cache) {
+                return cache.size();
+            }
+        }
+
+        /**
+         * Probabilistically generates (length) characters into an output.
+         * @param length - Number of characters to generate
+         * @param output - Where the generated characters are appended.
+         * @param random - Source of randomness, used by this call only.
+         * @throws IOException - If the output cannot be appended to.
+         */
+        public void generateText(long length, Appendable output,
+                                 SplittableRandom random) throws IOException {
+            // Edge case - no seeds (caused by input no longer than k)
+            if (inputText.length() <= level) {
+                return;
+            }
+
+            char[] seed = new char[level];
+            Key context = new Key(seed); // Follows the seed in place.
+            pickRandomSeed(context, random);
+
+            // Generate (length) random characters.
+            for (long i = 0; i < length; i++) {
+                Resolved successors = resolve(context);
+                // Get random seed if current seed doesn't occur in the text.
+                if (successors.aliasTable == null) {
+                    pickRandomSeed(context, random);
+                    successors = resolve(context);
+                }
+
+                char randomChar = successors.sample(random);
+                output.append(randomChar);
+
+                // Update seed in place
+                if (level != 0) {
+                    System.arraycopy(seed, 1, seed, 0, level - 1);
+                    seed[level - 1] = randomChar;
+                    context.rehash();
+                }
+            }
+        }
+
+        /**
+         * Copies a random seed that has a successor from the text.
+         */
+        private void pickRandomSeed(Key seed, SplittableRandom random) {
+            int seedStartIndex = random.nextInt(inputText.length() - level);
+            inputText.getChars(seedStartIndex, seedStartIndex + level,
+                    seed.chars, 0);
+            seed.rehash();
+        }
+
+        /**
+         * Finds a context in the cache, or scans for it and caches it. The
+         * first use of a context queues its followers for prefetching.
+         * @param context - The context; only copied if it must be cached.
+         */
+        private Resolved resolve(Key context) {
+            Resolved entry;
+            boolean expand;
+            synchronized (cache) {
+                entry = cache.get(context);
+                expand = entry != null && entry.claimExpansion();
+            }
+            if (entry == null) {
+                Key key = new Key(context.chars.clone());
+                Resolved scanned = scan(new String(key.chars));
+                synchronized (cache) {
+                    Resolved raced = cache.putIfAbsent(key, scanned);
+                    entry = raced != null ? raced : scanned;
+                    expand = entry.claimExpansion();
+                }
+            }
+            if (expand && level > 0 && entry.aliasTable != null) {
+                String key = new String(context.chars);
+                PREFETCHER.execute(() -> expand(key));
+            }
+            return entry;
+        }
+
+        /**
+         * Collects the successors of every occurrence of a context.
+         */
+        private Resolved scan(String context) {
+            char[] found = new char[16];
+            int count = 0;
+            int last = inputText.length() - level; // Seeds with a successor.
+            for (int i = inputText.indexOf(context); i >= 0 && i < last;
+                 i = inputText.indexOf(context, i + 1)) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, count * 2);
+                }
+                found[count++] = inputText.charAt(i + level);
+            }
+            Arrays.sort(found, 0, count);
+            return distribution(found, 0, count);
+        }
+
+        /**
+         * Resolves, in one scan, every context made of the last (level - 1)
+         * characters of a context and one more: the contexts generation can
+         * reach from it. Contexts already cached are left alone.
+         */
+        private void expand(String key) {
+            String prefix = key.substring(1);
+            int[] pairs = new int[16]; // (next char << 16) | successor.
+            int count = 0;
+            int last = inputText.length() - level;
+            for (int i = inputText.indexOf(prefix); i >= 0 && i < last;
+                 i = inputText.indexOf(prefix, i + 1)) {
+                if (count == pairs.length) {
+                    pairs = Arrays.copyOf(pairs, count * 2);
+                }
+                pairs[count++] = inputText.charAt(i + level - 1) << 16
+                        | inputText.charAt(i + level);
+            }
+            Arrays.sort(pairs, 0, count);
+
+            char[] successors = new char[count];
+            for (int from = 0; from < count; ) {
+                int next = pairs[from] >>> 16;
+                int to = from;
+                while (to < count && pairs[to] >>> 16 == next) {
+                    successors[to] = (char) pairs[to];
+                    to++;
+                }
+                Resolved entry = distribution(successors, from, to);
+                Key follower = new Key((prefix + (char) next).toCharArray());
+                synchronized (cache) {
+                    cache.putIfAbsent(follower, entry);
+                }
+                from = to;
+            }
+        }
+
+        /**
+         * Counts runs of a sorted range of successors into a resolved
+         * context.
+         */
+        private static Resolved distribution(char[] successors, int from,
+                                             int to) {
+            char[] distinct = new char[to - from];
+            int[] counts = new int[to - from];
+            int size = 0;
+            for (int i = from; i < to; ) {
+                int run = i;
+                while (run < to && successors[run] == successors[i]) {
+                    run++;
+                }
+                distinct[size] = successors[i];
+                counts[size++] = run - i;
+                i = run;
+            }
+            return new Resolved(Arrays.copyOf(distinct, size),
+                    Arrays.copyOf(counts, size));
+        }
+    }
+
+    /**
+     * Reads the text from a file. Nothing is analyzed until generation.
+     * @param inputFilename - Name of the source text file.
+     */
+    public void readText(String inputFilename) {
+        try {
+            readText(MappedCorpus.load(inputFilename));
+        } catch (IOException e) {
+            System.err.println("File " + inputFilename + " was not found or ");
+            System.err.println("could not be read.");
+        }
+    }
+
+    /**
+     * Uses already-read text, with an empty cache.
+     * @param corpus - The source text.
+     */
+    public void readText(MappedCorpus corpus) {
+        this.model = new Model(corpus.text(), level, cacheContexts);
+    }
+
+    /**
+     * Saves the text as a char model. The full transition table is built
+     * for the file, so any char engine can load it.
+     * @param modelFilename - Name of the model file to write.
+     * @throws IOException - If the model file cannot be written.
+     */
+    public void saveModel(String modelFilename) throws IOException {
+        try (DataOutputStream out = ModelFile.create(modelFilename,
+                ModelFile.CHAR_MODEL, level)) {
+            char[] text = model.inputText.toCharArray();
+            ModelFile.writeText(out, text);
+            ContextTable.build(Tokens.of(text), level).write(out);
+        }
+    }
+
+    /**
+     * Loads the text of a char model saved at this writer's level. Its
+     * transition table is not read.
+     * @param modelFilename - Name of the model file to read.
+     * @throws IOException - If the file cannot be read or does not hold a
+     * char model of this level.
+     */
+    public void loadModel(String modelFilename) throws IOException {
+        ModelFile modelFile = ModelFile.open(modelFilename,
+                ModelFile.CHAR_MODEL);
+        modelFile.requireLevel(level);
+        this.model = new Model(new String(modelFile.readText()), level,
+                cacheContexts);
+    }
+
+    /**
+     * Writes text generated using input text to the output file.
+     * @param outputFilename - Name of the file to write to.
+     * @param length - Number of characters to write (non-negative).
+     */
+    public void writeText(String outputFilename, int length) {
+        try (FileChannel output = ChunkedTextWriter.openOutput(
+                outputFilename)) {
+            writeText(output, length);
+        } catch (IOException e) {
+            System.err.println("Could not write to output file " +
+                    outputFilename);
+        }
+    }
+
+    /**
+     * Streams text generated using input text to a channel.
+     * @param channel - Destination of the text. Not closed.
+     * @param length - Number of characters to write (non-negative).
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void writeText(WritableByteChannel channel, long length)
+            throws IOException {
+        writeText(channel, length, RandomStreams.forCurrentThread());
+    }
+
+    /**
+     * Streams text generated from one random stream to a channel.
+     * @param channel - Destination of the text. Not closed.
+     * @param length - Number of characters to write (non-negative).
+     * @param random - Source of randomness, used by this call only.
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void writeText(WritableByteChannel channel, long length,
+                          SplittableRandom random) throws IOException {
+        ChunkedTextWriter output = new ChunkedTextWriter(channel);
+        model.generateText(length, output, random);
+        output.finish();
+    }
+
+    /**
+     * Probabilistically generates text of (length) characters using input text.
+     * @param length - Number of characters to generate
+     * @return String - the generated text.
+     */
+    public String generateText(int length) {
+        return generateText(length, RandomStreams.forCurrentThread());
+    }
+
+    /**
+     * Probabilistically generates text of (length) characters using input text.
+     * The same random stream always produces the same text.
+     * @param length - Number of characters to generate
+     * @param random - Source of randomness, used by this call only.
+     * @return String - the generated text.
+     */
+    public String generateText(int length, SplittableRandom random) {
+        StringBuilder generatedTextBuffer = new StringBuilder(
+                Math.max(length, 0));
+        try {
+            model.generateText(length, generatedTextBuffer, random);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws.
+        }
+        return generatedTextBuffer.toString();
+    }
+
+    /**
+     * Returns the current model, which can be shared with other threads.
+     * @return Model - The model of the last readText or loadModel.
+     */
+    public Model getModel() {
+        return model;
+    }
+}
@@ -0,0 +1,215 @@
+package main.java.assignment;
+import java.util.Arrays;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Open-addressing map from primitive long keys to primitive int values.
+ * Used to count (context, successor) pairs without boxing.
+ */
+public final class LongIntHashMap {
+    // Keep the table at most half full so probe sequences stay short.
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+
+    /**
+     * Creates an empty map.
+     */
+    public LongIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Creates an empty map sized for the expected number of keys.
+     * @param expectedSize - Number of keys expected to be stored.
+     */
+    public LongIntHashMap(int expectedSize) {
+        int capacity = tableSizeFor(Math.max(expectedSize, 1) * 2L);
+        allocate(capacity);
+    }
+
+    /**
+     * Returns the value stored for a key.
+     * @param key - The key to look up.
+     * @param missing - Value to return if the key is absent.
+     * @return int - The stored value, or missing.
+     */
+    public int get(long key, int missing) {
+        int slot = mix(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return missing;
+    }
+
+    /**
+     * Stores a value for a key, replacing any previous value.
+     * @param key - The key to store.
+     * @param value - The value to associate with key.
+     */
+    public void put(long key, int value) {
+        int slot = findSlot(key);
+        if (!used[slot]) {
+            insert(slot, key, value);
+        } else {
+            values[slot] = value;
+        }
+    }
+
+    /**
+     * Adds delta to the value stored for key, treating absent keys as 0.
+     * @param key - The key whose value is incremented.
+     * @param delta - Amount to add.
+     * @return int - The new value.
+     */
+    public int increment(long key, int delta) {
+        int slot = findSlot(key);
+        if (!used[slot]) {
+            insert(slot, key, delta);
+            return delta;
+        }
+        values[slot] += delta;
+        return values[slot];
+    }
+
+    /**
+     * Returns the number of keys in the map.
+     * @return int - The number of keys.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every key while keeping the current capacity.
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /**
+     * Returns the number of slots, for iteration with isUsed/keyAt/valueAt.
+     * @return int - The table capacity.
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the memory taken by the table's arrays.
+     * @return long - The size in bytes.
+     */
+    public long sizeInBytes() {
+        return ModelStatistics.arrayBytes(keys.length, 8)
+                + ModelStatistics.arrayBytes(values.length, 4)
+                + ModelStatistics.arrayBytes(used.length, 1);
+    }
+
+    /**
+     * Returns whether a slot holds a key.
+     * @param slot - Slot index in [0, capacity()).
+     * @return boolean - Whether the slot is occupied.
+     */
+    public boolean isUsed(int slot) {
+        return used[slot];
+    }
+
+    /**
+     * Returns the key held in an occupied slot.
+     * @param slot - Slot index in [0, capacity()).
+     * @return long - The key in that slot.
+     */
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * Returns the value held in an occupied slot.
+     * @param slot - Slot index in [0, capacity()).
+     * @return int - The value in that slot.
+     */
+    public int valueAt(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * Spreads the bits of a key so that sequential keys do not cluster.
+     * @param key - The key to hash.
+     * @return int - The mixed hash code.
+     */
+    static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Returns the smallest power of two table size holding the given slots.
+     * @param slots - Minimum number of slots.
+     * @return int - A power of two no smaller than slots.
+     */
+    static int tableSizeFor(long slots) {
+        if (slots > (1 << 30)) {
+            throw new IllegalStateException("Hash table cannot grow past 2^30 slots.");
+        }
+        int capacity = MIN_CAPACITY;
+        while (capacity < slots) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private int findSlot(long key) {
+        int slot = mix(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insert(int slot, long key, int value) {
+        keys[slot] = key;
+        values[slot] = value;
+        used[slot] = true;
+        size++;
+        if (size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(tableSizeFor(newCapacity));
+
+        // Re-insert every live entry into the larger table.
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = findSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                used[slot] = true;
+            }
+        }
+    }
+}
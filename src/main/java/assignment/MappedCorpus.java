@@ -0,0 +1,290 @@
+package main.java.assignment;
+import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * A source text read in one sequential pass over a memory-mapped file. The
+ * UTF-8 bytes are decoded straight into a char array while line endings are
+ * normalized and characters and words are counted, so input validation and
+ * training share a single read.
+ */
+public final class MappedCorpus {
+    // Largest region of the file mapped at once.
+    private static final int MAP_WINDOW = 1 << 30;
+    // Chars decoded per step before normalization.
+    private static final int DECODE_CHUNK = 1 << 16;
+
+    private final char[] chars; // Text with lines joined by '\n'.
+    private final int wordCount; // Number of whitespace-separated words.
+
+    private MappedCorpus(char[] chars, int wordCount) {
+        this.chars = chars;
+        this.wordCount = wordCount;
+    }
+
+    /**
+     * Reads a file. Lines are joined with '\n' and the final line terminator
+     * is dropped, exactly like reading it line by line with a BufferedReader.
+     * @param inputFilename - Name of the source text file.
+     * @return MappedCorpus - The decoded text and its counts.
+     * @throws IOException - If the file does not exist or cannot be read.
+     */
+    public static MappedCorpus load(String inputFilename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(inputFilename),
+                StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException("File " + inputFilename
+                        + " is too large to hold in memory.");
+            }
+            return decode(channel, size);
+        }
+    }
+
+    /**
+     * Reads a file that is pure ASCII straight from its bytes, without
+     * decoding it to chars. Lines are joined and the final line terminator
+     * is dropped as in load(), so the result holds the same characters.
+     * @param inputFilename - Name of the source text file.
+     * @return byte[] - The text, one byte per character, or null if the file
+     * holds a byte above 0x7f and must be decoded by load() instead.
+     * @throws IOException - If the file does not exist or cannot be read.
+     */
+    public static byte[] loadAscii(String inputFilename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(inputFilename),
+                StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException("File " + inputFilename
+                        + " is too large to hold in memory.");
+            }
+            // Look for a non-ASCII byte before copying anything, so a file
+            // that must be decoded costs no more than the scan up to it.
+            if (!isAscii(channel, size)) {
+                return null;
+            }
+            byte[] text = new byte[(int) size];
+            for (long position = 0; position < size; position += MAP_WINDOW) {
+                int windowSize = (int) Math.min(MAP_WINDOW, size - position);
+                channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        windowSize).get(text, (int) position, windowSize);
+            }
+
+            // Normalize line endings in place; the text only gets shorter.
+            int length = 0;
+            boolean skipLineFeed = false; // Previous byte was '\r'.
+            for (byte b : text) {
+                if (b == '\n' && skipLineFeed) {
+                    skipLineFeed = false;
+                    continue;
+                }
+                skipLineFeed = b == '\r';
+                text[length++] = skipLineFeed ? (byte) '\n' : b;
+            }
+
+            // Remove the last newline character
+            if (length > 0 && text[length - 1] == '\n') {
+                length--;
+            }
+            return length == text.length ? text : Arrays.copyOf(text, length);
+        }
+    }
+
+    /**
+     * Scans a file for a byte above 0x7f, stopping at the first one.
+     */
+    private static boolean isAscii(FileChannel channel, long size)
+            throws IOException {
+        byte[] block = new byte[DECODE_CHUNK];
+        for (long position = 0; position < size; position += MAP_WINDOW) {
+            MappedByteBuffer window = channel.map(
+                    FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(MAP_WINDOW, size - position));
+            while (window.hasRemaining()) {
+                int blockSize = Math.min(block.length, window.remaining());
+                window.get(block, 0, blockSize);
+                for (int i = 0; i < blockSize; i++) {
+                    if (block[i] < 0) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wraps text that is already in memory.
+     * @param text - The text.
+     * @return MappedCorpus - The text and its counts.
+     */
+    public static MappedCorpus of(String text) {
+        char[] chars = text.toCharArray();
+        int words = 0;
+        boolean inWord = false;
+        for (char c : chars) {
+            boolean whitespace = isWhitespace(c);
+            if (!whitespace && !inWord) {
+                words++;
+            }
+            inWord = !whitespace;
+        }
+        return new MappedCorpus(chars, words);
+    }
+
+    private static MappedCorpus decode(FileChannel channel, long size)
+            throws IOException {
+        // UTF-8 never decodes to more chars than it has bytes.
+        char[] text = new char[(int) size];
+        int[] words = new int[1];
+        int length = decode(channel, size, text, 0, words);
+        if (length != text.length) {
+            text = Arrays.copyOf(text, length);
+        }
+        return new MappedCorpus(text, words[0]);
+    }
+
+    /**
+     * Reads a file into part of an array, as load() reads it, so that many
+     * files can be decoded straight into one combined text.
+     * @param inputFilename - Name of the source text file.
+     * @param text - Array the text is decoded into.
+     * @param offset - Index of text where the file's first char goes.
+     * @param capacity - Room from offset on; the file's size in bytes is
+     * always enough.
+     * @return int - The number of chars written from offset.
+     * @throws IOException - If the file cannot be read or has grown past
+     * capacity bytes.
+     */
+    static int loadInto(String inputFilename, char[] text, int offset,
+                        int capacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(inputFilename),
+                StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > capacity) {
+                throw new IOException("File " + inputFilename
+                        + " changed while being read.");
+            }
+            return decode(channel, size, text, offset, new int[1]);
+        }
+    }
+
+    /**
+     * Decodes a file into text from offset on, normalizing line endings and
+     * dropping the final one.
+     * @return int - The number of chars written.
+     */
+    private static int decode(FileChannel channel, long size, char[] text,
+                              int offset, int[] wordCount)
+            throws IOException {
+        int length = offset;
+        int words = 0;
+        boolean inWord = false;
+        boolean skipLineFeed = false; // Previous char was '\r'.
+
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer decoded = CharBuffer.allocate(DECODE_CHUNK);
+        long position = 0;
+        boolean endOfInput = false;
+        while (!endOfInput) {
+            long windowSize = Math.min(MAP_WINDOW, size - position);
+            MappedByteBuffer window = channel.map(
+                    FileChannel.MapMode.READ_ONLY, position, windowSize);
+            endOfInput = position + windowSize == size;
+
+            CoderResult result;
+            do {
+                result = decoder.decode(window, decoded, endOfInput);
+                if (endOfInput && result.isUnderflow()) {
+                    decoder.flush(decoded);
+                }
+                decoded.flip();
+
+                // Normalize line endings and count words as chars arrive.
+                while (decoded.hasRemaining()) {
+                    char c = decoded.get();
+                    if (c == '\n' && skipLineFeed) {
+                        skipLineFeed = false;
+                        continue;
+                    }
+                    skipLineFeed = c == '\r';
+                    if (skipLineFeed) {
+                        c = '\n';
+                    }
+                    boolean whitespace = isWhitespace(c);
+                    if (!whitespace && !inWord) {
+                        words++;
+                    }
+                    inWord = !whitespace;
+                    text[length++] = c;
+                }
+                decoded.clear();
+            } while (result.isOverflow());
+
+            // Bytes of a character split by the window start the next one.
+            position += windowSize - window.remaining();
+        }
+
+        // Remove the last newline character
+        if (length > offset && text[length - 1] == '\n') {
+            length--;
+        }
+        wordCount[0] = words;
+        return length - offset;
+    }
+
+    /**
+     * Returns the text. The array is shared, not copied, and must not be
+     * modified.
+     * @return char[] - The characters of the text.
+     */
+    public char[] chars() {
+        return chars;
+    }
+
+    /**
+     * Returns the text as a String.
+     * @return String - The text.
+     */
+    public String text() {
+        return new String(chars);
+    }
+
+    /**
+     * Returns the number of characters in the text.
+     * @return int - The character count.
+     */
+    public int charCount() {
+        return chars.length;
+    }
+
+    /**
+     * Returns the number of maximal runs of non-whitespace characters.
+     * @return int - The word count.
+     */
+    public int wordCount() {
+        return wordCount;
+    }
+
+    /**
+     * Returns whether a char is whitespace in the sense of the regex \s.
+     * @param c - The char to test.
+     * @return boolean - Whether c is a space, tab, line break or form feed.
+     */
+    static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+}
@@ -0,0 +1,527 @@
+package main.java.assignment;
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Versioned binary format for trained models, so a writer can start
+ * generating without re-reading and re-analyzing its source text. All values
+ * are big-endian and every array starts at a multiple of its element size,
+ * so a loaded file is memory-mapped and copied into arrays in bulk.
+ *
+ * Layout: magic, version, mode and level as ints, then the sections of the
+ * mode. Char models hold the text and a ContextTable, word models hold the
+ * vocabulary, the word ids and a ContextTable, suffix models hold a
+ * SuffixArrayIndex, backoff models hold the text and a ContextTrie
+ * whose level is its maximum level, byte models hold the text as bytes or
+ * code points and a ContextTable, word trie models hold the vocabulary
+ * and a DoubleArrayTrie, without the text, and disk models hold sorted
+ * fixed-width records that DiskModel queries in place; see there.
+ */
+public final class ModelFile {
+    // "RWMF" in ASCII.
+    private static final int MAGIC = 0x52574d46;
+    // Bumped whenever the layout changes; older files are rejected.
+    static final int VERSION = 1;
+
+    public static final int CHAR_MODEL = 0;
+    public static final int WORD_MODEL = 1;
+    public static final int SUFFIX_MODEL = 2;
+    public static final int BACKOFF_MODEL = 3;
+    public static final int BYTE_MODEL = 4;
+    public static final int WORD_TRIE_MODEL = 5;
+    public static final int DISK_MODEL = 6;
+
+    // Width of each character in the text section of a byte model.
+    private static final int BYTE_WIDTH = 1;
+    private static final int CODE_POINT_WIDTH = 4;
+
+    private final String filename;
+    private final int level;
+    private final ByteBuffer sections; // Positioned after the header.
+
+    private ModelFile(String filename, int level, ByteBuffer sections) {
+        this.filename = filename;
+        this.level = level;
+        this.sections = sections;
+    }
+
+    /**
+     * Trains a model on a text file and saves it.
+     * @param args - Command line arguments
+     * args[0] is the kind of model: char, word, suffix, backoff, byte,
+     * wordtrie or disk
+     * args[1] is the input filename
+     * args[2] is the level of analysis (k)
+     * args[3] is the model filename
+     */
+    public static void main(String[] args) {
+        try {
+            if (args.length != 4) {
+                throw new IllegalArgumentException(
+                        "Exactly 4 arguments must be provided.");
+            }
+            TextProcessor processor = createProcessor(args[0],
+                    Integer.parseInt(args[2]));
+            if (processor instanceof DiskRandomWriter) {
+                // Streamed, so the text need not fit in memory.
+                ((DiskRandomWriter) processor).buildModel(args[1]);
+            } else {
+                processor.readText(MappedCorpus.load(args[1]));
+            }
+            processor.saveModel(args[3]);
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Creates the fastest writer for a kind of model.
+     * @param kind - char, word, suffix, backoff, byte, wordtrie or disk.
+     * @param level - The level of text analysis to perform.
+     * @return TextProcessor - A PrimitiveRandomWriter,
+     * PrimitiveRandomWordWriter, SuffixArrayWriter, BackoffRandomWriter,
+     * ByteRandomWriter, TrieRandomWordWriter or DiskRandomWriter.
+     * @throws IllegalArgumentException - If the kind is not recognized.
+     */
+    public static TextProcessor createProcessor(String kind, int level) {
+        if (kind.equals("char")) {
+            return PrimitiveRandomWriter.createProcessor(level);
+        } else if (kind.equals("word")) {
+            return PrimitiveRandomWordWriter.createProcessor(level);
+        } else if (kind.equals("suffix")) {
+            return SuffixArrayWriter.createProcessor(level);
+        } else if (kind.equals("backoff")) {
+            return BackoffRandomWriter.createProcessor(level);
+        } else if (kind.equals("byte")) {
+            return ByteRandomWriter.createProcessor(level);
+        } else if (kind.equals("wordtrie")) {
+            return TrieRandomWordWriter.createProcessor(level);
+        } else if (kind.equals("disk")) {
+            return DiskRandomWriter.createProcessor(level);
+        }
+        throw new IllegalArgumentException("The kind of model must be char, "
+                + "word, suffix, backoff, byte, wordtrie or disk, not "
+                + kind);
+    }
+
+    /**
+     * Returns whether a file starts like a saved model, so command line
+     * tools can accept either a text or a model as their source.
+     * @param filename - The file to check.
+     * @return boolean - Whether the file starts with the model magic number.
+     */
+    public static boolean isModelFile(String filename) {
+        try (DataInputStream in = new DataInputStream(
+                new FileInputStream(filename))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Opens a model file for writing and writes its header.
+     * @param filename - Destination of the model.
+     * @param mode - One of CHAR_MODEL, WORD_MODEL, SUFFIX_MODEL,
+     * BACKOFF_MODEL, BYTE_MODEL, WORD_TRIE_MODEL or DISK_MODEL.
+     * @param level - The level of analysis of the model.
+     * @return DataOutputStream - Stream positioned at the first section.
+     * @throws IOException - If the file cannot be written.
+     */
+    static DataOutputStream create(String filename, int mode, int level)
+            throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(filename), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(mode);
+        out.writeInt(level);
+        return out;
+    }
+
+    /**
+     * Maps a model file and checks its header.
+     * @param filename - The model to open.
+     * @param mode - The mode the caller can use.
+     * @return ModelFile - The header, with the sections ready to read.
+     * @throws IOException - If the file cannot be read, is not a model, has
+     * another version or holds another kind of model.
+     */
+    static ModelFile open(String filename, int mode) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Model file " + filename
+                        + " is too large to map.");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+        }
+        return new ModelFile(filename, readHeader(buffer, filename, mode),
+                buffer);
+    }
+
+    /**
+     * Checks the header of a model file.
+     * @param buffer - Buffer positioned at the start of the file.
+     * @param filename - The model's name, for error messages.
+     * @param mode - The mode the caller can use.
+     * @return int - The level stored in the header.
+     * @throws IOException - If the buffer does not start like a model of
+     * this version and mode.
+     */
+    static int readHeader(ByteBuffer buffer, String filename, int mode)
+            throws IOException {
+        if (buffer.remaining() < 16 || buffer.getInt() != MAGIC) {
+            throw new IOException(filename + " is not a model file.");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Model file " + filename + " has version "
+                    + version + "; only version " + VERSION
+                    + " can be read.");
+        }
+        int fileMode = buffer.getInt();
+        if (fileMode != mode) {
+            throw new IOException("Model file " + filename + " holds a "
+                    + modeName(fileMode) + " model, not a " + modeName(mode)
+                    + " model.");
+        }
+        return buffer.getInt();
+    }
+
+    /**
+     * Checks that the model was trained at a given level.
+     * @param expectedLevel - The level of the loading writer.
+     * @throws IOException - If the levels differ.
+     */
+    void requireLevel(int expectedLevel) throws IOException {
+        if (level != expectedLevel) {
+            throw new IOException("Model file " + filename + " was trained "
+                    + "at level " + level + ", not " + expectedLevel + ".");
+        }
+    }
+
+    /**
+     * Returns the level of analysis stored in the header.
+     * @return int - The level (k).
+     */
+    int level() {
+        return level;
+    }
+
+    /**
+     * Reads the text section of a char or backoff model.
+     * @return char[] - The text.
+     * @throws IOException - If the file is truncated.
+     */
+    char[] readText() throws IOException {
+        try {
+            return readChars(sections, sections.getInt());
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    /**
+     * Reads the text section of a byte model if it holds bytes.
+     * @return byte[] - The text, one byte per character, or null if the
+     * model holds code points, which readCodePoints() then returns.
+     * @throws IOException - If the file is truncated or the width is wrong.
+     */
+    byte[] readBytes() throws IOException {
+        try {
+            int width = sections.getInt();
+            if (width == CODE_POINT_WIDTH) {
+                return null;
+            } else if (width != BYTE_WIDTH) {
+                throw new IOException("Model file " + filename + " has "
+                        + "characters of " + width + " bytes.");
+            }
+            int count = sections.getInt();
+            checkRemaining(sections, count, 1);
+            byte[] bytes = new byte[count];
+            sections.get(bytes);
+            return bytes;
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    /**
+     * Reads the text section of a byte model after readBytes() found code
+     * points.
+     * @return int[] - The code points of the text.
+     * @throws IOException - If the file is truncated.
+     */
+    int[] readCodePoints() throws IOException {
+        try {
+            return readInts(sections, sections.getInt());
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    /**
+     * Reads the vocabulary section of a word or word trie model.
+     * @return Vocabulary - The words, interned in their original id order.
+     * @throws IOException - If the file is truncated.
+     */
+    Vocabulary readVocabulary() throws IOException {
+        try {
+            Vocabulary vocabulary = new Vocabulary();
+            int size = sections.getInt();
+            for (int id = 0; id < size; id++) {
+                int length = sections.getInt();
+                checkRemaining(sections, length, 1);
+                byte[] bytes = new byte[length];
+                sections.get(bytes);
+                vocabulary.intern(new String(bytes, StandardCharsets.UTF_8));
+            }
+            return vocabulary;
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    /**
+     * Reads the token id section of a word model.
+     * @return int[] - The word ids.
+     * @throws IOException - If the file is truncated.
+     */
+    int[] readIds() throws IOException {
+        try {
+            int count = sections.getInt();
+            return readInts(sections, count);
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    /**
+     * Reads the ContextTable section.
+     * @param tokens - The tokens the table was built over.
+     * @return ContextTable - The table.
+     * @throws IOException - If the file is truncated.
+     */
+    ContextTable readTable(Tokens tokens) throws IOException {
+        try {
+            return ContextTable.read(sections, tokens, level);
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    /**
+     * Reads the SuffixArrayIndex section.
+     * @return SuffixArrayIndex - The index.
+     * @throws IOException - If the file is truncated.
+     */
+    SuffixArrayIndex readIndex() throws IOException {
+        try {
+            return SuffixArrayIndex.read(sections);
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    /**
+     * Reads the ContextTrie section of a backoff model.
+     * @return ContextTrie - The trie.
+     * @throws IOException - If the file is truncated.
+     */
+    ContextTrie readTrie() throws IOException {
+        try {
+            return ContextTrie.read(sections, level);
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    /**
+     * Reads the DoubleArrayTrie section of a word trie model.
+     * @return DoubleArrayTrie - The trie.
+     * @throws IOException - If the file is truncated.
+     */
+    DoubleArrayTrie readDoubleArrayTrie() throws IOException {
+        try {
+            return DoubleArrayTrie.read(sections, level);
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    /**
+     * Writes the text section of a char or backoff model.
+     */
+    static void writeText(DataOutputStream out, char[] text)
+            throws IOException {
+        writeText(out, text, text.length);
+    }
+
+    /**
+     * Writes the text section of a char model from the first length chars
+     * of an array.
+     */
+    static void writeText(DataOutputStream out, char[] text, int length)
+            throws IOException {
+        out.writeInt(length);
+        writeChars(out, text, length);
+    }
+
+    /**
+     * Writes the text section of a byte model that holds bytes.
+     */
+    static void writeBytes(DataOutputStream out, byte[] bytes)
+            throws IOException {
+        out.writeInt(BYTE_WIDTH);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Writes the text section of a byte model that holds code points.
+     */
+    static void writeCodePoints(DataOutputStream out, int[] codePoints)
+            throws IOException {
+        out.writeInt(CODE_POINT_WIDTH);
+        out.writeInt(codePoints.length);
+        writeInts(out, codePoints, codePoints.length);
+    }
+
+    /**
+     * Writes the vocabulary and token id sections of a word model.
+     */
+    static void writeWords(DataOutputStream out, Vocabulary vocabulary,
+                           int[] ids) throws IOException {
+        writeVocabulary(out, vocabulary);
+        out.writeInt(ids.length);
+        writeInts(out, ids, ids.length);
+    }
+
+    /**
+     * Writes the vocabulary section of a word or word trie model.
+     */
+    static void writeVocabulary(DataOutputStream out, Vocabulary vocabulary)
+            throws IOException {
+        out.writeInt(vocabulary.size());
+        for (int id = 0; id < vocabulary.size(); id++) {
+            byte[] bytes = vocabulary.word(id).getBytes(
+                    StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private IOException truncated() {
+        return new IOException("Model file " + filename + " is truncated.");
+    }
+
+    private static String modeName(int mode) {
+        switch (mode) {
+            case CHAR_MODEL:
+                return "char";
+            case WORD_MODEL:
+                return "word";
+            case SUFFIX_MODEL:
+                return "suffix";
+            case BACKOFF_MODEL:
+                return "backoff";
+            case BYTE_MODEL:
+                return "byte";
+            case WORD_TRIE_MODEL:
+                return "word trie";
+            case DISK_MODEL:
+                return "disk";
+            default:
+                return "unknown (" + mode + ")";
+        }
+    }
+
+    /**
+     * Writes zero bytes until the stream is aligned to a boundary.
+     */
+    private static void pad(DataOutputStream out, int alignment)
+            throws IOException {
+        while (out.size() % alignment != 0) {
+            out.writeByte(0);
+        }
+    }
+
+    private static void skipPadding(ByteBuffer in, int alignment) {
+        int misalignment = in.position() % alignment;
+        if (misalignment != 0) {
+            in.position(in.position() + alignment - misalignment);
+        }
+    }
+
+    /**
+     * Rejects counts that cannot fit in the rest of the buffer before an
+     * array is allocated for them.
+     */
+    private static void checkRemaining(ByteBuffer in, int count, int size) {
+        if (count < 0 || count > in.remaining() / size) {
+            throw new BufferUnderflowException();
+        }
+    }
+
+    static void writeChars(DataOutputStream out, char[] values, int count)
+            throws IOException {
+        pad(out, Character.BYTES);
+        for (int i = 0; i < count; i++) {
+            out.writeChar(values[i]);
+        }
+    }
+
+    static void writeInts(DataOutputStream out, int[] values, int count)
+            throws IOException {
+        pad(out, Integer.BYTES);
+        for (int i = 0; i < count; i++) {
+            out.writeInt(values[i]);
+        }
+    }
+
+    static void writeLongs(DataOutputStream out, long[] values, int count)
+            throws IOException {
+        pad(out, Long.BYTES);
+        for (int i = 0; i < count; i++) {
+            out.writeLong(values[i]);
+        }
+    }
+
+    static char[] readChars(ByteBuffer in, int count) {
+        skipPadding(in, Character.BYTES);
+        checkRemaining(in, count, Character.BYTES);
+        char[] values = new char[count];
+        in.asCharBuffer().get(values);
+        in.position(in.position() + count * Character.BYTES);
+        return values;
+    }
+
+    static int[] readInts(ByteBuffer in, int count) {
+        skipPadding(in, Integer.BYTES);
+        checkRemaining(in, count, Integer.BYTES);
+        int[] values = new int[count];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    static long[] readLongs(ByteBuffer in, int count) {
+        skipPadding(in, Long.BYTES);
+        checkRemaining(in, count, Long.BYTES);
+        long[] values = new long[count];
+        in.asLongBuffer().get(values);
+        in.position(in.position() + count * Long.BYTES);
+        return values;
+    }
+}
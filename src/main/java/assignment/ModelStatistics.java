@@ -0,0 +1,134 @@
+package main.java.assignment;
+import java.util.Arrays;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Size and shape of one trained model: its number of contexts, its number
+ * of (context, successor) entries, roughly how many bytes they take, and a
+ * histogram of branching factors. Bucket i of the histogram counts the
+ * contexts with between 2^i and 2^(i + 1) - 1 distinct successors. Sizes
+ * assume a 64-bit JVM with compressed references: 16-byte array headers,
+ * 4-byte references and objects padded to 8 bytes.
+ */
+final class ModelStatistics {
+    static final ModelStatistics EMPTY = new Builder().build();
+
+    final long contextCount;
+    final long successorEntryCount;
+    final long estimatedBytes;
+    private final long[] branchingHistogram;
+
+    private ModelStatistics(long contextCount, long successorEntryCount,
+                            long estimatedBytes, long[] branchingHistogram) {
+        this.contextCount = contextCount;
+        this.successorEntryCount = successorEntryCount;
+        this.estimatedBytes = estimatedBytes;
+        this.branchingHistogram = branchingHistogram;
+    }
+
+    /**
+     * Reads the statistics of a ContextTable.
+     * @param table - The table of a trained model.
+     * @return ModelStatistics - Its contexts, entries and size.
+     */
+    static ModelStatistics of(ContextTable table) {
+        Builder builder = new Builder();
+        for (int context = 0; context < table.contextCount(); context++) {
+            builder.addContext(table.distinctCount(context));
+        }
+        return builder.addBytes(table.sizeInBytes()).build();
+    }
+
+    /**
+     * Adds the statistics of two models stored side by side.
+     * @param other - The statistics of the other model.
+     * @return ModelStatistics - The counts, sizes and histograms added up.
+     */
+    ModelStatistics plus(ModelStatistics other) {
+        long[] histogram = Arrays.copyOf(branchingHistogram, Math.max(
+                branchingHistogram.length, other.branchingHistogram.length));
+        for (int i = 0; i < other.branchingHistogram.length; i++) {
+            histogram[i] += other.branchingHistogram[i];
+        }
+        return new ModelStatistics(contextCount + other.contextCount,
+                successorEntryCount + other.successorEntryCount,
+                estimatedBytes + other.estimatedBytes, histogram);
+    }
+
+    /**
+     * Returns the histogram of branching factors.
+     * @return long[] - Context counts per power-of-two bucket, up to the
+     * last non-empty bucket.
+     */
+    long[] branchingHistogram() {
+        return branchingHistogram.clone();
+    }
+
+    /**
+     * Returns the average number of bytes per context.
+     * @return double - Estimated bytes divided by contexts, or 0.
+     */
+    double bytesPerContext() {
+        return contextCount == 0 ? 0 : (double) estimatedBytes / contextCount;
+    }
+
+    /**
+     * Returns the size of an array, header and padding included.
+     * @param length - The number of elements.
+     * @param elementBytes - The size of one element.
+     * @return long - The size in bytes.
+     */
+    static long arrayBytes(long length, int elementBytes) {
+        return align(16 + length * elementBytes);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * Accumulates statistics one context at a time.
+     */
+    static final class Builder {
+        private long contextCount;
+        private long successorEntryCount;
+        private long estimatedBytes;
+        private final long[] branchingHistogram = new long[Integer.SIZE];
+
+        /**
+         * Counts one context.
+         * @param distinctCount - Its number of distinct successors.
+         * @return Builder - This builder.
+         */
+        Builder addContext(int distinctCount) {
+            contextCount++;
+            successorEntryCount += distinctCount;
+            if (distinctCount > 0) {
+                branchingHistogram[31 - Integer.numberOfLeadingZeros(
+                        distinctCount)]++;
+            }
+            return this;
+        }
+
+        /**
+         * Adds memory that is not part of any one context.
+         * @param bytes - The size in bytes.
+         * @return Builder - This builder.
+         */
+        Builder addBytes(long bytes) {
+            estimatedBytes += bytes;
+            return this;
+        }
+
+        ModelStatistics build() {
+            int buckets = branchingHistogram.length;
+            while (buckets > 0 && branchingHistogram[buckets - 1] == 0) {
+                buckets--;
+            }
+            return new ModelStatistics(contextCount, successorEntryCount,
+                    estimatedBytes,
+                    Arrays.copyOf(branchingHistogram, buckets));
+        }
+    }
+}
@@ -0,0 +1,528 @@
+package main.java.assignment;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.SplittableRandom;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Level-k analysis of any kind of token. The tokens come from a Tokenizer
+ * (chars, code points, bytes or words) and are counted in primitive
+ * ContextTables, so training, appending, sampling and saving are written
+ * once for every kind of token, and the writers only choose a tokenizer.
+ *
+ * Appended tokens are kept in segments, each holding the seeds whose
+ * successor lies in it. A segment starts with the k tokens before it, so a
+ * seed that straddles a boundary is counted exactly once and the segments
+ * together hold the counts of one model of the whole text. Segments are
+ * merged like the digits of a binary counter, so there are O(log n) of
+ * them. A model is never modified once built, so any number of threads can
+ * generate from one at the same time.
+ *
+ * Generation is exposed both as whole runs written to an output and as a
+ * cursor, with stream, Reader and publisher views over it, so the writers
+ * only name their tokens.
+ */
+public final class NGramModel {
+    private final Tokenizer tokenizer; // Splits the text into tokens.
+    private final int level; // The level of the analysis.
+    private final Segment[] segments; // Oldest first.
+    private final int seedCount; // Seeds in all segments together.
+    // Contexts in all segments together; zero if no seed has a successor.
+    private final int contextCount;
+
+    private NGramModel(Tokenizer tokenizer, int level, Segment[] segments) {
+        this.tokenizer = tokenizer;
+        this.level = level;
+        this.segments = segments;
+        int seeds = 0;
+        int contexts = 0;
+        for (Segment segment : segments) {
+            seeds += segment.seedCount;
+            contexts += segment.table.contextCount();
+        }
+        this.seedCount = seeds;
+        this.contextCount = contexts;
+    }
+
+    /**
+     * Analyzes a text.
+     * @param tokenizer - Splits the text into tokens.
+     * @param text - The text to analyze.
+     * @param level - The level of analysis (k >= 0).
+     * @return NGramModel - The successors of every seed of the text.
+     */
+    public static NGramModel train(Tokenizer tokenizer, String text,
+                                   int level) {
+        return train(tokenizer, tokenizer.tokenize(text), level);
+    }
+
+    /**
+     * Analyzes a sequence of tokens.
+     * @param tokenizer - The tokenizer the tokens came from.
+     * @param tokens - The tokens to analyze. Not copied.
+     * @param level - The level of analysis (k >= 0).
+     * @return NGramModel - The successors of every seed of the tokens.
+     */
+    static NGramModel train(Tokenizer tokenizer, Tokens tokens, int level) {
+        return new NGramModel(tokenizer, level, new Segment[] {
+                Segment.train(tokens, 0, level)});
+    }
+
+    /**
+     * Analyzes a sequence of tokens, counting it in parallel on a pool.
+     * The model is identical to the one train() builds sequentially.
+     * @param tokenizer - The tokenizer the tokens came from.
+     * @param tokens - The tokens to analyze. Not copied.
+     * @param level - The level of analysis (k >= 0).
+     * @param pool - Pool that counts the seeds, or null for none.
+     * @return NGramModel - The successors of every seed of the tokens.
+     */
+    static NGramModel train(Tokenizer tokenizer, Tokens tokens, int level,
+                            ForkJoinPool pool) {
+        if (pool == null) {
+            return train(tokenizer, tokens, level);
+        }
+        return new NGramModel(tokenizer, level, new Segment[] {
+                new Segment(tokens, 0, ContextTable.buildParallel(tokens,
+                        level, pool))});
+    }
+
+    /**
+     * Reads several text files as one text of chars, through a
+     * CorpusPipeline. No seed spans the end of one file and the start of
+     * the next, so generation restarts where one file's text ends.
+     * @param filenames - The files, in the order their texts are joined.
+     * @param level - The level of analysis (k >= 0).
+     * @param pool - Pool that counts the seeds of each file.
+     * @return NGramModel - The successors of every seed within a file.
+     * @throws IOException - If a file cannot be read.
+     */
+    static NGramModel readFiles(List<String> filenames, int level,
+                                ForkJoinPool pool) throws IOException {
+        CorpusPipeline.Documents documents = new CorpusPipeline(
+                CorpusPipeline.DEFAULT_READERS, pool).read(filenames, level);
+        Tokens tokens = Tokens.of(documents.chars(), documents.length());
+        return new NGramModel(Tokenizer.CHARS, level, new Segment[] {
+                new Segment(tokens, 0, documents.table())});
+    }
+
+    /**
+     * Loads a model saved by save().
+     * @param modelFilename - Name of the model file to read.
+     * @param tokenizer - The tokenizer of the model's tokens.
+     * @param level - The level the model must have been trained at.
+     * @return NGramModel - The loaded model.
+     * @throws IOException - If the file cannot be read or does not hold a
+     * model of this tokenizer and level.
+     */
+    static NGramModel load(String modelFilename, Tokenizer tokenizer,
+                           int level) throws IOException {
+        ModelFile modelFile = ModelFile.open(modelFilename,
+                tokenizer.modelMode());
+        modelFile.requireLevel(level);
+        Tokens tokens = tokenizer.read(modelFile);
+        return new NGramModel(tokenizer, level, new Segment[] {
+                new Segment(tokens, 0, modelFile.readTable(tokens))});
+    }
+
+    /**
+     * Saves the tokens and their table as a model of the tokenizer's mode.
+     * @param modelFilename - Name of the model file to write.
+     * @throws IOException - If the model file cannot be written.
+     */
+    void save(String modelFilename) throws IOException {
+        try (DataOutputStream out = ModelFile.create(modelFilename,
+                tokenizer.modelMode(), level)) {
+            if (segments.length == 1) {
+                segments[0].tokens.write(out);
+                segments[0].table.write(out);
+            } else {
+                Tokens joined = tokens();
+                joined.write(out);
+                ContextTable.build(joined, level).write(out);
+            }
+        }
+    }
+
+    /**
+     * Extends the model with text that follows its input. Only the new
+     * tokens and the k tokens before them are analyzed; merging older
+     * segments adds O(log n) work per token over many appends.
+     * @param text - The text that follows the current input.
+     * @return NGramModel - The model of the combined text. This model is
+     * unchanged.
+     */
+    public NGramModel append(String text) {
+        Tokens before = segments[segments.length - 1].tokens;
+        Tokens tokens = tokenizer.tokenizeAfter(before, text);
+        if (tokens.size() == 0) {
+            return this;
+        }
+        List<Segment> appended = new ArrayList<>();
+        Collections.addAll(appended, segments);
+        int overlap = Math.min(level, before.size());
+        appended.add(Segment.train(before.slice(before.size() - overlap,
+                before.size()).concat(tokens), overlap, level));
+
+        // Merge while the older neighbour is no larger than the newest.
+        int last = appended.size() - 1;
+        while (last > 0 && appended.get(last - 1).seedCount
+                <= appended.get(last).seedCount) {
+            Segment newer = appended.remove(last);
+            Segment older = appended.remove(last - 1);
+            appended.add(Segment.train(older.tokens.concat(newer.tokens.slice(
+                    newer.overlap, newer.tokens.size())), older.overlap,
+                    level));
+            last--;
+        }
+        return new NGramModel(tokenizer, level,
+                appended.toArray(new Segment[0]));
+    }
+
+    /**
+     * Returns the level of analysis of the model.
+     * @return int - The level (k).
+     */
+    public int level() {
+        return level;
+    }
+
+    /**
+     * Returns the number of tokens the model was trained on.
+     * @return int - The token count.
+     */
+    public int tokenCount() {
+        int count = 0;
+        for (Segment segment : segments) {
+            count += segment.tokens.size() - segment.overlap;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the whole input, with the segments joined again.
+     * @return Tokens - The tokens the model was trained on.
+     */
+    public Tokens tokens() {
+        Tokens joined = segments[0].tokens;
+        for (int i = 1; i < segments.length; i++) {
+            joined = joined.concat(segments[i].tokens.slice(
+                    segments[i].overlap, segments[i].tokens.size()));
+        }
+        return joined;
+    }
+
+    /**
+     * Returns the transition table of the whole input. A model that was
+     * appended to builds one over its joined tokens.
+     * @return ContextTable - The table of tokens().
+     */
+    public ContextTable table() {
+        if (segments.length == 1) {
+            return segments[0].table;
+        }
+        return ContextTable.build(tokens(), level);
+    }
+
+    /**
+     * Returns the text of a token as a seed map holds it.
+     * @param token - A token of the model.
+     * @return String - The token's text, without any separator.
+     */
+    public String tokenText(int token) {
+        return segments[segments.length - 1].tokens.tokenText(token);
+    }
+
+    /**
+     * Adds up the statistics of every segment, which each measured its
+     * table when it was built, so this costs O(log n). A seed that occurs
+     * in several segments is counted once per segment, as it is stored.
+     * @return ModelStatistics - The size and shape of the model.
+     */
+    ModelStatistics statistics() {
+        ModelStatistics statistics = segments[0].statistics;
+        for (int i = 1; i < segments.length; i++) {
+            statistics = statistics.plus(segments[i].statistics);
+        }
+        return statistics;
+    }
+
+    /**
+     * Expands the counts into a seed map for white-box testing: each seed's
+     * text maps to a list with one entry per occurrence of a successor.
+     * @param successor - Turns a successor token into a list entry.
+     * @param <T> - The type of the list entries.
+     * @return Map - The successors of every seed.
+     */
+    public <T> Map<String, List<T>> successorLists(IntFunction<T> successor) {
+        Map<String, List<T>> seedToSuccessors = new HashMap<>();
+        for (Segment segment : segments) {
+            ContextTable table = segment.table;
+            for (int context = 0; context < table.contextCount(); context++) {
+                int seedStart = table.contextPosition(context);
+                List<T> successors = seedToSuccessors.computeIfAbsent(
+                        segment.tokens.text(seedStart, seedStart + level),
+                        seed -> new ArrayList<>());
+                for (int i = 0; i < table.distinctCount(context); i++) {
+                    T next = successor.apply(table.successorToken(context, i));
+                    for (int n = table.successorCount(context, i); n > 0;
+                         n--) {
+                        successors.add(next);
+                    }
+                }
+            }
+        }
+        return seedToSuccessors;
+    }
+
+    /**
+     * Probabilistically generates (length) tokens into an output.
+     * @param length - Number of tokens to generate
+     * @param output - Where the text of the generated tokens is appended.
+     * @param random - Source of randomness, used by this call only.
+     * @return long - How many times generation hit a seed with no
+     * successor and restarted at a random one.
+     * @throws IOException - If the output cannot be appended to.
+     */
+    public long generate(long length, Appendable output,
+                         SplittableRandom random) throws IOException {
+        // Edge case - no seeds (caused by input no longer than k)
+        if (contextCount == 0) {
+            return 0;
+        }
+        Tokens text = segments[segments.length - 1].tokens;
+        Cursor cursor = new Cursor(random);
+        for (long i = 0; i < length; i++) {
+            text.appendTo(cursor.nextInt(), output);
+        }
+        return cursor.restarts;
+    }
+
+    /**
+     * Probabilistically generates tokens into every element of an array.
+     * @param output - Where the generated tokens are stored.
+     * @param random - Source of randomness, used by this call only.
+     * @return long - How many times generation hit a seed with no
+     * successor and restarted at a random one.
+     * @throws IllegalStateException - If the model has no seeds.
+     */
+    public long generate(int[] output, SplittableRandom random) {
+        if (contextCount == 0) {
+            throw new IllegalStateException("Model has no seeds.");
+        }
+        Cursor cursor = new Cursor(random);
+        for (int i = 0; i < output.length; i++) {
+            output[i] = cursor.nextInt();
+        }
+        return cursor.restarts;
+    }
+
+    /**
+     * Returns a cursor that generates one token each time it is advanced,
+     * drawing the same random choices as generate, so it yields the same
+     * tokens from the same random stream.
+     * @param random - Source of randomness, used by the cursor only.
+     * @return PrimitiveIterator.OfInt - An endless cursor of tokens, or an
+     * empty one if the model has no seeds.
+     */
+    public PrimitiveIterator.OfInt cursor(SplittableRandom random) {
+        // Edge case - no seeds (caused by input no longer than k)
+        if (contextCount == 0) {
+            return GenerationStreams.empty();
+        }
+        return new Cursor(random);
+    }
+
+    /**
+     * Streams generated tokens, generating each one only as the stream
+     * pulls it.
+     * @param length - Most tokens to generate (non-negative).
+     * @param random - Source of randomness, used by the stream only.
+     * @return IntStream - The tokens generate() would produce.
+     */
+    public IntStream stream(long length, SplittableRandom random) {
+        return GenerationStreams.ints(cursor(random), length);
+    }
+
+    /**
+     * Opens generated text as a Reader that generates only what is read.
+     * The text is the same as generate()'s.
+     * @param length - Most tokens to generate (non-negative).
+     * @param random - Source of randomness, used by the reader only.
+     * @return Reader - The generated text.
+     */
+    public Reader openText(long length, SplittableRandom random) {
+        return GenerationStreams.reader(cursor(random), length,
+                segments[segments.length - 1].tokens);
+    }
+
+    /**
+     * Publishes generated tokens, each generated only once it is
+     * requested. Every subscriber gets its own random stream seeded with
+     * the same seed, and so receives the same tokens.
+     * @param length - Most tokens each subscriber receives.
+     * @param seed - Seed of every subscriber's random stream.
+     * @param item - Turns each token into the item published.
+     * @param <T> - The type of the published items.
+     * @return Flow.Publisher - The publisher of the generated tokens.
+     */
+    public <T> Flow.Publisher<T> publish(long length, long seed,
+                                         IntFunction<T> item) {
+        return GenerationStreams.publisher(
+                () -> cursor(new SplittableRandom(seed)), length, item);
+    }
+
+    /**
+     * Chooses a random seed from the input.
+     * @param random - Source of randomness.
+     * @return String - The text of the seed.
+     * @throws IllegalArgumentException - If the model has no seeds.
+     */
+    public String seedText(SplittableRandom random) {
+        int seedStartIndex = random.nextInt(seedCount);
+        for (Segment segment : segments) {
+            if (seedStartIndex < segment.seedCount) {
+                return segment.tokens.text(seedStartIndex,
+                        seedStartIndex + level);
+            }
+            seedStartIndex -= segment.seedCount;
+        }
+        throw new AssertionError("Seed index past the last segment.");
+    }
+
+    /**
+     * Generation state: the current seed as an int buffer shifted in place,
+     * its hash, and its context id in every segment.
+     */
+    private final class Cursor implements PrimitiveIterator.OfInt {
+        private final SplittableRandom random;
+        private final int[] seed = new int[level];
+        private final int[] contexts = new int[segments.length];
+        private long hash;
+        private int total; // Successors of the seed in all segments.
+        private long restarts; // Dead ends met so far.
+
+        private Cursor(SplittableRandom random) {
+            this.random = random;
+            pickRandomSeed();
+        }
+
+        public boolean hasNext() {
+            return true;
+        }
+
+        /**
+         * Picks the next token and advances the seed.
+         * @return int - The generated token.
+         */
+        public int nextInt() {
+            // Get random seed if current seed doesn't occur in the text.
+            if (total == 0) {
+                restarts++;
+                pickRandomSeed();
+            }
+
+            int token;
+            if (segments.length == 1) {
+                // Pick a token through the context's alias table.
+                ContextTable table = segments[0].table;
+                int column = random.nextInt(table.distinctCount(contexts[0]));
+                int value = random.nextInt(total);
+                token = table.sample(contexts[0], column, value);
+            } else {
+                // Pick a segment in proportion to its count of the seed.
+                int value = random.nextInt(total);
+                int i = 0;
+                while (contexts[i] < 0
+                        || value >= segments[i].table.total(contexts[i])) {
+                    if (contexts[i] >= 0) {
+                        value -= segments[i].table.total(contexts[i]);
+                    }
+                    i++;
+                }
+                token = segments[i].table.successorAt(contexts[i], value);
+            }
+
+            // Update seed in place
+            if (level != 0) {
+                hash = segments[0].table.roll(hash, seed[0], token);
+                System.arraycopy(seed, 1, seed, 0, level - 1);
+                seed[level - 1] = token;
+                find();
+            }
+            return token;
+        }
+
+        /**
+         * Copies a random seed that has a successor into the buffer.
+         */
+        private void pickRandomSeed() {
+            // A seed across the join of two files has no successor.
+            do {
+                int seedStartIndex = random.nextInt(seedCount);
+                int s = 0;
+                while (seedStartIndex >= segments[s].seedCount) {
+                    seedStartIndex -= segments[s].seedCount;
+                    s++;
+                }
+                for (int i = 0; i < level; i++) {
+                    seed[i] = segments[s].tokens.tokenAt(seedStartIndex + i);
+                }
+                hash = ContextTable.hash(seed, 0, level);
+                find();
+            } while (total == 0);
+        }
+
+        /**
+         * Looks up the seed in every segment.
+         */
+        private void find() {
+            total = 0;
+            for (int i = 0; i < segments.length; i++) {
+                contexts[i] = segments[i].table.find(seed, hash);
+                if (contexts[i] >= 0) {
+                    total += segments[i].table.total(contexts[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Part of a model's tokens and the table of the seeds in it.
+     */
+    private static final class Segment {
+        private final Tokens tokens;
+        // Leading tokens shared with the previous segment, which only start
+        // seeds and are never counted as successors here.
+        private final int overlap;
+        private final ContextTable table;
+        private final int seedCount; // Seed positions in this segment.
+        // Measured once here, so recording an append stays O(log n).
+        private final ModelStatistics statistics;
+
+        private Segment(Tokens tokens, int overlap, ContextTable table) {
+            this.tokens = tokens;
+            this.overlap = overlap;
+            this.table = table;
+            this.seedCount = Math.max(tokens.size() - table.level(), 0);
+            this.statistics = ModelStatistics.of(table);
+        }
+
+        private static Segment train(Tokens tokens, int overlap, int level) {
+            return new Segment(tokens, overlap,
+                    ContextTable.build(tokens, level));
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package main.java.assignment;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.PrimitiveIterator;
+import java.util.SplittableRandom;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * RandomWordWriter engine that interns every word as an int id during
+ * readText and analyzes the id sequence with a ContextTable. Seeds are int
+ * buffers updated in place, so generation creates no Strings until the
+ * final text is assembled. It is a front-end to an NGramModel over word
+ * ids, and adds training on a fork-join pool and pull-based views of
+ * generation.
+ */
+public class PrimitiveRandomWordWriter implements TextProcessor {
+    // Metrics shared by every PrimitiveRandomWordWriter.
+    private static final WriterMetrics METRICS =
+            WriterMetrics.forEngine("PrimitiveRandomWordWriter");
+
+    private final int level; // The level of the analysis being done.
+    // The trained model, replaced as a whole and never modified.
+    private volatile Model model;
+    // Pool that builds the table, or null to build on the calling thread.
+    private final ForkJoinPool pool;
+
+    /**
+     * Randomly writes based on text from the specified input file.
+     * @param args - Command line arguments
+     * args[0] is the input filename, a text or a model from saveModel
+     * args[1] is the output filename
+     * args[2] is the level of analysis (k)
+     * args[3] is the length (number of words) of output
+     */
+    public static void main(String[] args) throws IOException {
+        MappedCorpus corpus = RandomWordWriter.validateInput(args);
+        if (corpus != null) {
+            // Get input arguments
+            String result = args[1];
+            int k = Integer.parseInt(args[2]);
+            long length = Long.parseLong(args[3]);
+
+            // Write random text based on input
+            TextProcessor processor = createProcessor(k);
+
+            if (ModelFile.isModelFile(args[0])) {
+                processor.loadModel(args[0]);
+            } else {
+                processor.readText(corpus);
+            }
+            try (FileChannel output = ChunkedTextWriter.openOutput(result)) {
+                processor.writeText(output, length);
+            }
+        } else {
+            System.err.println("Terminating program");
+        }
+    }
+
+    /**
+     * Static factory method for PrimitiveRandomWordWriter.
+     * @param level - The level of text analysis to perform.
+     * @return The newly instantiated TextProcessor.
+     */
+    public static TextProcessor createProcessor(int level) {
+        return new PrimitiveRandomWordWriter(level, null);
+    }
+
+    /**
+     * Static factory method for a PrimitiveRandomWordWriter that trains on the
+     * common fork-join pool. The table it builds is identical to the
+     * sequential one.
+     * @param level - The level of text analysis to perform.
+     * @return The newly instantiated TextProcessor.
+     */
+    public static TextProcessor createParallelProcessor(int level) {
+        return new PrimitiveRandomWordWriter(level, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Private constructor for the PrimitiveRandomWordWriter class.
+     * @param level - The level of analysis used to generate random output.
+     * @param pool - Pool that builds the table, or null for none.
+     */
+    private PrimitiveRandomWordWriter(int level, ForkJoinPool pool) {
+        this.level = Math.max(level, 0);
+        this.pool = pool;
+        this.model = new Model(NGramModel.train(Tokenizer.WORDS, "",
+                this.level));
+    }
+
+    /**
+     * Immutable result of level-k analysis: the vocabulary, the word ids of
+     * the input text and their transition table. The analysis itself is an
+     * NGramModel over word ids. A Model is never modified once built, so
+     * any number of threads can generate from one at the same time.
+     */
+    public static final class Model {
+        private final NGramModel ngrams; // The counts of every seed.
+
+        private Model(NGramModel ngrams) {
+            this.ngrams = ngrams;
+        }
+
+        /**
+         * Returns the vocabulary of the model. It must not be modified.
+         * @return Vocabulary - The word <-> id mapping.
+         */
+        public Vocabulary vocabulary() {
+            return ngrams.tokens().vocabulary();
+        }
+
+        /**
+         * Returns the transition table of the model.
+         * @return ContextTable - The table.
+         */
+        public ContextTable table() {
+            return ngrams.table();
+        }
+
+        /**
+         * Probabilistically generates (length) words into an output. Word
+         * ids are only turned into text as they are appended.
+         * @param length - Number of words to generate
+         * @param output - Where the generated words are appended.
+         * @param random - Source of randomness, used by this call only.
+         * @throws IOException - If the output cannot be appended to.
+         */
+        public void generateText(long length, Appendable output,
+                                 SplittableRandom random) throws IOException {
+            long start = System.nanoTime();
+            long restarts = ngrams.generate(length, output, random);
+            METRICS.recordGeneration(ngrams.level(), length, restarts,
+                    System.nanoTime() - start);
+        }
+
+        /**
+         * Probabilistically generates (length) word ids.
+         * @param length - Number of words to generate
+         * @param random - Source of randomness, used by this call only.
+         * @return int[] - the generated word ids.
+         */
+        public int[] generateIds(int length, SplittableRandom random) {
+            // Edge case - no seeds (caused by input no longer than k words)
+            if (table().contextCount() == 0) {
+                return new int[0];
+            }
+
+            long start = System.nanoTime();
+            int[] generated = new int[length];
+            long restarts = ngrams.generate(generated, random);
+            METRICS.recordGeneration(ngrams.level(), length, restarts,
+                    System.nanoTime() - start);
+            return generated;
+        }
+
+        /**
+         * Returns a cursor that generates one word id each time it is
+         * advanced, drawing the same random choices as generateText, so it
+         * yields the same words from the same random stream.
+         * @param random - Source of randomness, used by the cursor only.
+         * @return PrimitiveIterator.OfInt - An endless cursor of word ids, or
+         * an empty one if the model has no contexts.
+         */
+        public PrimitiveIterator.OfInt wordIds(SplittableRandom random) {
+            return ngrams.cursor(random);
+        }
+    }
+
+    /**
+     * Reads the text from a file for level-k analysis.
+     * @param inputFilename - Filename of the source text file.
+     * @throws IOException - If the file with the specified name doesn't exist.
+     */
+    public void readText(String inputFilename) throws IOException {
+        long start = System.nanoTime();
+        MappedCorpus corpus = MappedCorpus.load(inputFilename);
+        METRICS.recordRead(System.nanoTime() - start);
+        readText(corpus);
+    }
+
+    /**
+     * Uses already-read text for level-k analysis. The new model replaces
+     * the old one only once it is complete.
+     * @param corpus - The source text.
+     */
+    public void readText(MappedCorpus corpus) {
+        long start = System.nanoTime();
+        // Intern each word straight from the text, then analyze the ids.
+        NGramModel trained = NGramModel.train(Tokenizer.WORDS,
+                Tokenizer.WORDS.tokenize(corpus), level, pool);
+        this.model = recordAnalysis(new Model(trained), trained.tokenCount(),
+                start);
+    }
+
+    /**
+     * Saves the vocabulary, word ids and transition table as a word model.
+     * @param modelFilename - Name of the model file to write.
+     * @throws IOException - If the model file cannot be written.
+     */
+    public void saveModel(String modelFilename) throws IOException {
+        model.ngrams.save(modelFilename);
+    }
+
+    /**
+     * Loads a word model saved at this writer's level.
+     * @param modelFilename - Name of the model file to read.
+     * @throws IOException - If the file cannot be read or does not hold a
+     * word model of this level.
+     */
+    public void loadModel(String modelFilename) throws IOException {
+        long start = System.nanoTime();
+        NGramModel loaded = NGramModel.load(modelFilename, Tokenizer.WORDS,
+                level);
+        this.model = recordAnalysis(new Model(loaded), loaded.tokenCount(),
+                start);
+    }
+
+    /**
+     * Records the training of a model in this engine's metrics.
+     * @param trained - The new model.
+     * @param tokens - The number of words analyzed or loaded.
+     * @param start - System.nanoTime() when training started.
+     * @return Model - The trained model.
+     */
+    private Model recordAnalysis(Model trained, long tokens, long start) {
+        METRICS.recordAnalysis(level, tokens, System.nanoTime() - start,
+                trained.ngrams.statistics());
+        return trained;
+    }
+
+    /**
+     * Writes text generated using input text to the output file.
+     * @param outputFilename - Name of the file to write to.
+     * @param length - Number of words to write (non-negative).
+     * @throws IOException - If the destination file cannot be written to.
+     */
+    public void writeText(String outputFilename, int length) throws IOException {
+        try (FileChannel output = ChunkedTextWriter.openOutput(
+                outputFilename)) {
+            writeText(output, length);
+        }
+    }
+
+    /**
+     * Streams text generated using input text to a channel. Word ids are
+     * only turned into text as each chunk is written.
+     * @param channel - Destination of the text. Not closed.
+     * @param length - Number of words to write (non-negative).
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void writeText(WritableByteChannel channel, long length)
+            throws IOException {
+        writeText(channel, length, RandomStreams.forCurrentThread());
+    }
+
+    /**
+     * Streams text generated from one random stream to a channel.
+     * @param channel - Destination of the text. Not closed.
+     * @param length - Number of words to write (non-negative).
+     * @param random - Source of randomness, used by this call only.
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void writeText(WritableByteChannel channel, long length,
+                          SplittableRandom random) throws IOException {
+        ChunkedTextWriter output = new ChunkedTextWriter(channel);
+        model.generateText(length, output, random);
+        output.finish();
+    }
+
+    /**
+     * Probabilistically generates text of (length) words using input text.
+     * @param length - Number of words to generate
+     * @return String - the generated text.
+     */
+    public String generateText(int length) {
+        return generateText(length, RandomStreams.forCurrentThread());
+    }
+
+    /**
+     * Probabilistically generates text of (length) words using input text.
+     * The same random stream always produces the same text.
+     * @param length - Number of words to generate
+     * @param random - Source of randomness, used by this call only.
+     * @return String - the generated text.
+     */
+    public String generateText(int length, SplittableRandom random) {
+        StringBuilder generatedTextBuffer = new StringBuilder();
+        try {
+            model.generateText(length, generatedTextBuffer, random);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws.
+        }
+        return generatedTextBuffer.toString();
+    }
+
+    /**
+     * Streams generated words, generating each one only as the stream pulls
+     * it. The stream keeps generating from the model that was current when
+     * it was made.
+     * @param length - Most words to generate (non-negative).
+     * @param random - Source of randomness, used by the stream only.
+     * @return Stream - The generated words.
+     */
+    public Stream<String> streamWords(long length, SplittableRandom random) {
+        NGramModel current = model.ngrams;
+        return current.stream(length, random).mapToObj(current::tokenText);
+    }
+
+    /**
+     * Opens generated text as a Reader that generates only what is read.
+     * The text is the same as writeText's: each word followed by a space.
+     * @param length - Most words to generate (non-negative).
+     * @param random - Source of randomness, used by the reader only.
+     * @return Reader - The generated text.
+     */
+    public Reader openText(long length, SplittableRandom random) {
+        return model.ngrams.openText(length, random);
+    }
+
+    /**
+     * Publishes generated words, each generated only once it is requested.
+     * Every subscriber gets its own random stream seeded with the same
+     * seed, and so receives the same words.
+     * @param length - Most words each subscriber receives.
+     * @param seed - Seed of every subscriber's random stream.
+     * @return Flow.Publisher - The publisher of the generated words.
+     */
+    public Flow.Publisher<String> publishWords(long length, long seed) {
+        NGramModel current = model.ngrams;
+        return current.publish(length, seed, current::tokenText);
+    }
+
+    /**
+     * Probabilistically generates (length) word ids using input text.
+     * @param length - Number of words to generate
+     * @return int[] - the generated word ids.
+     */
+    public int[] generateIds(int length) {
+        return model.generateIds(length, RandomStreams.forCurrentThread());
+    }
+
+    /**
+     * Returns the current model, which can be shared with other threads.
+     * @return Model - The model built by the last readText or loadModel.
+     */
+    public Model getModel() {
+        return model;
+    }
+
+    /**
+     * Accessor for the vocabulary for white-box testing.
+     * @return Vocabulary - The vocabulary built by the last readText.
+     */
+    public Vocabulary getVocabulary() {
+        return model.vocabulary();
+    }
+
+    /**
+     * Accessor for the transition table for white-box testing.
+     * @return ContextTable - The table built by the last readText.
+     */
+    public ContextTable getTable() {
+        return model.table();
+    }
+}
@@ -0,0 +1,357 @@
+package main.java.assignment;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.SplittableRandom;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * RandomWriter engine backed by a primitive ContextTable. Produces the
+ * same output distribution as RandomWriter without allocating a String or
+ * boxed Character per seed during training or generation. Like
+ * RandomWriter it is a front-end to an NGramModel over chars, and adds
+ * training on a fork-join pool, corpora of many files and pull-based views
+ * of generation.
+ */
+public class PrimitiveRandomWriter implements TextProcessor {
+    // Metrics shared by every PrimitiveRandomWriter.
+    private static final WriterMetrics METRICS =
+            WriterMetrics.forEngine("PrimitiveRandomWriter");
+
+    // The level of the analysis being done.
+    private final int level;
+    // The trained model, replaced as a whole and never modified.
+    private volatile Model model;
+    // Pool that builds the table, or null to build on the calling thread.
+    private final ForkJoinPool pool;
+
+    /**
+     * Randomly writes based on text from the specified input file.
+     * @param args - Command line arguments
+     * args[0] is the input filename, a text or a model from saveModel, or
+     * a directory or glob of texts read as one corpus
+     * args[1] is the output filename
+     * args[2] is the level of analysis (k)
+     * args[3] is the length (number of characters) of output
+     */
+    public static void main(String[] args) throws IOException {
+        try {
+            // Several files are checked as they are read, not up front.
+            boolean manyFiles = args.length == 4
+                    && CorpusPipeline.namesManyFiles(args[0]);
+            MappedCorpus corpus = manyFiles ? null
+                    : RandomWriter.validateInput(args);
+            // Get input arguments
+            String result = args[1];
+            int k = Integer.parseInt(args[2]);
+            long length = Long.parseLong(args[3]);
+            if (k < 0 || length < 0) {
+                throw new IllegalArgumentException("k and length must be "
+                        + "non-negative integers.");
+            }
+            // Write random text based on input
+            PrimitiveRandomWriter processor = (PrimitiveRandomWriter)
+                    createProcessor(k);
+            if (manyFiles) {
+                processor.readFiles(CorpusPipeline.listFiles(args[0]));
+            } else if (ModelFile.isModelFile(args[0])) {
+                processor.loadModel(args[0]);
+            } else {
+                processor.readText(corpus);
+            }
+            try (FileChannel output = ChunkedTextWriter.openOutput(result)) {
+                processor.writeText(output, length);
+            }
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Static factory method for PrimitiveRandomWriter.
+     * @param level - The level of text analysis to perform.
+     * @return The newly instantiated TextProcessor.
+     */
+    public static TextProcessor createProcessor(int level) {
+        return new PrimitiveRandomWriter(level, null);
+    }
+
+    /**
+     * Static factory method for a PrimitiveRandomWriter that trains on the
+     * common fork-join pool. The table it builds is identical to the
+     * sequential one.
+     * @param level - The level of text analysis to perform.
+     * @return The newly instantiated TextProcessor.
+     */
+    public static TextProcessor createParallelProcessor(int level) {
+        return new PrimitiveRandomWriter(level, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Private constructor for the PrimitiveRandomWriter class.
+     * @param level - The level of analysis used to generate random output.
+     * @param pool - Pool that builds the table, or null for none.
+     */
+    private PrimitiveRandomWriter(int level, ForkJoinPool pool) {
+        // Get around an edge case
+        this.level = Math.max(level, 0);
+        this.pool = pool;
+        this.model = new Model(NGramModel.train(Tokenizer.CHARS, "",
+                this.level));
+    }
+
+    /**
+     * Immutable result of level-k analysis: the input text and its
+     * transition table. The analysis itself is an NGramModel over chars;
+     * this only gives it the names PrimitiveRandomWriter has always used.
+     * A Model is never modified once built, so any number of threads can
+     * generate from one at the same time.
+     */
+    public static final class Model {
+        private final NGramModel ngrams; // The counts of every seed.
+
+        private Model(NGramModel ngrams) {
+            this.ngrams = ngrams;
+        }
+
+        /**
+         * Returns the transition table of the model.
+         * @return ContextTable - The table.
+         */
+        public ContextTable table() {
+            return ngrams.table();
+        }
+
+        /**
+         * Probabilistically generates (length) characters into an output.
+         * @param length - Number of characters to generate
+         * @param output - Where the generated characters are appended.
+         * @param random - Source of randomness, used by this call only.
+         * @throws IOException - If the output cannot be appended to.
+         */
+        public void generateText(long length, Appendable output,
+                                 SplittableRandom random) throws IOException {
+            long start = System.nanoTime();
+            long restarts = ngrams.generate(length, output, random);
+            METRICS.recordGeneration(ngrams.level(), length, restarts,
+                    System.nanoTime() - start);
+        }
+
+        /**
+         * Returns a cursor that generates one character each time it is
+         * advanced, drawing the same random choices as generateText, so it
+         * yields the same text from the same random stream.
+         * @param random - Source of randomness, used by the cursor only.
+         * @return PrimitiveIterator.OfInt - An endless cursor of chars, or an
+         * empty one if the model has no contexts.
+         */
+        public PrimitiveIterator.OfInt chars(SplittableRandom random) {
+            return ngrams.cursor(random);
+        }
+    }
+
+    /**
+     * Reads the text from a file for level-k analysis.
+     * @param inputFilename - Name of the source text file.
+     */
+    public void readText(String inputFilename) {
+        try {
+            long start = System.nanoTime();
+            MappedCorpus corpus = MappedCorpus.load(inputFilename);
+            METRICS.recordRead(System.nanoTime() - start);
+            readText(corpus);
+        } catch (IOException e) {
+            System.err.println("File " + inputFilename + " was not found or ");
+            System.err.println("could not be read.");
+        }
+    }
+
+    /**
+     * Uses already-read text for level-k analysis. The new model replaces
+     * the old one only once it is complete.
+     * @param corpus - The source text.
+     */
+    public void readText(MappedCorpus corpus) {
+        // Compute the transition table, then publish it with its text.
+        long start = System.nanoTime();
+        NGramModel trained = NGramModel.train(Tokenizer.CHARS,
+                Tokenizer.CHARS.tokenize(corpus), level, pool);
+        this.model = recordAnalysis(new Model(trained), trained.tokenCount(),
+                start);
+    }
+
+    /**
+     * Reads several text files as one corpus for level-k analysis. The
+     * files are read and counted in parallel, and no context spans the end
+     * of one file and the start of the next.
+     * @param filenames - Names of the source text files, in the order their
+     * texts are joined.
+     * @throws IOException - If a file cannot be read.
+     */
+    public void readFiles(List<String> filenames) throws IOException {
+        long start = System.nanoTime();
+        NGramModel trained = NGramModel.readFiles(filenames, level,
+                pool != null ? pool : ForkJoinPool.commonPool());
+        this.model = recordAnalysis(new Model(trained), trained.tokenCount(),
+                start);
+    }
+
+    /**
+     * Saves the text and transition table as a char model.
+     * @param modelFilename - Name of the model file to write.
+     * @throws IOException - If the model file cannot be written.
+     */
+    public void saveModel(String modelFilename) throws IOException {
+        model.ngrams.save(modelFilename);
+    }
+
+    /**
+     * Loads a char model saved at this writer's level.
+     * @param modelFilename - Name of the model file to read.
+     * @throws IOException - If the file cannot be read or does not hold a
+     * char model of this level.
+     */
+    public void loadModel(String modelFilename) throws IOException {
+        long start = System.nanoTime();
+        NGramModel loaded = NGramModel.load(modelFilename, Tokenizer.CHARS,
+                level);
+        this.model = recordAnalysis(new Model(loaded), loaded.tokenCount(),
+                start);
+    }
+
+    /**
+     * Records the training of a model in this engine's metrics.
+     * @param trained - The new model.
+     * @param tokens - The number of characters analyzed or loaded.
+     * @param start - System.nanoTime() when training started.
+     * @return Model - The trained model.
+     */
+    private Model recordAnalysis(Model trained, long tokens, long start) {
+        METRICS.recordAnalysis(level, tokens, System.nanoTime() - start,
+                trained.ngrams.statistics());
+        return trained;
+    }
+
+    /**
+     * Writes text generated using input text to the output file.
+     * @param outputFilename - Name of the file to write to.
+     * @param length - Number of characters to write (non-negative).
+     */
+    public void writeText(String outputFilename, int length) {
+        try (FileChannel output = ChunkedTextWriter.openOutput(
+                outputFilename)) {
+            writeText(output, length);
+        } catch (IOException e) {
+            System.err.println("Could not write to output file " +
+                    outputFilename);
+        }
+    }
+
+    /**
+     * Streams text generated using input text to a channel.
+     * @param channel - Destination of the text. Not closed.
+     * @param length - Number of characters to write (non-negative).
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void writeText(WritableByteChannel channel, long length)
+            throws IOException {
+        writeText(channel, length, RandomStreams.forCurrentThread());
+    }
+
+    /**
+     * Streams text generated from one random stream to a channel.
+     * @param channel - Destination of the text. Not closed.
+     * @param length - Number of characters to write (non-negative).
+     * @param random - Source of randomness, used by this call only.
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void writeText(WritableByteChannel channel, long length,
+                          SplittableRandom random) throws IOException {
+        ChunkedTextWriter output = new ChunkedTextWriter(channel);
+        model.generateText(length, output, random);
+        output.finish();
+    }
+
+    /**
+     * Probabilistically generates text of (length) characters using input text.
+     * @param length - Number of characters to generate
+     * @return String - the generated text.
+     */
+    public String generateText(int length) {
+        return generateText(length, RandomStreams.forCurrentThread());
+    }
+
+    /**
+     * Probabilistically generates text of (length) characters using input text.
+     * The same random stream always produces the same text.
+     * @param length - Number of characters to generate
+     * @param random - Source of randomness, used by this call only.
+     * @return String - the generated text.
+     */
+    public String generateText(int length, SplittableRandom random) {
+        StringBuilder generatedTextBuffer = new StringBuilder(
+                Math.max(length, 0));
+        try {
+            model.generateText(length, generatedTextBuffer, random);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws.
+        }
+        return generatedTextBuffer.toString();
+    }
+
+    /**
+     * Streams generated characters, generating each one only as the stream
+     * pulls it. The stream keeps generating from the model that was current
+     * when it was made.
+     * @param length - Most characters to generate (non-negative).
+     * @param random - Source of randomness, used by the stream only.
+     * @return IntStream - The generated chars.
+     */
+    public IntStream streamText(long length, SplittableRandom random) {
+        return model.ngrams.stream(length, random);
+    }
+
+    /**
+     * Opens generated text as a Reader that generates only what is read.
+     * @param length - Most characters to generate (non-negative).
+     * @param random - Source of randomness, used by the reader only.
+     * @return Reader - The generated text.
+     */
+    public Reader openText(long length, SplittableRandom random) {
+        return model.ngrams.openText(length, random);
+    }
+
+    /**
+     * Publishes generated characters, each generated only once it is
+     * requested. Every subscriber gets its own random stream seeded with
+     * the same seed, and so receives the same text.
+     * @param length - Most characters each subscriber receives.
+     * @param seed - Seed of every subscriber's random stream.
+     * @return Flow.Publisher - The publisher of the generated characters.
+     */
+    public Flow.Publisher<Character> publishText(long length, long seed) {
+        return model.ngrams.publish(length, seed, c -> (char) c);
+    }
+
+    /**
+     * Returns the current model, which can be shared with other threads.
+     * @return Model - The model built by the last readText or loadModel.
+     */
+    public Model getModel() {
+        return model;
+    }
+
+    /**
+     * Accessor for the transition table for white-box testing.
+     * @return ContextTable - The table built by the last readText.
+     */
+    public ContextTable getTable() {
+        return model.table();
+    }
+}
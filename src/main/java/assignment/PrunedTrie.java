@@ -0,0 +1,159 @@
+package main.java.assignment;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * A ContextTrie built within a memory budget, with a report of what the
+ * budget cost. The trie is first built whole; if its counting maps outgrow
+ * the budget, every context is counted into a CountMinSketch and the trie
+ * is rebuilt keeping only contexts seen at least 2, 4, 8, ... times, until
+ * it fits. Rare contexts are mostly the long ones, so lookups that would
+ * have reached one back off to the longest frequent suffix instead. The
+ * report gives, for each level, how many contexts were kept and what share
+ * of the text's context occurrences they cover.
+ */
+public final class PrunedTrie {
+    private final ContextTrie trie;
+    private final int minCount; // Smallest count a context was kept at.
+    private final long budgetBytes;
+    private final long sketchBytes; // 0 if no sketch was needed.
+    private final int[] contexts; // Contexts kept at each level.
+    private final double[] retainedMass; // Share of occurrences at each level.
+
+    private PrunedTrie(ContextTrie trie, int textLength, int minCount,
+                       long budgetBytes, long sketchBytes) {
+        this.trie = trie;
+        this.minCount = minCount;
+        this.budgetBytes = budgetBytes;
+        this.sketchBytes = sketchBytes;
+        int levels = trie.maxLevel() + 1;
+        this.contexts = new int[levels];
+        long[] occurrences = new long[levels];
+        for (int node = 0; node < trie.nodeCount(); node++) {
+            contexts[trie.depth(node)]++;
+            occurrences[trie.depth(node)] += trie.total(node);
+        }
+        // Every position at or after a level ends one context of it.
+        this.retainedMass = new double[levels];
+        for (int level = 0; level < levels; level++) {
+            long positions = textLength - level;
+            retainedMass[level] = positions <= 0 ? 1
+                    : (double) occurrences[level] / positions;
+        }
+    }
+
+    /**
+     * Builds the trie for a token sequence within a memory budget. A
+     * quarter of the budget goes to the sketch if one is needed.
+     * @param tokens - The tokens to analyze.
+     * @param maxLevel - The longest context to record (K >= 0).
+     * @param budgetBytes - Most memory the counting maps, the successor
+     * lists laid out from them and the sketch may take while building.
+     * @return PrunedTrie - The trie and its report.
+     * @throws IllegalArgumentException - If even the level 0 context does
+     * not fit the budget.
+     */
+    public static PrunedTrie build(Tokens tokens, int maxLevel,
+                                   long budgetBytes) {
+        ContextTrie whole = ContextTrie.build(tokens, maxLevel, null, 1,
+                budgetBytes);
+        if (whole != null) {
+            return new PrunedTrie(whole, tokens.size(), 1, budgetBytes, 0);
+        }
+
+        CountMinSketch counts = new CountMinSketch(
+                CountMinSketch.widthFor(budgetBytes / 4));
+        ContextTrie.countContexts(tokens, maxLevel, counts);
+        long mapBudget = budgetBytes - counts.sizeInBytes();
+        for (long minCount = 2; ; minCount *= 2) {
+            int threshold = (int) Math.min(minCount, Integer.MAX_VALUE);
+            ContextTrie pruned = ContextTrie.build(tokens, maxLevel, counts,
+                    threshold, mapBudget);
+            if (pruned != null) {
+                return new PrunedTrie(pruned, tokens.size(), threshold,
+                        budgetBytes, counts.sizeInBytes());
+            }
+            // No estimate exceeds the number of contexts counted, so past
+            // it only the level 0 context was left.
+            if (minCount > (long) tokens.size() * maxLevel) {
+                break;
+            }
+        }
+        throw new IllegalArgumentException("A memory budget of "
+                + budgetBytes + " bytes cannot hold even the level 0 "
+                + "context of the text.");
+    }
+
+    /**
+     * Returns the trie.
+     * @return ContextTrie - The trie, with rare contexts left out.
+     */
+    public ContextTrie trie() {
+        return trie;
+    }
+
+    /**
+     * Returns the smallest count a context was kept at. Since counts are
+     * estimated from above, a few rarer contexts may have been kept too.
+     * @return int - 1 if nothing was pruned.
+     */
+    public int minCount() {
+        return minCount;
+    }
+
+    /**
+     * Returns the budget the trie was built within.
+     * @return long - The budget in bytes.
+     */
+    public long budgetBytes() {
+        return budgetBytes;
+    }
+
+    /**
+     * Returns the memory taken by the sketch while building.
+     * @return long - The size in bytes, or 0 if no sketch was needed.
+     */
+    public long sketchBytes() {
+        return sketchBytes;
+    }
+
+    /**
+     * Returns the number of contexts kept at a level.
+     * @param level - A level between 0 and the maximum level.
+     * @return int - The context count.
+     */
+    public int contextCount(int level) {
+        return contexts[level];
+    }
+
+    /**
+     * Returns the share of a level's context occurrences that the kept
+     * contexts cover: the probability that generation at that level finds
+     * the context it looks for instead of backing off.
+     * @param level - A level between 0 and the maximum level.
+     * @return double - A share between 0 and 1.
+     */
+    public double retainedMass(int level) {
+        return retainedMass[level];
+    }
+
+    /**
+     * Describes the trade-off between memory and retained mass.
+     * @return String - One line per level after a summary line.
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(minCount == 1 ? "Kept every context"
+                : "Kept contexts seen at least " + minCount + " times");
+        report.append(String.format(": %d of %d bytes in the trie, %d in "
+                + "the sketch%n", trie.sizeInBytes(), budgetBytes, sketchBytes));
+        report.append(String.format("%5s %10s %9s%n", "level", "contexts",
+                "retained"));
+        for (int level = 0; level < contexts.length; level++) {
+            report.append(String.format("%5d %10d %8.2f%%%n", level,
+                    contexts[level], 100 * retainedMass[level]));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,23 @@
+package main.java.assignment;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Sources of randomness for generation. Every generating call gets its own
+ * SplittableRandom, so threads sharing one trained model never contend on a
+ * shared generator the way Math.random() does.
+ */
+final class RandomStreams {
+    private RandomStreams() {
+    }
+
+    /**
+     * Returns a fresh generator seeded from this thread's ThreadLocalRandom.
+     * @return SplittableRandom - A generator for the calling thread only.
+     */
+    static SplittableRandom forCurrentThread() {
+        return new SplittableRandom(ThreadLocalRandom.current().nextLong());
+    }
+}
@@ -1,5 +1,7 @@
 package main.java.assignment;
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
 
 /*
@@ -8,89 +10,110 @@ import java.util.*;
  * Implementation of RandomWordWriter class
  */
 public class RandomWordWriter implements TextProcessor {
+    // Metrics shared by every RandomWordWriter.
+    private static final WriterMetrics METRICS =
+            WriterMetrics.forEngine("RandomWordWriter");
+
     private final int level; // The level of the analysis being done.
-    private String[] inputTextWords; // The words of the input text.
-    private final Map<String, List<String>> seedToNextWords;
+    private final Tokenizer tokenizer; // Splits text into interned words.
+    // The trained model, replaced as a whole and never modified.
+    private volatile Model model;
 
     /**
      * Randomly writes based on text from the specified input file.
      * @param args - Command line arguments
-     * args[0] is the input filename
+     * args[0] is the input filename, a text or a model from saveModel
      * args[1] is the output filename
      * args[2] is the level of analysis (k)
      * args[3] is the length (number of characters) of output
      */
     public static void main(String[] args) throws IOException {
-        if (validateInput(args)) {
+        MappedCorpus corpus = validateInput(args);
+        if (corpus != null) {
             // Get input arguments
-            String source = args[0];
             String result = args[1];
             int k = Integer.parseInt(args[2]);
-            int length = Integer.parseInt(args[3]);
+            long length = Long.parseLong(args[3]);
 
             // Write random text based on input
             TextProcessor processor = createProcessor(k);
 
-            processor.readText(source);
-            processor.writeText(result, length);
+            if (ModelFile.isModelFile(args[0])) {
+                processor.loadModel(args[0]);
+            } else {
+                processor.readText(corpus);
+            }
+            try (FileChannel output = ChunkedTextWriter.openOutput(result)) {
+                processor.writeText(output, length);
+            }
         } else {
             System.err.println("Terminating program");
         }
     }
 
     /**
-     * Helper for main method to validate the input.
+     * Helper for main method to validate the input. The source file is read
+     * once here and returned so training does not have to read it again.
      * @param args - The command line arguments.
-     * @return boolean - Whether the input arguments are valid.
+     * @return MappedCorpus - The source text, empty if the source is a saved
+     * model, or null if the input is invalid.
      */
-    private static boolean validateInput(String[] args) throws IOException {
+    static MappedCorpus validateInput(String[] args) throws IOException {
         // Exit if not all arguments are provided
         if (args.length != 4) {
             System.err.println("Exactly 4 arguments must be provided.");
-            return false;
+            return null;
         }
 
         // Parse command line arguments
         String source = args[0];
         String result = args[1];
-        int k, length;
+        int k;
+        long length;
 
         // Edge case where k or length are not integers
         try {
             k = Integer.parseInt(args[2]);
-            length = Integer.parseInt(args[3]);
+            length = Long.parseLong(args[3]);
         } catch (Exception e) {
             System.err.println("k and length must be integers.");
-            return false;
+            return null;
         }
 
         // Deal with k < 0 or length < 0
         if (k < 0) {
             System.err.println("The level of analysis (k) must be non-negative.");
             System.err.println("You set k = " + k);
-            return false;
+            return null;
         }
         if (length < 0) {
             System.err.println("The length of output must be non-negative.");
             System.err.println("You set length = " + length);
-            return false;
+            return null;
         }
 
         // Deal with source file problems.
         File sourceFile = new File(source);
         if (!sourceFile.exists()) {
             System.err.println("Source file " + source + " does not exist.");
-            return false;
+            return null;
         }
         if (!sourceFile.canRead()) {
             System.err.println("Source file " + source + " is not readable.");
-            return false;
+            return null;
         }
-        // Source file not long enough for k-th order analysis
-        int inputWordCount = getFileWordCount(sourceFile);
-        if (inputWordCount <= k) {
-            System.err.println("The input file must have more than k words.");
-            System.err.println(source + " has " + inputWordCount + "words.");
+        // A saved model is loaded by the processor, not read as text here.
+        MappedCorpus corpus = MappedCorpus.of("");
+        if (!ModelFile.isModelFile(source)) {
+            // Source file not long enough for k-th order analysis
+            corpus = MappedCorpus.load(source);
+            int inputWordCount = corpus.wordCount();
+            if (inputWordCount <= k) {
+                System.err.println("The input file must have more than k "
+                        + "words.");
+                System.err.println(source + " has " + inputWordCount
+                        + "words.");
+            }
         }
 
         // Check that the result file is ok, or deal with resulting problems.
@@ -100,53 +123,118 @@ public class RandomWordWriter implements TextProcessor {
                 resultFile.createNewFile();
             } catch (IOException e) {
                 System.err.println("Could not create result file " + result);
-                return false;
+                return null;
             }
         }
         if (!resultFile.canWrite()) {
             System.err.println("The result file cannot be written.");
-            return false;
+            return null;
         }
-        return true;
+        return corpus;
     }
 
     /**
-     * Returns the number of words in a file.
-     * @param file - File to read contents of.
-     * @throws IOException - If the file does not exist.
+     * Static factory method for RandomWriter.
+     * @param level - The level of text analysis to perform.
+     * @return The newly instantiated TextProcessor.
      */
-    private static int getFileWordCount(File file)
-            throws IOException {
-        BufferedReader fileReader = new BufferedReader(new FileReader(file));
-        int wordCount = 0;
-
-        // Read lines to determine total number of words.
-        String line = fileReader.readLine();
-        while (line != null) {
-            String[] words = line.split("\\s+");
-            wordCount += words.length;
-            line = fileReader.readLine();
-        }
-        fileReader.close();
-        return wordCount;
+    public static TextProcessor createProcessor(int level) {
+        return new RandomWordWriter(level, WordScanner.WHITESPACE);
     }
 
     /**
-     * Static factory method for RandomWriter.
+     * Static factory method for a RandomWordWriter that finds words with
+     * its own rules for punctuation and case.
      * @param level - The level of text analysis to perform.
+     * @param scanner - Finds the words of the text, from
+     * WordScanner.withRules.
      * @return The newly instantiated TextProcessor.
      */
-    public static TextProcessor createProcessor(int level) {
-        return new RandomWordWriter(level);
+    public static TextProcessor createProcessor(int level,
+                                                WordScanner scanner) {
+        return new RandomWordWriter(level, scanner);
     }
 
     /**
      * Private constructor for the RandomWriter class.
      * @param level - The level of analysis used to generate random output.
+     * @param scanner - Finds the words of the text.
+     */
+    private RandomWordWriter(int level, WordScanner scanner) {
+        this.level = Math.max(level, 0);
+        this.tokenizer = Tokenizer.words(scanner);
+        this.model = new Model(NGramModel.train(tokenizer, "", this.level));
+    }
+
+    /**
+     * Immutable result of level-k analysis of the words of a text. The
+     * analysis itself is an NGramModel over interned words; this only gives
+     * it the word-level names RandomWordWriter has always used. A Model is
+     * never modified once built, so any number of threads can generate from
+     * one at the same time.
      */
-    private RandomWordWriter(int level) {
-        this.level = level;
-        this.seedToNextWords = new HashMap<>();
+    public static final class Model {
+        private final NGramModel ngrams; // The counts of every seed.
+
+        private Model(NGramModel ngrams) {
+            this.ngrams = ngrams;
+        }
+
+        /**
+         * Analyzes the words of a text.
+         * @param level - The level of analysis (k >= 0).
+         * @param inputText - The text, split into words on whitespace.
+         * @return Model - The successors of every seed of the text.
+         */
+        public static Model train(int level, String inputText) {
+            return new Model(NGramModel.train(Tokenizer.WORDS, inputText,
+                    level));
+        }
+
+        /**
+         * Extends the model with the words of text that follows its input.
+         * Only the new words and the k words before them are analyzed.
+         * @param text - The text that follows the current input.
+         * @return Model - The model of the combined words. This model is
+         * unchanged.
+         */
+        public Model append(String text) {
+            NGramModel appended = ngrams.append(text);
+            return appended == ngrams ? this : new Model(appended);
+        }
+
+        /**
+         * Returns the level of analysis of the model.
+         * @return int - The level (k).
+         */
+        public int level() {
+            return ngrams.level();
+        }
+
+        /**
+         * Probabilistically generates (length) words into an output.
+         * @param length - Number of words to generate
+         * @param output - Where the generated words are appended, each
+         * followed by a space.
+         * @param random - Source of randomness, used by this call only.
+         * @throws IOException - If the output cannot be appended to.
+         */
+        public void generateText(long length, Appendable output,
+                                 SplittableRandom random) throws IOException {
+            long start = System.nanoTime();
+            long restarts = ngrams.generate(length, output, random);
+            METRICS.recordGeneration(ngrams.level(), length, restarts,
+                    System.nanoTime() - start);
+        }
+
+        /**
+         * Gets a random seed from the text for analysis.
+         * @param random - Source of randomness.
+         * @return String which is the random seed.
+         */
+        public String getRandomSeed(SplittableRandom random) {
+            return ngrams.seedText(random);
+        }
     }
 
     /**
@@ -155,52 +243,104 @@ public class RandomWordWriter implements TextProcessor {
      * @throws IOException - If the file with the specified name doesn't exist.
      */
     public void readText(String inputFilename) throws IOException {
-        BufferedReader textReader = new BufferedReader(new FileReader(
-                inputFilename));
-        StringBuffer textBuffer = new StringBuffer();
-
-        // Read in input file.
-        String line = textReader.readLine();
-        while (line != null) {
-            textBuffer.append(line).append('\n');
-            line = textReader.readLine();
-        }
-        textReader.close();
+        long start = System.nanoTime();
+        MappedCorpus corpus = MappedCorpus.load(inputFilename);
+        METRICS.recordRead(System.nanoTime() - start);
+        readText(corpus);
+    }
 
-        // Store input text words and compute next word frequency map.
-        this.inputTextWords = textBuffer.toString().split("\\s+");
-        populateNextWordMap();
+    /**
+     * Uses already-read text for level-k analysis. The new model replaces
+     * the old one only once it is complete.
+     * @param corpus - The source text.
+     */
+    public synchronized void readText(MappedCorpus corpus) {
+        long start = System.nanoTime();
+        NGramModel trained = NGramModel.train(tokenizer,
+                tokenizer.tokenize(corpus), level);
+        this.model = recordAnalysis(new Model(trained), trained.tokenCount(),
+                start);
     }
 
     /**
-     * Populates seedToNextWords from the input text.
+     * Adds text after the current input without re-reading what came
+     * before. The seeds that span the old and new words are counted, so the
+     * result matches reading the combined text at once.
+     * @param text - The text that follows the current input. It is split on
+     * whitespace, and whitespace at its start does not make an empty word.
      */
-    private void populateNextWordMap() {
-        seedToNextWords.clear();
-        int lastSeedIndex = inputTextWords.length - level - 1;
-
-        // Iterate over possible seeds to populate list of next words.
-        for (int i = 0; i <= lastSeedIndex; i++) {
-            StringBuffer seedBuffer = new StringBuffer();
-            for (int j = 0; j < level; j++) {
-                seedBuffer.append(inputTextWords[i + j]);
-                if (j < level - 1) {
-                    seedBuffer.append(' ');
-                }
-            }
-            String seed = seedBuffer.toString();
+    public synchronized void appendText(String text) {
+        long start = System.nanoTime();
+        Model current = model;
+        Model appended = current.append(text);
+        this.model = recordAnalysis(appended, appended.ngrams.tokenCount()
+                - current.ngrams.tokenCount(), start);
+    }
 
-            // Create new key if this seed hasn't been encountered yet.
-            if (!seedToNextWords.containsKey(seed)) {
-                List<String> nextWords = new ArrayList<>();
-                seedToNextWords.put(seed, nextWords);
-            }
+    /**
+     * Adds the words of a file after the current input.
+     * @param inputFilename - Name of the text file to add.
+     * @throws IOException - If the file does not exist or cannot be read.
+     */
+    public void appendFile(String inputFilename) throws IOException {
+        appendText(MappedCorpus.load(inputFilename).text());
+    }
 
-            // Add word after the seed to seed's list of next word.
-            int nextWordIndex = i + level;
-            String nextWord = inputTextWords[nextWordIndex];
-            seedToNextWords.get(seed).add(nextWord);
-        }
+    /**
+     * Rebuilds the model from the current input words.
+     */
+    public void populateNextWordMap() {
+        long start = System.nanoTime();
+        NGramModel trained = NGramModel.train(tokenizer,
+                model.ngrams.tokens(), level);
+        this.model = recordAnalysis(new Model(trained), trained.tokenCount(),
+                start);
+    }
+
+    /**
+     * Records the training of a model in this engine's metrics.
+     * @param trained - The new model.
+     * @param tokens - The number of words analyzed or loaded.
+     * @param start - System.nanoTime() when training started.
+     * @return Model - The trained model.
+     */
+    private Model recordAnalysis(Model trained, long tokens, long start) {
+        METRICS.recordAnalysis(level, tokens, System.nanoTime() - start,
+                trained.ngrams.statistics());
+        return trained;
+    }
+
+    /**
+     * Returns the current model, which can be shared with other threads.
+     * @return Model - The model built by the last readText, appendText or
+     * loadModel.
+     */
+    public Model getModel() {
+        return model;
+    }
+
+    /**
+     * Saves the words and their successor counts as a word model, which can
+     * also be loaded by PrimitiveRandomWordWriter.
+     * @param modelFilename - Name of the model file to write.
+     * @throws IOException - If the model file cannot be written.
+     */
+    public void saveModel(String modelFilename) throws IOException {
+        model.ngrams.save(modelFilename);
+    }
+
+    /**
+     * Loads a word model saved at this writer's level.
+     * @param modelFilename - Name of the model file to read.
+     * @throws IOException - If the file cannot be read or does not hold a
+     * word model of this level.
+     */
+    public void loadModel(String modelFilename) throws IOException {
+        long start = System.nanoTime();
+        NGramModel loaded = NGramModel.load(modelFilename, tokenizer,
+                level);
+        this.model = recordAnalysis(new Model(loaded), loaded.tokenCount(),
+                start);
     }
 
     /**
@@ -210,43 +350,59 @@ public class RandomWordWriter implements TextProcessor {
      * @throws IOException - If the destination file cannot be written to.
      */
     public void writeText(String outputFilename, int length) throws IOException {
-        FileWriter outputWriter = new FileWriter(outputFilename);
-        String generatedText = generateText(length);
-        outputWriter.write(generatedText);
-        outputWriter.close();
+        try (FileChannel output = ChunkedTextWriter.openOutput(
+                outputFilename)) {
+            writeText(output, length);
+        }
+    }
+
+    /**
+     * Streams text generated using input text to a channel.
+     * @param channel - Destination of the text. Not closed.
+     * @param length - Number of words to write (non-negative).
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void writeText(WritableByteChannel channel, long length)
+            throws IOException {
+        writeText(channel, length, RandomStreams.forCurrentThread());
+    }
+
+    /**
+     * Streams text generated from one random stream to a channel.
+     * @param channel - Destination of the text. Not closed.
+     * @param length - Number of words to write (non-negative).
+     * @param random - Source of randomness, used by this call only.
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void writeText(WritableByteChannel channel, long length,
+                          SplittableRandom random) throws IOException {
+        ChunkedTextWriter output = new ChunkedTextWriter(channel);
+        model.generateText(length, output, random);
+        output.finish();
     }
 
     /**
      * Probabilistically generates text of (length) words using input text.
      * @param length - Number of words to generate
-     * @return String - the generated text.
+     * @return String - the generated words, each followed by a space.
      */
-    private String generateText(int length) {
-        StringBuffer generatedTextBuffer = new StringBuffer();
-        String seed = getRandomSeed();
-        // Generate random words.
-        for (int i = 0; i < length; i++) {
-            // Get random seed if current seed doesn't occur in the text.
-            if (!seedToNextWords.containsKey(seed)) {
-                seed = getRandomSeed();
-            }
+    public String generateText(int length) {
+        return generateText(length, RandomStreams.forCurrentThread());
+    }
 
-            // Pick a word using the seed and write it to the output file.
-            List<String> possibleNextWords = seedToNextWords.get(seed);
-            int randomIndex = (int)(Math.random() * possibleNextWords.size());
-            String randomWord = possibleNextWords.get(randomIndex);
-            generatedTextBuffer.append(randomWord).append(' ');
-
-            // Update seed
-            String[] seedIndividualWords = seed.split("\\s+");
-            StringBuffer newSeedBuffer = new StringBuffer();
-            if (level != 0) {
-                for (int j = 1; j < level; j++) {
-                    newSeedBuffer.append(seedIndividualWords[j]).append(' ');
-                }
-                newSeedBuffer.append(randomWord);
-            }
-            seed = newSeedBuffer.toString();
+    /**
+     * Probabilistically generates text of (length) words using input text.
+     * The same random stream always produces the same text.
+     * @param length - Number of words to generate
+     * @param random - Source of randomness, used by this call only.
+     * @return String - the generated words, each followed by a space.
+     */
+    public String generateText(int length, SplittableRandom random) {
+        StringBuilder generatedTextBuffer = new StringBuilder();
+        try {
+            model.generateText(length, generatedTextBuffer, random);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws.
         }
         return generatedTextBuffer.toString();
     }
@@ -255,16 +411,17 @@ public class RandomWordWriter implements TextProcessor {
      * Gets a random seed from the text for analysis.
      * @return String which is the random seed.
      */
-    private String getRandomSeed() {
-        int maxSeedStartIndex = inputTextWords.length - 1 - level;
-        int seedStartIndex = (int)(Math.random() * (maxSeedStartIndex + 1));
-        StringBuffer seedBuffer = new StringBuffer();
-        for (int i = seedStartIndex; i < seedStartIndex + level; i++) {
-            seedBuffer.append(inputTextWords[i]);
-            if (i < seedStartIndex + level - 1) {
-                seedBuffer.append(' ');
-            }
-        }
-        return seedBuffer.toString();
+    public String getRandomSeed() {
+        return model.getRandomSeed(RandomStreams.forCurrentThread());
+    }
+
+    /**
+     * Accessor for the seed map for white-box testing. Each seed's counts
+     * are expanded into a list with one entry per occurrence.
+     * @return Map<String, List<String>> - copy of the seeds' next words
+     */
+    public Map<String, List<String>> getSeedToNextWords() {
+        NGramModel ngrams = model.ngrams;
+        return ngrams.successorLists(ngrams::tokenText);
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,10 @@
 package main.java.assignment;
 import java.io.*;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 import java.util.Map;
+import java.util.SplittableRandom;
 
 /*
  * CS 314H Assignment 2 - Random Writing
@@ -11,43 +12,56 @@ import java.util.Map;
  * Your task is to implement this RandomWriter class
  */
 public class RandomWriter implements TextProcessor {
+    // Metrics shared by every RandomWriter.
+    private static final WriterMetrics METRICS =
+            WriterMetrics.forEngine("RandomWriter");
+
     // The level of the analysis being done.
     private final int level;
-    // The text used to generate output.
-    private String inputText = "";
-    private final Map<String, List<Character>> seedToNextCharacters;
+    // The trained model. It is replaced as a whole and never modified, so
+    // threads generating from it never see a half-built map.
+    private volatile Model model;
 
     /**
      * Randomly writes based on text from the specified input file.
      * @param args - Command line arguments
-     * args[0] is the input filename
+     * args[0] is the input filename, a text or a model from saveModel
      * args[1] is the output filename
      * args[2] is the level of analysis (k)
      * args[3] is the length (number of characters) of output
      */
     public static void main(String[] args) throws IOException {
         try {
-            validateInput(args);
+            MappedCorpus corpus = validateInput(args);
             // Get input arguments
             String source = args[0];
             String result = args[1];
             int k = Integer.parseInt(args[2]);
-            int length = Integer.parseInt(args[3]);
+            long length = Long.parseLong(args[3]);
             // Write random text based on input
             TextProcessor processor = createProcessor(k);
-            processor.readText(source);
-            processor.writeText(result, length);
+            if (ModelFile.isModelFile(args[0])) {
+                processor.loadModel(args[0]);
+            } else {
+                processor.readText(corpus);
+            }
+            try (FileChannel output = ChunkedTextWriter.openOutput(result)) {
+                processor.writeText(output, length);
+            }
         } catch (Exception e) {
             System.err.println(e.getMessage());
         }
     }
 
     /**
-     * Helper for main method to validate the input.
+     * Helper for main method to validate the input. The source file is read
+     * once here and returned so training does not have to read it again.
      * @param args - The command line arguments.
+     * @return MappedCorpus - The contents of the source file, or an empty
+     * corpus if the source is a saved model.
      * @throws IOException
      */
-    public static void validateInput(String[] args) throws IOException,
+    public static MappedCorpus validateInput(String[] args) throws IOException,
             IllegalArgumentException {
         // Exit if not all arguments are provided
         if (args.length != 4) {
@@ -57,12 +71,13 @@ public class RandomWriter implements TextProcessor {
         // Parse command line arguments
         String source = args[0];
         String result = args[1];
-        int k, length;
+        int k;
+        long length;
 
         // Edge case where k or length are not integers
         try {
             k = Integer.parseInt(args[2]);
-            length = Integer.parseInt(args[3]);
+            length = Long.parseLong(args[3]);
         } catch (Exception e) {
             throw new IllegalArgumentException("k and length must be non-negative integers.");
         }
@@ -89,13 +104,19 @@ public class RandomWriter implements TextProcessor {
             String errorMessage = "Source file " + source + " is not readable.";
             throw new IOException(errorMessage);
         }
-        // Source file not long enough for k-th order analysis
-        int inputCharCount = getFileCharCount(source);
-        if (inputCharCount <= k) {
-            String errorMessage = "The input file must have more than ";
-            errorMessage += "k characters.";
-            errorMessage += source + " has " + inputCharCount + "characters.";
-            throw new IllegalArgumentException(errorMessage);
+        // A saved model is loaded by the processor, not read as text here.
+        MappedCorpus corpus = MappedCorpus.of("");
+        if (!ModelFile.isModelFile(source)) {
+            // Source file not long enough for k-th order analysis
+            corpus = MappedCorpus.load(source);
+            int inputCharCount = corpus.charCount();
+            if (inputCharCount <= k) {
+                String errorMessage = "The input file must have more than ";
+                errorMessage += "k characters.";
+                errorMessage += source + " has " + inputCharCount
+                        + "characters.";
+                throw new IllegalArgumentException(errorMessage);
+            }
         }
 
         // Check that the result file is ok, or deal with resulting problems.
@@ -112,16 +133,7 @@ public class RandomWriter implements TextProcessor {
             String errorMessage = "The result file cannot be written.";
             throw new IOException(errorMessage);
         }
-    }
-
-    /**
-     * Returns the number of characters in a file.
-     * @param filename - Name of file to read contents of.
-     * @throws IOException - If the file does not exist.
-     */
-    private static int getFileCharCount(String filename) throws IOException {
-        String contents = fileContentsToString(filename);
-        return contents.length(); // Number of characters = length of contents.
+        return corpus;
     }
 
     /**
@@ -144,7 +156,86 @@ public class RandomWriter implements TextProcessor {
         } else {
             this.level = 0;
         }
-        this.seedToNextCharacters = new HashMap<>();
+        this.model = Model.train(this.level, "");
+    }
+
+    /**
+     * Immutable result of level-k analysis of the characters of a text.
+     * The analysis itself is an NGramModel over chars; this only gives it
+     * the character-level names RandomWriter has always used. A Model is
+     * never modified once built, so any number of threads can generate from
+     * one at the same time.
+     */
+    public static final class Model {
+        private final NGramModel ngrams; // The counts of every seed.
+
+        private Model(NGramModel ngrams) {
+            this.ngrams = ngrams;
+        }
+
+        /**
+         * Analyzes a text.
+         * @param level - The level of analysis (k >= 0).
+         * @param inputText - The text to analyze.
+         * @return Model - The successors of every seed of the text.
+         */
+        public static Model train(int level, String inputText) {
+            return new Model(NGramModel.train(Tokenizer.CHARS, inputText,
+                    level));
+        }
+
+        /**
+         * Extends the model with text that follows its input. Only the new
+         * text and the k characters before it are analyzed.
+         * @param text - The text that follows the current input.
+         * @return Model - The model of the combined text. This model is
+         * unchanged.
+         */
+        public Model append(String text) {
+            NGramModel appended = ngrams.append(text);
+            return appended == ngrams ? this : new Model(appended);
+        }
+
+        /**
+         * Returns the level of analysis of the model.
+         * @return int - The level (k).
+         */
+        public int level() {
+            return ngrams.level();
+        }
+
+        /**
+         * Returns the whole input text, with any appended text joined again.
+         * @return String - The text the model was trained on.
+         */
+        public String inputText() {
+            Tokens tokens = ngrams.tokens();
+            return tokens.text(0, tokens.size());
+        }
+
+        /**
+         * Probabilistically generates (length) characters into an output.
+         * @param length - Number of characters to generate
+         * @param output - Where the generated characters are appended.
+         * @param random - Source of randomness, used by this call only.
+         * @throws IOException - If the output cannot be appended to.
+         */
+        public void generateText(long length, Appendable output,
+                                 SplittableRandom random) throws IOException {
+            long start = System.nanoTime();
+            long restarts = ngrams.generate(length, output, random);
+            METRICS.recordGeneration(ngrams.level(), length, restarts,
+                    System.nanoTime() - start);
+        }
+
+        /**
+         * Chooses a random seed from the text for analysis.
+         * @param random - Source of randomness.
+         * @return String which is the random seed.
+         */
+        public String pickRandomSeed(SplittableRandom random) {
+            return ngrams.seedText(random);
+        }
     }
 
     /**
@@ -152,59 +243,119 @@ public class RandomWriter implements TextProcessor {
      * @param inputFilename - Name of the source text file.
      */
     public void readText(String inputFilename) {
-        // Store input text and compute next letter frequency map for writing.
         try {
-            this.inputText = fileContentsToString(inputFilename);
-            populateNextLetterMap();
+            long start = System.nanoTime();
+            MappedCorpus corpus = MappedCorpus.load(inputFilename);
+            METRICS.recordRead(System.nanoTime() - start);
+            readText(corpus);
         } catch (IOException e) {
             System.err.println("File " + inputFilename + " was not found or ");
             System.err.println("could not be read.");
         }
     }
 
-    public static String fileContentsToString(String inputFilename)
+    /**
+     * Uses already-read text for level-k analysis. The new model replaces
+     * the old one only once it is complete.
+     * @param corpus - The source text.
+     */
+    public synchronized void readText(MappedCorpus corpus) {
+        long start = System.nanoTime();
+        NGramModel trained = NGramModel.train(Tokenizer.CHARS,
+                Tokenizer.CHARS.tokenize(corpus), level);
+        this.model = recordAnalysis(new Model(trained), trained.tokenCount(),
+                start);
+    }
+
+    /**
+     * Adds text after the current input without re-reading what came
+     * before. The seeds that span the old and new text are counted, so the
+     * result matches reading the combined text at once.
+     * @param text - The text that follows the current input.
+     */
+    public synchronized void appendText(String text) {
+        long start = System.nanoTime();
+        this.model = recordAnalysis(model.append(text), text.length(), start);
+    }
+
+    /**
+     * Adds a file after the current input, separated from it by '\n' as if
+     * the two files had been read as one.
+     * @param inputFilename - Name of the text file to add.
+     * @throws IOException - If the file does not exist or cannot be read.
+     */
+    public synchronized void appendFile(String inputFilename)
             throws IOException {
-        BufferedReader textReader = new BufferedReader(new FileReader(
-                inputFilename));
-        StringBuffer textBuffer = new StringBuffer();
-
-        // Read in input file.
-        String line = textReader.readLine();
-        while (line != null) {
-            textBuffer.append(line).append('\n');
-            line = textReader.readLine();
-        }
-        // Remove the last newline character
-        if (textBuffer.length() > 0) {
-            textBuffer.deleteCharAt(textBuffer.length() - 1);
-        }
+        String text = MappedCorpus.load(inputFilename).text();
+        appendText(model.ngrams.tokenCount() == 0 ? text : "\n" + text);
+    }
+
+    /**
+     * Saves the text and its successor counts as a char model, which can
+     * also be loaded by PrimitiveRandomWriter.
+     * @param modelFilename - Name of the model file to write.
+     * @throws IOException - If the model file cannot be written.
+     */
+    public void saveModel(String modelFilename) throws IOException {
+        model.ngrams.save(modelFilename);
+    }
+
+    /**
+     * Loads a char model saved at this writer's level.
+     * @param modelFilename - Name of the model file to read.
+     * @throws IOException - If the file cannot be read or does not hold a
+     * char model of this level.
+     */
+    public void loadModel(String modelFilename) throws IOException {
+        long start = System.nanoTime();
+        NGramModel loaded = NGramModel.load(modelFilename, Tokenizer.CHARS,
+                level);
+        this.model = recordAnalysis(new Model(loaded), loaded.tokenCount(),
+                start);
+    }
 
-        textReader.close();
-        return textBuffer.toString();
+    /**
+     * Records the training of a model in this engine's metrics.
+     * @param trained - The new model.
+     * @param tokens - The number of characters analyzed or loaded.
+     * @param start - System.nanoTime() when training started.
+     * @return Model - The trained model.
+     */
+    private Model recordAnalysis(Model trained, long tokens, long start) {
+        METRICS.recordAnalysis(level, tokens, System.nanoTime() - start,
+                trained.ngrams.statistics());
+        return trained;
+    }
+
+    /**
+     * Reads a file into a String, joining its lines with '\n'.
+     * @param inputFilename - Name of the file to read.
+     * @return String - The contents without the final line terminator.
+     * @throws IOException - If the file does not exist or cannot be read.
+     */
+    public static String fileContentsToString(String inputFilename)
+            throws IOException {
+        return MappedCorpus.load(inputFilename).text();
     }
 
     /**
-     * Populates seedToNextCharacters from the input text.
+     * Rebuilds the model from the current input text.
      */
     public void populateNextLetterMap() {
-        // Clear map because the same RandomWriter can analyze multiple texts.
-        seedToNextCharacters.clear();
-        int lastSeedIndex = inputText.length() - level - 1;
-
-        // Iterate over possible seeds to populate list of next letters.
-        for (int i = 0; i <= lastSeedIndex; i++) {
-            String seed = inputText.substring(i, i + level);
-            // Create new key if this seed hasn't been encountered yet.
-            if (!seedToNextCharacters.containsKey(seed)) {
-                List<Character> nextChars = new ArrayList<>();
-                seedToNextCharacters.put(seed, nextChars);
-            }
+        long start = System.nanoTime();
+        NGramModel trained = NGramModel.train(Tokenizer.CHARS,
+                model.ngrams.tokens(), level);
+        this.model = recordAnalysis(new Model(trained), trained.tokenCount(),
+                start);
+    }
 
-            // Add character after the seed to seed's list of next characters.
-            int nextLetterIndex = i + level;
-            char nextLetter = inputText.charAt(nextLetterIndex);
-            seedToNextCharacters.get(seed).add(nextLetter);
-        }
+    /**
+     * Returns the current model, which can be shared with other threads.
+     * @return Model - The model built by the last readText, appendText or
+     * loadModel.
+     */
+    public Model getModel() {
+        return model;
     }
 
     /**
@@ -213,48 +364,63 @@ public class RandomWriter implements TextProcessor {
      * @param length - Number of characters to write (non-negative).
      */
     public void writeText(String outputFilename, int length) {
-        try {
-            FileWriter outputWriter = new FileWriter(outputFilename);
-            String generatedText = generateText(length);
-            outputWriter.write(generatedText);
-            outputWriter.close();
+        try (FileChannel output = ChunkedTextWriter.openOutput(
+                outputFilename)) {
+            writeText(output, length);
         } catch (IOException e) {
             System.err.println("Could not write to output file " +
                     outputFilename);
         }
     }
 
+    /**
+     * Streams text generated using input text to a channel.
+     * @param channel - Destination of the text. Not closed.
+     * @param length - Number of characters to write (non-negative).
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void writeText(WritableByteChannel channel, long length)
+            throws IOException {
+        writeText(channel, length, RandomStreams.forCurrentThread());
+    }
+
+    /**
+     * Streams text generated from one random stream to a channel.
+     * @param channel - Destination of the text. Not closed.
+     * @param length - Number of characters to write (non-negative).
+     * @param random - Source of randomness, used by this call only.
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void writeText(WritableByteChannel channel, long length,
+                          SplittableRandom random) throws IOException {
+        ChunkedTextWriter output = new ChunkedTextWriter(channel);
+        model.generateText(length, output, random);
+        output.finish();
+    }
+
     /**
      * Probabilistically generates text of (length) characters using input text.
      * @param length - Number of characters to generate
      * @return String - the generated text.
      */
     public String generateText(int length) {
-        StringBuffer generatedTextBuffer = new StringBuffer();
-        String seed = pickRandomSeed();
-
-        // Edge case - seedToNextCharacters is empty (caused by empty input)
-        if (seedToNextCharacters.isEmpty()) {
-            return "";
-        }
-
-        // Generate (length) random characters.
-        for (int i = 0; i < length; i++) {
-            // Get random seed if current seed doesn't occur in the text.
-            if (!seedToNextCharacters.containsKey(seed)) {
-                seed = pickRandomSeed();
-            }
-
-            // Pick a character using the seed and write it to the output file.
-            List<Character> possibleNextChars = seedToNextCharacters.get(seed);
-            int randomIndex = (int)(Math.random() * possibleNextChars.size());
-            char randomChar = possibleNextChars.get(randomIndex);
-            generatedTextBuffer.append(randomChar);
+        return generateText(length, RandomStreams.forCurrentThread());
+    }
 
-            // Update seed
-            if (level != 0) {
-                seed = seed.substring(1) + randomChar;
-            }
+    /**
+     * Probabilistically generates text of (length) characters using input text.
+     * The same random stream always produces the same text.
+     * @param length - Number of characters to generate
+     * @param random - Source of randomness, used by this call only.
+     * @return String - the generated text.
+     */
+    public String generateText(int length, SplittableRandom random) {
+        StringBuilder generatedTextBuffer = new StringBuilder(
+                Math.max(length, 0));
+        try {
+            model.generateText(length, generatedTextBuffer, random);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws.
         }
         return generatedTextBuffer.toString();
     }
@@ -264,16 +430,15 @@ public class RandomWriter implements TextProcessor {
      * @return String which is the random seed.
      */
     public String pickRandomSeed() {
-        int maxSeedStartIndex = inputText.length() - 1 - level;
-        int seedStartIndex = (int)(Math.random() * (maxSeedStartIndex + 1));
-        return inputText.substring(seedStartIndex, seedStartIndex + level);
+        return model.pickRandomSeed(RandomStreams.forCurrentThread());
     }
 
     /**
-     * Accessor for seedToNextCharacters for white-box testing.
-     * @return Map<String, List<Character>> - seedToNextCharacters
+     * Accessor for seedToNextCharacters for white-box testing. Each seed's
+     * counts are expanded into a list with one entry per occurrence.
+     * @return Map<String, List<Character>> - copy of seedToNextCharacters
      */
     public Map<String, List<Character>> getSeedToNextCharacters() {
-        return seedToNextCharacters;
+        return model.ngrams.successorLists(c -> (char) c);
     }
 }
@@ -0,0 +1,106 @@
+package main.java.assignment;
+import java.util.*;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * The successors of one seed, stored once per distinct successor with its
+ * count and sampled in O(1) through an AliasTable.
+ */
+public final class SuccessorDistribution<T> {
+    private final Map<T, Integer> successorIndex = new HashMap<>();
+    private final List<T> successors = new ArrayList<>();
+    private int[] counts = new int[2];
+    private int total;
+    private AliasTable aliasTable; // Rebuilt by prepare() after additions.
+
+    /**
+     * Records one more occurrence of a successor.
+     * @param successor - The token that followed the seed.
+     */
+    public void add(T successor) {
+        add(successor, 1);
+    }
+
+    /**
+     * Records several more occurrences of a successor.
+     * @param successor - The token that followed the seed.
+     * @param count - How many more times it followed the seed (positive).
+     */
+    public void add(T successor, int count) {
+        Integer index = successorIndex.get(successor);
+        if (index == null) {
+            index = successors.size();
+            successorIndex.put(successor, index);
+            successors.add(successor);
+            if (index == counts.length) {
+                counts = Arrays.copyOf(counts, index * 2);
+            }
+        }
+        counts[index] += count;
+        total += count;
+        aliasTable = null;
+    }
+
+    /**
+     * Builds the alias table now rather than on the first sample. A
+     * distribution that is prepared and then no longer added to can be
+     * sampled by several threads at once.
+     */
+    public void prepare() {
+        if (aliasTable == null) {
+            aliasTable = new AliasTable(counts, successors.size());
+        }
+    }
+
+    /**
+     * Picks a successor with probability proportional to its count.
+     * @return T - The chosen successor.
+     */
+    public T sample() {
+        return sample(RandomStreams.forCurrentThread());
+    }
+
+    /**
+     * Picks a successor with probability proportional to its count.
+     * @param random - Source of randomness, used by one thread at a time.
+     * @return T - The chosen successor.
+     */
+    public T sample(SplittableRandom random) {
+        prepare();
+        int column = random.nextInt(successors.size());
+        int value = random.nextInt(total);
+        return successors.get(aliasTable.sample(column, value));
+    }
+
+    /**
+     * Returns the number of recorded occurrences.
+     * @return int - Total occurrences of all successors.
+     */
+    public int total() {
+        return total;
+    }
+
+    /**
+     * Returns the number of distinct successors.
+     * @return int - Distinct successor count.
+     */
+    public int distinctCount() {
+        return successors.size();
+    }
+
+    /**
+     * Expands the distribution into a list with one entry per occurrence,
+     * for white-box testing against the list-based representation.
+     * @return List<T> - Every recorded occurrence, grouped by successor.
+     */
+    public List<T> toOccurrenceList() {
+        List<T> occurrences = new ArrayList<>(total);
+        for (int i = 0; i < successors.size(); i++) {
+            for (int j = 0; j < counts[i]; j++) {
+                occurrences.add(successors.get(i));
+            }
+        }
+        return occurrences;
+    }
+}
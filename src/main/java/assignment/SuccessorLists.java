@@ -0,0 +1,236 @@
+package main.java.assignment;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * The successors of a set of numbered contexts, laid out contiguously: one
+ * (token, count) entry per distinct successor, ordered by token, plus an
+ * alias table over each context's entries for O(1) sampling. Shared by
+ * ContextTable and ContextTrie, which differ only in how they find a
+ * context's number.
+ */
+final class SuccessorLists {
+    // Contexts laid out by one worker of a parallel layout.
+    private static final int LAYOUT_BLOCK = 1 << 14;
+
+    // Successors of context c live in [start[c], start[c + 1]).
+    private final int[] start;
+    private final int[] tokens;
+    private final int[] counts;
+    private final int[] alias; // Alias tables, per context slice.
+    private final int[] threshold;
+    private final int[] totals; // Total occurrences of each context.
+
+    private SuccessorLists(int[] start, int[] tokens, int[] counts,
+                           int[] alias, int[] threshold, int[] totals) {
+        this.start = start;
+        this.tokens = tokens;
+        this.counts = counts;
+        this.alias = alias;
+        this.threshold = threshold;
+        this.totals = totals;
+    }
+
+    /**
+     * Lays out counted (context, successor) pairs.
+     * @param pairCounts - Counts keyed by pairKey(context, token).
+     * @param contextCount - Number of contexts; every id is below it.
+     * @return SuccessorLists - The successors of every context.
+     */
+    static SuccessorLists of(LongIntHashMap pairCounts, int contextCount) {
+        return of(new LongIntHashMap[] {pairCounts}, null, contextCount,
+                null);
+    }
+
+    /**
+     * Lays out pairs counted in several maps that share no context, on a
+     * fork-join pool. Each map is scattered by its own worker, and the
+     * contexts are then sorted and given alias tables in blocks.
+     * @param pairCounts - Counts keyed by pairKey(local context, token).
+     * @param ids - For each map, the id of each of its local contexts, or
+     * null if its contexts are already numbered.
+     * @param contextCount - Number of contexts; every id is below it.
+     * @param pool - The pool that runs the workers, or null to lay out on
+     * the calling thread.
+     * @return SuccessorLists - The successors of every context.
+     */
+    static SuccessorLists of(LongIntHashMap[] pairCounts, int[][] ids,
+                             int contextCount, ForkJoinPool pool) {
+        // Count the distinct successors of each context. No two maps share
+        // a context, so the workers never write the same entry.
+        int[] start = new int[contextCount + 1];
+        forEach(pool, pairCounts.length, part -> {
+            LongIntHashMap pairs = pairCounts[part];
+            for (int slot = 0; slot < pairs.capacity(); slot++) {
+                if (pairs.isUsed(slot)) {
+                    start[id(ids, part, pairs.keyAt(slot)) + 1]++;
+                }
+            }
+        });
+        for (int c = 0; c < contextCount; c++) {
+            start[c + 1] += start[c];
+        }
+
+        // Scatter each pair into its context's slice as (token, count).
+        long[] entries = new long[start[contextCount]];
+        int[] next = Arrays.copyOf(start, contextCount);
+        forEach(pool, pairCounts.length, part -> {
+            LongIntHashMap pairs = pairCounts[part];
+            for (int slot = 0; slot < pairs.capacity(); slot++) {
+                if (pairs.isUsed(slot)) {
+                    long key = pairs.keyAt(slot);
+                    entries[next[id(ids, part, key)]++] =
+                            ((long) (int) key << 32) | pairs.valueAt(slot);
+                }
+            }
+        });
+
+        // Order each slice by token and build its alias table.
+        int pairCount = entries.length;
+        int[] tokens = new int[pairCount];
+        int[] counts = new int[pairCount];
+        int[] alias = new int[pairCount];
+        int[] threshold = new int[pairCount];
+        int[] totals = new int[contextCount];
+        int blocks = (contextCount + LAYOUT_BLOCK - 1) / LAYOUT_BLOCK;
+        forEach(pool, blocks, block -> {
+            int end = Math.min(contextCount, (block + 1) * LAYOUT_BLOCK);
+            for (int c = block * LAYOUT_BLOCK; c < end; c++) {
+                Arrays.sort(entries, start[c], start[c + 1]);
+                for (int i = start[c]; i < start[c + 1]; i++) {
+                    tokens[i] = (int) (entries[i] >>> 32);
+                    counts[i] = (int) entries[i];
+                }
+                totals[c] = AliasTable.fill(counts, start[c], start[c + 1],
+                        alias, threshold);
+            }
+        });
+        return new SuccessorLists(start, tokens, counts, alias, threshold,
+                totals);
+    }
+
+    /**
+     * Returns the most memory of() allocates while the counts it lays out
+     * are still held: the lists themselves and its scratch arrays.
+     * @param pairCount - Number of (context, successor) pairs.
+     * @param contextCount - Number of contexts.
+     * @return long - The size in bytes.
+     */
+    static long layoutBytes(int pairCount, int contextCount) {
+        return 3 * ModelStatistics.arrayBytes(contextCount + 1L, 4)
+                + ModelStatistics.arrayBytes(pairCount, 8)
+                + 4 * ModelStatistics.arrayBytes(pairCount, 4);
+    }
+
+    /**
+     * Runs action(i) for every i in [0, count), on a fork-join pool if one
+     * is given, and returns once every call has.
+     * @param pool - The pool that runs the calls, or null to run them in
+     * order on the calling thread.
+     * @param count - Number of calls.
+     * @param action - The work of one call.
+     */
+    static void forEach(ForkJoinPool pool, int count, IntConsumer action) {
+        if (pool == null || count <= 1) {
+            for (int i = 0; i < count; i++) {
+                action.accept(i);
+            }
+            return;
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            tasks.add(ForkJoinTask.adapt(() -> action.accept(index)));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
+
+    private static int id(int[][] ids, int part, long key) {
+        int local = (int) (key >>> 32);
+        return ids == null ? local : ids[part][local];
+    }
+
+    /**
+     * Packs a context and a successor token into one map key.
+     */
+    static long pairKey(int context, int token) {
+        return ((long) context << 32) | (token & 0xffffffffL);
+    }
+
+    /**
+     * Writes the lists to a model file.
+     */
+    void write(DataOutputStream out) throws IOException {
+        int contextCount = totals.length;
+        ModelFile.writeInts(out, start, contextCount + 1);
+        ModelFile.writeInts(out, tokens, tokens.length);
+        ModelFile.writeInts(out, counts, counts.length);
+        ModelFile.writeInts(out, alias, alias.length);
+        ModelFile.writeInts(out, threshold, threshold.length);
+        ModelFile.writeInts(out, totals, contextCount);
+    }
+
+    /**
+     * Reads lists written by write().
+     */
+    static SuccessorLists read(ByteBuffer in, int contextCount, int pairs) {
+        return new SuccessorLists(ModelFile.readInts(in, contextCount + 1),
+                ModelFile.readInts(in, pairs), ModelFile.readInts(in, pairs),
+                ModelFile.readInts(in, pairs), ModelFile.readInts(in, pairs),
+                ModelFile.readInts(in, contextCount));
+    }
+
+    int sample(int context, int column, int value) {
+        int index = start[context] + column;
+        if (value >= threshold[index]) {
+            index = start[context] + alias[index];
+        }
+        return tokens[index];
+    }
+
+    int successorAt(int context, int index) {
+        int end = start[context + 1];
+        for (int i = start[context]; i < end; i++) {
+            index -= counts[i];
+            if (index < 0) {
+                return tokens[i];
+            }
+        }
+        throw new IndexOutOfBoundsException("Occurrence index out of range.");
+    }
+
+    int successorToken(int context, int column) {
+        return tokens[start[context] + column];
+    }
+
+    int successorCount(int context, int column) {
+        return counts[start[context] + column];
+    }
+
+    int total(int context) {
+        return totals[context];
+    }
+
+    int distinctCount(int context) {
+        return start[context + 1] - start[context];
+    }
+
+    int entryCount() {
+        return tokens.length;
+    }
+
+    long sizeInBytes() {
+        return ModelStatistics.arrayBytes(start.length, 4)
+                + 4 * ModelStatistics.arrayBytes(tokens.length, 4)
+                + ModelStatistics.arrayBytes(totals.length, 4);
+    }
+}
@@ -0,0 +1,323 @@
+package main.java.assignment;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Suffix array, inverse suffix array and LCP array over a text. Every
+ * k-character context corresponds to a contiguous range of sorted suffixes,
+ * so one index answers successor queries for every level of analysis using
+ * O(n) ints of memory regardless of k.
+ */
+public final class SuffixArrayIndex {
+    // Ranges at most this wide are found by walking the LCP array.
+    private static final int LCP_SCAN_LIMIT = 8;
+
+    private final char[] text; // The indexed text.
+    private final int[] suffixArray; // Suffix start positions, sorted.
+    private final int[] rank; // Inverse of suffixArray.
+    // lcp[i] is the common prefix length of suffixes i - 1 and i.
+    private final int[] lcp;
+
+    /**
+     * Builds the index for a text.
+     * @param text - The characters to index. Not copied.
+     */
+    public SuffixArrayIndex(char[] text) {
+        this.text = text;
+        this.suffixArray = sortSuffixes(text, text.length, text.length);
+        this.rank = invert(suffixArray);
+        this.lcp = buildLcp(text, suffixArray, rank);
+    }
+
+    private SuffixArrayIndex(char[] text, int[] suffixArray, int[] lcp) {
+        this.text = text;
+        this.suffixArray = suffixArray;
+        this.rank = invert(suffixArray);
+        this.lcp = lcp;
+    }
+
+    /**
+     * Writes the text, suffix array and LCP array to a model file. The rank
+     * array is recomputed on load.
+     * @param out - The model being written.
+     * @throws IOException - If the model cannot be written.
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(text.length);
+        ModelFile.writeChars(out, text, text.length);
+        ModelFile.writeInts(out, suffixArray, text.length);
+        ModelFile.writeInts(out, lcp, text.length);
+    }
+
+    /**
+     * Reads an index written by write().
+     * @param in - Buffer positioned at the index.
+     * @return SuffixArrayIndex - The index.
+     */
+    static SuffixArrayIndex read(ByteBuffer in) {
+        int length = in.getInt();
+        char[] text = ModelFile.readChars(in, length);
+        int[] suffixArray = ModelFile.readInts(in, length);
+        return new SuffixArrayIndex(text, suffixArray,
+                ModelFile.readInts(in, length));
+    }
+
+    /**
+     * Returns the number of characters in the indexed text.
+     * @return int - The text length.
+     */
+    public int length() {
+        return text.length;
+    }
+
+    /**
+     * Returns a character of the indexed text.
+     * @param position - Index into the text.
+     * @return char - The character at position.
+     */
+    public char charAt(int position) {
+        return text[position];
+    }
+
+    /**
+     * Returns the start position of the suffix with a given sorted rank.
+     * @param index - Rank in [0, length()).
+     * @return int - Start position of that suffix.
+     */
+    public int suffixAt(int index) {
+        return suffixArray[index];
+    }
+
+    /**
+     * Finds the first sorted suffix that begins with the context
+     * text[position, position + level).
+     * @param position - Start of an occurrence of the context.
+     * @param level - The context length.
+     * @return int - Rank of the first suffix starting with the context.
+     */
+    public int lowerBound(int position, int level) {
+        int known = rank[position];
+        // Narrow ranges are common at high k, and the LCP array finds
+        // their edge without comparing any text.
+        for (int step = 0; step < LCP_SCAN_LIMIT; step++) {
+            if (known == 0 || lcp[known] < level) {
+                return known;
+            }
+            known--;
+        }
+
+        // Binary search over [0, known) for the first matching suffix.
+        int low = 0;
+        int high = known;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sharesPrefix(suffixArray[middle], position, level)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the end of the sorted suffix range beginning with the context
+     * text[position, position + level).
+     * @param position - Start of an occurrence of the context.
+     * @param level - The context length.
+     * @return int - One past the rank of the last matching suffix.
+     */
+    public int upperBound(int position, int level) {
+        int known = rank[position];
+        for (int step = 0; step < LCP_SCAN_LIMIT; step++) {
+            if (known + 1 == text.length || lcp[known + 1] < level) {
+                return known + 1;
+            }
+            known++;
+        }
+
+        // Binary search over (known, length) for the first non-match.
+        int low = known + 1;
+        int high = text.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sharesPrefix(suffixArray[middle], position, level)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the rank range of suffixes that begin with a context and are
+     * followed by at least one more character. Sampling a rank uniformly
+     * from this range samples the context's successors by frequency.
+     * @param position - Start of an occurrence of the context.
+     * @param level - The context length.
+     * @return long - (first rank << 32) | end rank; empty if they are equal.
+     */
+    public long successorRange(int position, int level) {
+        if (level == 0) {
+            // Every suffix is non-empty, so each one has a successor.
+            return text.length;
+        }
+        int low = lowerBound(position, level);
+        int high = upperBound(position, level);
+        // The only match with no successor is the suffix of exactly
+        // length k, which sorts first because it prefixes the others.
+        if (suffixArray[low] + level == text.length) {
+            low++;
+        }
+        return ((long) low << 32) | high;
+    }
+
+    /**
+     * Returns the number of times the context text[position, position +
+     * level) is followed by a character.
+     * @param position - Start of an occurrence of the context.
+     * @param level - The context length.
+     * @return int - The successor count.
+     */
+    public int successorCount(int position, int level) {
+        long range = successorRange(position, level);
+        return (int) range - (int) (range >>> 32);
+    }
+
+    private boolean sharesPrefix(int suffix, int position, int level) {
+        if (suffix + level > text.length) {
+            return false;
+        }
+        for (int i = 0; i < level; i++) {
+            if (text[suffix + i] != text[position + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sorts suffixes by prefix doubling with counting sorts. Doubling stops
+     * once the compared prefixes reach a limit, so suffixes that share that
+     * many leading characters end up adjacent but in no particular order.
+     * @param text - The text to index.
+     * @param n - The number of leading characters of text to sort.
+     * @param limit - Length of the prefix to sort by; n sorts completely.
+     * @return int[] - Suffix start positions in lexicographic order of
+     * their first limit characters.
+     */
+    static int[] sortSuffixes(char[] text, int n, int limit) {
+        int[] suffixArray = new int[n];
+        int[] rank = new int[n];
+        int[] scratch = new int[n];
+        if (n == 0) {
+            return suffixArray;
+        }
+
+        // Initial ranks are the characters themselves.
+        int[] counts = new int[Math.max(Character.MAX_VALUE + 1, n) + 1];
+        for (int i = 0; i < n; i++) {
+            rank[i] = text[i];
+            counts[rank[i] + 1]++;
+        }
+        for (int c = 1; c < counts.length; c++) {
+            counts[c] += counts[c - 1];
+        }
+        for (int i = 0; i < n; i++) {
+            suffixArray[counts[rank[i]]++] = i;
+        }
+        int rankCount = compactRanks(suffixArray, rank, scratch, 0);
+
+        // Double the compared prefix length until every rank is unique.
+        for (int width = 1; rankCount < n && width < limit; width <<= 1) {
+            // Order by second key: suffixes with no second half come first.
+            int p = 0;
+            for (int i = n - width; i < n; i++) {
+                scratch[p++] = i;
+            }
+            for (int i = 0; i < n; i++) {
+                if (suffixArray[i] >= width) {
+                    scratch[p++] = suffixArray[i] - width;
+                }
+            }
+            // Stable counting sort by first key.
+            Arrays.fill(counts, 0, rankCount + 1, 0);
+            for (int i = 0; i < n; i++) {
+                counts[rank[i] + 1]++;
+            }
+            for (int r = 1; r <= rankCount; r++) {
+                counts[r] += counts[r - 1];
+            }
+            for (int i = 0; i < n; i++) {
+                int suffix = scratch[i];
+                suffixArray[counts[rank[suffix]]++] = suffix;
+            }
+            rankCount = compactRanks(suffixArray, rank, scratch, width);
+        }
+        return suffixArray;
+    }
+
+    /**
+     * Assigns dense ranks to suffixes sorted by (rank[i], rank[i + width]).
+     * @return int - The number of distinct ranks.
+     */
+    private static int compactRanks(int[] suffixArray, int[] rank,
+                                    int[] scratch, int width) {
+        int n = suffixArray.length;
+        scratch[suffixArray[0]] = 0;
+        for (int i = 1; i < n; i++) {
+            int previous = suffixArray[i - 1];
+            int current = suffixArray[i];
+            boolean same = rank[previous] == rank[current];
+            if (same && width > 0) {
+                int previousSecond = previous + width < n
+                        ? rank[previous + width] : -1;
+                int currentSecond = current + width < n
+                        ? rank[current + width] : -1;
+                same = previousSecond == currentSecond;
+            }
+            scratch[current] = scratch[previous] + (same ? 0 : 1);
+        }
+        System.arraycopy(scratch, 0, rank, 0, n);
+        return rank[suffixArray[n - 1]] + 1;
+    }
+
+    private static int[] invert(int[] suffixArray) {
+        int[] rank = new int[suffixArray.length];
+        for (int i = 0; i < suffixArray.length; i++) {
+            rank[suffixArray[i]] = i;
+        }
+        return rank;
+    }
+
+    /**
+     * Computes the LCP array with Kasai's algorithm.
+     * @return int[] - lcp[i] = common prefix of suffixes i - 1 and i.
+     */
+    private static int[] buildLcp(char[] text, int[] suffixArray, int[] rank) {
+        int n = text.length;
+        int[] lcp = new int[n];
+        int common = 0;
+        for (int i = 0; i < n; i++) {
+            if (rank[i] == 0) {
+                common = 0;
+                continue;
+            }
+            int previous = suffixArray[rank[i] - 1];
+            while (i + common < n && previous + common < n
+                    && text[i + common] == text[previous + common]) {
+                common++;
+            }
+            lcp[rank[i]] = common;
+            if (common > 0) {
+                common--;
+            }
+        }
+        return lcp;
+    }
+}
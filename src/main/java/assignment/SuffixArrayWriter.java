@@ -0,0 +1,254 @@
+package main.java.assignment;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.SplittableRandom;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * RandomWriter engine backed by a SuffixArrayIndex. The index is built once
+ * per text and shared by writers of every level, so changing k does not
+ * retrain anything.
+ */
+public class SuffixArrayWriter implements TextProcessor {
+    // The level of the analysis being done.
+    private final int level;
+    // Index over the text used to generate output. The index is immutable,
+    // so it is the model that threads share; readText replaces it whole.
+    private volatile SuffixArrayIndex index;
+
+    /**
+     * Randomly writes based on text from the specified input file.
+     * @param args - Command line arguments
+     * args[0] is the input filename, a text or a model from saveModel
+     * args[1] is the output filename
+     * args[2] is the level of analysis (k)
+     * args[3] is the length (number of characters) of output
+     */
+    public static void main(String[] args) throws IOException {
+        try {
+            MappedCorpus corpus = RandomWriter.validateInput(args);
+            // Get input arguments
+            String result = args[1];
+            int k = Integer.parseInt(args[2]);
+            long length = Long.parseLong(args[3]);
+            // Write random text based on input
+            TextProcessor processor = createProcessor(k);
+            if (ModelFile.isModelFile(args[0])) {
+                processor.loadModel(args[0]);
+            } else {
+                processor.readText(corpus);
+            }
+            try (FileChannel output = ChunkedTextWriter.openOutput(result)) {
+                processor.writeText(output, length);
+            }
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Static factory method for SuffixArrayWriter.
+     * @param level - The level of text analysis to perform.
+     * @return The newly instantiated TextProcessor.
+     */
+    public static TextProcessor createProcessor(int level) {
+        return new SuffixArrayWriter(level, new SuffixArrayIndex(new char[0]));
+    }
+
+    /**
+     * Private constructor for the SuffixArrayWriter class.
+     * @param level - The level of analysis used to generate random output.
+     * @param index - Index over the text used to generate output.
+     */
+    private SuffixArrayWriter(int level, SuffixArrayIndex index) {
+        // Get around an edge case
+        this.level = Math.max(level, 0);
+        this.index = index;
+    }
+
+    /**
+     * Returns a writer for another level that shares this writer's index.
+     * @param level - The level of analysis for the new writer.
+     * @return SuffixArrayWriter - A writer that needs no training.
+     */
+    public SuffixArrayWriter withLevel(int level) {
+        return new SuffixArrayWriter(level, index);
+    }
+
+    /**
+     * Reads the text from a file and indexes it for analysis at any level.
+     * @param inputFilename - Name of the source text file.
+     */
+    public void readText(String inputFilename) {
+        try {
+            readText(MappedCorpus.load(inputFilename));
+        } catch (IOException e) {
+            System.err.println("File " + inputFilename + " was not found or ");
+            System.err.println("could not be read.");
+        }
+    }
+
+    /**
+     * Indexes already-read text for analysis at any level.
+     * @param corpus - The source text.
+     */
+    public void readText(MappedCorpus corpus) {
+        this.index = new SuffixArrayIndex(corpus.chars());
+    }
+
+    /**
+     * Saves the suffix array index as a suffix model.
+     * @param modelFilename - Name of the model file to write.
+     * @throws IOException - If the model file cannot be written.
+     */
+    public void saveModel(String modelFilename) throws IOException {
+        try (DataOutputStream out = ModelFile.create(modelFilename,
+                ModelFile.SUFFIX_MODEL, level)) {
+            index.write(out);
+        }
+    }
+
+    /**
+     * Loads a suffix model. The index serves every level, so the model may
+     * have been saved by a writer of another level.
+     * @param modelFilename - Name of the model file to read.
+     * @throws IOException - If the file cannot be read or does not hold a
+     * suffix model.
+     */
+    public void loadModel(String modelFilename) throws IOException {
+        this.index = ModelFile.open(modelFilename, ModelFile.SUFFIX_MODEL)
+                .readIndex();
+    }
+
+    /**
+     * Writes text generated using input text to the output file.
+     * @param outputFilename - Name of the file to write to.
+     * @param length - Number of characters to write (non-negative).
+     */
+    public void writeText(String outputFilename, int length) {
+        try (FileChannel output = ChunkedTextWriter.openOutput(
+                outputFilename)) {
+            writeText(output, length);
+        } catch (IOException e) {
+            System.err.println("Could not write to output file " +
+                    outputFilename);
+        }
+    }
+
+    /**
+     * Streams text generated using input text to a channel.
+     * @param channel - Destination of the text. Not closed.
+     * @param length - Number of characters to write (non-negative).
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void writeText(WritableByteChannel channel, long length)
+            throws IOException {
+        writeText(channel, length, RandomStreams.forCurrentThread());
+    }
+
+    /**
+     * Streams text generated from one random stream to a channel.
+     * @param channel - Destination of the text. Not closed.
+     * @param length - Number of characters to write (non-negative).
+     * @param random - Source of randomness, used by this call only.
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void writeText(WritableByteChannel channel, long length,
+                          SplittableRandom random) throws IOException {
+        ChunkedTextWriter output = new ChunkedTextWriter(channel);
+        generateText(index, length, output, random);
+        output.finish();
+    }
+
+    /**
+     * Probabilistically generates text of (length) characters using input text.
+     * @param length - Number of characters to generate
+     * @return String - the generated text.
+     */
+    public String generateText(int length) {
+        return generateText(length, RandomStreams.forCurrentThread());
+    }
+
+    /**
+     * Probabilistically generates text of (length) characters using input text.
+     * The same random stream always produces the same text.
+     * @param length - Number of characters to generate
+     * @param random - Source of randomness, used by this call only.
+     * @return String - the generated text.
+     */
+    public String generateText(int length, SplittableRandom random) {
+        StringBuilder generatedTextBuffer = new StringBuilder(
+                Math.max(length, 0));
+        try {
+            generateText(index, length, generatedTextBuffer, random);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws.
+        }
+        return generatedTextBuffer.toString();
+    }
+
+    /**
+     * Probabilistically generates (length) characters into an output.
+     * The current seed is tracked as a position in the text where it occurs.
+     * @param index - Index over the text, read once so a concurrent readText
+     * cannot swap it out mid-generation.
+     * @param length - Number of characters to generate
+     * @param output - Where the generated characters are appended.
+     * @param random - Source of randomness, used by this call only.
+     * @throws IOException - If the output cannot be appended to.
+     */
+    private void generateText(SuffixArrayIndex index, long length,
+                              Appendable output, SplittableRandom random)
+            throws IOException {
+        // Edge case - input no longer than k has no seeds with successors.
+        if (index.length() <= level) {
+            return;
+        }
+
+        int seed = pickRandomSeed(index, random);
+
+        // Generate (length) random characters.
+        for (long i = 0; i < length; i++) {
+            long range = index.successorRange(seed, level);
+            int low = (int) (range >>> 32);
+            int high = (int) range;
+            // Get random seed if current seed is never followed by anything.
+            if (low == high) {
+                seed = pickRandomSeed(index, random);
+                range = index.successorRange(seed, level);
+                low = (int) (range >>> 32);
+                high = (int) range;
+            }
+
+            // Pick a matching suffix uniformly; its next char is the output.
+            int randomRank = low + random.nextInt(high - low);
+            int occurrence = index.suffixAt(randomRank);
+            output.append(index.charAt(occurrence + level));
+
+            // The new seed starts one character later in the same occurrence.
+            seed = occurrence + 1;
+        }
+    }
+
+    /**
+     * Chooses a random seed from the text for analysis.
+     * @param index - Index over the text.
+     * @param random - Source of randomness.
+     * @return int - Start position of the seed in the text.
+     */
+    private int pickRandomSeed(SuffixArrayIndex index,
+                               SplittableRandom random) {
+        int maxSeedStartIndex = index.length() - 1 - level;
+        return random.nextInt(maxSeedStartIndex + 1);
+    }
+
+    /**
+     * Accessor for the suffix array index for white-box testing.
+     * @return SuffixArrayIndex - The index built by the last readText.
+     */
+    public SuffixArrayIndex getIndex() {
+        return index;
+    }
+}
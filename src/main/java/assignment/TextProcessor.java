@@ -1,5 +1,7 @@
 package main.java.assignment;
 import java.io.*;
+import java.nio.channels.WritableByteChannel;
+import java.util.SplittableRandom;
 
 public interface TextProcessor {
 
@@ -13,6 +15,14 @@ public interface TextProcessor {
      */
     void readText(String inputFilename) throws IOException;
 
+    /**
+     * Uses text that has already been read for an analysis, so a file that
+     * was validated does not have to be read again.
+     *
+     * @param corpus            source text
+     */
+    void readText(MappedCorpus corpus);
+
     /**
      * Writes text generated from an analysis to a file.
      *
@@ -23,4 +33,55 @@ public interface TextProcessor {
      *                          writing of <code>outputFilename</code>.
      */
     void writeText(String outputFilename, int length) throws IOException;
-}
\ No newline at end of file
+
+    /**
+     * Streams text generated from an analysis to a channel in fixed-size
+     * chunks, so memory use does not grow with <code>length</code>.
+     *
+     * @param channel           destination of the UTF-8 encoded text; it is
+     *                          not closed
+     * @param length            length of text to generate (non-negative)
+     *
+     * @throws IOException      if an I/O related exception occurs during the
+     *                          writing of <code>channel</code>.
+     */
+    void writeText(WritableByteChannel channel, long length) throws IOException;
+
+    /**
+     * Streams text generated from an analysis to a channel, drawing every
+     * random choice from <code>random</code>, so the same stream always
+     * produces the same text. Several threads may call this at once.
+     *
+     * @param channel           destination of the UTF-8 encoded text; it is
+     *                          not closed
+     * @param length            length of text to generate (non-negative)
+     * @param random            source of randomness, used by this call only
+     *
+     * @throws IOException      if an I/O related exception occurs during the
+     *                          writing of <code>channel</code>.
+     */
+    void writeText(WritableByteChannel channel, long length,
+                   SplittableRandom random) throws IOException;
+
+    /**
+     * Saves the analysis in the binary format of ModelFile, so it can be
+     * loaded later without reading or analyzing the source text again.
+     *
+     * @param modelFilename     destination model file
+     *
+     * @throws IOException      if an I/O related exception occurs during the
+     *                          writing of <code>modelFilename</code>.
+     */
+    void saveModel(String modelFilename) throws IOException;
+
+    /**
+     * Replaces the analysis with one saved by <code>saveModel</code>.
+     *
+     * @param modelFilename     source model file
+     *
+     * @throws IOException      if <code>modelFilename</code> cannot be read,
+     *                          is not a model of the right kind and version,
+     *                          or was trained at another level.
+     */
+    void loadModel(String modelFilename) throws IOException;
+}
@@ -0,0 +1,199 @@
+package main.java.assignment;
+import java.io.IOException;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Splits text into the tokens an NGramModel analyzes. There is one
+ * tokenizer per kind of token, each producing the primitive Tokens that
+ * suit it, and each knowing how its tokens are kept in a model file.
+ */
+public abstract class Tokenizer {
+    /**
+     * One token per char, as RandomWriter has always analyzed text.
+     */
+    public static final Tokenizer CHARS = new Tokenizer("char",
+            ModelFile.CHAR_MODEL) {
+        public Tokens tokenize(String text) {
+            return Tokens.of(text.toCharArray());
+        }
+
+        public Tokens tokenize(MappedCorpus corpus) {
+            return Tokens.of(corpus.chars());
+        }
+
+        Tokens read(ModelFile modelFile) throws IOException {
+            return Tokens.of(modelFile.readText());
+        }
+    };
+
+    /**
+     * One token per Unicode code point, so a supplementary character is
+     * never split between a seed and its successor.
+     */
+    public static final Tokenizer CODE_POINTS = new Tokenizer("codepoint",
+            ModelFile.BYTE_MODEL) {
+        public Tokens tokenize(String text) {
+            return Tokens.ofCodePoints(text.codePoints().toArray());
+        }
+
+        Tokens read(ModelFile modelFile) throws IOException {
+            return readBytesOrCodePoints(modelFile);
+        }
+    };
+
+    /**
+     * One byte per character when every character fits in one (ASCII or
+     * Latin-1), half the size of chars, and code points otherwise.
+     */
+    public static final Tokenizer BYTES = new Tokenizer("byte",
+            ModelFile.BYTE_MODEL) {
+        public Tokens tokenize(String text) {
+            byte[] bytes = new byte[text.length()];
+            for (int i = 0; i < bytes.length; i++) {
+                char c = text.charAt(i);
+                if (c > 0xff) {
+                    return CODE_POINTS.tokenize(text);
+                }
+                bytes[i] = (byte) c;
+            }
+            return Tokens.of(bytes);
+        }
+
+        Tokens read(ModelFile modelFile) throws IOException {
+            return readBytesOrCodePoints(modelFile);
+        }
+    };
+
+    /**
+     * One token per whitespace-separated word, interned as an int id.
+     */
+    public static final Tokenizer WORDS = words(WordScanner.WHITESPACE);
+
+    private final String name; // The kind of token, for messages.
+    private final int modelMode; // The model file mode of the tokens.
+
+    private Tokenizer(String name, int modelMode) {
+        this.name = name;
+        this.modelMode = modelMode;
+    }
+
+    /**
+     * Splits a text into tokens.
+     * @param text - The text to split.
+     * @return Tokens - The tokens of the text.
+     */
+    public abstract Tokens tokenize(String text);
+
+    /**
+     * Splits already-read text into tokens.
+     * @param corpus - The text to split.
+     * @return Tokens - The tokens of the text.
+     */
+    public Tokens tokenize(MappedCorpus corpus) {
+        return tokenize(corpus.text());
+    }
+
+    /**
+     * Splits a text that follows already-split tokens, so that the two
+     * can be joined as one sequence.
+     * @param before - The tokens the text follows.
+     * @param text - The text to split.
+     * @return Tokens - The tokens of the text.
+     */
+    public Tokens tokenizeAfter(Tokens before, String text) {
+        return tokenize(text);
+    }
+
+    /**
+     * Returns the mode of model files that hold these tokens.
+     * @return int - A ModelFile mode.
+     */
+    int modelMode() {
+        return modelMode;
+    }
+
+    /**
+     * Reads the tokens section of a model file of this tokenizer's mode.
+     * @param modelFile - The open model file.
+     * @return Tokens - The tokens the model was trained on.
+     * @throws IOException - If the file is truncated or malformed.
+     */
+    abstract Tokens read(ModelFile modelFile) throws IOException;
+
+    /**
+     * Returns a tokenizer of words, interned as int ids.
+     * @param scanner - Finds the words of a text.
+     * @return Tokenizer - The tokenizer.
+     */
+    public static Tokenizer words(WordScanner scanner) {
+        return new WordTokenizer(scanner);
+    }
+
+    private static Tokens readBytesOrCodePoints(ModelFile modelFile)
+            throws IOException {
+        byte[] bytes = modelFile.readBytes();
+        return bytes != null ? Tokens.of(bytes)
+                : Tokens.ofCodePoints(modelFile.readCodePoints());
+    }
+
+    /**
+     * Returns the kind of token.
+     * @return String - char, codepoint, byte or word.
+     */
+    public String toString() {
+        return name;
+    }
+
+    private static final class WordTokenizer extends Tokenizer {
+        private final WordScanner scanner;
+
+        private WordTokenizer(WordScanner scanner) {
+            super("word", ModelFile.WORD_MODEL);
+            this.scanner = scanner;
+        }
+
+        public Tokens tokenize(String text) {
+            return tokenize(text.toCharArray());
+        }
+
+        public Tokens tokenize(MappedCorpus corpus) {
+            return tokenize(corpus.chars());
+        }
+
+        private Tokens tokenize(char[] text) {
+            Vocabulary vocabulary = new Vocabulary();
+            return Tokens.ofWords(scanner.intern(text, vocabulary),
+                    vocabulary);
+        }
+
+        /**
+         * Interns new words into a layer over the earlier vocabulary, so
+         * the ids of earlier words are kept, earlier Tokens stay unchanged
+         * and the earlier words are not copied.
+         */
+        public Tokens tokenizeAfter(Tokens before, String text) {
+            Vocabulary shared = before.vocabulary();
+            Vocabulary[] vocabulary = {shared};
+            char[] chars = text.toCharArray();
+            int[] ids = new int[scanner.count(chars)];
+            int[] count = new int[1];
+            scanner.scan(chars, 0, chars.length, (word, from, length) -> {
+                int id = vocabulary[0].idOf(word, from, length);
+                if (id < 0) {
+                    if (vocabulary[0] == shared) {
+                        vocabulary[0] = shared.extend();
+                    }
+                    id = vocabulary[0].intern(word, from, length);
+                }
+                ids[count[0]++] = id;
+            });
+            return Tokens.ofWords(ids, vocabulary[0]);
+        }
+
+        Tokens read(ModelFile modelFile) throws IOException {
+            Vocabulary vocabulary = modelFile.readVocabulary();
+            return Tokens.ofWords(modelFile.readIds(), vocabulary);
+        }
+    }
+}
@@ -0,0 +1,529 @@
+package main.java.assignment;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * A tokenized text, held in the primitive array that suits its kind of
+ * token: chars, code points, bytes, or word ids with their vocabulary.
+ * Every engine analyzes and generates any of them through the same methods
+ * and only asks the tokens to turn themselves back into text, so each kind
+ * is specialized once here instead of once per writer. Tokens are
+ * non-negative ints: characters, bytes or code points for letter analysis,
+ * vocabulary ids for word analysis.
+ *
+ * Once several kinds have been used in one JVM, a call of tokenAt() from
+ * shared code is megamorphic and is not inlined, which nearly doubled the
+ * time of a ContextTable build that made one per token. So the loops that
+ * read every token, and the comparisons a table makes on each lookup, are
+ * written out once per kind here over the kind's own array, and shared code
+ * makes one call per block of tokens or per comparison. Those calls are
+ * still megamorphic, but their cost is spread over the block. tokenAt() is
+ * left for code that reads a few tokens at a time.
+ * Tokens are never modified once made.
+ */
+public abstract class Tokens implements GenerationStreams.TokenText {
+    Tokens() {
+    }
+
+    /**
+     * Returns the number of tokens.
+     * @return int - The token count.
+     */
+    public abstract int size();
+
+    /**
+     * Returns one token.
+     * @param index - Position in [0, size()).
+     * @return int - The token at index.
+     */
+    public abstract int tokenAt(int index);
+
+    /**
+     * Wraps chars as tokens without copying them.
+     * @param chars - The text. Must not be modified afterwards.
+     * @return Tokens - One token per char.
+     */
+    public static Tokens of(char[] chars) {
+        return new CharTokens(chars, chars.length);
+    }
+
+    /**
+     * Wraps the start of a char array as tokens without copying it.
+     * @param chars - Array holding the text. Must not be modified
+     * afterwards.
+     * @param length - Number of chars, from the start, that are the text.
+     * @return Tokens - One token per char of the text.
+     */
+    static Tokens of(char[] chars, int length) {
+        return new CharTokens(chars, length);
+    }
+
+    /**
+     * Wraps single-byte text as tokens without copying it.
+     * @param bytes - The text, one byte per character. Must not be
+     * modified afterwards.
+     * @return Tokens - One token per byte, equal to the character's code.
+     */
+    static Tokens of(byte[] bytes) {
+        return new ByteTokens(bytes);
+    }
+
+    /**
+     * Wraps code points as tokens without copying them.
+     * @param codePoints - The text. Must not be modified afterwards.
+     * @return Tokens - One token per code point.
+     */
+    static Tokens ofCodePoints(int[] codePoints) {
+        return new CodePointTokens(codePoints);
+    }
+
+    /**
+     * Wraps word ids as tokens without copying them.
+     * @param ids - The words, as ids of the vocabulary.
+     * @param vocabulary - The vocabulary of the ids. Must not be modified
+     * afterwards.
+     * @return Tokens - One token per word.
+     */
+    public static Tokens ofWords(int[] ids, Vocabulary vocabulary) {
+        return new WordTokens(ids, vocabulary);
+    }
+
+    /**
+     * Appends the text of one token, as generated output holds it.
+     * @param token - A token of this kind.
+     * @param output - Where the text is appended.
+     * @throws IOException - If the output cannot be appended to.
+     */
+    public abstract void appendTo(int token, Appendable output)
+            throws IOException;
+
+    /**
+     * Appends the text of one token to a StringBuilder.
+     * @param token - A token of this kind.
+     * @param output - Where the text is appended.
+     */
+    public void append(int token, StringBuilder output) {
+        try {
+            appendTo(token, output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws.
+        }
+    }
+
+    /**
+     * Returns the text of a run of tokens, as a seed is written.
+     * @param from - Index of the first token.
+     * @param to - Index after the last token.
+     * @return String - The text of tokens [from, to).
+     */
+    public String text(int from, int to) {
+        StringBuilder text = new StringBuilder(to - from);
+        for (int i = from; i < to; i++) {
+            append(tokenAt(i), text);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Returns the text of a single token, without any separator.
+     * @param token - A token of this kind.
+     * @return String - The token's text.
+     */
+    public String tokenText(int token) {
+        StringBuilder text = new StringBuilder(2);
+        append(token, text);
+        return text.toString();
+    }
+
+    /**
+     * Returns whether the tokens are held one byte per character.
+     * @return boolean - True only for single-byte text.
+     */
+    boolean isSingleByte() {
+        return false;
+    }
+
+    /**
+     * Returns the vocabulary that word tokens are ids of.
+     * @return Vocabulary - The vocabulary, or null if the tokens are not
+     * words.
+     */
+    Vocabulary vocabulary() {
+        return null;
+    }
+
+    /**
+     * Copies a run of the tokens into an int array. The tables' build loops
+     * read their tokens through this in blocks, so the loop over each kind
+     * of array is compiled on its own and no call is made per token.
+     * @param from - Index of the first token.
+     * @param to - Index after the last token.
+     * @param out - Receives token from + i at index i.
+     */
+    abstract void copyTo(int from, int to, int[] out);
+
+    /**
+     * Copies the tokens at listed positions, each moved by a shift, into
+     * an int array.
+     * @param positions - Listed positions.
+     * @param from - Index of the first listed position.
+     * @param to - Index after the last listed position.
+     * @param shift - Added to each position.
+     * @param out - Receives the token at positions[from + i] + shift at
+     * index i.
+     */
+    abstract void gatherTo(int[] positions, int from, int to, int shift,
+                           int[] out);
+
+    /**
+     * Returns whether two runs of the tokens are equal.
+     * @param a - Index of the first run.
+     * @param b - Index of the second run.
+     * @param length - Number of tokens in each run.
+     * @return boolean - True if tokens [a, a + length) equal [b, b + length).
+     */
+    abstract boolean regionMatches(int a, int b, int length);
+
+    /**
+     * Returns whether a run of the tokens equals the start of an array.
+     * @param position - Index of the run.
+     * @param context - Array whose first (length) tokens are compared.
+     * @param length - Number of tokens compared.
+     * @return boolean - True if the run equals context[0, length).
+     */
+    abstract boolean matches(int position, int[] context, int length);
+
+    /**
+     * Copies a run of the tokens.
+     * @param from - Index of the first token.
+     * @param to - Index after the last token.
+     * @return Tokens - Tokens [from, to), of the same kind.
+     */
+    abstract Tokens slice(int from, int to);
+
+    /**
+     * Joins tokens that follow these, from the same tokenizer.
+     * @param next - The tokens that follow.
+     * @return Tokens - These tokens and then next.
+     */
+    abstract Tokens concat(Tokens next);
+
+    /**
+     * Writes the tokens as the text section of a model file.
+     * @param out - The model file being written.
+     * @throws IOException - If the file cannot be written.
+     */
+    abstract void write(DataOutputStream out) throws IOException;
+
+    private static void gather(int[] values, int[] positions, int from,
+                               int to, int shift, int[] out) {
+        for (int j = from; j < to; j++) {
+            out[j - from] = values[positions[j] + shift];
+        }
+    }
+
+    private static final class CharTokens extends Tokens {
+        private final char[] chars;
+        private final int length; // Chars of the array that are tokens.
+
+        private CharTokens(char[] chars, int length) {
+            this.chars = chars;
+            this.length = length;
+        }
+
+        public int size() {
+            return length;
+        }
+
+        public int tokenAt(int index) {
+            return chars[index];
+        }
+
+        public void appendTo(int token, Appendable output)
+                throws IOException {
+            output.append((char) token);
+        }
+
+        public String text(int from, int to) {
+            return new String(chars, from, to - from);
+        }
+
+        void copyTo(int from, int to, int[] out) {
+            for (int i = from; i < to; i++) {
+                out[i - from] = chars[i];
+            }
+        }
+
+        void gatherTo(int[] positions, int from, int to, int shift,
+                      int[] out) {
+            for (int j = from; j < to; j++) {
+                out[j - from] = chars[positions[j] + shift];
+            }
+        }
+
+        boolean regionMatches(int a, int b, int length) {
+            return Arrays.equals(chars, a, a + length, chars, b, b + length);
+        }
+
+        boolean matches(int position, int[] context, int length) {
+            for (int i = 0; i < length; i++) {
+                if (chars[position + i] != context[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        Tokens slice(int from, int to) {
+            return new CharTokens(Arrays.copyOfRange(chars, from, to),
+                    to - from);
+        }
+
+        Tokens concat(Tokens next) {
+            CharTokens nextChars = (CharTokens) next;
+            char[] joined = Arrays.copyOf(chars, length + nextChars.length);
+            System.arraycopy(nextChars.chars, 0, joined, length,
+                    nextChars.length);
+            return new CharTokens(joined, joined.length);
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            ModelFile.writeText(out, chars, length);
+        }
+    }
+
+    private static final class CodePointTokens extends Tokens {
+        private final int[] codePoints;
+
+        private CodePointTokens(int[] codePoints) {
+            this.codePoints = codePoints;
+        }
+
+        public int size() {
+            return codePoints.length;
+        }
+
+        public int tokenAt(int index) {
+            return codePoints[index];
+        }
+
+        public void appendTo(int token, Appendable output)
+                throws IOException {
+            // A supplementary character is appended as its surrogate pair.
+            if (Character.isBmpCodePoint(token)) {
+                output.append((char) token);
+            } else {
+                output.append(Character.highSurrogate(token))
+                        .append(Character.lowSurrogate(token));
+            }
+        }
+
+        public String text(int from, int to) {
+            return new String(codePoints, from, to - from);
+        }
+
+        void copyTo(int from, int to, int[] out) {
+            System.arraycopy(codePoints, from, out, 0, to - from);
+        }
+
+        void gatherTo(int[] positions, int from, int to, int shift,
+                      int[] out) {
+            gather(codePoints, positions, from, to, shift, out);
+        }
+
+        boolean regionMatches(int a, int b, int length) {
+            return Arrays.equals(codePoints, a, a + length, codePoints, b,
+                    b + length);
+        }
+
+        boolean matches(int position, int[] context, int length) {
+            return Arrays.equals(codePoints, position, position + length,
+                    context, 0, length);
+        }
+
+        Tokens slice(int from, int to) {
+            return new CodePointTokens(Arrays.copyOfRange(codePoints, from,
+                    to));
+        }
+
+        Tokens concat(Tokens next) {
+            // Bytes are the code points of single-byte text, so they join.
+            int[] joined = Arrays.copyOf(codePoints,
+                    codePoints.length + next.size());
+            for (int i = 0; i < next.size(); i++) {
+                joined[codePoints.length + i] = next.tokenAt(i);
+            }
+            return new CodePointTokens(joined);
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            ModelFile.writeCodePoints(out, codePoints);
+        }
+    }
+
+    private static final class ByteTokens extends Tokens {
+        private final byte[] bytes;
+
+        private ByteTokens(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        public int size() {
+            return bytes.length;
+        }
+
+        public int tokenAt(int index) {
+            return bytes[index] & 0xff;
+        }
+
+        public void appendTo(int token, Appendable output)
+                throws IOException {
+            output.append((char) token);
+        }
+
+        boolean isSingleByte() {
+            return true;
+        }
+
+        void copyTo(int from, int to, int[] out) {
+            for (int i = from; i < to; i++) {
+                out[i - from] = bytes[i] & 0xff;
+            }
+        }
+
+        void gatherTo(int[] positions, int from, int to, int shift,
+                      int[] out) {
+            for (int j = from; j < to; j++) {
+                out[j - from] = bytes[positions[j] + shift] & 0xff;
+            }
+        }
+
+        boolean regionMatches(int a, int b, int length) {
+            return Arrays.equals(bytes, a, a + length, bytes, b, b + length);
+        }
+
+        boolean matches(int position, int[] context, int length) {
+            for (int i = 0; i < length; i++) {
+                if ((bytes[position + i] & 0xff) != context[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        Tokens slice(int from, int to) {
+            return new ByteTokens(Arrays.copyOfRange(bytes, from, to));
+        }
+
+        Tokens concat(Tokens next) {
+            if (!next.isSingleByte()) {
+                // Widen to code points, which keep every token's value.
+                int[] codePoints = new int[bytes.length];
+                for (int i = 0; i < bytes.length; i++) {
+                    codePoints[i] = bytes[i] & 0xff;
+                }
+                return new CodePointTokens(codePoints).concat(next);
+            }
+            byte[] nextBytes = ((ByteTokens) next).bytes;
+            byte[] joined = Arrays.copyOf(bytes,
+                    bytes.length + nextBytes.length);
+            System.arraycopy(nextBytes, 0, joined, bytes.length,
+                    nextBytes.length);
+            return new ByteTokens(joined);
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            ModelFile.writeBytes(out, bytes);
+        }
+    }
+
+    private static final class WordTokens extends Tokens {
+        private final int[] ids;
+        private final Vocabulary vocabulary;
+
+        private WordTokens(int[] ids, Vocabulary vocabulary) {
+            this.ids = ids;
+            this.vocabulary = vocabulary;
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        public int tokenAt(int index) {
+            return ids[index];
+        }
+
+        /**
+         * Appends a word followed by a space.
+         */
+        public void appendTo(int token, Appendable output)
+                throws IOException {
+            output.append(vocabulary.word(token)).append(' ');
+        }
+
+        /**
+         * Returns the words joined by single spaces.
+         */
+        public String text(int from, int to) {
+            StringBuilder text = new StringBuilder();
+            for (int i = from; i < to; i++) {
+                if (i > from) {
+                    text.append(' ');
+                }
+                text.append(vocabulary.word(ids[i]));
+            }
+            return text.toString();
+        }
+
+        public String tokenText(int token) {
+            return vocabulary.word(token);
+        }
+
+        Vocabulary vocabulary() {
+            return vocabulary;
+        }
+
+        void copyTo(int from, int to, int[] out) {
+            System.arraycopy(ids, from, out, 0, to - from);
+        }
+
+        void gatherTo(int[] positions, int from, int to, int shift,
+                      int[] out) {
+            gather(ids, positions, from, to, shift, out);
+        }
+
+        boolean regionMatches(int a, int b, int length) {
+            return Arrays.equals(ids, a, a + length, ids, b, b + length);
+        }
+
+        boolean matches(int position, int[] context, int length) {
+            return Arrays.equals(ids, position, position + length, context,
+                    0, length);
+        }
+
+        Tokens slice(int from, int to) {
+            return new WordTokens(Arrays.copyOfRange(ids, from, to),
+                    vocabulary);
+        }
+
+        Tokens concat(Tokens next) {
+            // Later tokens were interned into a layer over this vocabulary,
+            // so theirs holds every word of both.
+            WordTokens nextWords = (WordTokens) next;
+            int[] joined = Arrays.copyOf(ids,
+                    ids.length + nextWords.ids.length);
+            System.arraycopy(nextWords.ids, 0, joined, ids.length,
+                    nextWords.ids.length);
+            return new WordTokens(joined, nextWords.vocabulary);
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            ModelFile.writeWords(out, vocabulary, ids);
+        }
+    }
+}
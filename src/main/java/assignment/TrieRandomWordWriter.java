@@ -0,0 +1,298 @@
+package main.java.assignment;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.SplittableRandom;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * RandomWordWriter engine that keeps its contexts in a DoubleArrayTrie over
+ * interned word ids instead of a map from concatenated seed Strings. Seeds
+ * that begin with the same words share trie states, a lookup walks k array
+ * slots, and random seeds are read back out of the trie, so the model holds
+ * only the vocabulary and the trie, not the text.
+ */
+public class TrieRandomWordWriter implements TextProcessor {
+    private final int level; // The level of the analysis being done.
+    // The trained model, replaced as a whole and never modified.
+    private volatile Model model;
+
+    /**
+     * Randomly writes based on text from the specified input file.
+     * @param args - Command line arguments
+     * args[0] is the input filename, a text or a model from saveModel
+     * args[1] is the output filename
+     * args[2] is the level of analysis (k)
+     * args[3] is the length (number of words) of output
+     */
+    public static void main(String[] args) throws IOException {
+        MappedCorpus corpus = RandomWordWriter.validateInput(args);
+        if (corpus != null) {
+            // Get input arguments
+            String result = args[1];
+            int k = Integer.parseInt(args[2]);
+            long length = Long.parseLong(args[3]);
+
+            // Write random text based on input
+            TextProcessor processor = createProcessor(k);
+
+            if (ModelFile.isModelFile(args[0])) {
+                processor.loadModel(args[0]);
+            } else {
+                processor.readText(corpus);
+            }
+            try (FileChannel output = ChunkedTextWriter.openOutput(result)) {
+                processor.writeText(output, length);
+            }
+        } else {
+            System.err.println("Terminating program");
+        }
+    }
+
+    /**
+     * Static factory method for TrieRandomWordWriter.
+     * @param level - The level of text analysis to perform.
+     * @return The newly instantiated TextProcessor.
+     */
+    public static TextProcessor createProcessor(int level) {
+        return new TrieRandomWordWriter(level);
+    }
+
+    /**
+     * Private constructor for the TrieRandomWordWriter class.
+     * @param level - The level of analysis used to generate random output.
+     */
+    private TrieRandomWordWriter(int level) {
+        this.level = Math.max(level, 0);
+        Vocabulary vocabulary = new Vocabulary();
+        this.model = new Model(vocabulary, DoubleArrayTrie.build(
+                Tokens.ofWords(new int[0], vocabulary), this.level));
+    }
+
+    /**
+     * Immutable result of level-k analysis: the vocabulary and the context
+     * trie of the input text. A Model is never modified once built, so any
+     * number of threads can generate from one at the same time.
+     */
+    public static final class Model {
+        private final Vocabulary vocabulary; // Word <-> id mapping.
+        private final DoubleArrayTrie trie;
+        private final int level;
+
+        private Model(Vocabulary vocabulary, DoubleArrayTrie trie) {
+            this.vocabulary = vocabulary;
+            this.trie = trie;
+            this.level = trie.level();
+        }
+
+        /**
+         * Returns the vocabulary of the model. It must not be modified.
+         * @return Vocabulary - The word <-> id mapping.
+         */
+        public Vocabulary vocabulary() {
+            return vocabulary;
+        }
+
+        /**
+         * Returns the context trie of the model.
+         * @return DoubleArrayTrie - The trie.
+         */
+        public DoubleArrayTrie trie() {
+            return trie;
+        }
+
+        /**
+         * Probabilistically generates (length) words into an output. Word
+         * ids are only turned into text as they are appended.
+         * @param length - Number of words to generate
+         * @param output - Where the generated words are appended.
+         * @param random - Source of randomness, used by this call only.
+         * @throws IOException - If the output cannot be appended to.
+         */
+        public void generateText(long length, Appendable output,
+                                 SplittableRandom random) throws IOException {
+            // Edge case - no seeds (caused by input no longer than k words)
+            if (trie.contextCount() == 0) {
+                return;
+            }
+            int[] seed = new int[level];
+            int context = getRandomSeed(seed, random);
+            for (long i = 0; i < length; i++) {
+                // Get random seed if current seed doesn't occur in the text.
+                if (context < 0) {
+                    context = getRandomSeed(seed, random);
+                }
+
+                // Pick a word through the context's alias table.
+                int column = random.nextInt(trie.distinctCount(context));
+                int value = random.nextInt(trie.total(context));
+                int randomWord = trie.sample(context, column, value);
+                output.append(vocabulary.word(randomWord)).append(' ');
+
+                // Update seed in place
+                if (level != 0) {
+                    System.arraycopy(seed, 1, seed, 0, level - 1);
+                    seed[level - 1] = randomWord;
+                    context = trie.find(seed);
+                }
+            }
+        }
+
+        /**
+         * Copies a random seed into a buffer. Each context is picked as
+         * often as it occurs in the text.
+         * @param seed - Buffer of length level to fill.
+         * @param random - Source of randomness.
+         * @return int - The context id of the new seed.
+         */
+        private int getRandomSeed(int[] seed, SplittableRandom random) {
+            int context = trie.contextAt(
+                    random.nextInt(trie.occurrenceCount()));
+            trie.copyContext(context, seed);
+            return context;
+        }
+    }
+
+    /**
+     * Reads the text from a file for level-k analysis.
+     * @param inputFilename - Filename of the source text file.
+     * @throws IOException - If the file with the specified name doesn't exist.
+     */
+    public void readText(String inputFilename) throws IOException {
+        readText(MappedCorpus.load(inputFilename));
+    }
+
+    /**
+     * Uses already-read text for level-k analysis. The word ids are only
+     * kept while the trie is built. The new model replaces the old one only
+     * once it is complete.
+     * @param corpus - The source text.
+     */
+    public void readText(MappedCorpus corpus) {
+        // Intern each word straight from the text, then analyze the ids.
+        Vocabulary newVocabulary = new Vocabulary();
+        int[] ids = WordScanner.WHITESPACE.intern(corpus.chars(),
+                newVocabulary);
+        this.model = new Model(newVocabulary,
+                DoubleArrayTrie.build(Tokens.ofWords(ids, newVocabulary),
+                        level));
+    }
+
+    /**
+     * Saves the vocabulary and context trie as a word trie model.
+     * @param modelFilename - Name of the model file to write.
+     * @throws IOException - If the model file cannot be written.
+     */
+    public void saveModel(String modelFilename) throws IOException {
+        try (DataOutputStream out = ModelFile.create(modelFilename,
+                ModelFile.WORD_TRIE_MODEL, level)) {
+            Model current = model;
+            ModelFile.writeVocabulary(out, current.vocabulary);
+            current.trie.write(out);
+        }
+    }
+
+    /**
+     * Loads a word trie model saved at this writer's level.
+     * @param modelFilename - Name of the model file to read.
+     * @throws IOException - If the file cannot be read or does not hold a
+     * word trie model of this level.
+     */
+    public void loadModel(String modelFilename) throws IOException {
+        ModelFile modelFile = ModelFile.open(modelFilename,
+                ModelFile.WORD_TRIE_MODEL);
+        modelFile.requireLevel(level);
+        Vocabulary loadedVocabulary = modelFile.readVocabulary();
+        this.model = new Model(loadedVocabulary,
+                modelFile.readDoubleArrayTrie());
+    }
+
+    /**
+     * Writes text generated using input text to the output file.
+     * @param outputFilename - Name of the file to write to.
+     * @param length - Number of words to write (non-negative).
+     * @throws IOException - If the destination file cannot be written to.
+     */
+    public void writeText(String outputFilename, int length) throws IOException {
+        try (FileChannel output = ChunkedTextWriter.openOutput(
+                outputFilename)) {
+            writeText(output, length);
+        }
+    }
+
+    /**
+     * Streams text generated using input text to a channel.
+     * @param channel - Destination of the text. Not closed.
+     * @param length - Number of words to write (non-negative).
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void writeText(WritableByteChannel channel, long length)
+            throws IOException {
+        writeText(channel, length, RandomStreams.forCurrentThread());
+    }
+
+    /**
+     * Streams text generated from one random stream to a channel.
+     * @param channel - Destination of the text. Not closed.
+     * @param length - Number of words to write (non-negative).
+     * @param random - Source of randomness, used by this call only.
+     * @throws IOException - If the channel cannot be written to.
+     */
+    public void writeText(WritableByteChannel channel, long length,
+                          SplittableRandom random) throws IOException {
+        ChunkedTextWriter output = new ChunkedTextWriter(channel);
+        model.generateText(length, output, random);
+        output.finish();
+    }
+
+    /**
+     * Probabilistically generates text of (length) words using input text.
+     * @param length - Number of words to generate
+     * @return String - the generated text.
+     */
+    public String generateText(int length) {
+        return generateText(length, RandomStreams.forCurrentThread());
+    }
+
+    /**
+     * Probabilistically generates text of (length) words using input text.
+     * The same random stream always produces the same text.
+     * @param length - Number of words to generate
+     * @param random - Source of randomness, used by this call only.
+     * @return String - the generated text.
+     */
+    public String generateText(int length, SplittableRandom random) {
+        StringBuilder generatedTextBuffer = new StringBuilder();
+        try {
+            model.generateText(length, generatedTextBuffer, random);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws.
+        }
+        return generatedTextBuffer.toString();
+    }
+
+    /**
+     * Returns the current model, which can be shared with other threads.
+     * @return Model - The model built by the last readText or loadModel.
+     */
+    public Model getModel() {
+        return model;
+    }
+
+    /**
+     * Accessor for the vocabulary for white-box testing.
+     * @return Vocabulary - The vocabulary built by the last readText.
+     */
+    public Vocabulary getVocabulary() {
+        return model.vocabulary;
+    }
+
+    /**
+     * Accessor for the context trie for white-box testing.
+     * @return DoubleArrayTrie - The trie built by the last readText.
+     */
+    public DoubleArrayTrie getTrie() {
+        return model.trie;
+    }
+}
@@ -0,0 +1,266 @@
+package main.java.assignment;
+import java.util.Arrays;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Interns words as dense int ids so word analysis can run on primitive
+ * token sequences. Ids are assigned in order of first appearance. Words are
+ * found in an open-addressing table by String hash code, so a word can be
+ * looked up straight from a run of chars, and a String is only made the
+ * first time a word is seen.
+ *
+ * A vocabulary can be extended by a layer that interns only the words it
+ * lacks, so text appended to a model does not copy the words before it.
+ * Layers that grow as large as the one below them are merged, as model
+ * segments are, so a word is found within O(log n) layers.
+ */
+public final class Vocabulary {
+    // Keep the table at most half full so probe sequences stay short.
+    private static final int MIN_CAPACITY = 16;
+
+    // Layer holding ids [0, offset), never interned into again; or null.
+    private final Vocabulary parent;
+    private final int offset; // Id of this layer's first word.
+    private String[] words = new String[MIN_CAPACITY]; // By id - offset.
+    private int[] hashes = new int[MIN_CAPACITY]; // Hash code of each word.
+    // Open-addressing table: slot -> id - offset + 1, or 0 if empty.
+    private int[] slots = new int[2 * MIN_CAPACITY];
+    private int size; // Words in this layer.
+
+    /**
+     * Creates an empty vocabulary.
+     */
+    public Vocabulary() {
+        this(null);
+    }
+
+    private Vocabulary(Vocabulary parent) {
+        this.parent = parent;
+        this.offset = parent == null ? 0 : parent.size();
+    }
+
+    /**
+     * Returns the id of a word, assigning a new one if it is unseen.
+     * @param word - The word to intern.
+     * @return int - The word's id.
+     */
+    public int intern(String word) {
+        int id = parent == null ? -1 : parent.idOf(word);
+        if (id >= 0) {
+            return id;
+        }
+        int hash = word.hashCode();
+        int slot = slotOf(hash);
+        while (slots[slot] != 0) {
+            int local = slots[slot] - 1;
+            if (hashes[local] == hash && words[local].equals(word)) {
+                return offset + local;
+            }
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        return add(slot, word, hash);
+    }
+
+    /**
+     * Returns the id of the word in a run of chars, assigning a new one if
+     * it is unseen. Nothing is allocated for a word already interned.
+     * @param chars - Array holding the word.
+     * @param from - Index of the word's first char.
+     * @param length - Number of chars in the word.
+     * @return int - The word's id.
+     */
+    public int intern(char[] chars, int from, int length) {
+        int hash = hash(chars, from, length);
+        int id = parent == null ? -1 : parent.idOf(chars, from, length,
+                hash);
+        if (id >= 0) {
+            return id;
+        }
+        int slot = find(chars, from, length, hash);
+        if (slots[slot] != 0) {
+            return offset + slots[slot] - 1;
+        }
+        return add(slot, new String(chars, from, length), hash);
+    }
+
+    /**
+     * Returns the id of a word without interning it.
+     * @param word - The word to look up.
+     * @return int - The word's id, or -1 if it is not in the vocabulary.
+     */
+    public int idOf(String word) {
+        int hash = word.hashCode();
+        for (Vocabulary layer = this; layer != null; layer = layer.parent) {
+            int slot = layer.slotOf(hash);
+            while (layer.slots[slot] != 0) {
+                int local = layer.slots[slot] - 1;
+                if (layer.hashes[local] == hash
+                        && layer.words[local].equals(word)) {
+                    return layer.offset + local;
+                }
+                slot = (slot + 1) & (layer.slots.length - 1);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the id of the word in a run of chars without interning it.
+     * @param chars - Array holding the word.
+     * @param from - Index of the word's first char.
+     * @param length - Number of chars in the word.
+     * @return int - The word's id, or -1 if it is not in the vocabulary.
+     */
+    public int idOf(char[] chars, int from, int length) {
+        return idOf(chars, from, length, hash(chars, from, length));
+    }
+
+    private int idOf(char[] chars, int from, int length, int hash) {
+        for (Vocabulary layer = this; layer != null; layer = layer.parent) {
+            int local = layer.slots[layer.find(chars, from, length, hash)]
+                    - 1;
+            if (local >= 0) {
+                return layer.offset + local;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the word with a given id.
+     * @param id - An id returned by intern().
+     * @return String - The word.
+     */
+    public String word(int id) {
+        if (id < 0 || id >= size()) {
+            throw new IndexOutOfBoundsException("No word has id " + id);
+        }
+        Vocabulary layer = this;
+        while (id < layer.offset) {
+            layer = layer.parent;
+        }
+        return layer.words[id - layer.offset];
+    }
+
+    /**
+     * Returns a vocabulary with the same ids that interns new words into a
+     * layer of its own, so words can be interned into it while this one
+     * is still read. This vocabulary must not be interned into afterwards.
+     * Layers at least as large as the one below them are first merged
+     * into a new layer; the layers of this vocabulary are not changed.
+     * @return Vocabulary - The extended vocabulary.
+     */
+    Vocabulary extend() {
+        Vocabulary top = this;
+        while (top.parent != null && top.size >= top.parent.size) {
+            top = top.parent.mergedWith(top);
+        }
+        return new Vocabulary(top);
+    }
+
+    /**
+     * Copies this layer and the one above it into a single layer with the
+     * same parent.
+     */
+    private Vocabulary mergedWith(Vocabulary above) {
+        Vocabulary merged = new Vocabulary(parent);
+        merged.addAll(this);
+        merged.addAll(above);
+        return merged;
+    }
+
+    /**
+     * Adds the words of a layer, none of which this layer holds, keeping
+     * their order and so their ids.
+     */
+    private void addAll(Vocabulary layer) {
+        for (int local = 0; local < layer.size; local++) {
+            int hash = layer.hashes[local];
+            int slot = slotOf(hash);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & (slots.length - 1);
+            }
+            add(slot, layer.words[local], hash);
+        }
+    }
+
+    /**
+     * Returns the number of distinct words.
+     * @return int - The vocabulary size.
+     */
+    public int size() {
+        return offset + size;
+    }
+
+    /**
+     * Finds the slot of a word, or the empty slot where it would go.
+     */
+    private int find(char[] chars, int from, int length, int hash) {
+        int slot = slotOf(hash);
+        while (slots[slot] != 0) {
+            int local = slots[slot] - 1;
+            if (hashes[local] == hash && matches(words[local], chars, from,
+                    length)) {
+                return slot;
+            }
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        return slot;
+    }
+
+    private int add(int slot, String word, int hash) {
+        if (size == words.length) {
+            words = Arrays.copyOf(words, 2 * size);
+            hashes = Arrays.copyOf(hashes, 2 * size);
+        }
+        int local = size++;
+        words[local] = word;
+        hashes[local] = hash;
+        slots[slot] = local + 1;
+        if (2 * size > slots.length) {
+            rehash();
+        }
+        return offset + local;
+    }
+
+    private void rehash() {
+        slots = new int[2 * slots.length];
+        for (int local = 0; local < size; local++) {
+            int slot = slotOf(hashes[local]);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & (slots.length - 1);
+            }
+            slots[slot] = local + 1;
+        }
+    }
+
+    private int slotOf(int hash) {
+        return LongIntHashMap.mix(hash) & (slots.length - 1);
+    }
+
+    /**
+     * Computes String.hashCode() of a run of chars without making the
+     * String.
+     */
+    private static int hash(char[] chars, int from, int length) {
+        int hash = 0;
+        for (int i = from; i < from + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        return hash;
+    }
+
+    private static boolean matches(String word, char[] chars, int from,
+                                   int length) {
+        if (word.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) != chars[from + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,170 @@
+package main.java.assignment;
+import java.util.Arrays;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Hand-written word tokenizer. It scans a text once, finding each word's
+ * boundaries and interning it straight from the chars, so no String is made
+ * for a word already in the vocabulary and no array of words is built. By
+ * default words are the runs between whitespace, exactly as
+ * split("\\s+") finds them apart from the empty word split makes of
+ * leading whitespace. Punctuation can instead be split into words of its
+ * own, and words can be folded to lower case.
+ */
+public final class WordScanner {
+    /**
+     * Words are the runs between whitespace, kept as they are.
+     */
+    public static final WordScanner WHITESPACE = new WordScanner(false,
+            false);
+
+    // Whether punctuation is split off into words of its own.
+    private final boolean splitPunctuation;
+    private final boolean lowerCase; // Whether words are folded to lower case.
+
+    private WordScanner(boolean splitPunctuation, boolean lowerCase) {
+        this.splitPunctuation = splitPunctuation;
+        this.lowerCase = lowerCase;
+    }
+
+    /**
+     * Receives each word a scan finds.
+     */
+    public interface WordSink {
+        /**
+         * Receives a word. The chars are only valid during the call.
+         * @param chars - Array holding the word: the text itself, or a
+         * buffer of the word after the scanner's rules were applied.
+         * @param from - Index of the word's first char.
+         * @param length - Number of chars in the word.
+         */
+        void word(char[] chars, int from, int length);
+    }
+
+    /**
+     * Static factory method for a scanner with its own rules.
+     * @param splitPunctuation - Whether each punctuation mark is a word of
+     * its own. An apostrophe or hyphen between two letters stays in its
+     * word, so "don't" and "well-known" are one word each.
+     * @param lowerCase - Whether words are folded to lower case.
+     * @return WordScanner - The scanner.
+     */
+    public static WordScanner withRules(boolean splitPunctuation,
+                                        boolean lowerCase) {
+        if (!splitPunctuation && !lowerCase) {
+            return WHITESPACE;
+        }
+        return new WordScanner(splitPunctuation, lowerCase);
+    }
+
+    /**
+     * Finds every word of a text in order.
+     * @param text - The text to scan.
+     * @param from - Index of the first char to scan.
+     * @param to - Index after the last char to scan.
+     * @param sink - Receives each word.
+     */
+    public void scan(char[] text, int from, int to, WordSink sink) {
+        // Words are only copied when a rule changes their chars.
+        char[] buffer = lowerCase ? new char[16] : null;
+        int i = from;
+        while (i < to) {
+            // Skip whitespace
+            while (i < to && MappedCorpus.isWhitespace(text[i])) {
+                i++;
+            }
+            if (i == to) {
+                break;
+            }
+            int start = i;
+            if (splitPunctuation && isPunctuation(text, from, to, i)) {
+                i++;
+            } else {
+                while (i < to && !MappedCorpus.isWhitespace(text[i])
+                        && !(splitPunctuation
+                        && isPunctuation(text, from, to, i))) {
+                    i++;
+                }
+            }
+            if (!lowerCase) {
+                sink.word(text, start, i - start);
+            } else {
+                if (buffer.length < i - start) {
+                    buffer = new char[Math.max(2 * buffer.length, i - start)];
+                }
+                for (int j = start; j < i; j++) {
+                    buffer[j - start] = Character.toLowerCase(text[j]);
+                }
+                sink.word(buffer, 0, i - start);
+            }
+        }
+    }
+
+    /**
+     * Interns every word of a text.
+     * @param text - The text to scan.
+     * @param vocabulary - Where the words are interned.
+     * @return int[] - The id of each word, in order.
+     */
+    public int[] intern(char[] text, Vocabulary vocabulary) {
+        IdBuffer ids = new IdBuffer(text.length / 6);
+        scan(text, 0, text.length, (chars, from, length) ->
+                ids.add(vocabulary.intern(chars, from, length)));
+        return ids.toArray();
+    }
+
+    /**
+     * Counts the words of a text.
+     * @param text - The text to scan.
+     * @return int - The number of words.
+     */
+    public int count(char[] text) {
+        int[] count = new int[1];
+        scan(text, 0, text.length, (chars, from, length) -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * Returns whether a char is punctuation that splits off into its own
+     * word: any char that is not whitespace, a letter or a digit, except an
+     * apostrophe or hyphen with a letter on each side.
+     */
+    private static boolean isPunctuation(char[] text, int from, int to,
+                                         int i) {
+        char c = text[i];
+        if (Character.isLetterOrDigit(c) || MappedCorpus.isWhitespace(c)) {
+            return false;
+        }
+        if (c == '\'' || c == '\u2019' || c == '-') {
+            return !(i > from && i + 1 < to
+                    && Character.isLetter(text[i - 1])
+                    && Character.isLetter(text[i + 1]));
+        }
+        // Surrogate pairs stay in their word.
+        return !Character.isSurrogate(c);
+    }
+
+    /**
+     * Growable array of ids, trimmed once at the end.
+     */
+    private static final class IdBuffer {
+        private int[] ids;
+        private int size;
+
+        private IdBuffer(int expectedSize) {
+            ids = new int[Math.max(expectedSize, 16)];
+        }
+
+        private void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, 2 * size);
+            }
+            ids[size++] = id;
+        }
+
+        private int[] toArray() {
+            return size == ids.length ? ids : Arrays.copyOf(ids, size);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package main.java.assignment;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Runtime metrics of one engine: phase timings and the shape of the last
+ * model from training, and token, restart and timing counts from
+ * generation. Each engine's metrics are an MBean on the platform server,
+ * and every phase is also committed as a JFR event when a recording has
+ * it enabled, so a running writer can be watched from JConsole or Mission
+ * Control without a profiler. Generation is recorded once per generateText
+ * call, never per token, so the hot loops only count locally.
+ */
+public final class WriterMetrics implements WriterMetricsMBean {
+    private static final ConcurrentMap<String, WriterMetrics> ENGINES =
+            new ConcurrentHashMap<>();
+
+    private final String engine;
+
+    private final LongAdder trainings = new LongAdder();
+    private final LongAdder readNanos = new LongAdder();
+    private final LongAdder analyzeNanos = new LongAdder();
+    private volatile long lastReadNanos;
+    private volatile long lastAnalyzeNanos;
+    private volatile ModelStatistics statistics = ModelStatistics.EMPTY;
+
+    private final LongAdder generations = new LongAdder();
+    private final LongAdder generatedTokens = new LongAdder();
+    private final LongAdder restarts = new LongAdder();
+    private final LongAdder generateNanos = new LongAdder();
+
+    private WriterMetrics(String engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Returns the metrics of an engine, registering their MBean the first
+     * time they are asked for.
+     * @param engine - The engine's class name.
+     * @return WriterMetrics - The engine's metrics, shared by its writers.
+     */
+    public static WriterMetrics forEngine(String engine) {
+        return ENGINES.computeIfAbsent(engine, name -> {
+            WriterMetrics metrics = new WriterMetrics(name);
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(
+                        metrics, objectName(name));
+            } catch (JMException | SecurityException e) {
+                // Still counted, just not visible over JMX.
+            }
+            return metrics;
+        });
+    }
+
+    /**
+     * Returns the name an engine's metrics are registered under.
+     * @param engine - The engine's class name.
+     * @return ObjectName - main.java.assignment:type=WriterMetrics,name=engine
+     * @throws JMException - If the engine name is not a valid key value.
+     */
+    public static ObjectName objectName(String engine) throws JMException {
+        return new ObjectName("main.java.assignment:type=WriterMetrics,name="
+                + engine);
+    }
+
+    /**
+     * Records reading a source file.
+     * @param nanos - Time spent reading.
+     */
+    void recordRead(long nanos) {
+        readNanos.add(nanos);
+        lastReadNanos = nanos;
+        ReadEvent event = new ReadEvent();
+        if (event.shouldCommit()) {
+            event.engine = engine;
+            event.elapsed = nanos;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records a model built from text or loaded from a model file.
+     * @param level - The level of analysis.
+     * @param tokens - The number of tokens analyzed.
+     * @param nanos - Time spent analyzing or loading.
+     * @param model - Statistics of the new model.
+     */
+    void recordAnalysis(int level, long tokens, long nanos,
+                        ModelStatistics model) {
+        trainings.increment();
+        analyzeNanos.add(nanos);
+        lastAnalyzeNanos = nanos;
+        statistics = model;
+        AnalysisEvent event = new AnalysisEvent();
+        if (event.shouldCommit()) {
+            event.engine = engine;
+            event.level = level;
+            event.tokens = tokens;
+            event.elapsed = nanos;
+            event.contexts = model.contextCount;
+            event.successorEntries = model.successorEntryCount;
+            event.estimatedBytes = model.estimatedBytes;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records one completed generateText call.
+     * @param level - The level of analysis.
+     * @param tokens - The number of tokens generated.
+     * @param deadEnds - Times the call restarted at a random seed.
+     * @param nanos - Time spent generating.
+     */
+    void recordGeneration(int level, long tokens, long deadEnds, long nanos) {
+        generations.increment();
+        generatedTokens.add(tokens);
+        restarts.add(deadEnds);
+        generateNanos.add(nanos);
+        GenerationEvent event = new GenerationEvent();
+        if (event.shouldCommit()) {
+            event.engine = engine;
+            event.level = level;
+            event.tokens = tokens;
+            event.restarts = deadEnds;
+            event.elapsed = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public long getTrainingCount() {
+        return trainings.sum();
+    }
+
+    @Override
+    public double getLastReadMillis() {
+        return lastReadNanos / 1e6;
+    }
+
+    @Override
+    public double getLastAnalyzeMillis() {
+        return lastAnalyzeNanos / 1e6;
+    }
+
+    @Override
+    public double getTotalReadMillis() {
+        return readNanos.sum() / 1e6;
+    }
+
+    @Override
+    public double getTotalAnalyzeMillis() {
+        return analyzeNanos.sum() / 1e6;
+    }
+
+    @Override
+    public long getContextCount() {
+        return statistics.contextCount;
+    }
+
+    @Override
+    public long getSuccessorEntryCount() {
+        return statistics.successorEntryCount;
+    }
+
+    @Override
+    public double getEstimatedBytesPerContext() {
+        return statistics.bytesPerContext();
+    }
+
+    @Override
+    public long[] getBranchingHistogram() {
+        return statistics.branchingHistogram();
+    }
+
+    @Override
+    public double getMeanBranchingFactor() {
+        ModelStatistics model = statistics;
+        return model.contextCount == 0 ? 0
+                : (double) model.successorEntryCount / model.contextCount;
+    }
+
+    @Override
+    public long getGenerationCount() {
+        return generations.sum();
+    }
+
+    @Override
+    public long getGeneratedTokens() {
+        return generatedTokens.sum();
+    }
+
+    @Override
+    public long getDeadEndRestarts() {
+        return restarts.sum();
+    }
+
+    @Override
+    public double getTotalGenerateMillis() {
+        return generateNanos.sum() / 1e6;
+    }
+
+    @Override
+    public double getTokensPerSecond() {
+        long nanos = generateNanos.sum();
+        return nanos == 0 ? 0 : generatedTokens.sum() * 1e9 / nanos;
+    }
+
+    @Override
+    public void reset() {
+        trainings.reset();
+        readNanos.reset();
+        analyzeNanos.reset();
+        lastReadNanos = 0;
+        lastAnalyzeNanos = 0;
+        statistics = ModelStatistics.EMPTY;
+        generations.reset();
+        generatedTokens.reset();
+        restarts.reset();
+        generateNanos.reset();
+    }
+
+    @Name("main.java.assignment.Read")
+    @Label("Read Source Text")
+    @Category("Random Writing")
+    static final class ReadEvent extends Event {
+        @Label("Engine")
+        String engine;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    @Name("main.java.assignment.Analysis")
+    @Label("Analyze Text")
+    @Description("A model built from text or loaded from a model file")
+    @Category("Random Writing")
+    static final class AnalysisEvent extends Event {
+        @Label("Engine")
+        String engine;
+
+        @Label("Level")
+        int level;
+
+        @Label("Tokens")
+        long tokens;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+
+        @Label("Contexts")
+        long contexts;
+
+        @Label("Successor Entries")
+        long successorEntries;
+
+        @Label("Estimated Bytes")
+        long estimatedBytes;
+    }
+
+    @Name("main.java.assignment.Generation")
+    @Label("Generate Text")
+    @Category("Random Writing")
+    static final class GenerationEvent extends Event {
+        @Label("Engine")
+        String engine;
+
+        @Label("Level")
+        int level;
+
+        @Label("Tokens")
+        long tokens;
+
+        @Label("Dead-End Restarts")
+        long restarts;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+}
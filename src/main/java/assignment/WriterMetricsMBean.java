@@ -0,0 +1,95 @@
+package main.java.assignment;
+
+/*
+ * CS 314H Assignment 2 - Random Writing
+ *
+ * Management interface of WriterMetrics, one per engine, registered with
+ * the platform MBean server as
+ * main.java.assignment:type=WriterMetrics,name=<engine>. Tokens are
+ * characters for the char engines and words for the word engines.
+ */
+public interface WriterMetricsMBean {
+    /**
+     * @return long - Number of models trained or loaded.
+     */
+    long getTrainingCount();
+
+    /**
+     * @return double - Milliseconds spent reading the last source file.
+     */
+    double getLastReadMillis();
+
+    /**
+     * @return double - Milliseconds spent analyzing the last text, or
+     * loading the last model.
+     */
+    double getLastAnalyzeMillis();
+
+    /**
+     * @return double - Milliseconds spent reading source files in total.
+     */
+    double getTotalReadMillis();
+
+    /**
+     * @return double - Milliseconds spent analyzing text in total.
+     */
+    double getTotalAnalyzeMillis();
+
+    /**
+     * @return long - Distinct contexts of the last model.
+     */
+    long getContextCount();
+
+    /**
+     * @return long - Distinct (context, successor) entries of the last model.
+     */
+    long getSuccessorEntryCount();
+
+    /**
+     * @return double - Estimated bytes per context of the last model.
+     */
+    double getEstimatedBytesPerContext();
+
+    /**
+     * @return long[] - Contexts of the last model by branching factor;
+     * bucket i counts contexts with 2^i to 2^(i + 1) - 1 successors.
+     */
+    long[] getBranchingHistogram();
+
+    /**
+     * @return double - Average distinct successors per context of the last
+     * model.
+     */
+    double getMeanBranchingFactor();
+
+    /**
+     * @return long - Number of generateText calls completed.
+     */
+    long getGenerationCount();
+
+    /**
+     * @return long - Tokens generated in total.
+     */
+    long getGeneratedTokens();
+
+    /**
+     * @return long - Times generation reached a context with no successor
+     * and restarted at a random seed.
+     */
+    long getDeadEndRestarts();
+
+    /**
+     * @return double - Milliseconds spent generating in total.
+     */
+    double getTotalGenerateMillis();
+
+    /**
+     * @return double - Tokens generated per second of generation time.
+     */
+    double getTokensPerSecond();
+
+    /**
+     * Clears every counter and timing.
+     */
+    void reset();
+}
@@ -0,0 +1,104 @@
+package test.java.assignment;
+
+import main.java.assignment.AliasTable;
+import main.java.assignment.ContextTable;
+import main.java.assignment.RandomWriter;
+import main.java.assignment.SuccessorDistribution;
+import main.java.assignment.Tokens;
+import org.junit.Test;
+
+import java.util.*;
+import java.io.*;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class AliasTableTest {
+    /**
+     * Enumerates every (column, value) pair of alias tables built from random
+     * counts. Each outcome must be chosen by exactly count * size pairs, which
+     * means sampling reproduces the list-based distribution exactly.
+     */
+    @Test
+    public void testAliasTableIsExact() {
+        Random random = new Random(314);
+        for (int trial = 0; trial < 200; trial++) {
+            int size = 1 + random.nextInt(12);
+            int[] counts = new int[size];
+            for (int i = 0; i < size; i++) {
+                counts[i] = 1 + random.nextInt(trial % 2 == 0 ? 5 : 400);
+            }
+            AliasTable table = new AliasTable(counts, size);
+            assertEquals(Arrays.stream(counts).sum(), table.total());
+            int[] expectedHits = new int[size];
+            for (int i = 0; i < size; i++) {
+                expectedHits[i] = counts[i] * size;
+            }
+            assertArrayEquals(expectedHits, countOutcomes(table, size));
+        }
+    }
+
+    /**
+     * Checks the per-context alias tables of ContextTable the same way.
+     */
+    @Test
+    public void testContextTableSamplingIsExact() throws IOException {
+        char[] text = RandomWriter.fileContentsToString(
+                "test_books/CatInTheHat.txt").toCharArray();
+        ContextTable table = ContextTable.build(Tokens.of(text), 2);
+        for (int position = 0; position + 2 < text.length; position += 7) {
+            int[] seed = {text[position], text[position + 1]};
+            int context = table.find(seed, ContextTable.hash(seed, 0, 2));
+            Map<Integer, Integer> expected = new HashMap<>();
+            for (int i = 0; i < table.total(context); i++) {
+                expected.merge(table.successorAt(context, i),
+                        table.distinctCount(context), Integer::sum);
+            }
+            Map<Integer, Integer> actual = new HashMap<>();
+            for (int column = 0; column < table.distinctCount(context);
+                 column++) {
+                for (int value = 0; value < table.total(context); value++) {
+                    actual.merge(table.sample(context, column, value), 1,
+                            Integer::sum);
+                }
+            }
+            assertEquals(expected, actual);
+        }
+    }
+
+    /**
+     * Checks that SuccessorDistribution keeps one entry per distinct
+     * successor and expands back to every occurrence.
+     */
+    @Test
+    public void testSuccessorDistribution() {
+        SuccessorDistribution<String> distribution =
+                new SuccessorDistribution<>();
+        for (String word : "the cat the hat the the".split(" ")) {
+            distribution.add(word);
+        }
+        assertEquals(6, distribution.total());
+        assertEquals(3, distribution.distinctCount());
+        List<String> occurrences = distribution.toOccurrenceList();
+        assertEquals(4, Collections.frequency(occurrences, "the"));
+        for (int i = 0; i < 100; i++) {
+            assert occurrences.contains(distribution.sample());
+        }
+    }
+
+    /**
+     * Counts how many (column, value) pairs choose each outcome.
+     * @param table - The alias table to enumerate.
+     * @param size - Number of outcomes.
+     * @return int[] - Number of pairs choosing each outcome.
+     */
+    private static int[] countOutcomes(AliasTable table, int size) {
+        int[] hits = new int[size];
+        for (int column = 0; column < size; column++) {
+            for (int value = 0; value < table.total(); value++) {
+                hits[table.sample(column, value)]++;
+            }
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,88 @@
+package test.java.assignment;
+
+import main.java.assignment.MappedCorpus;
+import main.java.assignment.RandomWordWriter;
+import main.java.assignment.RandomWriter;
+import org.junit.Test;
+
+import java.util.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static test.java.assignment.SeedMaps.sorted;
+
+public class AppendTextTest {
+    private static final String BOOK = "test_books/MuchAdo.txt";
+
+    /**
+     * Appends a book in pieces of many sizes, some shorter than k, and checks
+     * that the seed map matches reading the whole book at once.
+     */
+    @Test
+    public void testAppendMatchesFullRead() throws IOException {
+        String text = MappedCorpus.load(BOOK).text().substring(0, 20000);
+        for (int k = 0; k <= 4; k++) {
+            RandomWriter full = (RandomWriter) RandomWriter.createProcessor(k);
+            full.readText(MappedCorpus.of(text));
+            RandomWriter appended = (RandomWriter)
+                    RandomWriter.createProcessor(k);
+            int start = 0;
+            for (int piece = 1; start < text.length(); piece++) {
+                int end = Math.min(text.length(), start + piece * piece % 97);
+                appended.appendText(text.substring(start, end));
+                start = end;
+            }
+            assertEquals(sorted(full.getSeedToNextCharacters()),
+                    sorted(appended.getSeedToNextCharacters()));
+            assertEquals(text, appended.getModel().inputText());
+
+            RandomWordWriter fullWords = (RandomWordWriter)
+                    RandomWordWriter.createProcessor(k);
+            fullWords.readText(MappedCorpus.of(text));
+            RandomWordWriter appendedWords = (RandomWordWriter)
+                    RandomWordWriter.createProcessor(k);
+            // Cut only at whitespace so no word is split across pieces.
+            start = 0;
+            for (int piece = 1; start < text.length(); piece++) {
+                int end = Math.min(text.length(), start + piece * piece % 97);
+                while (end < text.length()
+                        && !Character.isWhitespace(text.charAt(end))) {
+                    end++;
+                }
+                appendedWords.appendText(text.substring(start, end));
+                start = end;
+            }
+            assertEquals(sorted(fullWords.getSeedToNextWords()),
+                    sorted(appendedWords.getSeedToNextWords()));
+        }
+    }
+
+    /**
+     * Checks that an appended file is joined to the text before it by a
+     * newline, and that a model taken before an append is left unchanged.
+     */
+    @Test
+    public void testAppendFileKeepsOldSnapshots() throws IOException {
+        File file = File.createTempFile("append", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), "xyz\n".getBytes(StandardCharsets.UTF_8));
+
+        RandomWriter writer = (RandomWriter) RandomWriter.createProcessor(1);
+        writer.readText("test_text/And.txt");
+        RandomWriter.Model before = writer.getModel();
+        writer.appendFile(file.getPath());
+        RandomWriter full = (RandomWriter) RandomWriter.createProcessor(1);
+        full.readText(MappedCorpus.of(before.inputText() + "\nxyz"));
+        assertEquals(sorted(full.getSeedToNextCharacters()),
+                sorted(writer.getSeedToNextCharacters()));
+
+        StringBuilder text = new StringBuilder();
+        before.generateText(50, text, new SplittableRandom(3));
+        assertEquals("&".repeat(50), text.toString());
+        String generated = writer.generateText(500, new SplittableRandom(3));
+        assertTrue(generated, generated.contains("y"));
+    }
+}
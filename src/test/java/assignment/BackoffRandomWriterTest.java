@@ -0,0 +1,126 @@
+package test.java.assignment;
+
+import main.java.assignment.BackoffRandomWriter;
+import main.java.assignment.ContextTable;
+import main.java.assignment.ContextTrie;
+import main.java.assignment.MappedCorpus;
+import main.java.assignment.PrimitiveRandomWriter;
+import main.java.assignment.Tokens;
+import org.junit.Test;
+
+import java.util.*;
+import java.io.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BackoffRandomWriterTest {
+    /**
+     * Checks that one trie holds the same successor counts as a ContextTable
+     * built separately at every level up to its maximum.
+     */
+    @Test
+    public void testTrieMatchesTables() throws IOException {
+        char[] text = MappedCorpus.load("test_books/CatInTheHat.txt").chars();
+        int maxLevel = 6;
+        ContextTrie trie = ContextTrie.build(Tokens.of(text), maxLevel);
+        int contexts = 0;
+        for (int k = 0; k <= maxLevel; k++) {
+            ContextTable table = ContextTable.build(Tokens.of(text), k);
+            contexts += table.contextCount();
+            for (int c = 0; c < table.contextCount(); c++) {
+                int[] seed = new int[k];
+                for (int i = 0; i < k; i++) {
+                    seed[i] = text[table.contextPosition(c) + i];
+                }
+                int node = trie.find(seed, k);
+                assertTrue(node >= 0);
+                assertEquals(k, trie.depth(node));
+                assertEquals(table.total(c), trie.total(node));
+                assertEquals(table.distinctCount(c), trie.distinctCount(node));
+                for (int i = 0; i < table.distinctCount(c); i++) {
+                    assertEquals(table.successorToken(c, i),
+                            trie.successorToken(node, i));
+                    assertEquals(table.successorCount(c, i),
+                            trie.successorCount(node, i));
+                }
+            }
+        }
+        assertEquals(contexts, trie.nodeCount());
+    }
+
+    /**
+     * Checks that a trained model generates like PrimitiveRandomWriter at
+     * every lower level when no context is missing. The text ends with its
+     * own start, so every seed has a successor.
+     */
+    @Test
+    public void testLowerLevelsMatchFixedLevelWriters() throws IOException {
+        String book = MappedCorpus.load("test_books/MuchAdo.txt").text();
+        MappedCorpus corpus = MappedCorpus.of(book + book.substring(0, 100));
+        BackoffRandomWriter writer = (BackoffRandomWriter)
+                BackoffRandomWriter.createProcessor(8);
+        writer.readText(corpus);
+        for (int k = 0; k <= 8; k++) {
+            PrimitiveRandomWriter fixed = (PrimitiveRandomWriter)
+                    PrimitiveRandomWriter.createProcessor(k);
+            fixed.readText(corpus);
+            assertEquals(fixed.generateText(2000, new SplittableRandom(k)),
+                    writer.generateText(2000, k, new SplittableRandom(k)));
+        }
+    }
+
+    /**
+     * Checks that generation backs off to a shorter context at the end of
+     * the text instead of restarting at the only seed.
+     */
+    @Test
+    public void testBacksOffAtDeadEnds() {
+        BackoffRandomWriter writer = (BackoffRandomWriter)
+                BackoffRandomWriter.createProcessor(2);
+        writer.readText(MappedCorpus.of("xyz"));
+        String text = writer.generateText(300, new SplittableRandom(1));
+        assertEquals(300, text.length());
+        // "yz" and "z" have no successors, so "z" is followed by any letter.
+        assertTrue(text, text.contains("zx"));
+        for (int i = 0; i + 1 < text.length(); i++) {
+            if (text.charAt(i) == 'x') {
+                assertEquals('y', text.charAt(i + 1));
+            } else if (text.charAt(i) == 'y') {
+                assertEquals('z', text.charAt(i + 1));
+            }
+        }
+        assertEquals("", ((BackoffRandomWriter) BackoffRandomWriter
+                .createProcessor(2)).generateText(10));
+    }
+
+    /**
+     * Checks that a saved trie loads back and generates the same text.
+     */
+    @Test
+    public void testModelRoundTrip() throws IOException {
+        File model = File.createTempFile("model", ".bin");
+        model.deleteOnExit();
+        BackoffRandomWriter saved = (BackoffRandomWriter)
+                BackoffRandomWriter.createProcessor(4);
+        saved.readText("test_books/CatInTheHat.txt");
+        saved.saveModel(model.getPath());
+        BackoffRandomWriter loaded = (BackoffRandomWriter)
+                BackoffRandomWriter.createProcessor(4);
+        loaded.loadModel(model.getPath());
+
+        ContextTrie expected = saved.getTrie();
+        ContextTrie actual = loaded.getTrie();
+        assertEquals(expected.nodeCount(), actual.nodeCount());
+        assertEquals(expected.successorEntryCount(),
+                actual.successorEntryCount());
+        for (int node = 0; node < expected.nodeCount(); node++) {
+            assertEquals(expected.depth(node), actual.depth(node));
+            assertEquals(expected.total(node), actual.total(node));
+        }
+        for (int k = 0; k <= 4; k++) {
+            assertEquals(saved.generateText(500, k, new SplittableRandom(k)),
+                    loaded.generateText(500, k, new SplittableRandom(k)));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package test.java.assignment;
+
+import main.java.assignment.BatchGenerator;
+import main.java.assignment.PrimitiveRandomWordWriter;
+import main.java.assignment.RandomWriter;
+import main.java.assignment.TextProcessor;
+import org.junit.Test;
+
+import java.util.*;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class BatchGeneratorTest {
+    /**
+     * Checks that every document of a batch can be regenerated on its own,
+     * whatever the number of threads that wrote the batch.
+     */
+    @Test
+    public void testDocumentsAreReproducible() throws Exception {
+        TextProcessor[] processors = {RandomWriter.createProcessor(4),
+                PrimitiveRandomWordWriter.createProcessor(2)};
+        for (TextProcessor processor : processors) {
+            processor.readText("test_books/CatInTheHat.txt");
+            Path parallel = Files.createTempDirectory("batch");
+            Path sequential = Files.createTempDirectory("batch");
+            BatchGenerator batch = new BatchGenerator(processor, 314L);
+            batch.generate(parallel, 12, 2000, 4);
+            batch.generate(sequential, 12, 2000, 1);
+
+            Set<String> distinct = new HashSet<>();
+            for (int i = 0; i < 12; i++) {
+                byte[] document = Files.readAllBytes(
+                        BatchGenerator.documentPath(parallel, i));
+                assertArrayEquals(document, Files.readAllBytes(
+                        BatchGenerator.documentPath(sequential, i)));
+
+                ByteArrayOutputStream single = new ByteArrayOutputStream();
+                batch.generateOne(Channels.newChannel(single), i, 2000);
+                assertArrayEquals(document, single.toByteArray());
+                distinct.add(new String(document));
+            }
+            assertEquals(12, distinct.size());
+
+            // Another batch seed gives other documents.
+            ByteArrayOutputStream other = new ByteArrayOutputStream();
+            new BatchGenerator(processor, 315L).generateOne(
+                    Channels.newChannel(other), 0, 2000);
+            assertFalse(distinct.contains(new String(other.toByteArray())));
+            deleteDirectory(parallel);
+            deleteDirectory(sequential);
+        }
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (DirectoryStream<Path> files =
+                     Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
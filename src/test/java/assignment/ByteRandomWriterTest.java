@@ -0,0 +1,93 @@
+package test.java.assignment;
+
+import main.java.assignment.ByteRandomWriter;
+import main.java.assignment.MappedCorpus;
+import main.java.assignment.PrimitiveRandomWriter;
+import org.junit.Test;
+
+import java.util.*;
+import java.io.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ByteRandomWriterTest {
+    /**
+     * Checks that an ASCII book is held as bytes and generates exactly what
+     * the char engine generates from the same random stream.
+     */
+    @Test
+    public void testAsciiMatchesCharEngine() {
+        String book = "test_books/CatInTheHat.txt";
+        for (int k = 0; k <= 5; k++) {
+            ByteRandomWriter bytes = (ByteRandomWriter)
+                    ByteRandomWriter.createProcessor(k);
+            bytes.readText(book);
+            assertTrue(bytes.getModel().isSingleByte());
+            PrimitiveRandomWriter chars = (PrimitiveRandomWriter)
+                    PrimitiveRandomWriter.createProcessor(k);
+            chars.readText(book);
+            assertEquals(chars.generateText(1000, new SplittableRandom(k)),
+                    bytes.generateText(1000, new SplittableRandom(k)));
+        }
+
+        // Latin-1 text that is not ASCII still fits in bytes.
+        ByteRandomWriter latin1 = (ByteRandomWriter)
+                ByteRandomWriter.createProcessor(1);
+        latin1.readText(MappedCorpus.of("café à ÿ"));
+        assertTrue(latin1.getModel().isSingleByte());
+    }
+
+    /**
+     * Checks that text with supplementary characters is analyzed by code
+     * point, so generated text never holds half of a surrogate pair.
+     */
+    @Test
+    public void testNeverSplitsSurrogatePairs() {
+        String faces = "😀😁😀😂a😀b";
+        for (int k = 0; k <= 3; k++) {
+            ByteRandomWriter writer = (ByteRandomWriter)
+                    ByteRandomWriter.createProcessor(k);
+            writer.readText(MappedCorpus.of(faces));
+            assertFalse(writer.getModel().isSingleByte());
+            String text = writer.generateText(500, new SplittableRandom(k));
+            assertEquals(500, text.codePointCount(0, text.length()));
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (Character.isHighSurrogate(c)) {
+                    assertTrue(Character.isLowSurrogate(text.charAt(++i)));
+                } else {
+                    assertFalse(Character.isLowSurrogate(c));
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that byte and code point models load back and generate the
+     * same text.
+     */
+    @Test
+    public void testModelRoundTrip() throws IOException {
+        File model = File.createTempFile("model", ".bin");
+        model.deleteOnExit();
+        for (MappedCorpus corpus : new MappedCorpus[]{
+                MappedCorpus.load("test_books/OneFishTwoFish.txt"),
+                MappedCorpus.of("x😀y😀xé")}) {
+            ByteRandomWriter saved = (ByteRandomWriter)
+                    ByteRandomWriter.createProcessor(2);
+            saved.readText(corpus);
+            saved.saveModel(model.getPath());
+            ByteRandomWriter loaded = (ByteRandomWriter)
+                    ByteRandomWriter.createProcessor(2);
+            loaded.loadModel(model.getPath());
+            assertEquals(saved.getModel().isSingleByte(),
+                    loaded.getModel().isSingleByte());
+            assertEquals(saved.getTable().contextCount(),
+                    loaded.getTable().contextCount());
+            assertEquals(saved.generateText(300, new SplittableRandom(9)),
+                    loaded.generateText(300, new SplittableRandom(9)));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package test.java.assignment;
+
+import main.java.assignment.ChunkedTextWriter;
+import main.java.assignment.PrimitiveRandomWriter;
+import main.java.assignment.RandomWriter;
+import main.java.assignment.SuffixArrayWriter;
+import main.java.assignment.TextProcessor;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChunkedTextWriterTest {
+    /**
+     * Checks that text spanning many chunks, including surrogate pairs that
+     * straddle a chunk boundary, is encoded exactly like String.getBytes.
+     */
+    @Test
+    public void testEncodingAcrossChunks() throws IOException {
+        StringBuilder expected = new StringBuilder();
+        expected.append("a".repeat(ChunkedTextWriter.CHUNK_SIZE - 1));
+        expected.append("😀"); // Pair split by the chunk boundary.
+        for (int i = 0; i < 3 * ChunkedTextWriter.CHUNK_SIZE; i++) {
+            expected.append((char) ('a' + i % 26));
+            if (i % 1000 == 0) {
+                expected.append("कख😀");
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ChunkedTextWriter writer = new ChunkedTextWriter(
+                Channels.newChannel(bytes));
+        writer.append(expected);
+        writer.finish();
+        assertEquals(expected.toString(),
+                new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Streams more text than fits in one chunk through each char writer.
+     */
+    @Test
+    public void testStreamingWriters() throws IOException {
+        long length = 5L * ChunkedTextWriter.CHUNK_SIZE + 17;
+        TextProcessor[] processors = {RandomWriter.createProcessor(3),
+                PrimitiveRandomWriter.createProcessor(3),
+                SuffixArrayWriter.createProcessor(3)};
+        for (TextProcessor processor : processors) {
+            processor.readText("test_text/And.txt");
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            processor.writeText(Channels.newChannel(bytes), length);
+            assertEquals("&".repeat((int) length),
+                    new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package test.java.assignment;
+
+import main.java.assignment.ContextTable;
+import main.java.assignment.CorpusPipeline;
+import main.java.assignment.MappedCorpus;
+import main.java.assignment.PrimitiveRandomWriter;
+import org.junit.Test;
+
+import java.util.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class CorpusPipelineTest {
+    /**
+     * Writes texts into numbered files of a new temporary directory.
+     */
+    private static Path writeFiles(String... texts) throws IOException {
+        Path directory = Files.createTempDirectory("corpus");
+        directory.toFile().deleteOnExit();
+        for (int i = 0; i < texts.length; i++) {
+            File file = directory.resolve("part" + i + ".txt").toFile();
+            file.deleteOnExit();
+            Files.write(file.toPath(),
+                    texts[i].getBytes(StandardCharsets.UTF_8));
+        }
+        return directory;
+    }
+
+    /**
+     * Checks that one file gives the same model as reading it directly.
+     */
+    @Test
+    public void testSingleFileMatchesReadText() throws IOException {
+        PrimitiveRandomWriter expected = (PrimitiveRandomWriter)
+                PrimitiveRandomWriter.createProcessor(4);
+        expected.readText("test_books/CatInTheHat.txt");
+        PrimitiveRandomWriter actual = (PrimitiveRandomWriter)
+                PrimitiveRandomWriter.createProcessor(4);
+        actual.readFiles(List.of("test_books/CatInTheHat.txt"));
+        assertEquals(expected.getTable().contextCount(),
+                actual.getTable().contextCount());
+        assertEquals(expected.generateText(1000, new SplittableRandom(5)),
+                actual.generateText(1000, new SplittableRandom(5)));
+    }
+
+    /**
+     * Checks that a book split into files has exactly the contexts of its
+     * parts, with the counts of all parts added up.
+     */
+    @Test
+    public void testContextsStayWithinFiles() throws IOException {
+        char[] book = MappedCorpus.load("test_books/MuchAdo.txt").chars();
+        String[] parts = new String[7];
+        int size = book.length / parts.length + 1;
+        for (int i = 0; i < parts.length; i++) {
+            int from = Math.min(i * size, book.length);
+            parts[i] = new String(book, from,
+                    Math.min(size, book.length - from));
+        }
+        List<String> files = CorpusPipeline.listFiles(
+                writeFiles(parts).toString());
+        int k = 5;
+        CorpusPipeline.Documents documents = new CorpusPipeline(3,
+                ForkJoinPool.commonPool()).read(files, k);
+        assertEquals(parts.length, documents.documentCount());
+        assertEquals(book.length, documents.length());
+
+        // Count every context of every part separately.
+        Map<String, Integer> expected = new HashMap<>();
+        for (String part : parts) {
+            for (int i = 0; i + k < part.length(); i++) {
+                expected.merge(part.substring(i, i + k), 1, Integer::sum);
+            }
+        }
+        ContextTable table = documents.table();
+        assertEquals(expected.size(), table.contextCount());
+        for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+            int[] seed = entry.getKey().chars().toArray();
+            int context = table.find(seed, ContextTable.hash(seed, 0, k));
+            assertTrue(context >= 0);
+            assertEquals((int) entry.getValue(), table.total(context));
+        }
+    }
+
+    /**
+     * Checks that files that decode to fewer chars than they have bytes are
+     * joined without gaps, each read as MappedCorpus reads it.
+     */
+    @Test
+    public void testJoinsShortenedFiles() throws IOException {
+        String[] texts = {"h\u00e9llo\r\nw\u00f6rld\n", "ab\r\ncd",
+                "\u2211x\n", ""};
+        Path directory = writeFiles(texts);
+        CorpusPipeline.Documents documents = new CorpusPipeline(2,
+                ForkJoinPool.commonPool()).read(CorpusPipeline.listFiles(
+                directory.toString()), 2);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < texts.length; i++) {
+            assertEquals(expected.length(), documents.start(i));
+            expected.append(MappedCorpus.load(directory.resolve(
+                    "part" + i + ".txt").toString()).text());
+        }
+        assertEquals(expected.length(), documents.length());
+        assertEquals(expected.toString(), new String(documents.chars(), 0,
+                documents.length()));
+    }
+
+    /**
+     * Checks that the last char of a file is not a context of the first
+     * char of the next, and that generation restarts past it.
+     */
+    @Test
+    public void testNoContextAcrossFiles() throws IOException {
+        Path directory = writeFiles("aab", "ccd");
+        PrimitiveRandomWriter writer = (PrimitiveRandomWriter)
+                PrimitiveRandomWriter.createProcessor(1);
+        writer.readFiles(CorpusPipeline.listFiles(directory.toString()));
+        ContextTable table = writer.getTable();
+        assertEquals(-1, table.find(new int[] {'b'},
+                ContextTable.hash(new int[] {'b'}, 0, 1)));
+        String text = writer.generateText(500, new SplittableRandom(2));
+        assertEquals(500, text.length());
+        for (int i = 0; i + 1 < text.length(); i++) {
+            if (text.charAt(i) == 'a') {
+                assertTrue(text, "ab".indexOf(text.charAt(i + 1)) >= 0);
+            } else if (text.charAt(i) == 'c') {
+                assertTrue(text, "cd".indexOf(text.charAt(i + 1)) >= 0);
+            }
+        }
+    }
+
+    /**
+     * Checks that directories and globs list their files in order.
+     */
+    @Test
+    public void testListFiles() throws IOException {
+        Path directory = writeFiles("x", "y", "z");
+        File other = directory.resolve("notes.md").toFile();
+        other.deleteOnExit();
+        Files.write(other.toPath(), new byte[] {'w'});
+        List<String> all = CorpusPipeline.listFiles(directory.toString());
+        assertEquals(4, all.size());
+        List<String> texts = CorpusPipeline.listFiles(directory
+                + File.separator + "part*.txt");
+        assertEquals(Arrays.asList(
+                directory.resolve("part0.txt").toString(),
+                directory.resolve("part1.txt").toString(),
+                directory.resolve("part2.txt").toString()), texts);
+        assertEquals(List.of("plain.txt"),
+                CorpusPipeline.listFiles("plain.txt"));
+        assertThrows(IOException.class, () -> CorpusPipeline.listFiles(
+                directory + File.separator + "*.csv"));
+        assertThrows(IOException.class, () -> new CorpusPipeline(2,
+                ForkJoinPool.commonPool()).read(List.of(directory
+                + File.separator + "missing.txt"), 2));
+    }
+}
@@ -0,0 +1,148 @@
+package test.java.assignment;
+
+import main.java.assignment.ContextTable;
+import main.java.assignment.DiskModel;
+import main.java.assignment.DiskRandomWriter;
+import main.java.assignment.MappedCorpus;
+import main.java.assignment.Tokens;
+import org.junit.Test;
+
+import java.util.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class DiskModelTest {
+    /**
+     * Checks that a model built in many small chunks, and so merged in more
+     * than one pass, holds the same counts as a ContextTable.
+     */
+    @Test
+    public void testMatchesContextTable() throws IOException {
+        char[] text = MappedCorpus.load("test_books/MuchAdo.txt").chars();
+        for (int k : new int[] {0, 3, 8}) {
+            DiskRandomWriter writer = (DiskRandomWriter)
+                    DiskRandomWriter.createProcessor(k, null, 1000);
+            writer.buildModel("test_books/MuchAdo.txt");
+            DiskModel model = writer.getModel();
+            ContextTable table = ContextTable.build(Tokens.of(text), k);
+            assertEquals(table.contextCount(), model.contextCount());
+            assertEquals(table.successorEntryCount(), model.entryCount());
+            assertEquals(text.length - k, model.occurrenceCount());
+            char[] seed = new char[k];
+            for (int c = 0; c < table.contextCount(); c++) {
+                System.arraycopy(text, table.contextPosition(c), seed, 0, k);
+                long index = model.find(seed);
+                assertTrue(index >= 0);
+                assertEquals(table.total(c), model.total(index));
+                assertEquals(table.distinctCount(c),
+                        model.distinctCount(index));
+                for (int i = 0; i < table.distinctCount(c); i++) {
+                    assertEquals(table.successorToken(c, i),
+                            model.successorToken(index, i));
+                    assertEquals(table.successorCount(c, i),
+                            model.successorCount(index, i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that a streamed file is normalized like MappedCorpus, and
+     * that text read as a corpus is taken as it is.
+     */
+    @Test
+    public void testLineEndings() throws IOException {
+        File input = File.createTempFile("input", ".txt");
+        input.deleteOnExit();
+        String raw = "ab\r\ncd\rab\n\n";
+        Files.write(input.toPath(), raw.getBytes(StandardCharsets.UTF_8));
+        DiskRandomWriter streamed = (DiskRandomWriter)
+                DiskRandomWriter.createProcessor(1, null, 3);
+        streamed.buildModel(input.getPath());
+        DiskRandomWriter read = (DiskRandomWriter)
+                DiskRandomWriter.createProcessor(1, null, 3);
+        read.readText(MappedCorpus.of("ab\ncd\nab\n"));
+        for (DiskRandomWriter writer : Arrays.asList(streamed, read)) {
+            DiskModel model = writer.getModel();
+            assertEquals(8, model.occurrenceCount());
+            long newline = model.find(new char[] {'\n'});
+            assertEquals(2, model.total(newline));
+            assertEquals(2, model.distinctCount(newline));
+            assertEquals(-1, model.find(new char[] {'\r'}));
+        }
+    }
+
+    /**
+     * Checks that generated text only follows contexts of the text.
+     */
+    @Test
+    public void testGeneratesFromContexts() {
+        DiskRandomWriter writer = (DiskRandomWriter)
+                DiskRandomWriter.createProcessor(2, null, 4);
+        writer.readText(MappedCorpus.of("abcabdabc"));
+        String text = writer.generateText(300, new SplittableRandom(1));
+        assertEquals(300, text.length());
+        for (int i = 0; i + 2 < text.length(); i++) {
+            String context = text.substring(i, i + 2);
+            if (context.equals("ab")) {
+                assertTrue(text.charAt(i + 2) == 'c'
+                        || text.charAt(i + 2) == 'd');
+            } else if (context.equals("bc") || context.equals("bd")) {
+                assertEquals('a', text.charAt(i + 2));
+            }
+        }
+        assertEquals("", ((DiskRandomWriter) DiskRandomWriter
+                .createProcessor(2)).generateText(10));
+    }
+
+    /**
+     * Checks that a saved model loads back, generates the same text and is
+     * refused at another level.
+     */
+    @Test
+    public void testModelRoundTrip() throws IOException {
+        File model = File.createTempFile("model", ".bin");
+        model.deleteOnExit();
+        DiskRandomWriter saved = (DiskRandomWriter)
+                DiskRandomWriter.createProcessor(4);
+        saved.readText("test_books/CatInTheHat.txt");
+        saved.saveModel(model.getPath());
+        DiskRandomWriter loaded = (DiskRandomWriter)
+                DiskRandomWriter.createProcessor(4);
+        loaded.loadModel(model.getPath());
+        assertEquals(saved.getModel().contextCount(),
+                loaded.getModel().contextCount());
+        assertEquals(saved.generateText(500, new SplittableRandom(3)),
+                loaded.generateText(500, new SplittableRandom(3)));
+        assertThrows(IOException.class, () -> DiskRandomWriter
+                .createProcessor(3).loadModel(model.getPath()));
+    }
+
+    /**
+     * Checks that retraining deletes the model it replaces and that no run
+     * or region files are left behind.
+     */
+    @Test
+    public void testReplacedModelDeleted() throws IOException {
+        File directory = Files.createTempDirectory("disk").toFile();
+        directory.deleteOnExit();
+        DiskRandomWriter writer = (DiskRandomWriter)
+                DiskRandomWriter.createProcessor(3, directory, 1000);
+        writer.buildModel("test_books/CatInTheHat.txt");
+        writer.buildModel("test_books/MuchAdo.txt");
+        assertEquals(1, directory.list().length);
+        File saved = new File(directory, "saved.bin");
+        writer.saveModel(saved.getPath());
+        writer.loadModel(saved.getPath());
+        assertEquals(Collections.singletonList("saved.bin"),
+                Arrays.asList(directory.list()));
+        assertTrue(writer.generateText(100).length() > 0);
+        Files.delete(saved.toPath());
+        Files.delete(directory.toPath());
+    }
+}
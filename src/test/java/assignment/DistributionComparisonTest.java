@@ -0,0 +1,132 @@
+package test.java.assignment;
+
+import main.java.assignment.ContextTable;
+import main.java.assignment.DistributionComparison;
+import main.java.assignment.MappedCorpus;
+import main.java.assignment.PrimitiveRandomWriter;
+import main.java.assignment.Tokens;
+import org.junit.Test;
+
+import java.util.*;
+import java.io.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class DistributionComparisonTest {
+    private static ContextTable table(String text, int level) {
+        return ContextTable.build(Tokens.of(text.toCharArray()),
+                level);
+    }
+
+    /**
+     * Checks the measures on tables small enough to work out by hand.
+     * "abab" has a -> b twice and b -> a once; "abb" has a -> b and b -> b.
+     */
+    @Test
+    public void testSmallTables() {
+        DistributionComparison comparison = DistributionComparison.compare(
+                table("abab", 1), table("abb", 1));
+        assertEquals(2, comparison.sharedContexts());
+        assertEquals(2.0 / 3, comparison.meanL1(), 1e-12);
+        assertEquals(2.0, comparison.maxL1(), 1e-12);
+        // b -> b is a stray, and b is seen with no expected successor.
+        assertEquals(0.0, comparison.chiSquare(), 0);
+        assertEquals(0, comparison.degreesOfFreedom());
+        assertEquals(1.0, comparison.chiSquarePValue(), 0);
+        assertEquals(0.0, comparison.missingMass(), 0);
+        assertEquals(0.5, comparison.unexpectedMass(), 1e-12);
+        assertTrue(comparison.klDivergence() > 0);
+
+        // "abac" has a -> b and a -> c once each; "abacabad" has a -> b
+        // twice, a -> c once and the stray a -> d once. The expected counts
+        // of b and c are 1.5 each, scaled to the 3 fitted observations.
+        DistributionComparison strays = DistributionComparison.compare(
+                table("abac", 1), table("abacabad", 1));
+        assertEquals(1.0 / 3, strays.chiSquare(), 1e-12);
+        assertEquals(1, strays.degreesOfFreedom());
+
+        DistributionComparison missing = DistributionComparison.compare(
+                table("abcab", 1), table("abab", 1));
+        assertEquals(2, missing.sharedContexts());
+        assertEquals(0.25, missing.missingMass(), 1e-12);
+    }
+
+    /**
+     * Checks that a table compared with itself shows no difference.
+     */
+    @Test
+    public void testIdenticalTables() throws IOException {
+        char[] text = MappedCorpus.load("test_books/CatInTheHat.txt").chars();
+        ContextTable table = ContextTable.build(Tokens.of(text), 3);
+        DistributionComparison comparison = DistributionComparison.compare(
+                table, table);
+        assertEquals(table.contextCount(), comparison.sharedContexts());
+        assertEquals(0.0, comparison.meanL1(), 0);
+        assertEquals(0.0, comparison.maxL1(), 0);
+        assertEquals(0.0, comparison.klDivergence(), 1e-15);
+        assertEquals(0.0, comparison.chiSquare(), 0);
+        assertEquals(0.0, comparison.missingMass(), 0);
+        assertEquals(0.0, comparison.unexpectedMass(), 0);
+        assertThrows(IllegalArgumentException.class, () ->
+                DistributionComparison.compare(table, table("abc", 2)));
+    }
+
+    /**
+     * Checks that generated text fits its model and that text generated
+     * at a lower level does not.
+     */
+    @Test
+    public void testGeneratedTextFitsModel() throws IOException {
+        MappedCorpus corpus = MappedCorpus.load("test_books/MuchAdo.txt");
+        for (int k = 1; k <= 7; k += 3) {
+            PrimitiveRandomWriter writer = (PrimitiveRandomWriter)
+                    PrimitiveRandomWriter.createProcessor(k);
+            writer.readText(corpus);
+            String generated = writer.generateText(1_000_000,
+                    new SplittableRandom(k));
+            DistributionComparison fit = DistributionComparison.compare(
+                    writer.getTable(), table(generated, k));
+            assertTrue(fit.toString(), fit.chiSquarePValue() > 0.001);
+            assertTrue(fit.toString(), fit.meanL1() < 0.1);
+            assertTrue(fit.toString(), fit.unexpectedMass() < 0.001);
+
+            PrimitiveRandomWriter lower = (PrimitiveRandomWriter)
+                    PrimitiveRandomWriter.createProcessor(k - 1);
+            lower.readText(corpus);
+            DistributionComparison misfit = DistributionComparison.compare(
+                    writer.getTable(), table(lower.generateText(1_000_000,
+                            new SplittableRandom(k)), k));
+            assertTrue(misfit.toString(), misfit.chiSquarePValue() < 1e-6);
+            assertTrue(misfit.toString(), misfit.meanL1() > fit.meanL1());
+        }
+    }
+
+    /**
+     * Checks that the measures do not depend on the number of threads.
+     */
+    @Test
+    public void testSameOnAnyPool() throws IOException {
+        char[] text = MappedCorpus.load("test_books/MuchAdo.txt").chars();
+        ContextTable expected = ContextTable.build(Tokens.of(text), 4);
+        ContextTable observed = ContextTable.build(Tokens.of(
+                Arrays.copyOf(text, text.length / 2)), 4);
+        ForkJoinPool one = new ForkJoinPool(1);
+        ForkJoinPool four = new ForkJoinPool(4);
+        try {
+            DistributionComparison a = DistributionComparison.compare(
+                    expected, observed, one);
+            DistributionComparison b = DistributionComparison.compare(
+                    expected, observed, four);
+            assertEquals(a.meanL1(), b.meanL1(), 0);
+            assertEquals(a.klDivergence(), b.klDivergence(), 0);
+            assertEquals(a.chiSquare(), b.chiSquare(), 0);
+            assertEquals(a.toString(), b.toString());
+        } finally {
+            one.shutdown();
+            four.shutdown();
+        }
+    }
+}
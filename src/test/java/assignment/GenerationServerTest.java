@@ -0,0 +1,249 @@
+package test.java.assignment;
+
+import main.java.assignment.GenerationServer;
+import main.java.assignment.PrimitiveRandomWordWriter;
+import main.java.assignment.PrimitiveRandomWriter;
+import main.java.assignment.TextProcessor;
+import org.junit.Test;
+
+import java.util.*;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class GenerationServerTest {
+    /**
+     * Checks that the server generates the same text as a writer trained
+     * on the same source and given the same seed.
+     */
+    @Test
+    public void testServesSameTextAsWriters() throws IOException {
+        PrimitiveRandomWordWriter words = (PrimitiveRandomWordWriter)
+                PrimitiveRandomWordWriter.createProcessor(2);
+        words.readText("test_books/CatInTheHat.txt");
+        try (GenerationServer server = GenerationServer.start(0, 2, 2)) {
+            server.register("cat", "char", "test_books/CatInTheHat.txt");
+            server.register("words", 2, words);
+            try (GenerationServer.Client client =
+                         new GenerationServer.Client(server.port())) {
+                for (int k = 0; k <= 5; k++) {
+                    PrimitiveRandomWriter chars = (PrimitiveRandomWriter)
+                            PrimitiveRandomWriter.createProcessor(k);
+                    chars.readText("test_books/CatInTheHat.txt");
+                    assertEquals(expected(chars, 500, k),
+                            client.generate("cat", k, 500, k));
+                }
+                assertEquals(expected(words, 200, 9),
+                        client.generate("words", 2, 200, 9));
+                assertEquals("", client.generate("cat", 3, 0, 1));
+            }
+        }
+    }
+
+    /**
+     * Checks that texts too long to keep in memory are streamed in their
+     * place among the texts around them.
+     */
+    @Test
+    public void testStreamsLongTexts() throws IOException {
+        TextProcessor writer = PrimitiveRandomWriter.createProcessor(3);
+        writer.readText("test_books/CatInTheHat.txt");
+        try (GenerationServer server = GenerationServer.start(0, 1, 1)) {
+            server.register("cat", 3, writer);
+            try (GenerationServer.Client client =
+                         new GenerationServer.Client(server.port())) {
+                long[] lengths = {100, 600_000, 100, 200_000, 200_000};
+                for (int i = 0; i < lengths.length; i++) {
+                    client.send("cat", 3, lengths[i], i);
+                }
+                for (int i = 0; i < lengths.length; i++) {
+                    assertEquals(expected(writer, lengths[i], i),
+                            client.receive());
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that connections past the limit are refused with an error
+     * while the open ones are still served.
+     */
+    @Test
+    public void testRefusesConnectionsPastLimit() throws IOException {
+        TextProcessor writer = PrimitiveRandomWriter.createProcessor(2);
+        writer.readText("test_books/CatInTheHat.txt");
+        List<GenerationServer.Client> clients = new ArrayList<>();
+        try (GenerationServer server = GenerationServer.start(0, 1, 1)) {
+            server.register("cat", 2, writer);
+            for (int i = 0; i < GenerationServer.MAX_CONNECTIONS; i++) {
+                clients.add(new GenerationServer.Client(server.port()));
+                assertEquals(expected(writer, 10, i),
+                        clients.get(i).generate("cat", 2, 10, i));
+            }
+            try (Socket refused = new Socket(InetAddress.getLoopbackAddress(),
+                    server.port())) {
+                String error = new BufferedReader(new InputStreamReader(
+                        refused.getInputStream(), StandardCharsets.UTF_8))
+                        .readLine();
+                assertTrue(error, error.startsWith("ERR "));
+            }
+            assertEquals(expected(writer, 10, 0),
+                    clients.get(0).generate("cat", 2, 10, 0));
+        } finally {
+            for (GenerationServer.Client client : clients) {
+                client.close();
+            }
+        }
+    }
+
+    /**
+     * Checks that many clients pipelining requests through one worker and
+     * no queue each get their responses in order.
+     */
+    @Test
+    public void testPipelinedRequestsUnderBackpressure() throws Exception {
+        TextProcessor writer = PrimitiveRandomWriter.createProcessor(4);
+        writer.readText("test_books/MuchAdo.txt");
+        List<String> expected = new ArrayList<>();
+        for (int seed = 0; seed < 300; seed++) {
+            expected.add(expected(writer, 200, seed));
+        }
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try (GenerationServer server = GenerationServer.start(0, 1, 0)) {
+            server.register("ado", 4, writer);
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int c = 0; c < 8; c++) {
+                results.add(clients.submit(() -> {
+                    try (GenerationServer.Client client =
+                                 new GenerationServer.Client(server.port())) {
+                        for (int seed = 0; seed < 300; seed++) {
+                            client.send("ado", 4, 200, seed);
+                        }
+                        List<String> texts = new ArrayList<>();
+                        for (int seed = 0; seed < 300; seed++) {
+                            texts.add(client.receive());
+                        }
+                        return texts;
+                    }
+                }));
+            }
+            for (Future<List<String>> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    /**
+     * Checks that a bad request gets an error in its place while the
+     * requests around it, and the connection, are unaffected.
+     */
+    @Test
+    public void testErrorsAreAnsweredInOrder() throws IOException {
+        File model = File.createTempFile("model", ".bin");
+        model.deleteOnExit();
+        TextProcessor saved = PrimitiveRandomWriter.createProcessor(3);
+        saved.readText("test_books/CatInTheHat.txt");
+        saved.saveModel(model.getPath());
+        try (GenerationServer server = GenerationServer.start(0, 2, 2)) {
+            server.register("saved", "char", model.getPath());
+            server.register("missing", "char", "test_books/NoSuchBook.txt");
+            assertThrows(IllegalArgumentException.class,
+                    () -> server.register("bad", "nosuchkind", "x"));
+            assertThrows(IllegalArgumentException.class,
+                    () -> server.register("has space", 1, saved));
+
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+                    server.port())) {
+                Writer out = new OutputStreamWriter(socket.getOutputStream(),
+                        StandardCharsets.UTF_8);
+                out.write("saved 3 5 1\nnot a request\nnone 3 5 1\n"
+                        + "saved 3 -1 1\nsaved 4 5 1\nmissing 2 5 1\n"
+                        + "saved 3 5 1\n");
+                out.flush();
+                BufferedReader in = new BufferedReader(new InputStreamReader(
+                        socket.getInputStream(), StandardCharsets.UTF_8));
+                String first = in.readLine();
+                assertTrue(first, first.startsWith("OK "));
+                char[] text = new char[5];
+                assertEquals(5, in.read(text)); // CatInTheHat is ASCII.
+                assertTrue(in.readLine().startsWith("ERR Requests must"));
+                assertTrue(in.readLine().startsWith("ERR No model"));
+                assertTrue(in.readLine().startsWith("ERR k must"));
+                assertTrue(in.readLine().startsWith("ERR ")); // Level 3 only.
+                assertTrue(in.readLine().startsWith("ERR ")); // No file.
+                assertEquals(first, in.readLine());
+                char[] again = new char[5];
+                assertEquals(5, in.read(again));
+                assertEquals(new String(text), new String(again));
+            }
+        }
+    }
+
+    /**
+     * Checks that registering an id again serves the new source, and that
+     * a model that failed to train is trained again by a later request.
+     */
+    @Test
+    public void testReregisterAndRetry() throws IOException {
+        TextProcessor cat = PrimitiveRandomWriter.createProcessor(3);
+        cat.readText("test_books/CatInTheHat.txt");
+        TextProcessor ado = PrimitiveRandomWriter.createProcessor(3);
+        ado.readText("test_books/MuchAdo.txt");
+        File late = File.createTempFile("late", ".txt");
+        late.delete();
+        late.deleteOnExit();
+        try (GenerationServer server = GenerationServer.start(0, 1, 1);
+             GenerationServer.Client client =
+                     new GenerationServer.Client(server.port())) {
+            server.register("book", "char", "test_books/CatInTheHat.txt");
+            assertEquals(expected(cat, 300, 1),
+                    client.generate("book", 3, 300, 1));
+            server.register("book", "char", "test_books/MuchAdo.txt");
+            assertEquals(expected(ado, 300, 1),
+                    client.generate("book", 3, 300, 1));
+
+            server.register("late", "char", late.getPath());
+            assertThrows(IOException.class,
+                    () -> client.generate("late", 3, 300, 1));
+            Files.copy(
+                    new File("test_books/CatInTheHat.txt").toPath(),
+                    late.toPath());
+            assertEquals(expected(cat, 300, 1),
+                    client.generate("late", 3, 300, 1));
+        }
+    }
+
+    /**
+     * Checks that the client reports a server error as an exception.
+     */
+    @Test
+    public void testClientReportsErrors() throws IOException {
+        try (GenerationServer server = GenerationServer.start(0, 1, 1);
+             GenerationServer.Client client =
+                     new GenerationServer.Client(server.port())) {
+            IOException e = assertThrows(IOException.class,
+                    () -> client.generate("none", 1, 10, 1));
+            assertTrue(e.getMessage(), e.getMessage().startsWith("No model"));
+        }
+    }
+
+    private static String expected(TextProcessor writer, long length,
+                                   long seed) throws IOException {
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        writer.writeText(Channels.newChannel(text), length,
+                new SplittableRandom(seed));
+        return new String(text.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,227 @@
+package test.java.assignment;
+
+import main.java.assignment.PrimitiveRandomWordWriter;
+import main.java.assignment.PrimitiveRandomWriter;
+import org.junit.Test;
+
+import java.util.*;
+import java.io.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GenerationStreamsTest {
+    /**
+     * Checks that streams, readers and publishers give the same text as
+     * generateText from the same random stream.
+     */
+    @Test
+    public void testViewsMatchGenerateText() throws IOException {
+        PrimitiveRandomWriter chars = (PrimitiveRandomWriter)
+                PrimitiveRandomWriter.createProcessor(4);
+        chars.readText("test_books/CatInTheHat.txt");
+        String text = chars.generateText(5000, new SplittableRandom(7));
+        assertEquals(text, chars.streamText(5000, new SplittableRandom(7))
+                .collect(StringBuilder::new,
+                        (b, c) -> b.append((char) c), StringBuilder::append)
+                .toString());
+        assertEquals(text, readAll(chars.openText(5000,
+                new SplittableRandom(7)), 7));
+        Recorder<Character> characters = new Recorder<>();
+        chars.publishText(5000, 7).subscribe(characters);
+        characters.subscription.request(Long.MAX_VALUE);
+        assertTrue(characters.completed);
+        assertEquals(text, characters.items.stream().map(String::valueOf)
+                .collect(Collectors.joining()));
+
+        PrimitiveRandomWordWriter words = (PrimitiveRandomWordWriter)
+                PrimitiveRandomWordWriter.createProcessor(2);
+        words.readText("test_books/CatInTheHat.txt");
+        String wordText = words.generateText(800, new SplittableRandom(3));
+        assertEquals(wordText, words.streamWords(800, new SplittableRandom(3))
+                .map(word -> word + " ").collect(Collectors.joining()));
+        assertEquals(wordText, readAll(words.openText(800,
+                new SplittableRandom(3)), 3));
+        Recorder<String> published = new Recorder<>();
+        words.publishWords(800, 3).subscribe(published);
+        published.subscription.request(Long.MAX_VALUE);
+        assertEquals(wordText, published.items.stream()
+                .map(word -> word + " ").collect(Collectors.joining()));
+
+        // An untrained writer has nothing to generate.
+        PrimitiveRandomWriter empty = (PrimitiveRandomWriter)
+                PrimitiveRandomWriter.createProcessor(4);
+        assertEquals(0, empty.streamText(10, new SplittableRandom(1))
+                .count());
+        assertEquals(-1, empty.openText(10, new SplittableRandom(1)).read());
+        Recorder<Character> none = new Recorder<>();
+        empty.publishText(10, 1).subscribe(none);
+        none.subscription.request(1);
+        assertTrue(none.completed);
+        assertTrue(none.items.isEmpty());
+    }
+
+    /**
+     * Checks that an endless stream and reader generate only what is
+     * pulled.
+     */
+    @Test
+    public void testEndlessViewsArePulled() throws IOException {
+        PrimitiveRandomWriter writer = (PrimitiveRandomWriter)
+                PrimitiveRandomWriter.createProcessor(3);
+        writer.readText("test_books/MuchAdo.txt");
+        assertEquals(3_000_000, writer.streamText(Long.MAX_VALUE,
+                new SplittableRandom(1)).limit(3_000_000).count());
+        Reader reader = writer.openText(Long.MAX_VALUE,
+                new SplittableRandom(2));
+        char[] buffer = new char[1 << 16];
+        long read = 0;
+        while (read < 10_000_000) {
+            read += reader.read(buffer);
+        }
+        reader.close();
+        assertEquals(writer.generateText(1000, new SplittableRandom(2)),
+                readAll(writer.openText(1000, new SplittableRandom(2)), 1));
+    }
+
+    /**
+     * Checks that a publisher delivers exactly what is requested, stops
+     * when cancelled, rejects non-positive demand, and does not recurse
+     * when onNext requests more.
+     */
+    @Test
+    public void testPublisherFollowsDemand() throws IOException {
+        PrimitiveRandomWriter writer = (PrimitiveRandomWriter)
+                PrimitiveRandomWriter.createProcessor(3);
+        writer.readText("test_books/CatInTheHat.txt");
+        Flow.Publisher<Character> publisher = writer.publishText(100, 5);
+
+        Recorder<Character> partial = new Recorder<>();
+        publisher.subscribe(partial);
+        assertTrue(partial.items.isEmpty());
+        partial.subscription.request(3);
+        assertEquals(3, partial.items.size());
+        partial.subscription.request(2);
+        assertEquals(5, partial.items.size());
+        partial.subscription.cancel();
+        partial.subscription.request(10);
+        assertEquals(5, partial.items.size());
+        assertFalse(partial.completed);
+
+        // The last item completes the subscription without more demand.
+        Recorder<Character> exact = new Recorder<>();
+        publisher.subscribe(exact);
+        exact.subscription.request(100);
+        assertEquals(100, exact.items.size());
+        assertTrue(exact.completed);
+        assertEquals(partial.items, exact.items.subList(0, 5));
+
+        Recorder<Character> invalid = new Recorder<>();
+        publisher.subscribe(invalid);
+        invalid.subscription.request(0);
+        assertTrue(invalid.error instanceof IllegalArgumentException);
+
+        Recorder<Character> oneByOne = new Recorder<Character>() {
+            public void onNext(Character item) {
+                super.onNext(item);
+                subscription.request(1);
+            }
+        };
+        writer.publishText(500_000, 5).subscribe(oneByOne);
+        oneByOne.subscription.request(1);
+        assertEquals(500_000, oneByOne.items.size());
+        assertTrue(oneByOne.completed);
+    }
+
+    /**
+     * Checks that demand from many threads at once is delivered exactly,
+     * one signal at a time.
+     */
+    @Test
+    public void testConcurrentRequests() throws Exception {
+        PrimitiveRandomWriter writer = (PrimitiveRandomWriter)
+                PrimitiveRandomWriter.createProcessor(3);
+        writer.readText("test_books/CatInTheHat.txt");
+        AtomicBoolean overlapped = new AtomicBoolean();
+        Recorder<Character> recorder = new Recorder<Character>() {
+            private final AtomicBoolean inside = new AtomicBoolean();
+
+            public void onNext(Character item) {
+                if (!inside.compareAndSet(false, true)) {
+                    overlapped.set(true);
+                }
+                super.onNext(item);
+                inside.set(false);
+            }
+        };
+        writer.publishText(Long.MAX_VALUE, 9).subscribe(recorder);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < 8; t++) {
+            threads.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 10_000; i++) {
+                    recorder.subscription.request(3);
+                }
+            });
+        }
+        start.countDown();
+        threads.shutdown();
+        assertTrue(threads.awaitTermination(60, TimeUnit.SECONDS));
+        assertFalse(overlapped.get());
+        assertEquals(240_000, recorder.items.size());
+        StringBuilder text = new StringBuilder();
+        recorder.items.forEach(text::append);
+        assertEquals(writer.generateText(240_000, new SplittableRandom(9)),
+                text.toString());
+    }
+
+    private static String readAll(Reader reader, int chunk)
+            throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[chunk];
+        int read;
+        while ((read = reader.read(buffer)) >= 0) {
+            text.append(buffer, 0, read);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Subscriber that keeps everything it is sent.
+     */
+    private static class Recorder<T> implements Flow.Subscriber<T> {
+        protected Flow.Subscription subscription;
+        protected final List<T> items = new ArrayList<>();
+        protected boolean completed;
+        protected Throwable error;
+
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package test.java.assignment;
+
+import main.java.assignment.ContextTable;
+import main.java.assignment.DistributionComparison;
+import main.java.assignment.LazyRandomWriter;
+import main.java.assignment.MappedCorpus;
+import main.java.assignment.PrimitiveRandomWriter;
+import main.java.assignment.SuccessorDistribution;
+import main.java.assignment.Tokens;
+import org.junit.Test;
+
+import java.util.*;
+import java.io.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LazyRandomWriterTest {
+    /**
+     * Checks that every context resolved on demand has the successors a
+     * ContextTable counts for it.
+     */
+    @Test
+    public void testResolvesLikeContextTable() throws IOException {
+        char[] text = MappedCorpus.load("test_books/CatInTheHat.txt").chars();
+        for (int k = 0; k <= 4; k += 2) {
+            LazyRandomWriter writer = (LazyRandomWriter)
+                    LazyRandomWriter.createProcessor(k);
+            writer.readText(MappedCorpus.of(new String(text)));
+            LazyRandomWriter.Model model = writer.getModel();
+            ContextTable table = ContextTable.build(Tokens.of(text), k);
+            for (int c = 0; c < table.contextCount(); c++) {
+                int position = table.contextPosition(c);
+                SuccessorDistribution<Character> successors =
+                        model.successors(new String(text, position, k));
+                assertEquals(table.total(c), successors.total());
+                assertEquals(table.distinctCount(c),
+                        successors.distinctCount());
+                List<Character> occurrences = successors.toOccurrenceList();
+                int index = 0;
+                for (int i = 0; i < table.distinctCount(c); i++) {
+                    for (int j = 0; j < table.successorCount(c, i); j++) {
+                        assertEquals(table.successorToken(c, i),
+                                (int) occurrences.get(index++));
+                    }
+                }
+            }
+            if (k > 0) {
+                assertNull(model.successors("\u0000".repeat(k)));
+            }
+        }
+    }
+
+    /**
+     * Checks that the cache never outgrows its bound and that what it holds
+     * does not change the generated text.
+     */
+    @Test
+    public void testCacheDoesNotChangeOutput() throws IOException {
+        MappedCorpus corpus = MappedCorpus.load("test_books/MuchAdo.txt");
+        LazyRandomWriter small = (LazyRandomWriter)
+                LazyRandomWriter.createProcessor(5, 4);
+        small.readText(corpus);
+        LazyRandomWriter large = (LazyRandomWriter)
+                LazyRandomWriter.createProcessor(5);
+        large.readText(corpus);
+        for (int seed = 0; seed < 2; seed++) {
+            assertEquals(large.generateText(300, new SplittableRandom(seed)),
+                    small.generateText(300, new SplittableRandom(seed)));
+        }
+        assertTrue(small.getModel().cachedContexts() <= 4);
+        assertTrue(large.getModel().cachedContexts() > 4);
+    }
+
+    /**
+     * Checks that generated text fits the distribution of the full model.
+     */
+    @Test
+    public void testGeneratedTextFitsModel() throws IOException {
+        char[] text = MappedCorpus.load("test_books/MuchAdo.txt").chars();
+        LazyRandomWriter writer = (LazyRandomWriter)
+                LazyRandomWriter.createProcessor(3);
+        writer.readText(MappedCorpus.of(new String(text)));
+        String generated = writer.generateText(300_000,
+                new SplittableRandom(7));
+        DistributionComparison fit = DistributionComparison.compare(
+                ContextTable.build(Tokens.of(text), 3),
+                ContextTable.build(Tokens.of(generated.toCharArray()),
+                        3));
+        assertTrue(fit.toString(), fit.chiSquarePValue() > 0.001);
+        assertTrue(fit.toString(), fit.unexpectedMass() < 0.001);
+    }
+
+    /**
+     * Checks short texts and that saved models load in the table engine.
+     */
+    @Test
+    public void testEdgeCasesAndModels() throws IOException {
+        LazyRandomWriter writer = (LazyRandomWriter)
+                LazyRandomWriter.createProcessor(3);
+        assertEquals("", writer.generateText(10));
+        writer.readText(MappedCorpus.of("abc"));
+        assertEquals("", writer.generateText(10));
+        writer.readText(MappedCorpus.of("abcd"));
+        // "bcd" has no successor, so every character restarts at "abc".
+        assertEquals("dddd", writer.generateText(4));
+
+        File model = File.createTempFile("model", ".bin");
+        model.deleteOnExit();
+        writer.readText("test_books/CatInTheHat.txt");
+        writer.saveModel(model.getPath());
+        PrimitiveRandomWriter primitive = (PrimitiveRandomWriter)
+                PrimitiveRandomWriter.createProcessor(3);
+        primitive.loadModel(model.getPath());
+        LazyRandomWriter loaded = (LazyRandomWriter)
+                LazyRandomWriter.createProcessor(3);
+        loaded.loadModel(model.getPath());
+        assertEquals(writer.generateText(500, new SplittableRandom(1)),
+                loaded.generateText(500, new SplittableRandom(1)));
+    }
+}
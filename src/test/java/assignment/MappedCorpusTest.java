@@ -0,0 +1,96 @@
+package test.java.assignment;
+
+import main.java.assignment.MappedCorpus;
+import org.junit.Test;
+
+import java.util.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+
+public class MappedCorpusTest {
+    /**
+     * Checks that the mapped reader produces the same text as joining the
+     * lines from a BufferedReader, and counts words like split("\\s+").
+     */
+    @Test
+    public void testMatchesLineByLineReading() throws IOException {
+        String[] contents = {"", "\n", "a", "a\n", "a\n\n", "a\r\nb\rc\n",
+                "\r\r\n\n", "  leading and trailing  \n", "कख गघ\n😀 x"};
+        for (String content : contents) {
+            File file = File.createTempFile("corpus", ".txt");
+            file.deleteOnExit();
+            Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+            MappedCorpus corpus = MappedCorpus.load(file.getPath());
+            assertEquals(readLines(file), corpus.text());
+            assertEquals(corpus.text().length(), corpus.charCount());
+            assertEquals(countWords(corpus.text()), corpus.wordCount());
+        }
+
+        for (String book : new String[]{"test_books/MuchAdo.txt",
+                "test_books/CatInTheHat.txt", "test_text/ABCs.txt"}) {
+            MappedCorpus corpus = MappedCorpus.load(book);
+            assertEquals(readLines(new File(book)), corpus.text());
+            assertEquals(countWords(corpus.text()), corpus.wordCount());
+        }
+    }
+
+    /**
+     * Checks that ASCII files read as bytes hold the same characters as the
+     * decoded text, and that other files are left to the decoder.
+     */
+    @Test
+    public void testAsciiBytesMatchDecodedText() throws IOException {
+        String[] contents = {"", "\n", "a", "a\n\n", "a\r\nb\rc\n",
+                "\r\r\n\n", "  leading and trailing  \n", "café\n", "😀 x"};
+        for (String content : contents) {
+            File file = File.createTempFile("corpus", ".txt");
+            file.deleteOnExit();
+            Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+            byte[] bytes = MappedCorpus.loadAscii(file.getPath());
+            String text = MappedCorpus.load(file.getPath()).text();
+            if (content.chars().allMatch(c -> c < 0x80)) {
+                assertEquals(text, new String(bytes,
+                        StandardCharsets.US_ASCII));
+            } else {
+                assertEquals(null, bytes);
+            }
+        }
+    }
+
+    /**
+     * Reads a file the way RandomWriter used to, line by line.
+     * @param file - File to read.
+     * @return String - Lines joined by '\n' without a final terminator.
+     * @throws IOException - If the file cannot be read.
+     */
+    private static String readLines(File file) throws IOException {
+        BufferedReader textReader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8));
+        StringJoiner joiner = new StringJoiner("\n");
+        String line = textReader.readLine();
+        while (line != null) {
+            joiner.add(line);
+            line = textReader.readLine();
+        }
+        textReader.close();
+        return joiner.toString();
+    }
+
+    /**
+     * Counts the non-empty pieces of a regex split on whitespace.
+     * @param text - Text to split.
+     * @return int - The number of words.
+     */
+    private static int countWords(String text) {
+        int words = 0;
+        for (String word : text.split("\\s+")) {
+            if (!word.isEmpty()) {
+                words++;
+            }
+        }
+        return words;
+    }
+}
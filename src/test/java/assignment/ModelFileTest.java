@@ -0,0 +1,199 @@
+package test.java.assignment;
+
+import main.java.assignment.ContextTable;
+import main.java.assignment.PrimitiveRandomWordWriter;
+import main.java.assignment.PrimitiveRandomWriter;
+import main.java.assignment.RandomWordWriter;
+import main.java.assignment.RandomWriter;
+import main.java.assignment.SuffixArrayIndex;
+import main.java.assignment.SuffixArrayWriter;
+import main.java.assignment.TextProcessor;
+import main.java.assignment.Vocabulary;
+import org.junit.Test;
+
+import java.util.*;
+import java.io.*;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static test.java.assignment.SeedMaps.sorted;
+
+public class ModelFileTest {
+    private static final String BOOK = "test_books/CatInTheHat.txt";
+
+    /**
+     * Checks that saved char and word tables load back unchanged.
+     */
+    @Test
+    public void testPrimitiveRoundTrip() throws IOException {
+        File model = tempFile();
+        for (int k = 0; k <= 4; k++) {
+            PrimitiveRandomWriter saved = (PrimitiveRandomWriter)
+                    PrimitiveRandomWriter.createProcessor(k);
+            saved.readText(BOOK);
+            saved.saveModel(model.getPath());
+            PrimitiveRandomWriter loaded = (PrimitiveRandomWriter)
+                    PrimitiveRandomWriter.createProcessor(k);
+            loaded.loadModel(model.getPath());
+            assertTablesEqual(saved.getTable(), loaded.getTable());
+
+            PrimitiveRandomWordWriter savedWords = (PrimitiveRandomWordWriter)
+                    PrimitiveRandomWordWriter.createProcessor(k);
+            savedWords.readText(BOOK);
+            savedWords.saveModel(model.getPath());
+            PrimitiveRandomWordWriter loadedWords = (PrimitiveRandomWordWriter)
+                    PrimitiveRandomWordWriter.createProcessor(k);
+            loadedWords.loadModel(model.getPath());
+            assertTablesEqual(savedWords.getTable(), loadedWords.getTable());
+            Vocabulary expected = savedWords.getVocabulary();
+            Vocabulary actual = loadedWords.getVocabulary();
+            assertEquals(expected.size(), actual.size());
+            for (int id = 0; id < expected.size(); id++) {
+                assertEquals(expected.word(id), actual.word(id));
+            }
+        }
+    }
+
+    /**
+     * Checks that RandomWriter rebuilds the same seed map from a model, and
+     * that its models can be loaded by PrimitiveRandomWriter.
+     */
+    @Test
+    public void testRandomWriterRoundTrip() throws IOException {
+        File model = tempFile();
+        for (int k = 0; k <= 4; k++) {
+            RandomWriter saved = (RandomWriter) RandomWriter.createProcessor(k);
+            saved.readText(BOOK);
+            saved.saveModel(model.getPath());
+            RandomWriter loaded = (RandomWriter) RandomWriter.createProcessor(k);
+            loaded.loadModel(model.getPath());
+            assertEquals(sorted(saved.getSeedToNextCharacters()),
+                    sorted(loaded.getSeedToNextCharacters()));
+
+            PrimitiveRandomWriter primitive = (PrimitiveRandomWriter)
+                    PrimitiveRandomWriter.createProcessor(k);
+            primitive.readText(BOOK);
+            PrimitiveRandomWriter crossLoaded = (PrimitiveRandomWriter)
+                    PrimitiveRandomWriter.createProcessor(k);
+            crossLoaded.loadModel(model.getPath());
+            assertTablesEqual(primitive.getTable(), crossLoaded.getTable());
+        }
+
+        // Word models also round-trip through the String-keyed writer.
+        TextProcessor words = RandomWordWriter.createProcessor(2);
+        words.readText(BOOK);
+        words.saveModel(model.getPath());
+        PrimitiveRandomWordWriter primitive = (PrimitiveRandomWordWriter)
+                PrimitiveRandomWordWriter.createProcessor(2);
+        primitive.readText(BOOK);
+        PrimitiveRandomWordWriter crossLoaded = (PrimitiveRandomWordWriter)
+                PrimitiveRandomWordWriter.createProcessor(2);
+        crossLoaded.loadModel(model.getPath());
+        assertTablesEqual(primitive.getTable(), crossLoaded.getTable());
+        RandomWordWriter.createProcessor(2).loadModel(model.getPath());
+    }
+
+    /**
+     * Checks that a suffix model restores the index for every level.
+     */
+    @Test
+    public void testSuffixArrayRoundTrip() throws IOException {
+        File model = tempFile();
+        SuffixArrayWriter saved = (SuffixArrayWriter)
+                SuffixArrayWriter.createProcessor(3);
+        saved.readText(BOOK);
+        saved.saveModel(model.getPath());
+        SuffixArrayWriter loaded = (SuffixArrayWriter)
+                SuffixArrayWriter.createProcessor(5);
+        loaded.loadModel(model.getPath());
+        SuffixArrayIndex expected = saved.getIndex();
+        SuffixArrayIndex actual = loaded.getIndex();
+        assertEquals(expected.length(), actual.length());
+        for (int i = 0; i < expected.length(); i++) {
+            assertEquals(expected.suffixAt(i), actual.suffixAt(i));
+            assertEquals(expected.charAt(i), actual.charAt(i));
+            assertEquals(expected.successorRange(i, 5),
+                    actual.successorRange(i, 5));
+        }
+    }
+
+    /**
+     * Checks that files of the wrong kind, level or shape are rejected.
+     */
+    @Test
+    public void testRejectsMismatchedModels() throws IOException {
+        File model = tempFile();
+        TextProcessor saved = PrimitiveRandomWriter.createProcessor(2);
+        saved.readText(BOOK);
+        saved.saveModel(model.getPath());
+
+        assertThrows(IOException.class, () -> PrimitiveRandomWriter
+                .createProcessor(3).loadModel(model.getPath()));
+        assertThrows(IOException.class, () -> PrimitiveRandomWordWriter
+                .createProcessor(2).loadModel(model.getPath()));
+        assertThrows(IOException.class, () -> SuffixArrayWriter
+                .createProcessor(2).loadModel(model.getPath()));
+        assertThrows(IOException.class, () -> PrimitiveRandomWriter
+                .createProcessor(2).loadModel(BOOK));
+
+        // Cut the model in half.
+        byte[] bytes = Files.readAllBytes(model.toPath());
+        Files.write(model.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+        assertThrows(IOException.class, () -> PrimitiveRandomWriter
+                .createProcessor(2).loadModel(model.getPath()));
+    }
+
+    /**
+     * Checks that the command line tools generate from a saved model.
+     */
+    @Test
+    public void testMainReadsModels() throws IOException {
+        File model = tempFile();
+        File output = tempFile();
+        TextProcessor saved = PrimitiveRandomWriter.createProcessor(3);
+        saved.readText("test_text/And.txt");
+        saved.saveModel(model.getPath());
+        RandomWriter.main(new String[]{model.getPath(), output.getPath(),
+                "3", "10"});
+        assertEquals("&".repeat(10),
+                new String(Files.readAllBytes(output.toPath())));
+        PrimitiveRandomWriter.main(new String[]{model.getPath(),
+                output.getPath(), "3", "12"});
+        assertEquals("&".repeat(12),
+                new String(Files.readAllBytes(output.toPath())));
+    }
+
+    private static File tempFile() throws IOException {
+        File file = File.createTempFile("model", ".bin");
+        file.deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Compares every context and successor entry of two tables.
+     */
+    private static void assertTablesEqual(ContextTable expected,
+                                          ContextTable actual) {
+        assertEquals(expected.level(), actual.level());
+        assertEquals(expected.contextCount(), actual.contextCount());
+        assertEquals(expected.successorEntryCount(),
+                actual.successorEntryCount());
+        for (int c = 0; c < expected.contextCount(); c++) {
+            assertEquals(expected.contextPosition(c), actual.contextPosition(c));
+            assertEquals(expected.total(c), actual.total(c));
+            assertEquals(expected.distinctCount(c), actual.distinctCount(c));
+            for (int i = 0; i < expected.distinctCount(c); i++) {
+                assertEquals(expected.successorToken(c, i),
+                        actual.successorToken(c, i));
+                assertEquals(expected.successorCount(c, i),
+                        actual.successorCount(c, i));
+                assertEquals(expected.sample(c, i, 0), actual.sample(c, i, 0));
+                assertEquals(expected.sample(c, i, expected.total(c) - 1),
+                        actual.sample(c, i, expected.total(c) - 1));
+            }
+        }
+        assertTrue(expected.contextCount() > 0);
+    }
+}
@@ -0,0 +1,93 @@
+package test.java.assignment;
+
+import main.java.assignment.PrimitiveRandomWordWriter;
+import main.java.assignment.PrimitiveRandomWriter;
+import main.java.assignment.RandomWordWriter;
+import main.java.assignment.RandomWriter;
+import main.java.assignment.SuffixArrayWriter;
+import org.junit.Test;
+
+import java.util.*;
+import java.io.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ModelSnapshotTest {
+    /**
+     * Checks that every writer produces the same text from the same random
+     * stream.
+     */
+    @Test
+    public void testSameStreamSameText() throws IOException {
+        String book = "test_books/CatInTheHat.txt";
+        RandomWriter chars = (RandomWriter) RandomWriter.createProcessor(3);
+        RandomWordWriter words = (RandomWordWriter)
+                RandomWordWriter.createProcessor(2);
+        PrimitiveRandomWriter primitiveChars = (PrimitiveRandomWriter)
+                PrimitiveRandomWriter.createProcessor(3);
+        PrimitiveRandomWordWriter primitiveWords = (PrimitiveRandomWordWriter)
+                PrimitiveRandomWordWriter.createProcessor(2);
+        SuffixArrayWriter suffixes = (SuffixArrayWriter)
+                SuffixArrayWriter.createProcessor(3);
+        chars.readText(book);
+        words.readText(book);
+        primitiveChars.readText(book);
+        primitiveWords.readText(book);
+        suffixes.readText(book);
+
+        assertEquals(chars.generateText(500, new SplittableRandom(7)),
+                chars.generateText(500, new SplittableRandom(7)));
+        assertEquals(words.generateText(100, new SplittableRandom(7)),
+                words.generateText(100, new SplittableRandom(7)));
+        assertEquals(primitiveChars.generateText(500, new SplittableRandom(7)),
+                primitiveChars.generateText(500, new SplittableRandom(7)));
+        assertEquals(primitiveWords.generateText(100, new SplittableRandom(7)),
+                primitiveWords.generateText(100, new SplittableRandom(7)));
+        assertEquals(suffixes.generateText(500, new SplittableRandom(7)),
+                suffixes.generateText(500, new SplittableRandom(7)));
+    }
+
+    /**
+     * Generates from several threads while another thread keeps retraining
+     * the writer on different texts. Every output must come entirely from
+     * one of the two models, never from a mix or a half-built one.
+     */
+    @Test
+    public void testGenerationDuringRetraining() throws Exception {
+        RandomWriter writer = (RandomWriter) RandomWriter.createProcessor(1);
+        writer.readText("test_text/ABCs.txt");
+        String alphabet = "abcdefghijklmnopqrstuvwxyz";
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> outputs = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                outputs.add(pool.submit(() -> {
+                    List<String> texts = new ArrayList<>();
+                    for (int i = 0; i < 200; i++) {
+                        RandomWriter.Model model = writer.getModel();
+                        StringBuilder text = new StringBuilder();
+                        model.generateText(26, text,
+                                new SplittableRandom(i));
+                        texts.add(text.toString());
+                    }
+                    return texts;
+                }));
+            }
+            for (int i = 0; i < 200; i++) {
+                writer.readText(i % 2 == 0 ? "test_text/And.txt"
+                        : "test_text/ABCs.txt");
+            }
+            for (Future<List<String>> output : outputs) {
+                for (String text : output.get()) {
+                    assertEquals(26, text.length());
+                    assertTrue(text, text.equals("&".repeat(26))
+                            || (alphabet + alphabet).contains(text));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package test.java.assignment;
+
+import main.java.assignment.ByteRandomWriter;
+import main.java.assignment.MappedCorpus;
+import main.java.assignment.NGramModel;
+import main.java.assignment.PrimitiveRandomWordWriter;
+import main.java.assignment.RandomWordWriter;
+import main.java.assignment.Tokenizer;
+import main.java.assignment.Tokens;
+import org.junit.Test;
+
+import java.util.*;
+import java.io.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static test.java.assignment.SeedMaps.sorted;
+
+public class NGramModelTest {
+    private static final List<Tokenizer> TOKENIZERS = List.of(
+            Tokenizer.CHARS, Tokenizer.CODE_POINTS, Tokenizer.BYTES,
+            Tokenizer.WORDS);
+
+    /**
+     * Checks that every tokenizer gives back its text, and that code points
+     * keep a supplementary character as one token.
+     */
+    @Test
+    public void testTokenizersRoundTrip() throws IOException {
+        String text = "café naïve 😀 नम";
+        for (Tokenizer tokenizer : List.of(Tokenizer.CHARS,
+                Tokenizer.CODE_POINTS, Tokenizer.BYTES)) {
+            Tokens tokens = tokenizer.tokenize(text);
+            assertEquals(tokenizer.toString(), text,
+                    tokens.text(0, tokens.size()));
+        }
+        assertEquals(text.length() - 1,
+                Tokenizer.CODE_POINTS.tokenize(text).size());
+        Tokens latin1 = Tokenizer.BYTES.tokenize("café");
+        assertEquals(4, latin1.size());
+        assertEquals(0xe9, latin1.tokenAt(3));
+        Tokens words = Tokenizer.WORDS.tokenize("the cat  the\nhat");
+        assertEquals(4, words.size());
+        assertEquals(words.tokenAt(0), words.tokenAt(2));
+        assertEquals("the cat the hat", words.text(0, words.size()));
+
+        // Generation never splits a surrogate pair.
+        NGramModel emoji = NGramModel.train(Tokenizer.CODE_POINTS,
+                "😀a😁b😀c", 1);
+        StringBuilder generated = new StringBuilder();
+        emoji.generate(1000, generated, new SplittableRandom(4));
+        assertEquals(1000, generated.codePointCount(0, generated.length()));
+        for (int i = 0; i < generated.length(); i++) {
+            char c = generated.charAt(i);
+            if (Character.isHighSurrogate(c)) {
+                assertTrue(Character.isLowSurrogate(generated.charAt(++i)));
+            } else {
+                assertFalse(Character.isLowSurrogate(c));
+            }
+        }
+    }
+
+    /**
+     * Appends a text in pieces with every tokenizer and checks that the
+     * counts and the joined tokens match training on the whole text.
+     */
+    @Test
+    public void testAppendMatchesTrainForEveryTokenizer() throws IOException {
+        String text = MappedCorpus.load("test_books/MuchAdo.txt").text()
+                .substring(0, 8000) + " été 😀 αβ";
+        for (Tokenizer tokenizer : TOKENIZERS) {
+            for (int k = 0; k <= 3; k++) {
+                NGramModel full = NGramModel.train(tokenizer, text, k);
+                NGramModel appended = NGramModel.train(tokenizer, "", k);
+                int start = 0;
+                for (int piece = 1; start < text.length(); piece++) {
+                    int end = Math.min(text.length(),
+                            start + piece * piece % 89);
+                    // Cut only where no word or surrogate pair is split.
+                    while (end < text.length()
+                            && !Character.isWhitespace(text.charAt(end))) {
+                        end++;
+                    }
+                    appended = appended.append(text.substring(start, end));
+                    start = end;
+                }
+                String message = tokenizer + " k=" + k;
+                assertEquals(message, full.tokenCount(),
+                        appended.tokenCount());
+                assertEquals(message, sorted(full.successorLists(
+                        full::tokenText)), sorted(appended.successorLists(
+                        appended::tokenText)));
+                Tokens joined = appended.tokens();
+                Tokens whole = full.tokens();
+                assertEquals(message, whole.text(0, whole.size()),
+                        joined.text(0, joined.size()));
+            }
+        }
+    }
+
+    /**
+     * Checks that a segmented model generates only what the whole text
+     * allows, and the same text from the same random stream.
+     */
+    @Test
+    public void testSegmentedGeneration() throws IOException {
+        NGramModel model = NGramModel.train(Tokenizer.CHARS, "abcd", 2)
+                .append("efgh").append("ijkl").append("mnop");
+        StringBuilder text = new StringBuilder();
+        model.generate(2000, text, new SplittableRandom(11));
+        // Seeds across the joins have successors, so only "op" restarts.
+        for (int i = 1; i < text.length(); i++) {
+            char previous = text.charAt(i - 1);
+            assertTrue(text.substring(i - 1, i + 1),
+                    text.charAt(i) == previous + 1 || previous == 'p');
+        }
+        StringBuilder again = new StringBuilder();
+        model.generate(2000, again, new SplittableRandom(11));
+        assertEquals(text.toString(), again.toString());
+        PrimitiveIterator.OfInt cursor = model.cursor(
+                new SplittableRandom(11));
+        for (int i = 0; i < 2000; i++) {
+            assertEquals(text.charAt(i), cursor.nextInt());
+        }
+    }
+
+    /**
+     * Checks that models saved by the front-ends load in the writers that
+     * share their file format.
+     */
+    @Test
+    public void testSavedModelsAreShared() throws IOException {
+        File file = File.createTempFile("model", ".bin");
+        file.deleteOnExit();
+        RandomWordWriter words = (RandomWordWriter)
+                RandomWordWriter.createProcessor(2);
+        words.readText("test_books/CatInTheHat.txt");
+        words.appendText("a tiny extra line of words");
+        words.saveModel(file.getPath());
+        PrimitiveRandomWordWriter primitive = (PrimitiveRandomWordWriter)
+                PrimitiveRandomWordWriter.createProcessor(2);
+        primitive.loadModel(file.getPath());
+        RandomWordWriter loaded = (RandomWordWriter)
+                RandomWordWriter.createProcessor(2);
+        loaded.loadModel(file.getPath());
+        assertEquals(sorted(words.getSeedToNextWords()),
+                sorted(loaded.getSeedToNextWords()));
+        assertEquals(primitive.getTable().contextCount(),
+                loaded.getSeedToNextWords().size());
+
+        ByteRandomWriter bytes = (ByteRandomWriter)
+                ByteRandomWriter.createProcessor(3);
+        bytes.readText(MappedCorpus.of("naïve 😀 café"));
+        bytes.saveModel(file.getPath());
+        ByteRandomWriter loadedBytes = (ByteRandomWriter)
+                ByteRandomWriter.createProcessor(3);
+        loadedBytes.loadModel(file.getPath());
+        assertEquals(bytes.generateText(200, new SplittableRandom(2)),
+                loadedBytes.generateText(200, new SplittableRandom(2)));
+    }
+}
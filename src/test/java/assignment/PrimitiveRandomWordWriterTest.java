@@ -0,0 +1,68 @@
+package test.java.assignment;
+
+import main.java.assignment.ContextTable;
+import main.java.assignment.PrimitiveRandomWordWriter;
+import main.java.assignment.TextProcessor;
+import main.java.assignment.Vocabulary;
+import org.junit.Test;
+
+import java.util.*;
+import java.io.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PrimitiveRandomWordWriterTest {
+    /**
+     * Checks that the id-based table holds the same successor counts as
+     * String seeds built the way RandomWordWriter builds them.
+     */
+    @Test
+    public void testTableMatchesStringSeeds() throws IOException {
+        String inputFilename = "test_books/OneFishTwoFish.txt";
+        String[] words = new String(java.nio.file.Files.readAllBytes(
+                new File(inputFilename).toPath())).split("\\s+");
+        for (int k = 0; k <= 4; k++) {
+            PrimitiveRandomWordWriter writer = (PrimitiveRandomWordWriter)
+                    PrimitiveRandomWordWriter.createProcessor(k);
+            writer.readText(inputFilename);
+            Vocabulary vocabulary = writer.getVocabulary();
+            ContextTable table = writer.getTable();
+
+            // Count successors of every seed with plain Strings.
+            Map<List<String>, Integer> expectedTotals = new HashMap<>();
+            for (int i = 0; i + k < words.length; i++) {
+                List<String> seed = Arrays.asList(words).subList(i, i + k);
+                expectedTotals.merge(seed, 1, Integer::sum);
+            }
+            assertEquals(expectedTotals.size(), table.contextCount());
+            for (List<String> seed : expectedTotals.keySet()) {
+                int[] ids = new int[k];
+                for (int i = 0; i < k; i++) {
+                    ids[i] = vocabulary.idOf(seed.get(i));
+                }
+                int context = table.find(ids, ContextTable.hash(ids, 0, k));
+                assertTrue("Missing seed " + seed, context >= 0);
+                assertEquals((int) expectedTotals.get(seed),
+                        table.total(context));
+            }
+        }
+    }
+
+    /**
+     * Tests generation on a text with a single possible continuation.
+     */
+    @Test
+    public void testManualInspection() throws IOException {
+        // ABCs.txt is a single word, so level 0 can only repeat it.
+        TextProcessor generator = PrimitiveRandomWordWriter.createProcessor(0);
+        generator.readText("test_text/ABCs.txt");
+        String word = "abcdefghijklmnopqrstuvwxyzabcdefghijklmnopqrstuvwxyz ";
+        assertEquals(word.repeat(3),
+                ((PrimitiveRandomWordWriter) generator).generateText(3));
+        generator = PrimitiveRandomWordWriter.createProcessor(1);
+        generator.readText("test_text/ABCs.txt");
+        assertEquals("", ((PrimitiveRandomWordWriter) generator)
+                .generateText(5));
+    }
+}
@@ -0,0 +1,144 @@
+package test.java.assignment;
+
+import main.java.assignment.ContextTable;
+import main.java.assignment.PrimitiveRandomWriter;
+import main.java.assignment.RandomWriter;
+import main.java.assignment.TextProcessor;
+import main.java.assignment.Tokens;
+import org.junit.Test;
+
+import java.util.*;
+import java.io.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PrimitiveRandomWriterTest {
+    /**
+     * Checks that the primitive table holds exactly the same successor
+     * counts as RandomWriter's seed map for several levels.
+     */
+    @Test
+    public void testTableMatchesRandomWriter() throws IOException {
+        String inputFilename = "test_books/CatInTheHat.txt";
+        char[] text = RandomWriter.fileContentsToString(inputFilename)
+                .toCharArray();
+        for (int k = 0; k <= 6; k++) {
+            RandomWriter writer = (RandomWriter) RandomWriter.createProcessor(k);
+            writer.readText(inputFilename);
+            Map<String, List<Character>> expected =
+                    writer.getSeedToNextCharacters();
+            ContextTable table = ContextTable.build(Tokens.of(text), k);
+
+            assertEquals(expected.size(), table.contextCount());
+            for (String seed : expected.keySet()) {
+                int[] seedChars = seed.chars().toArray();
+                int context = table.find(seedChars,
+                        ContextTable.hash(seedChars, 0, k));
+                assertTrue("Missing seed " + seed, context >= 0);
+                List<Character> nextChars = expected.get(seed);
+                assertEquals(nextChars.size(), table.total(context));
+
+                // Walking every occurrence index must reproduce the counts.
+                Map<Character, Integer> expectedCounts = new HashMap<>();
+                Map<Character, Integer> actualCounts = new HashMap<>();
+                for (int i = 0; i < nextChars.size(); i++) {
+                    expectedCounts.merge(nextChars.get(i), 1, Integer::sum);
+                    actualCounts.merge((char) table.successorAt(context, i),
+                            1, Integer::sum);
+                }
+                assertEquals(expectedCounts, actualCounts);
+            }
+        }
+    }
+
+    /**
+     * Checks that the fork-join build numbers contexts and lays out their
+     * successors exactly like the sequential build, on a text long enough to
+     * be split into several chunks.
+     */
+    @Test
+    public void testParallelBuildMatchesSequential() throws IOException {
+        String book = RandomWriter.fileContentsToString(
+                "test_books/MuchAdo.txt");
+        char[] text = (book + "\n").repeat(4).toCharArray();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int k = 0; k <= 8; k++) {
+                ContextTable expected = ContextTable.build(
+                        Tokens.of(text), k);
+                ContextTable actual = ContextTable.buildParallel(
+                        Tokens.of(text), k, pool);
+                assertEquals(expected.contextCount(), actual.contextCount());
+                assertEquals(expected.successorEntryCount(),
+                        actual.successorEntryCount());
+
+                boolean[] checked = new boolean[expected.contextCount()];
+                int[] seed = new int[k];
+                for (int i = 0; i + k < text.length; i++) {
+                    for (int j = 0; j < k; j++) {
+                        seed[j] = text[i + j];
+                    }
+                    long hash = ContextTable.hash(seed, 0, k);
+                    int context = expected.find(seed, hash);
+                    assertEquals(context, actual.find(seed, hash));
+                    if (checked[context]) {
+                        continue;
+                    }
+                    checked[context] = true;
+                    int total = expected.total(context);
+                    int distinct = expected.distinctCount(context);
+                    assertEquals(total, actual.total(context));
+                    assertEquals(distinct, actual.distinctCount(context));
+                    for (int n = 0; n < total; n++) {
+                        assertEquals(expected.successorAt(context, n),
+                                actual.successorAt(context, n));
+                    }
+                    for (int column = 0; column < distinct; column++) {
+                        assertEquals(expected.sample(context, column, 0),
+                                actual.sample(context, column, 0));
+                        assertEquals(expected.sample(context, column,
+                                total - 1), actual.sample(context, column,
+                                total - 1));
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Checks that unseen contexts and texts shorter than k are handled.
+     */
+    @Test
+    public void testEdgeCases() {
+        ContextTable table = ContextTable.build(
+                Tokens.of("abc".toCharArray()), 2);
+        int[] unseen = "zz".chars().toArray();
+        assertEquals(-1, table.find(unseen, ContextTable.hash(unseen, 0, 2)));
+        assertEquals(0, ContextTable.build(
+                Tokens.of("ab".toCharArray()), 2).contextCount());
+        assertEquals(0, ContextTable.build(
+                Tokens.of(new char[0]), 0).contextCount());
+    }
+
+    /**
+     * Tests PrimitiveRandomWriter using cases with manually checkable answers.
+     */
+    @Test
+    public void testManualInspection() throws IOException {
+        TextProcessor generator = PrimitiveRandomWriter.createProcessor(1);
+        generator.readText("test_text/ABCs.txt");
+        String alphabet = "abcdefghijklmnopqrstuvwxyz";
+        String output = ((PrimitiveRandomWriter) generator).generateText(26);
+        assertEquals(26, output.length());
+        assertTrue((alphabet + alphabet).contains(output));
+
+        generator = PrimitiveRandomWriter.createProcessor(3);
+        generator.readText("test_text/And.txt");
+        assertEquals("&".repeat(26),
+                ((PrimitiveRandomWriter) generator).generateText(26));
+    }
+}
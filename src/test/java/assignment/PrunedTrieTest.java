@@ -0,0 +1,115 @@
+package test.java.assignment;
+
+import main.java.assignment.BackoffRandomWriter;
+import main.java.assignment.ContextTable;
+import main.java.assignment.ContextTrie;
+import main.java.assignment.MappedCorpus;
+import main.java.assignment.PrunedTrie;
+import main.java.assignment.Tokens;
+import org.junit.Test;
+
+import java.util.*;
+import java.io.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class PrunedTrieTest {
+    /**
+     * Checks that a budget the whole trie fits in prunes nothing.
+     */
+    @Test
+    public void testLargeBudgetKeepsEveryContext() throws IOException {
+        char[] text = MappedCorpus.load("test_books/CatInTheHat.txt").chars();
+        ContextTrie whole = ContextTrie.build(Tokens.of(text), 6);
+        PrunedTrie pruned = PrunedTrie.build(Tokens.of(text), 6,
+                1L << 30);
+        assertEquals(1, pruned.minCount());
+        assertEquals(0, pruned.sketchBytes());
+        assertEquals(whole.nodeCount(), pruned.trie().nodeCount());
+        for (int k = 0; k <= 6; k++) {
+            assertEquals(1.0, pruned.retainedMass(k), 1e-9);
+        }
+    }
+
+    /**
+     * Checks that a small budget keeps every frequent context with its
+     * exact counts, stays within the budget and reports the mass it kept.
+     */
+    @Test
+    public void testSmallBudgetKeepsFrequentContexts() throws IOException {
+        char[] text = MappedCorpus.load("test_books/MuchAdo.txt").chars();
+        long budget = 2L << 20;
+        PrunedTrie pruned = PrunedTrie.build(Tokens.of(text), 6,
+                budget);
+        ContextTrie trie = pruned.trie();
+        assertTrue(pruned.minCount() > 1);
+        assertTrue(trie.sizeInBytes() + pruned.sketchBytes() <= budget);
+        assertEquals(1.0, pruned.retainedMass(0), 1e-9);
+
+        for (int k = 0; k <= 6; k++) {
+            ContextTable table = ContextTable.build(Tokens.of(text), k);
+            long kept = 0;
+            int contexts = 0;
+            for (int c = 0; c < table.contextCount(); c++) {
+                int[] seed = new int[k];
+                for (int i = 0; i < k; i++) {
+                    seed[i] = text[table.contextPosition(c) + i];
+                }
+                int node = trie.find(seed, k);
+                if (table.total(c) >= pruned.minCount()) {
+                    assertTrue(node >= 0);
+                }
+                if (node >= 0) {
+                    assertEquals(table.total(c), trie.total(node));
+                    kept += table.total(c);
+                    contexts++;
+                }
+            }
+            assertEquals(contexts, pruned.contextCount(k));
+            assertEquals((double) kept / (text.length - k),
+                    pruned.retainedMass(k), 1e-9);
+            if (k > 0) {
+                assertTrue(pruned.retainedMass(k)
+                        <= pruned.retainedMass(k - 1));
+            }
+        }
+        assertTrue(pruned.retainedMass(6) < 1);
+    }
+
+    /**
+     * Checks that a bounded writer generates by backing off past pruned
+     * contexts.
+     */
+    @Test
+    public void testBoundedWriterGenerates() throws IOException {
+        String book = "test_books/MuchAdo.txt";
+        BackoffRandomWriter bounded = (BackoffRandomWriter)
+                BackoffRandomWriter.createBoundedProcessor(8, 1L << 20);
+        bounded.readText(book);
+        assertTrue(bounded.getPruning().minCount() > 1);
+        String text = bounded.generateText(2000, new SplittableRandom(4));
+        assertEquals(2000, text.length());
+        String input = MappedCorpus.load(book).text();
+        for (int i = 0; i < text.length(); i++) {
+            assertTrue(input.indexOf(text.charAt(i)) >= 0);
+        }
+
+        BackoffRandomWriter unbounded = (BackoffRandomWriter)
+                BackoffRandomWriter.createProcessor(8);
+        unbounded.readText(book);
+        assertNull(unbounded.getPruning());
+    }
+
+    /**
+     * Checks that a budget too small for any context is rejected.
+     */
+    @Test
+    public void testBudgetTooSmall() throws IOException {
+        char[] text = MappedCorpus.load("test_books/CatInTheHat.txt").chars();
+        assertThrows(IllegalArgumentException.class, () -> PrunedTrie.build(
+                Tokens.of(text), 4, 100));
+    }
+}
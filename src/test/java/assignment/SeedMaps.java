@@ -0,0 +1,26 @@
+package test.java.assignment;
+
+import java.util.*;
+
+/**
+ * Helpers for comparing seed -> successor maps whose lists may list the
+ * same successors in different orders.
+ */
+final class SeedMaps {
+    private SeedMaps() {
+    }
+
+    /**
+     * Sorts every successor list of a seed map in place.
+     * @param seedMap - The map to sort.
+     * @param <T> - The type of the successors.
+     * @return Map - The same map, for use inside assertions.
+     */
+    static <T extends Comparable<T>> Map<String, List<T>> sorted(
+            Map<String, List<T>> seedMap) {
+        for (List<T> successors : seedMap.values()) {
+            Collections.sort(successors);
+        }
+        return seedMap;
+    }
+}
@@ -0,0 +1,69 @@
+package test.java.assignment;
+
+import main.java.assignment.ContextTable;
+import main.java.assignment.RandomWriter;
+import main.java.assignment.SuffixArrayIndex;
+import main.java.assignment.SuffixArrayWriter;
+import main.java.assignment.Tokens;
+import org.junit.Test;
+
+import java.io.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SuffixArrayWriterTest {
+    /**
+     * Checks that the suffix array is sorted and that one index reports the
+     * same successor counts as a per-level table for k = 0..10.
+     */
+    @Test
+    public void testIndexMatchesTables() throws IOException {
+        char[] text = RandomWriter.fileContentsToString(
+                "test_books/OneFishTwoFish.txt").toCharArray();
+        SuffixArrayIndex index = new SuffixArrayIndex(text);
+        String asString = new String(text);
+        for (int i = 1; i < text.length; i++) {
+            String previous = asString.substring(index.suffixAt(i - 1));
+            String current = asString.substring(index.suffixAt(i));
+            assertTrue(previous.compareTo(current) < 0);
+        }
+
+        for (int k = 0; k <= 10; k++) {
+            Tokens tokens = Tokens.of(text);
+            ContextTable table = ContextTable.build(tokens, k);
+            for (int position = 0; position + k < text.length; position++) {
+                int[] seed = new int[k];
+                for (int i = 0; i < k; i++) {
+                    seed[i] = text[position + i];
+                }
+                int context = table.find(seed,
+                        ContextTable.hash(tokens, position, k));
+                assertEquals(table.total(context),
+                        index.successorCount(position, k));
+            }
+        }
+    }
+
+    /**
+     * Tests generation at several levels from a single index.
+     */
+    @Test
+    public void testManualInspection() {
+        SuffixArrayWriter writer =
+                (SuffixArrayWriter) SuffixArrayWriter.createProcessor(1);
+        writer.readText("test_text/ABCs.txt");
+        String alphabet = "abcdefghijklmnopqrstuvwxyz";
+        for (int k = 0; k <= 3; k++) {
+            String output = writer.withLevel(k).generateText(26);
+            assertEquals(26, output.length());
+            if (k > 0) {
+                assertTrue((alphabet + alphabet).contains(output));
+            }
+        }
+
+        writer.readText("test_text/And.txt");
+        assertEquals("&".repeat(26), writer.withLevel(3).generateText(26));
+        assertEquals("", writer.withLevel(4).generateText(26));
+    }
+}
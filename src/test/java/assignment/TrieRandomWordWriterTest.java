@@ -0,0 +1,150 @@
+package test.java.assignment;
+
+import main.java.assignment.ContextTable;
+import main.java.assignment.DoubleArrayTrie;
+import main.java.assignment.MappedCorpus;
+import main.java.assignment.Tokens;
+import main.java.assignment.TrieRandomWordWriter;
+import main.java.assignment.Vocabulary;
+import org.junit.Test;
+
+import java.util.*;
+import java.io.*;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TrieRandomWordWriterTest {
+    /**
+     * Interns the words of a book the way the word engines do.
+     */
+    private static int[] wordIds(String book) throws IOException {
+        String[] words = MappedCorpus.load(book).text().split("\\s+");
+        Vocabulary vocabulary = new Vocabulary();
+        int[] ids = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            ids[i] = vocabulary.intern(words[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * Wraps word ids as tokens, with a vocabulary that names every id.
+     */
+    private static Tokens tokens(int... ids) {
+        Vocabulary vocabulary = new Vocabulary();
+        for (int id : ids) {
+            while (vocabulary.size() <= id) {
+                vocabulary.intern("w" + vocabulary.size());
+            }
+        }
+        return Tokens.ofWords(ids, vocabulary);
+    }
+
+    /**
+     * Checks that the trie numbers, stores and finds every context exactly
+     * like a ContextTable built over the same word ids.
+     */
+    @Test
+    public void testTrieMatchesTable() throws IOException {
+        int[] ids = wordIds("test_books/MuchAdo.txt");
+        for (int k = 0; k <= 5; k++) {
+            ContextTable table = ContextTable.build(tokens(ids), k);
+            DoubleArrayTrie trie = DoubleArrayTrie.build(tokens(ids), k);
+            assertEquals(table.contextCount(), trie.contextCount());
+            assertEquals(table.successorEntryCount(),
+                    trie.successorEntryCount());
+            assertEquals(ids.length - k, trie.occurrenceCount());
+            int[] context = new int[k];
+            for (int c = 0; c < table.contextCount(); c++) {
+                trie.copyContext(c, context);
+                assertArrayEquals(Arrays.copyOfRange(ids,
+                        table.contextPosition(c),
+                        table.contextPosition(c) + k), context);
+                assertEquals(c, trie.find(context));
+                assertEquals(table.total(c), trie.total(c));
+                assertEquals(table.distinctCount(c), trie.distinctCount(c));
+                for (int i = 0; i < table.distinctCount(c); i++) {
+                    assertEquals(table.successorToken(c, i),
+                            trie.successorToken(c, i));
+                    assertEquals(table.successorCount(c, i),
+                            trie.successorCount(c, i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that unseen contexts and empty texts are not found.
+     */
+    @Test
+    public void testMissingContexts() {
+        DoubleArrayTrie trie = DoubleArrayTrie.build(
+                tokens(0, 1, 2, 0, 1, 3), 2);
+        assertEquals(3, trie.contextCount());
+        assertEquals(0, trie.find(new int[] {0, 1}));
+        assertEquals(-1, trie.find(new int[] {1, 0}));
+        assertEquals(-1, trie.find(new int[] {1, 3})); // No successor.
+        assertEquals(-1, trie.find(new int[] {7, 1}));
+        assertEquals(-1, trie.find(new int[] {0, 9}));
+        assertEquals(0, DoubleArrayTrie.build(tokens(0, 1), 2)
+                .contextCount());
+        assertEquals("", ((TrieRandomWordWriter) TrieRandomWordWriter
+                .createProcessor(2)).generateText(10));
+    }
+
+    /**
+     * Checks that every generated word follows its k preceding words
+     * somewhere in the text.
+     */
+    @Test
+    public void testGeneratedWordsFollowTheirContext() throws IOException {
+        String book = "test_books/CatInTheHat.txt";
+        int k = 2;
+        TrieRandomWordWriter writer = (TrieRandomWordWriter)
+                TrieRandomWordWriter.createProcessor(k);
+        writer.readText(book);
+        String[] input = MappedCorpus.load(book).text().split("\\s+");
+        Set<String> contexts = new HashSet<>();
+        Set<String> transitions = new HashSet<>();
+        for (int i = 0; i + k < input.length; i++) {
+            contexts.add(input[i] + " " + input[i + 1]);
+            transitions.add(input[i] + " " + input[i + 1] + " "
+                    + input[i + 2]);
+        }
+        String[] words = writer.generateText(2000, new SplittableRandom(3))
+                .split(" ");
+        assertEquals(2000, words.length);
+        for (int i = 0; i + k < words.length; i++) {
+            String context = words[i] + " " + words[i + 1];
+            if (contexts.contains(context)) {
+                assertTrue(context + " -> " + words[i + 2], transitions
+                        .contains(context + " " + words[i + 2]));
+            }
+        }
+    }
+
+    /**
+     * Checks that a saved trie loads back and generates the same text.
+     */
+    @Test
+    public void testModelRoundTrip() throws IOException {
+        File model = File.createTempFile("model", ".bin");
+        model.deleteOnExit();
+        TrieRandomWordWriter saved = (TrieRandomWordWriter)
+                TrieRandomWordWriter.createProcessor(3);
+        saved.readText("test_books/MuchAdo.txt");
+        saved.saveModel(model.getPath());
+        TrieRandomWordWriter loaded = (TrieRandomWordWriter)
+                TrieRandomWordWriter.createProcessor(3);
+        loaded.loadModel(model.getPath());
+
+        assertEquals(saved.getTrie().slotCount(),
+                loaded.getTrie().slotCount());
+        assertEquals(saved.getVocabulary().size(),
+                loaded.getVocabulary().size());
+        assertEquals(saved.generateText(1000, new SplittableRandom(5)),
+                loaded.generateText(1000, new SplittableRandom(5)));
+    }
+}
@@ -0,0 +1,116 @@
+package test.java.assignment;
+
+import main.java.assignment.MappedCorpus;
+import main.java.assignment.PrimitiveRandomWordWriter;
+import main.java.assignment.RandomWordWriter;
+import main.java.assignment.Vocabulary;
+import main.java.assignment.WordScanner;
+import org.junit.Test;
+
+import java.util.*;
+import java.io.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WordScannerTest {
+    /**
+     * Checks that the default scanner finds the words split("\\s+") does,
+     * and interns them with the same ids as interning the split words.
+     */
+    @Test
+    public void testMatchesSplit() throws IOException {
+        for (String book : List.of("test_books/CatInTheHat.txt",
+                "test_books/MuchAdo.txt")) {
+            MappedCorpus corpus = MappedCorpus.load(book);
+            String[] words = corpus.text().split("\\s+");
+            Vocabulary expected = new Vocabulary();
+            int[] expectedIds = new int[words.length];
+            for (int i = 0; i < words.length; i++) {
+                expectedIds[i] = expected.intern(words[i]);
+            }
+            Vocabulary vocabulary = new Vocabulary();
+            int[] ids = WordScanner.WHITESPACE.intern(corpus.chars(),
+                    vocabulary);
+            assertTrue(book, Arrays.equals(expectedIds, ids));
+            assertEquals(expected.size(), vocabulary.size());
+            assertEquals(corpus.wordCount(),
+                    WordScanner.WHITESPACE.count(corpus.chars()));
+            for (int id = 0; id < vocabulary.size(); id++) {
+                assertEquals(expected.word(id), vocabulary.word(id));
+                assertEquals(id, vocabulary.idOf(expected.word(id)));
+            }
+        }
+        // Leading whitespace does not make an empty word.
+        assertEquals(List.of("a", "b"), words(WordScanner.WHITESPACE,
+                " \t a\n\nb \f"));
+        assertEquals(List.of(), words(WordScanner.WHITESPACE, " \n "));
+    }
+
+    /**
+     * Checks the rules for punctuation and case.
+     */
+    @Test
+    public void testRules() {
+        String text = "\"Don't,\" said the well-known Cat -- The CAT! 😀ok";
+        assertEquals(List.of("\"Don't,\"", "said", "the", "well-known",
+                "Cat", "--", "The", "CAT!", "😀ok"),
+                words(WordScanner.WHITESPACE, text));
+        assertEquals(List.of("\"", "Don't", ",", "\"", "said", "the",
+                "well-known", "Cat", "-", "-", "The", "CAT", "!", "😀ok"),
+                words(WordScanner.withRules(true, false), text));
+        assertEquals(List.of("\"don't,\"", "said", "the", "well-known",
+                "cat", "--", "the", "cat!", "😀ok"),
+                words(WordScanner.withRules(false, true), text));
+        assertEquals(List.of("'", "tis", "rock-n", "'", "-", "roll", "'"),
+                words(WordScanner.withRules(true, true),
+                        "'Tis rock-N'-roll'"));
+
+        // Folded words share one id.
+        Vocabulary vocabulary = new Vocabulary();
+        int[] ids = WordScanner.withRules(true, true).intern(
+                text.toCharArray(), vocabulary);
+        assertEquals(ids[0], ids[3]);
+        assertEquals(vocabulary.idOf("the"), ids[5]);
+        assertEquals(vocabulary.idOf("the"), ids[10]);
+        assertEquals(vocabulary.idOf("cat"), ids[7]);
+        assertEquals(vocabulary.idOf("cat"), ids[11]);
+    }
+
+    /**
+     * Checks that a word writer trains with a scanner's rules, and that its
+     * default tokens match the primitive word writer's.
+     */
+    @Test
+    public void testWritersUseScanner() throws IOException {
+        RandomWordWriter folded = (RandomWordWriter)
+                RandomWordWriter.createProcessor(1,
+                        WordScanner.withRules(true, true));
+        folded.readText(MappedCorpus.of("The cat. THE hat, the bat!"));
+        Map<String, List<String>> seeds = folded.getSeedToNextWords();
+        List<String> afterThe = seeds.get("the");
+        Collections.sort(afterThe);
+        assertEquals(List.of("bat", "cat", "hat"), afterThe);
+        assertEquals(List.of("."), seeds.get("cat"));
+        folded.appendText("Another Cat.");
+        assertEquals(List.of(".", "."), folded.getSeedToNextWords()
+                .get("cat"));
+
+        RandomWordWriter words = (RandomWordWriter)
+                RandomWordWriter.createProcessor(2);
+        words.readText("test_books/MuchAdo.txt");
+        PrimitiveRandomWordWriter primitive = (PrimitiveRandomWordWriter)
+                PrimitiveRandomWordWriter.createProcessor(2);
+        primitive.readText("test_books/MuchAdo.txt");
+        assertEquals(primitive.getTable().contextCount(),
+                words.getSeedToNextWords().size());
+    }
+
+    private static List<String> words(WordScanner scanner, String text) {
+        List<String> words = new ArrayList<>();
+        char[] chars = text.toCharArray();
+        scanner.scan(chars, 0, chars.length, (word, from, length) ->
+                words.add(new String(word, from, length)));
+        return words;
+    }
+}
@@ -0,0 +1,130 @@
+package test.java.assignment;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import main.java.assignment.MappedCorpus;
+import main.java.assignment.PrimitiveRandomWriter;
+import main.java.assignment.RandomWriter;
+import main.java.assignment.WriterMetrics;
+import org.junit.Test;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WriterMetricsTest {
+    /**
+     * Checks that training records the shape of the new model, and that
+     * RandomWriter and PrimitiveRandomWriter agree on it.
+     */
+    @Test
+    public void testTrainingStatistics() throws IOException {
+        String book = "test_books/CatInTheHat.txt";
+        WriterMetrics metrics = WriterMetrics.forEngine("RandomWriter");
+        long trainings = metrics.getTrainingCount();
+        RandomWriter writer = (RandomWriter) RandomWriter.createProcessor(3);
+        writer.readText(book);
+        assertEquals(trainings + 1, metrics.getTrainingCount());
+
+        Map<String, List<Character>> seeds = writer.getSeedToNextCharacters();
+        long entries = 0;
+        for (List<Character> nextCharacters : seeds.values()) {
+            entries += new HashSet<>(nextCharacters).size();
+        }
+        assertEquals(seeds.size(), metrics.getContextCount());
+        assertEquals(entries, metrics.getSuccessorEntryCount());
+        assertEquals(seeds.size(), Arrays.stream(
+                metrics.getBranchingHistogram()).sum());
+        assertEquals((double) entries / seeds.size(),
+                metrics.getMeanBranchingFactor(), 1e-9);
+        assertTrue(metrics.getEstimatedBytesPerContext() > 0);
+
+        WriterMetrics primitive = WriterMetrics.forEngine(
+                "PrimitiveRandomWriter");
+        PrimitiveRandomWriter.createProcessor(3).readText(
+                MappedCorpus.load(book));
+        assertEquals(seeds.size(), primitive.getContextCount());
+        assertEquals(entries, primitive.getSuccessorEntryCount());
+        assertTrue(Arrays.equals(metrics.getBranchingHistogram(),
+                primitive.getBranchingHistogram()));
+        // Both engines count in the same ContextTable.
+        assertEquals(primitive.getEstimatedBytesPerContext(),
+                metrics.getEstimatedBytesPerContext(), 1e-9);
+    }
+
+    /**
+     * Checks that generation counts tokens and dead ends. In "abc" at level
+     * 2 the only seed is "ab", so every character after the first needs a
+     * restart.
+     */
+    @Test
+    public void testGenerationCounters() {
+        WriterMetrics metrics = WriterMetrics.forEngine("RandomWriter");
+        long tokens = metrics.getGeneratedTokens();
+        long restarts = metrics.getDeadEndRestarts();
+        long generations = metrics.getGenerationCount();
+        RandomWriter writer = (RandomWriter) RandomWriter.createProcessor(2);
+        writer.readText(MappedCorpus.of("abc"));
+        assertEquals("cccccccccc", writer.generateText(10));
+        assertEquals(generations + 1, metrics.getGenerationCount());
+        assertEquals(tokens + 10, metrics.getGeneratedTokens());
+        assertEquals(restarts + 9, metrics.getDeadEndRestarts());
+        assertTrue(metrics.getTokensPerSecond() > 0);
+
+        WriterMetrics primitive = WriterMetrics.forEngine(
+                "PrimitiveRandomWriter");
+        restarts = primitive.getDeadEndRestarts();
+        PrimitiveRandomWriter fixed = (PrimitiveRandomWriter)
+                PrimitiveRandomWriter.createProcessor(2);
+        fixed.readText(MappedCorpus.of("abc"));
+        fixed.generateText(10);
+        assertEquals(restarts + 9, primitive.getDeadEndRestarts());
+    }
+
+    /**
+     * Checks that the metrics are readable over JMX.
+     */
+    @Test
+    public void testMBeanRegistered() throws Exception {
+        RandomWriter writer = (RandomWriter) RandomWriter.createProcessor(1);
+        writer.readText(MappedCorpus.of("abab"));
+        Object contexts = ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(WriterMetrics.objectName("RandomWriter"),
+                        "ContextCount");
+        assertEquals(2L, contexts);
+    }
+
+    /**
+     * Checks that a JFR recording receives generation events.
+     */
+    @Test
+    public void testGenerationEvents() throws IOException {
+        RandomWriter writer = (RandomWriter) RandomWriter.createProcessor(2);
+        writer.readText(MappedCorpus.of("abc"));
+        Path dump = Files.createTempFile("metrics", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("main.java.assignment.Generation");
+            recording.start();
+            writer.generateText(10);
+            recording.stop();
+            recording.dump(dump);
+        }
+        boolean found = false;
+        for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+            if (event.getString("engine").equals("RandomWriter")) {
+                assertEquals(2, event.getInt("level"));
+                assertEquals(10, event.getLong("tokens"));
+                assertEquals(9, event.getLong("restarts"));
+                found = true;
+            }
+        }
+        Files.delete(dump);
+        assertTrue(found);
+    }
+}